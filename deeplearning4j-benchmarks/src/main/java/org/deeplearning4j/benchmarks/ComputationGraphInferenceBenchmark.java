@@ -0,0 +1,86 @@
+package org.deeplearning4j.benchmarks;
+
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.graph.ElementWiseVertex;
+import org.deeplearning4j.nn.conf.graph.MergeVertex;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.graph.InferencePlan;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ComputationGraph#output(INDArray...)} against a precompiled {@link InferencePlan}, both with
+ * detached outputs and with outputs written into preallocated arrays.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ComputationGraphInferenceBenchmark {
+
+    @Param({"1", "32", "256"})
+    public int batchSize;
+
+    @Param({"256"})
+    public int layerSize;
+
+    private ComputationGraph graph;
+    private InferencePlan plan;
+    private INDArray input;
+    private INDArray[] preallocated;
+
+    @Setup
+    public void setup() {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .weightInit(WeightInit.XAVIER).activation(Activation.RELU).graphBuilder().addInputs("in")
+                        .addLayer("0", new DenseLayer.Builder().nIn(layerSize).nOut(layerSize).build(), "in")
+                        .addLayer("1", new DenseLayer.Builder().nIn(layerSize).nOut(layerSize).build(), "0")
+                        .addVertex("add1", new ElementWiseVertex(ElementWiseVertex.Op.Add), "0", "1")
+                        .addLayer("2", new DenseLayer.Builder().nIn(layerSize).nOut(layerSize).build(), "add1")
+                        .addVertex("add2", new ElementWiseVertex(ElementWiseVertex.Op.Add), "add1", "2")
+                        .addLayer("3", new DenseLayer.Builder().nIn(layerSize).nOut(layerSize).build(), "add2")
+                        .addVertex("merge", new MergeVertex(), "add2", "3")
+                        .addLayer("out", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(2 * layerSize).nOut(10).build(), "merge")
+                        .setOutputs("out").build();
+
+        graph = new ComputationGraph(conf);
+        graph.init();
+        plan = graph.inferencePlan();
+
+        input = Nd4j.rand(batchSize, layerSize);
+        preallocated = new INDArray[] {Nd4j.create(batchSize, 10)};
+    }
+
+    @TearDown
+    public void tearDown() {
+        plan.destroyWorkspace();
+    }
+
+    @Benchmark
+    public INDArray[] graphOutput() {
+        return graph.output(input);
+    }
+
+    @Benchmark
+    public INDArray[] planOutput() {
+        return plan.output(input);
+    }
+
+    @Benchmark
+    public INDArray[] planOutputPreallocated() {
+        plan.output(new INDArray[] {input}, null, preallocated);
+        return preallocated;
+    }
+}
@@ -0,0 +1,76 @@
+package org.deeplearning4j.benchmarks.encoding;
+
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.*;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding throughput of the updates codecs (see {@link GradientCodec}). Scores are messages per
+ * second: multiply by the updates length for parameters per second.<br>
+ * Updates are normally distributed, with standard deviation 1e-3 (i.e. the threshold of the threshold codec).
+ * The encode benchmark includes copying the updates into the residual array before each message, as encoding
+ * modifies the residual.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class GradientCodecBenchmark {
+
+    @Param({"threshold", "topk", "sign", "int8"})
+    public String codec;
+
+    @Param({"100000", "10000000"})
+    public int length;
+
+    protected GradientCodec gradientCodec;
+    protected INDArray updates;
+    protected INDArray residual;
+    protected INDArray message;
+    protected INDArray target;
+
+    /**
+     * @param name threshold (1e-3), topk (1% of the values), sign or int8
+     */
+    public static GradientCodec createCodec(String name) {
+        switch (name) {
+            case "threshold":
+                return new ThresholdCodec(1e-3);
+            case "topk":
+                return new TopKCodec(1e-2);
+            case "sign":
+                return new SignCodec();
+            case "int8":
+                return new Int8Codec();
+            default:
+                throw new IllegalArgumentException("Unknown codec: " + name);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Nd4j.getRandom().setSeed(12345);
+        gradientCodec = createCodec(codec);
+        updates = Nd4j.randn(1, length).muli(1e-3);
+        residual = updates.dup();
+        message = gradientCodec.encode(updates.dup());
+        target = Nd4j.zeros(1, length);
+    }
+
+    @Benchmark
+    public INDArray encode() {
+        residual.assign(updates);
+        return gradientCodec.encode(residual);
+    }
+
+    @Benchmark
+    public INDArray decode() {
+        gradientCodec.decode(message, target);
+        return target;
+    }
+}
@@ -0,0 +1,126 @@
+package org.deeplearning4j.benchmarks.encoding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.datasets.iterator.impl.IrisDataSetIterator;
+import org.deeplearning4j.datasets.iterator.impl.MnistDataSetIterator;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.deeplearning4j.optimize.solvers.accumulation.BucketEncoding;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.GradientCodec;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.io.IOException;
+
+/**
+ * Compares the convergence of standard test networks trained with each updates codec, along with the number of bytes
+ * sent per parameter.<br>
+ * Shared training is simulated on a single JVM: each of the workers computes the gradient on its own minibatch, adds
+ * the SGD update (learning rate / number of workers) to its residual, and encodes it with the codec. All messages
+ * are decoded and applied to the (shared) parameters, and the encoding error stays in the residual of each worker.
+ * "none" is plain synchronous SGD, without encoding.<br>
+ * Usage: {@code java -cp benchmarks.jar org.deeplearning4j.benchmarks.encoding.GradientCodecComparison
+ * [workers] [epochs]}
+ */
+@Slf4j
+public class GradientCodecComparison {
+
+    private static final String[] CODECS = {"none", "threshold", "topk", "sign", "int8"};
+
+    private GradientCodecComparison() {}
+
+    public static void main(String[] args) throws IOException {
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int epochs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        log.info(String.format("%-8s %-10s %10s %10s %16s", "network", "codec", "score", "accuracy",
+                        "bytes/param/msg"));
+        for (String network : new String[] {"iris", "mnist"}) {
+            for (String codec : CODECS) {
+                GradientCodec gradientCodec = codec.equals("none") ? null : GradientCodecBenchmark.createCodec(codec);
+                double[] result = train(network, gradientCodec, workers, epochs);
+                log.info(String.format("%-8s %-10s %10.4f %10.4f %16.4f", network, codec, result[0], result[1],
+                                result[2]));
+            }
+        }
+    }
+
+    /**
+     * @return Score and accuracy on the test set after training, and mean number of bytes per parameter per message
+     */
+    protected static double[] train(String network, GradientCodec codec, int workers, int epochs)
+                    throws IOException {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerNetwork net = new MultiLayerNetwork(getConfiguration(network));
+        net.init();
+
+        double learningRate = network.equals("iris") ? 0.1 : 0.05;
+        DataSetIterator train = network.equals("iris") ? new IrisDataSetIterator(10, 150)
+                        : new MnistDataSetIterator(64, true, 12345);
+        DataSetIterator test = network.equals("iris") ? new IrisDataSetIterator(150, 150)
+                        : new MnistDataSetIterator(1000, false, 12345);
+
+        int numParams = net.numParams();
+        INDArray[] residuals = new INDArray[workers];
+        for (int w = 0; w < workers; w++)
+            residuals[w] = Nd4j.zeros(1, numParams);
+
+        long bytes = 0;
+        long messages = 0;
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            train.reset();
+            while (train.hasNext()) {
+                INDArray update = Nd4j.zeros(1, numParams);
+                for (int w = 0; w < workers && train.hasNext(); w++) {
+                    DataSet ds = train.next();
+                    net.setInput(ds.getFeatures());
+                    net.setLabels(ds.getLabels());
+                    net.computeGradientAndScore();
+                    residuals[w].addi(net.gradient().gradient().mul(learningRate / workers));
+
+                    if (codec == null) {
+                        update.addi(residuals[w]);
+                        residuals[w].assign(0.0);
+                        bytes += numParams * 4L;
+                        messages++;
+                        continue;
+                    }
+
+                    INDArray message = codec.encode(residuals[w]);
+                    messages++;
+                    if (message != null) {
+                        bytes += message.data().length() * 4L;
+                        BucketEncoding.decode(message, update);
+                    }
+                }
+                net.params().subi(update);
+            }
+        }
+
+        // score of the first test minibatch, accuracy on the whole test set
+        double score = net.score(test.next());
+        test.reset();
+        double accuracy = net.evaluate(test).accuracy();
+        return new double[] {score, accuracy, bytes / (double) messages / numParams};
+    }
+
+    protected static MultiLayerConfiguration getConfiguration(String network) {
+        int nIn = network.equals("iris") ? 4 : 784;
+        int nHidden = network.equals("iris") ? 10 : 100;
+        int nOut = network.equals("iris") ? 3 : 10;
+        return new NeuralNetConfiguration.Builder().seed(12345).weightInit(WeightInit.XAVIER).list()
+                        .layer(0, new DenseLayer.Builder().nIn(nIn).nOut(nHidden).activation(Activation.TANH)
+                                        .build())
+                        .layer(1, new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(nHidden).nOut(nOut)
+                                        .activation(Activation.SOFTMAX).build())
+                        .build();
+    }
+}
@@ -0,0 +1,104 @@
+package org.deeplearning4j.benchmarks.layers;
+
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.util.DataTypeUtil;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.NoOp;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class for the layer benchmarks. Each benchmark runs a minimal network: the layer under test, followed by a
+ * loss layer without parameters wherever possible, so that the measured time is dominated by the layer itself.<br>
+ * Two passes are measured: {@link #forward()} (inference) and {@link #forwardBackward()} (forward pass in training
+ * mode plus backprop, i.e. the gradient calculation of one training iteration, without the updater).<br>
+ * All benchmarks are parameterized by minibatch size, ND4J data type and workspace mode. Run them with {@code -prof gc}
+ * (or via {@link LayerBenchmarks}) to also report the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public abstract class BaseLayerBenchmark {
+
+    @Param({"1", "32", "128"})
+    public int batchSize;
+
+    /**
+     * ND4J data type: FLOAT, DOUBLE or HALF. HALF is only supported by the CUDA backend
+     */
+    @Param({"FLOAT", "DOUBLE"})
+    public String dataType;
+
+    @Param({"NONE", "SINGLE", "SEPARATE"})
+    public WorkspaceMode workspaceMode;
+
+    protected MultiLayerNetwork net;
+    protected INDArray input;
+    protected INDArray labels;
+
+    /**
+     * @param builder Global configuration (seed, weight init, workspace modes), to add the layers to
+     * @return Configuration of the network to benchmark
+     */
+    protected abstract MultiLayerConfiguration getConfiguration(NeuralNetConfiguration.Builder builder);
+
+    protected abstract INDArray createInput(int batchSize);
+
+    protected abstract INDArray createLabels(int batchSize);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        //Data type is global: each set of parameters runs in its own fork
+        DataTypeUtil.setDTypeForContext(DataBuffer.Type.valueOf(dataType));
+        Nd4j.getRandom().setSeed(12345);
+
+        NeuralNetConfiguration.Builder builder = new NeuralNetConfiguration.Builder().seed(12345)
+                        .weightInit(WeightInit.XAVIER).updater(new NoOp()).trainingWorkspaceMode(workspaceMode)
+                        .inferenceWorkspaceMode(workspaceMode);
+        net = new MultiLayerNetwork(getConfiguration(builder));
+        net.init();
+
+        input = createInput(batchSize);
+        labels = createLabels(batchSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Nd4j.getWorkspaceManager().destroyAllWorkspacesForCurrentThread();
+    }
+
+    @Benchmark
+    public INDArray forward() {
+        return net.output(input, false);
+    }
+
+    @Benchmark
+    public Gradient forwardBackward() {
+        net.setInput(input);
+        net.setLabels(labels);
+        net.computeGradientAndScore();
+        return net.gradient();
+    }
+
+    /**
+     * @return One-hot labels, with the class of each example chosen at random
+     */
+    protected static INDArray oneHot(int batchSize, int nClasses) {
+        INDArray labels = Nd4j.zeros(batchSize, nClasses);
+        for (int i = 0; i < batchSize; i++) {
+            labels.putScalar(i, Nd4j.getRandom().nextInt(nClasses), 1.0);
+        }
+        return labels;
+    }
+}
@@ -0,0 +1,52 @@
+package org.deeplearning4j.benchmarks.layers;
+
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.BatchNormalization;
+import org.deeplearning4j.nn.conf.layers.CnnLossLayer;
+import org.deeplearning4j.nn.conf.layers.LossLayer;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * {@link BatchNormalization} forward and backward pass, for feed-forward and convolutional activations
+ */
+public class BatchNormalizationBenchmark extends BaseLayerBenchmark {
+
+    @Param({"true", "false"})
+    public boolean convolutional;
+
+    @Param({"32"})
+    public int channels;
+
+    @Param({"28"})
+    public int imageSize;
+
+    @Override
+    protected MultiLayerConfiguration getConfiguration(NeuralNetConfiguration.Builder builder) {
+        NeuralNetConfiguration.ListBuilder list = builder.list().layer(0, new BatchNormalization.Builder().build());
+        if (convolutional) {
+            return list.layer(1, new CnnLossLayer.Builder(LossFunctions.LossFunction.MSE)
+                            .activation(Activation.IDENTITY).build())
+                            .setInputType(InputType.convolutional(imageSize, imageSize, channels)).build();
+        }
+        return list.layer(1, new LossLayer.Builder(LossFunctions.LossFunction.MSE).activation(Activation.IDENTITY)
+                        .build()).setInputType(InputType.feedForward(channels * imageSize * imageSize)).build();
+    }
+
+    @Override
+    protected INDArray createInput(int batchSize) {
+        if (convolutional)
+            return Nd4j.rand(new int[] {batchSize, channels, imageSize, imageSize});
+        return Nd4j.rand(batchSize, channels * imageSize * imageSize);
+    }
+
+    @Override
+    protected INDArray createLabels(int batchSize) {
+        return createInput(batchSize);
+    }
+}
@@ -0,0 +1,49 @@
+package org.deeplearning4j.benchmarks.layers;
+
+import org.deeplearning4j.nn.conf.ConvolutionMode;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.CnnLossLayer;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * {@link ConvolutionLayer} forward and backward pass (same mode, stride 1)
+ */
+public class ConvolutionLayerBenchmark extends BaseLayerBenchmark {
+
+    @Param({"3", "5"})
+    public int kernelSize;
+
+    @Param({"32"})
+    public int channels;
+
+    @Param({"28"})
+    public int imageSize;
+
+    @Override
+    protected MultiLayerConfiguration getConfiguration(NeuralNetConfiguration.Builder builder) {
+        return builder.convolutionMode(ConvolutionMode.Same).list()
+                        .layer(0, new ConvolutionLayer.Builder().kernelSize(kernelSize, kernelSize).stride(1, 1)
+                                        .nOut(channels).activation(Activation.RELU).build())
+                        .layer(1, new CnnLossLayer.Builder(LossFunctions.LossFunction.MSE)
+                                        .activation(Activation.IDENTITY).build())
+                        .setInputType(InputType.convolutional(imageSize, imageSize, channels))
+                        .build();
+    }
+
+    @Override
+    protected INDArray createInput(int batchSize) {
+        return Nd4j.rand(new int[] {batchSize, channels, imageSize, imageSize});
+    }
+
+    @Override
+    protected INDArray createLabels(int batchSize) {
+        return Nd4j.rand(new int[] {batchSize, channels, imageSize, imageSize});
+    }
+}
@@ -0,0 +1,40 @@
+package org.deeplearning4j.benchmarks.layers;
+
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.LossLayer;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * {@link DenseLayer} forward and backward pass
+ */
+public class DenseLayerBenchmark extends BaseLayerBenchmark {
+
+    @Param({"256", "1024"})
+    public int layerSize;
+
+    @Override
+    protected MultiLayerConfiguration getConfiguration(NeuralNetConfiguration.Builder builder) {
+        return builder.list()
+                        .layer(0, new DenseLayer.Builder().nIn(layerSize).nOut(layerSize)
+                                        .activation(Activation.RELU).build())
+                        .layer(1, new LossLayer.Builder(LossFunctions.LossFunction.MSE)
+                                        .activation(Activation.IDENTITY).build())
+                        .build();
+    }
+
+    @Override
+    protected INDArray createInput(int batchSize) {
+        return Nd4j.rand(batchSize, layerSize);
+    }
+
+    @Override
+    protected INDArray createLabels(int batchSize) {
+        return Nd4j.rand(batchSize, layerSize);
+    }
+}
@@ -0,0 +1,47 @@
+package org.deeplearning4j.benchmarks.layers;
+
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.EmbeddingLayer;
+import org.deeplearning4j.nn.conf.layers.LossLayer;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * {@link EmbeddingLayer} forward and backward pass
+ */
+public class EmbeddingLayerBenchmark extends BaseLayerBenchmark {
+
+    @Param({"10000"})
+    public int vocabSize;
+
+    @Param({"128"})
+    public int embeddingSize;
+
+    @Override
+    protected MultiLayerConfiguration getConfiguration(NeuralNetConfiguration.Builder builder) {
+        return builder.list()
+                        .layer(0, new EmbeddingLayer.Builder().nIn(vocabSize).nOut(embeddingSize)
+                                        .activation(Activation.IDENTITY).build())
+                        .layer(1, new LossLayer.Builder(LossFunctions.LossFunction.MSE)
+                                        .activation(Activation.IDENTITY).build())
+                        .build();
+    }
+
+    @Override
+    protected INDArray createInput(int batchSize) {
+        INDArray indices = Nd4j.create(batchSize, 1);
+        for (int i = 0; i < batchSize; i++) {
+            indices.putScalar(i, Nd4j.getRandom().nextInt(vocabSize));
+        }
+        return indices;
+    }
+
+    @Override
+    protected INDArray createLabels(int batchSize) {
+        return Nd4j.rand(batchSize, embeddingSize);
+    }
+}
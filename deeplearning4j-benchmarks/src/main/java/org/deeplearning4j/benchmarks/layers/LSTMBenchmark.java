@@ -0,0 +1,53 @@
+package org.deeplearning4j.benchmarks.layers;
+
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.GravesLSTM;
+import org.deeplearning4j.nn.conf.layers.LSTM;
+import org.deeplearning4j.nn.conf.layers.Layer;
+import org.deeplearning4j.nn.conf.layers.RnnLossLayer;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * {@link LSTM} and {@link GravesLSTM} forward and backward pass. Both layers are implemented by
+ * {@link org.deeplearning4j.nn.layers.recurrent.LSTMHelpers}: GravesLSTM adds peephole connections
+ */
+public class LSTMBenchmark extends BaseLayerBenchmark {
+
+    @Param({"LSTM", "GravesLSTM"})
+    public String layerType;
+
+    @Param({"128"})
+    public int layerSize;
+
+    @Param({"50"})
+    public int timeSeriesLength;
+
+    @Override
+    protected MultiLayerConfiguration getConfiguration(NeuralNetConfiguration.Builder builder) {
+        Layer lstm;
+        if ("LSTM".equals(layerType)) {
+            lstm = new LSTM.Builder().nIn(layerSize).nOut(layerSize).activation(Activation.TANH).build();
+        } else {
+            lstm = new GravesLSTM.Builder().nIn(layerSize).nOut(layerSize).activation(Activation.TANH).build();
+        }
+        return builder.list().layer(0, lstm)
+                        .layer(1, new RnnLossLayer.Builder(LossFunctions.LossFunction.MSE)
+                                        .activation(Activation.IDENTITY).build())
+                        .build();
+    }
+
+    @Override
+    protected INDArray createInput(int batchSize) {
+        return Nd4j.rand(new int[] {batchSize, layerSize, timeSeriesLength});
+    }
+
+    @Override
+    protected INDArray createLabels(int batchSize) {
+        return Nd4j.rand(new int[] {batchSize, layerSize, timeSeriesLength});
+    }
+}
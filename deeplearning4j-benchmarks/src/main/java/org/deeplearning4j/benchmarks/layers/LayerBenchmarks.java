@@ -0,0 +1,28 @@
+package org.deeplearning4j.benchmarks.layers;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all layer benchmarks with the GC profiler enabled, so that the allocation rate ({@code gc.alloc.rate.norm}:
+ * bytes allocated per forward or forward/backward pass) is reported alongside the timings.<br>
+ * Usage: {@code java -cp benchmarks.jar org.deeplearning4j.benchmarks.layers.LayerBenchmarks [regex] [results.json]}.
+ * The optional regex restricts the benchmarks that are run, for example {@code "LSTMBenchmark"}
+ */
+public class LayerBenchmarks {
+
+    private LayerBenchmarks() {}
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : LayerBenchmarks.class.getPackage().getName() + ".*";
+        String resultFile = args.length > 1 ? args[1] : "layer-benchmarks.json";
+
+        Options options = new OptionsBuilder().include(include).addProfiler(GCProfiler.class)
+                        .resultFormat(ResultFormatType.JSON).result(resultFile).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,70 @@
+package org.deeplearning4j.benchmarks.layers;
+
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.Layer;
+import org.deeplearning4j.nn.conf.layers.LossLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.nd4j.linalg.ops.transforms.Transforms;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * {@link OutputLayer} and {@link LossLayer} forward and backward pass (score and gradient calculation), for common
+ * loss functions
+ */
+public class OutputLayerBenchmark extends BaseLayerBenchmark {
+
+    @Param({"OutputLayer", "LossLayer"})
+    public String layerType;
+
+    @Param({"MCXENT", "XENT", "MSE"})
+    public LossFunctions.LossFunction lossFunction;
+
+    @Param({"1000"})
+    public int nOut;
+
+    @Param({"256"})
+    public int nIn;
+
+    private static Activation activation(LossFunctions.LossFunction lossFunction) {
+        switch (lossFunction) {
+            case MCXENT:
+                return Activation.SOFTMAX;
+            case XENT:
+                return Activation.SIGMOID;
+            default:
+                return Activation.IDENTITY;
+        }
+    }
+
+    @Override
+    protected MultiLayerConfiguration getConfiguration(NeuralNetConfiguration.Builder builder) {
+        Layer layer;
+        if ("OutputLayer".equals(layerType)) {
+            layer = new OutputLayer.Builder(lossFunction).nIn(nIn).nOut(nOut).activation(activation(lossFunction))
+                            .build();
+        } else {
+            layer = new LossLayer.Builder(lossFunction).activation(activation(lossFunction)).build();
+        }
+        return builder.list().layer(0, layer).build();
+    }
+
+    @Override
+    protected INDArray createInput(int batchSize) {
+        //The loss layer has no parameters: its input has the size of the labels
+        return Nd4j.rand(batchSize, "OutputLayer".equals(layerType) ? nIn : nOut);
+    }
+
+    @Override
+    protected INDArray createLabels(int batchSize) {
+        if (lossFunction == LossFunctions.LossFunction.MCXENT)
+            return oneHot(batchSize, nOut);
+        if (lossFunction == LossFunctions.LossFunction.XENT)
+            return Transforms.round(Nd4j.rand(batchSize, nOut), false);
+        return Nd4j.rand(batchSize, nOut);
+    }
+}
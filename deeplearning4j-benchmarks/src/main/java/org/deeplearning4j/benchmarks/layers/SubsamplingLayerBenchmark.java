@@ -0,0 +1,47 @@
+package org.deeplearning4j.benchmarks.layers;
+
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.CnnLossLayer;
+import org.deeplearning4j.nn.conf.layers.SubsamplingLayer;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * {@link SubsamplingLayer} forward and backward pass (2x2 kernel, stride 2)
+ */
+public class SubsamplingLayerBenchmark extends BaseLayerBenchmark {
+
+    @Param({"MAX", "AVG"})
+    public SubsamplingLayer.PoolingType poolingType;
+
+    @Param({"32"})
+    public int channels;
+
+    @Param({"28"})
+    public int imageSize;
+
+    @Override
+    protected MultiLayerConfiguration getConfiguration(NeuralNetConfiguration.Builder builder) {
+        return builder.list()
+                        .layer(0, new SubsamplingLayer.Builder(poolingType).kernelSize(2, 2).stride(2, 2).build())
+                        .layer(1, new CnnLossLayer.Builder(LossFunctions.LossFunction.MSE)
+                                        .activation(Activation.IDENTITY).build())
+                        .setInputType(InputType.convolutional(imageSize, imageSize, channels))
+                        .build();
+    }
+
+    @Override
+    protected INDArray createInput(int batchSize) {
+        return Nd4j.rand(new int[] {batchSize, channels, imageSize, imageSize});
+    }
+
+    @Override
+    protected INDArray createLabels(int batchSize) {
+        return Nd4j.rand(new int[] {batchSize, channels, imageSize / 2, imageSize / 2});
+    }
+}
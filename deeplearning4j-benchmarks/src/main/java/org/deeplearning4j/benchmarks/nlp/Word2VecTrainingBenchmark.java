@@ -0,0 +1,122 @@
+package org.deeplearning4j.benchmarks.nlp;
+
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.embeddings.learning.ElementsLearningAlgorithm;
+import org.deeplearning4j.models.embeddings.learning.impl.elements.CBOW;
+import org.deeplearning4j.models.embeddings.learning.impl.elements.HogwildCBOW;
+import org.deeplearning4j.models.embeddings.learning.impl.elements.HogwildSkipGram;
+import org.deeplearning4j.models.embeddings.learning.impl.elements.SkipGram;
+import org.deeplearning4j.models.embeddings.loader.VectorsConfiguration;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
+import org.deeplearning4j.models.word2vec.Huffman;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
+import org.nd4j.linalg.factory.Nd4j;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Word2Vec training throughput of the Aggregate ops path ({@link SkipGram}, {@link CBOW}) against the JVM Hogwild
+ * path ({@link HogwildSkipGram}, {@link HogwildCBOW}). Scores are passes per second over 1000 sequences of 20 words
+ * (multiply by 20000 for words per second), with a vocabulary of 10000 words with Zipf frequencies.<br>
+ * Benchmark threads share the model, as VectorCalculationsThreads do: use "-t" to compare scaling, e.g. "-t 32".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class Word2VecTrainingBenchmark {
+    private static final int NUM_WORDS = 10000;
+    private static final int NUM_SEQUENCES = 1000;
+    private static final int SEQUENCE_LENGTH = 20;
+
+    @Param({"SkipGram", "CBOW"})
+    public String algorithm;
+
+    @Param({"aggregate", "hogwild"})
+    public String engine;
+
+    @Param({"negative", "hs"})
+    public String loss;
+
+    @Param({"100"})
+    public int vectorLength;
+
+    protected ElementsLearningAlgorithm<VocabWord> learningAlgorithm;
+    protected List<Sequence<VocabWord>> sequences;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        protected AtomicLong nextRandom;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            nextRandom = new AtomicLong(Thread.currentThread().getId());
+        }
+    }
+
+    public static ElementsLearningAlgorithm<VocabWord> createAlgorithm(String algorithm, String engine) {
+        boolean hogwild = "hogwild".equals(engine);
+        switch (algorithm) {
+            case "SkipGram":
+                return hogwild ? new HogwildSkipGram<VocabWord>() : new SkipGram<VocabWord>();
+            case "CBOW":
+                return hogwild ? new HogwildCBOW<VocabWord>() : new CBOW<VocabWord>();
+            default:
+                throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Nd4j.getRandom().setSeed(12345);
+        AbstractCache<VocabWord> vocab = new AbstractCache.Builder<VocabWord>().build();
+        for (int i = 0; i < NUM_WORDS; i++)
+            vocab.addToken(new VocabWord(1000000.0 / (i + 1), "word_" + i));
+        Huffman huffman = new Huffman(vocab.vocabWords());
+        huffman.build();
+        huffman.applyIndexes(vocab);
+
+        boolean negative = "negative".equals(loss);
+        VectorsConfiguration configuration = new VectorsConfiguration();
+        configuration.setLayersSize(vectorLength);
+        configuration.setWindow(5);
+        configuration.setNegative(negative ? 5 : 0);
+        configuration.setUseHierarchicSoftmax(!negative);
+
+        InMemoryLookupTable<VocabWord> lookupTable = new InMemoryLookupTable.Builder<VocabWord>().cache(vocab)
+                        .vectorLength(vectorLength).negative(configuration.getNegative())
+                        .useHierarchicSoftmax(!negative).seed(12345).build();
+        lookupTable.resetWeights(true);
+
+        learningAlgorithm = createAlgorithm(algorithm, engine);
+        learningAlgorithm.configure(vocab, lookupTable, configuration);
+
+        // log-uniform word indexes, i.e. Zipf distributed words
+        Random random = new Random(12345);
+        sequences = new ArrayList<>();
+        for (int i = 0; i < NUM_SEQUENCES; i++) {
+            Sequence<VocabWord> sequence = new Sequence<>();
+            for (int j = 0; j < SEQUENCE_LENGTH; j++) {
+                int index = (int) Math.pow(NUM_WORDS, random.nextDouble()) - 1;
+                sequence.addElement(vocab.elementAtIndex(index));
+            }
+            sequences.add(sequence);
+        }
+    }
+
+    @Benchmark
+    public void train(ThreadState state) {
+        for (Sequence<VocabWord> sequence : sequences)
+            learningAlgorithm.learnSequence(sequence, state.nextRandom, 0.025);
+        // executes Aggregate ops left in the batch of this thread
+        learningAlgorithm.finish();
+    }
+}
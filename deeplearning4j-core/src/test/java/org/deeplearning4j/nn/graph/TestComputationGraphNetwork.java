@@ -706,6 +706,64 @@ public class TestComputationGraphNetwork extends BaseDL4JTest {
         }
     }
 
+    @Test
+    public void testReleaseActivations() {
+        //Same network and parameters, with and without activations/epsilons released after their last use:
+        // outputs, gradients and fit results must be identical
+
+        for(WorkspaceMode ws : WorkspaceMode.values()) {
+            for(boolean checkpointing : new boolean[]{false, true}) {
+                log.info("Workspace mode: " + ws + ", gradient checkpointing: " + checkpointing);
+
+                //Skip connections: "in" and "0" are consumed by more than one vertex
+                ComputationGraphConfiguration.GraphBuilder builder = new NeuralNetConfiguration.Builder()
+                        .updater(new Sgd(0.1)).trainingWorkspaceMode(ws).inferenceWorkspaceMode(ws)
+                        .activation(Activation.TANH).seed(12345).graphBuilder().addInputs("in")
+                        .addLayer("0", new DenseLayer.Builder().nIn(4).nOut(6).build(), "in")
+                        .addLayer("1", new DenseLayer.Builder().nIn(6).nOut(6).build(), "0")
+                        .addVertex("add", new ElementWiseVertex(ElementWiseVertex.Op.Add), "0", "1")
+                        .addVertex("merge", new MergeVertex(), "in", "add")
+                        .addLayer("out", new OutputLayer.Builder().lossFunction(LossFunctions.LossFunction.MCXENT)
+                                .activation(Activation.SOFTMAX).nIn(10).nOut(3).build(), "merge")
+                        .setOutputs("out");
+                if (checkpointing) {
+                    builder.gradientCheckpointing("add");
+                }
+                ComputationGraphConfiguration conf = builder.build();
+
+                ComputationGraph release = new ComputationGraph(conf);
+                release.init();
+                ComputationGraph noRelease = new ComputationGraph(conf.clone());
+                noRelease.init(release.params().dup(), false);
+                noRelease.releaseActivations = false;
+
+                DataSet ds = new IrisDataSetIterator(150, 150).next();
+                INDArray in = ds.getFeatures();
+
+                assertEquals(noRelease.outputSingle(in), release.outputSingle(in));
+
+                release.setInputs(in);
+                release.setLabels(ds.getLabels());
+                release.computeGradientAndScore();
+                noRelease.setInputs(in);
+                noRelease.setLabels(ds.getLabels());
+                noRelease.computeGradientAndScore();
+
+                assertEquals(noRelease.score(), release.score(), 1e-6);
+                assertEquals(noRelease.gradient().gradient(), release.gradient().gradient());
+
+                for (int i = 0; i < 3; i++) {
+                    release.fit(ds);
+                    noRelease.fit(ds);
+                }
+                assertEquals(noRelease.params(), release.params());
+                assertEquals(noRelease.outputSingle(in), release.outputSingle(in));
+
+                Nd4j.getWorkspaceManager().destroyAllWorkspacesForCurrentThread();
+            }
+        }
+    }
+
     @Test
     public void testExternalErrors2(){
         Nd4j.getExecutioner().setProfilingMode(OpExecutioner.ProfilingMode.SCOPE_PANIC);
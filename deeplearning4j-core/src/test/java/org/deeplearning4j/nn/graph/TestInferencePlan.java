@@ -0,0 +1,132 @@
+package org.deeplearning4j.nn.graph;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.graph.ElementWiseVertex;
+import org.deeplearning4j.nn.conf.graph.MergeVertex;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.GlobalPoolingLayer;
+import org.deeplearning4j.nn.conf.layers.LSTM;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.layers.PoolingType;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.Assert.*;
+
+public class TestInferencePlan extends BaseDL4JTest {
+
+    private static ComputationGraph getResidualGraph() {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .weightInit(WeightInit.XAVIER).activation(Activation.TANH).graphBuilder().addInputs("in")
+                        .addLayer("0", new DenseLayer.Builder().nIn(10).nOut(8).build(), "in")
+                        .addLayer("1", new DenseLayer.Builder().nIn(8).nOut(8).build(), "0")
+                        .addVertex("add", new ElementWiseVertex(ElementWiseVertex.Op.Add), "0", "1")
+                        .addLayer("2", new DenseLayer.Builder().nIn(8).nOut(8).build(), "add")
+                        .addVertex("merge", new MergeVertex(), "add", "2")
+                        .addLayer("out1", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(16).nOut(3).build(), "merge")
+                        .addLayer("out2", new OutputLayer.Builder(LossFunctions.LossFunction.MSE)
+                                        .activation(Activation.IDENTITY).nIn(8).nOut(2).build(), "2")
+                        .setOutputs("out1", "out2").build();
+
+        ComputationGraph net = new ComputationGraph(conf);
+        net.init();
+        return net;
+    }
+
+    @Test
+    public void testInferencePlanOutput() {
+        ComputationGraph net = getResidualGraph();
+        InferencePlan plan = net.inferencePlan();
+
+        assertEquals(net.getVertices().length - 1, plan.numSteps());
+
+        for (int minibatch : new int[] {1, 5, 5, 5, 3}) {
+            INDArray in = Nd4j.rand(minibatch, 10);
+            INDArray[] exp = net.output(in);
+            INDArray[] act = plan.output(in);
+
+            assertEquals(exp.length, act.length);
+            for (int i = 0; i < exp.length; i++) {
+                assertEquals(exp[i], act[i]);
+                assertFalse(act[i].isAttached());
+            }
+
+            INDArray[] preallocated = new INDArray[] {Nd4j.create(minibatch, 3), Nd4j.create(minibatch, 2)};
+            plan.output(new INDArray[] {in}, null, preallocated);
+            assertArrayEquals(exp, preallocated);
+        }
+
+        //Parameters are shared with the source network
+        net.params().muli(0.5);
+        INDArray in = Nd4j.rand(4, 10);
+        assertArrayEquals(net.output(in), plan.output(in));
+    }
+
+    @Test
+    public void testInferencePlanSlots() {
+        //Chain: each activation is dead once the next layer has run, so two slots are enough
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .weightInit(WeightInit.XAVIER).activation(Activation.TANH).graphBuilder().addInputs("in")
+                        .addLayer("0", new DenseLayer.Builder().nIn(10).nOut(20).build(), "in")
+                        .addLayer("1", new DenseLayer.Builder().nIn(20).nOut(30).build(), "0")
+                        .addLayer("2", new DenseLayer.Builder().nIn(30).nOut(5).build(), "1")
+                        .addLayer("3", new DenseLayer.Builder().nIn(5).nOut(40).build(), "2")
+                        .addLayer("out", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(40).nOut(3).build(), "3")
+                        .setOutputs("out").build();
+        ComputationGraph net = new ComputationGraph(conf);
+        net.init();
+        InferencePlan plan = net.inferencePlan();
+        assertEquals(5, plan.numSteps());
+        assertEquals(2, plan.numSlots());
+
+        //Slots are shared by activations of different sizes, and grow with the minibatch size
+        for (int minibatch : new int[] {1, 8, 2, 8}) {
+            INDArray in = Nd4j.rand(minibatch, 10);
+            assertEquals(net.outputSingle(in), plan.output(in)[0]);
+        }
+
+        //Skip connections: activations of "0" and "add" are live over several steps
+        ComputationGraph residual = getResidualGraph();
+        InferencePlan residualPlan = residual.inferencePlan();
+        assertTrue(residualPlan.numSlots() < residualPlan.numSteps());
+        INDArray in = Nd4j.rand(6, 10);
+        assertArrayEquals(residual.output(in), residualPlan.output(in));
+    }
+
+    @Test
+    public void testInferencePlanMasking() {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .activation(Activation.TANH).graphBuilder().addInputs("in")
+                        .addLayer("lstm", new LSTM.Builder().nIn(4).nOut(6).build(), "in")
+                        .addLayer("pool", new GlobalPoolingLayer(PoolingType.AVG), "lstm")
+                        .addLayer("out1", new OutputLayer.Builder().nIn(6).nOut(3).build(), "pool")
+                        .addLayer("out2", new RnnOutputLayer.Builder().nIn(6).nOut(2).build(), "lstm")
+                        .setOutputs("out1", "out2").build();
+
+        ComputationGraph net = new ComputationGraph(conf);
+        net.init();
+        InferencePlan plan = net.inferencePlan();
+
+        INDArray in = Nd4j.rand(new int[] {3, 4, 7});
+        INDArray mask = Nd4j.ones(3, 7);
+        mask.putScalar(1, 6, 0.0);
+        mask.putScalar(2, 5, 0.0);
+        mask.putScalar(2, 6, 0.0);
+
+        INDArray[] exp = net.output(false, new INDArray[] {in}, new INDArray[] {mask});
+        INDArray[] act = plan.output(new INDArray[] {in}, new INDArray[] {mask});
+        assertArrayEquals(exp, act);
+
+        //Masks must not leak into subsequent calls
+        assertArrayEquals(net.output(in), plan.output(in));
+    }
+}
@@ -0,0 +1,223 @@
+package org.deeplearning4j.nn.misc;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.CacheMode;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.nn.conf.graph.ElementWiseVertex;
+import org.deeplearning4j.nn.conf.graph.MergeVertex;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.BatchNormalization;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.memory.MemoryType;
+import org.deeplearning4j.nn.conf.memory.MemoryUseMode;
+import org.deeplearning4j.nn.conf.memory.NetworkMemoryReport;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class TestGradientCheckpointing extends BaseDL4JTest {
+
+    private static MultiLayerConfiguration getMlnConf(WorkspaceMode wsm, int... checkpoints) {
+        NeuralNetConfiguration.ListBuilder b = new NeuralNetConfiguration.Builder().seed(12345)
+                        .weightInit(WeightInit.XAVIER).activation(Activation.TANH).trainingWorkspaceMode(wsm)
+                        .list()
+                        .layer(0, new DenseLayer.Builder().nIn(10).nOut(12).build())
+                        .layer(1, new BatchNormalization.Builder().nOut(12).build())
+                        .layer(2, new DenseLayer.Builder().nIn(12).nOut(12).build())
+                        .layer(3, new DenseLayer.Builder().nIn(12).nOut(12).build())
+                        .layer(4, new DenseLayer.Builder().nIn(12).nOut(8).build())
+                        .layer(5, new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(8).nOut(3).build());
+        if (checkpoints != null) {
+            if (checkpoints.length == 0) {
+                b.gradientCheckpointing();
+            } else {
+                b.gradientCheckpointing(checkpoints);
+            }
+        }
+        return b.build();
+    }
+
+    private static ComputationGraphConfiguration getCgConf(WorkspaceMode wsm, String... checkpoints) {
+        ComputationGraphConfiguration.GraphBuilder b = new NeuralNetConfiguration.Builder().seed(12345)
+                        .weightInit(WeightInit.XAVIER).activation(Activation.TANH).trainingWorkspaceMode(wsm)
+                        .graphBuilder().addInputs("in")
+                        .addLayer("0", new DenseLayer.Builder().nIn(10).nOut(8).build(), "in")
+                        .addLayer("1", new DenseLayer.Builder().nIn(8).nOut(8).build(), "0")
+                        .addVertex("add", new ElementWiseVertex(ElementWiseVertex.Op.Add), "0", "1")
+                        .addLayer("2", new BatchNormalization.Builder().nOut(8).build(), "add")
+                        .addLayer("3", new DenseLayer.Builder().nIn(8).nOut(8).build(), "2")
+                        .addVertex("merge", new MergeVertex(), "add", "3")
+                        .addLayer("4", new DenseLayer.Builder().nIn(16).nOut(8).build(), "merge")
+                        .addLayer("out1", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(8).nOut(3).build(), "4")
+                        .addLayer("out2", new OutputLayer.Builder(LossFunctions.LossFunction.MSE)
+                                        .activation(Activation.IDENTITY).nIn(8).nOut(2).build(), "3")
+                        .setOutputs("out1", "out2");
+        if (checkpoints != null) {
+            if (checkpoints.length == 0) {
+                b.gradientCheckpointing();
+            } else {
+                b.gradientCheckpointing(checkpoints);
+            }
+        }
+        return b.build();
+    }
+
+    @Test
+    public void testMultiLayerNetworkGradients() {
+        INDArray in = Nd4j.rand(5, 10);
+        INDArray labels = Nd4j.zeros(5, 3);
+        for (int i = 0; i < 5; i++) {
+            labels.putScalar(i, i % 3, 1.0);
+        }
+
+        for (WorkspaceMode wsm : WorkspaceMode.values()) {
+            for (int[] checkpoints : new int[][] {{}, {1}, {0, 3}, {1, 2, 3, 4}}) {
+                MultiLayerNetwork exp = new MultiLayerNetwork(getMlnConf(wsm, (int[]) null));
+                exp.init();
+                MultiLayerNetwork act = new MultiLayerNetwork(getMlnConf(wsm, checkpoints));
+                act.init();
+                assertNotNull(act.getLayerWiseConfigurations().getCheckpointLayers());
+                assertEquals(exp.params(), act.params());
+
+                exp.setInput(in);
+                exp.setLabels(labels);
+                exp.computeGradientAndScore();
+                act.setInput(in);
+                act.setLabels(labels);
+                act.computeGradientAndScore();
+
+                String msg = wsm + " - " + Arrays.toString(checkpoints);
+                assertEquals(msg, exp.score(), act.score(), 1e-6);
+                assertEquals(msg, exp.gradient().gradient(), act.gradient().gradient());
+                //Batch norm running mean/variance should only be updated once per iteration
+                assertEquals(msg, exp.params(), act.params());
+
+                exp.fit(in, labels);
+                act.fit(in, labels);
+                assertEquals(msg, exp.params(), act.params());
+            }
+        }
+    }
+
+    @Test
+    public void testComputationGraphGradients() {
+        INDArray in = Nd4j.rand(5, 10);
+        INDArray labels1 = Nd4j.zeros(5, 3);
+        for (int i = 0; i < 5; i++) {
+            labels1.putScalar(i, i % 3, 1.0);
+        }
+        INDArray labels2 = Nd4j.rand(5, 2);
+
+        for (WorkspaceMode wsm : WorkspaceMode.values()) {
+            //"0" is not a cut of the graph: its activations are still needed by "add" in the next segment
+            for (String[] checkpoints : new String[][] {{}, {"add"}, {"0", "2"}, {"1", "3", "merge"}}) {
+                ComputationGraph exp = new ComputationGraph(getCgConf(wsm, (String[]) null));
+                exp.init();
+                ComputationGraph act = new ComputationGraph(getCgConf(wsm, checkpoints));
+                act.init();
+                assertEquals(exp.params(), act.params());
+
+                exp.setInputs(in);
+                exp.setLabels(labels1, labels2);
+                exp.computeGradientAndScore();
+                act.setInputs(in);
+                act.setLabels(labels1, labels2);
+                act.computeGradientAndScore();
+
+                String msg = wsm + " - " + Arrays.toString(checkpoints);
+                assertEquals(msg, exp.score(), act.score(), 1e-6);
+                assertEquals(msg, exp.gradient().gradient(), act.gradient().gradient());
+                assertEquals(msg, exp.params(), act.params());
+
+                exp.fit(new INDArray[] {in}, new INDArray[] {labels1, labels2});
+                act.fit(new INDArray[] {in}, new INDArray[] {labels1, labels2});
+                assertEquals(msg, exp.params(), act.params());
+            }
+        }
+    }
+
+    @Test
+    public void testCheckpointConfiguration() {
+        MultiLayerConfiguration mlc = getMlnConf(WorkspaceMode.SEPARATE, 3, 1);
+        assertArrayEquals(new int[] {1, 3}, mlc.getCheckpointLayers());
+        assertEquals(mlc, MultiLayerConfiguration.fromJson(mlc.toJson()));
+        assertNull(getMlnConf(WorkspaceMode.SEPARATE, (int[]) null).getCheckpointLayers());
+
+        //Auto: every ceil(sqrt(5))-th layer, excluding the output layer and its input
+        assertArrayEquals(new int[] {2}, getMlnConf(WorkspaceMode.SEPARATE).getCheckpointLayers());
+
+        try {
+            getMlnConf(WorkspaceMode.SEPARATE, 5);
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            //Expected: output layer can't be a checkpoint
+        }
+
+        ComputationGraphConfiguration cgc = getCgConf(WorkspaceMode.SEPARATE, "merge", "add");
+        assertEquals(Arrays.asList("add", "merge"), cgc.getCheckpointVertices());
+        assertEquals(cgc, ComputationGraphConfiguration.fromJson(cgc.toJson()));
+
+        //Auto: only vertices that split the graph are candidates
+        for (String s : getCgConf(WorkspaceMode.SEPARATE).getCheckpointVertices()) {
+            assertTrue(s, Arrays.asList("add", "merge", "4").contains(s));
+        }
+
+        for (String invalid : new String[] {"out1", "doesNotExist"}) {
+            try {
+                getCgConf(WorkspaceMode.SEPARATE, invalid);
+                fail("Expected exception");
+            } catch (IllegalStateException e) {
+                //Expected
+            }
+        }
+    }
+
+    @Test
+    public void testCheckpointMemoryReport() {
+        NetworkMemoryReport standard =
+                        getMlnConf(WorkspaceMode.SEPARATE, (int[]) null).getMemoryReport(InputType.feedForward(10));
+        assertFalse(standard.hasCheckpoints());
+
+        NetworkMemoryReport mr = getMlnConf(WorkspaceMode.SEPARATE, 1, 3).getMemoryReport(InputType.feedForward(10));
+        assertTrue(mr.hasCheckpoints());
+        assertEquals(Arrays.asList("1", "3"), mr.getCheckpoints());
+
+        //Activations: 12, 12, 12, 12, 8, 3 per example. Checkpoints: layers 1 and 3 (retained); segments: [0, 1],
+        // [2, 3] and [4, 5], of which the largest non-retained activations are 12 per example
+        int mb = 8;
+        long expTrain = (12 + 12 + 12 + 12 + 8 + 3) * mb * 4L;
+        long expCheckpointed = (12 + 12 + 12) * mb * 4L;
+        long epsilons = mr.getMemoryBytes(MemoryType.ACTIVATION_GRADIENTS, mb,
+                        MemoryUseMode.TRAINING, CacheMode.NONE, DataBuffer.Type.FLOAT);
+
+        assertEquals(expTrain + epsilons, mr.getActivationMemoryBytes(mb, MemoryUseMode.TRAINING, CacheMode.NONE,
+                        DataBuffer.Type.FLOAT, false));
+        assertEquals(expCheckpointed + epsilons,
+                        mr.getCheckpointedActivationMemoryBytes(mb, CacheMode.NONE, DataBuffer.Type.FLOAT));
+        assertEquals(expTrain - expCheckpointed,
+                        mr.getCheckpointingSavingsBytes(mb, CacheMode.NONE, DataBuffer.Type.FLOAT));
+        assertTrue(mr.toString().contains("Gradient Checkpoints"));
+
+        NetworkMemoryReport cgReport = getCgConf(WorkspaceMode.SEPARATE, "add")
+                        .getMemoryReport(InputType.feedForward(10));
+        assertEquals(Collections.singletonList("add"), cgReport.getCheckpoints());
+        assertTrue(cgReport.getCheckpointingSavingsBytes(mb, CacheMode.NONE, DataBuffer.Type.FLOAT) > 0);
+    }
+}
@@ -6,6 +6,7 @@ import org.deeplearning4j.nn.conf.CacheMode;
 import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
 import org.deeplearning4j.nn.conf.graph.*;
 import org.deeplearning4j.nn.conf.graph.rnn.DuplicateToTimeSeriesVertex;
 import org.deeplearning4j.nn.conf.graph.rnn.LastTimeStepVertex;
@@ -14,7 +15,9 @@ import org.deeplearning4j.nn.conf.layers.*;
 import org.deeplearning4j.nn.conf.memory.MemoryReport;
 import org.deeplearning4j.nn.conf.memory.MemoryType;
 import org.deeplearning4j.nn.conf.memory.MemoryUseMode;
+import org.deeplearning4j.nn.conf.memory.NetworkMemoryReport;
 import org.deeplearning4j.nn.conf.preprocessor.FeedForwardToCnnPreProcessor;
+import org.deeplearning4j.util.ActivationLiveness;
 import org.junit.Test;
 import org.nd4j.linalg.activations.Activation;
 import org.nd4j.linalg.api.buffer.DataBuffer;
@@ -28,8 +31,7 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
-import static org.junit.Assert.assertArrayEquals;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * Created by Alex on 14/07/2017.
@@ -242,6 +244,69 @@ public class TestMemoryReports extends BaseDL4JTest {
                         CacheMode.NONE, DataBuffer.Type.FLOAT));
     }
 
+    @Test
+    public void testActivationLivenessCG() {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().graphBuilder().addInputs("in")
+                        .addLayer("0", new DenseLayer.Builder().nIn(10).nOut(20).build(), "in")
+                        .addLayer("1", new DenseLayer.Builder().nIn(20).nOut(30).build(), "0")
+                        .addLayer("out", new OutputLayer.Builder().nIn(30).nOut(5).build(), "1").setOutputs("out")
+                        .build();
+
+        NetworkMemoryReport mr = conf.getMemoryReport(InputType.feedForward(10));
+        assertTrue(mr.hasActivationLiveness());
+
+        //Inference: all activations (20 + 30 + 5) vs. peak live activations (20 + 30 while layer 1 is executed)
+        assertEquals((20 + 30 + 5) * 4, mr.getActivationMemoryBytes(1, MemoryUseMode.INFERENCE, CacheMode.NONE,
+                        DataBuffer.Type.FLOAT, false));
+        assertEquals((20 + 30) * 4, mr.getActivationMemoryBytes(1, MemoryUseMode.INFERENCE, CacheMode.NONE,
+                        DataBuffer.Type.FLOAT, true));
+
+        //Training: activations are all retained. Epsilons: all (10 + 20 + 30) vs. peak live (30 + 20)
+        assertEquals((55 + 60) * 4 * 8, mr.getActivationMemoryBytes(8, MemoryUseMode.TRAINING, CacheMode.NONE,
+                        DataBuffer.Type.FLOAT, false));
+        assertEquals((55 + 50) * 4 * 8, mr.getActivationMemoryBytes(8, MemoryUseMode.TRAINING, CacheMode.NONE,
+                        DataBuffer.Type.FLOAT, true));
+
+        //Activations are only released without workspaces
+        assertEquals((20 + 30) * 4, mr.getActivationMemoryBytes(1, MemoryUseMode.INFERENCE, CacheMode.NONE,
+                        DataBuffer.Type.FLOAT, WorkspaceMode.NONE));
+        for (WorkspaceMode wsm : new WorkspaceMode[] {WorkspaceMode.SINGLE, WorkspaceMode.SEPARATE}) {
+            assertEquals((20 + 30 + 5) * 4, mr.getActivationMemoryBytes(1, MemoryUseMode.INFERENCE, CacheMode.NONE,
+                            DataBuffer.Type.FLOAT, wsm));
+            assertEquals((55 + 60) * 4 * 8, mr.getActivationMemoryBytes(8, MemoryUseMode.TRAINING, CacheMode.NONE,
+                            DataBuffer.Type.FLOAT, wsm));
+        }
+
+        long total = mr.getTotalMemoryBytes(8, MemoryUseMode.TRAINING, CacheMode.NONE, DataBuffer.Type.FLOAT);
+        assertEquals(total, mr.getTotalMemoryBytes(8, MemoryUseMode.TRAINING, CacheMode.NONE, DataBuffer.Type.FLOAT,
+                        false));
+        assertEquals(total - 10 * 4 * 8, mr.getTotalMemoryBytes(8, MemoryUseMode.TRAINING, CacheMode.NONE,
+                        DataBuffer.Type.FLOAT, true));
+
+        //Not available for MultiLayerNetwork reports
+        MultiLayerConfiguration mlc = new NeuralNetConfiguration.Builder().list()
+                        .layer(0, new DenseLayer.Builder().nIn(10).nOut(20).build()).build();
+        assertFalse(mlc.getMemoryReport(InputType.feedForward(10)).hasActivationLiveness());
+    }
+
+    @Test
+    public void testActivationLiveness() {
+        //0 -> 1 -> 2 -> 4, 0 -> 3 -> 4; 4 is the output
+        int[] order = {0, 1, 3, 2, 4};
+        int[][] inputs = {null, {0}, {1}, {0}, {2, 3}};
+        ActivationLiveness liveness = new ActivationLiveness(order, inputs, new int[] {4});
+
+        assertEquals(2, liveness.getLastUse(0));    //Last consumer (3) is at position 2
+        assertEquals(3, liveness.getLastUse(1));
+        assertEquals(ActivationLiveness.RETAINED, liveness.getLastUse(4));
+
+        long[] sizes = {10, 20, 30, 40, 50};
+        assertEquals(150, liveness.totalSize(sizes));
+        //Peak is at the output vertex: 3 + 2 + 4 are live (0 and 1 have been released) -> 40 + 30 + 50
+        assertEquals(120, liveness.peakLiveSize(sizes));
+        assertEquals(3, liveness.peakLiveCount());
+    }
+
     @Test
     public void testPreprocessors() throws Exception {
         //https://github.com/deeplearning4j/deeplearning4j/issues/4223
@@ -0,0 +1,183 @@
+package org.deeplearning4j.nn.quantization;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.datasets.iterator.impl.IrisDataSetIterator;
+import org.deeplearning4j.datasets.iterator.impl.ListDataSetIterator;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.graph.MergeVertex;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.BatchNormalization;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.deeplearning4j.util.ModelSerializer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestPostTrainingQuantization extends BaseDL4JTest {
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private static DataSetIterator getCnnData() {
+        Nd4j.getRandom().setSeed(12345);
+        List<DataSet> list = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            INDArray labels = Nd4j.zeros(5, 3);
+            for (int j = 0; j < 5; j++) {
+                labels.putScalar(j, (i + j) % 3, 1.0);
+            }
+            list.add(new DataSet(Nd4j.rand(new int[] {5, 1, 6, 6}), labels));
+        }
+        return new ListDataSetIterator(list, 5);
+    }
+
+    private static MultiLayerNetwork getCnn() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .weightInit(WeightInit.XAVIER).activation(Activation.RELU).updater(new Adam(0.01)).list()
+                        .layer(0, new ConvolutionLayer.Builder().kernelSize(2, 2).stride(1, 1).nOut(4).build())
+                        .layer(1, new BatchNormalization.Builder().build())
+                        .layer(2, new DenseLayer.Builder().nOut(10).build())
+                        .layer(3, new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nOut(3).build())
+                        .setInputType(InputType.convolutional(6, 6, 1)).build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        net.fit(getCnnData());
+        return net;
+    }
+
+    private static double maxAbsDiff(INDArray a, INDArray b) {
+        return Transforms.abs(a.sub(b), false).maxNumber().doubleValue();
+    }
+
+    @Test
+    public void testQuantizedTensor() {
+        INDArray w = Nd4j.create(new double[][] {{1.0, -0.02, 0.5}, {-0.25, 0.005, 0.0}});
+        QuantizedTensor q = QuantizedTensor.quantizePerChannel(w, 1);
+        assertArrayEquals(new int[] {2, 3}, q.getShape());
+        assertArrayEquals(new float[] {1.0f / 127, 0.02f / 127, 0.5f / 127}, q.getScales(), 1e-7f);
+        assertArrayEquals(new byte[] {127, -127, 127, -32, 32, 0}, q.getValues());
+        assertEquals(6 + 3 * 4, q.sizeBytes());
+
+        INDArray dequantized = q.dequantize();
+        for (int c = 0; c < 3; c++) {
+            double maxErr = maxAbsDiff(w.getColumn(c), dequantized.getColumn(c));
+            assertTrue(maxErr <= q.getScales()[c] / 2 + 1e-6);
+        }
+
+        //Convolution weights: one scale per output channel (dimension 0)
+        INDArray convW = Nd4j.rand(new int[] {4, 2, 3, 3}).subi(0.5);
+        QuantizedTensor qc = QuantizedTensor.quantizePerChannel(convW, 0);
+        assertEquals(4, qc.getScales().length);
+        for (int c = 0; c < 4; c++) {
+            double maxAbs = Transforms.abs(convW.get(NDArrayIndex.point(c)), true).maxNumber().doubleValue();
+            assertEquals(maxAbs / 127, qc.getScales()[c], 1e-6);
+        }
+        assertTrue(maxAbsDiff(convW, qc.dequantize()) < 0.5 / 127 + 1e-6);
+    }
+
+    @Test
+    public void testQuantizeMultiLayerNetwork() throws Exception {
+        MultiLayerNetwork net = getCnn();
+        INDArray paramsBefore = net.params().dup();
+
+        QuantizedModel q = new PostTrainingQuantizer.Builder().calibrationBatches(2).build().quantize(net, getCnnData());
+        assertEquals(paramsBefore, net.params());
+        assertEquals(3, q.numQuantizedLayers());
+        assertNull(q.getQuantizedWeights()[1]);
+        for (int i : new int[] {0, 2, 3}) {
+            assertNotNull(q.getQuantizedWeights()[i]);
+            assertTrue(q.getInputScales()[i] > 0);
+        }
+        assertEquals(0.0f, q.getInputScales()[1], 0.0f);
+        assertTrue(q.quantizedSizeBytes() < 4L * net.numParams() / 3);
+        //Only the parameters that are not quantized are kept in full precision
+        assertEquals(q.unquantizedParams().length(), q.getNetwork().params().length());
+        assertEquals(net.getLayer(1).numParams() + net.getLayer(0).getParam("b").length()
+                        + net.getLayer(2).getParam("b").length() + net.getLayer(3).getParam("b").length(),
+                        q.getNetwork().params().length());
+
+        INDArray in = getCnnData().next().getFeatures();
+        INDArray expOut = net.output(in);
+        INDArray out = q.output(in)[0];
+        assertArrayEquals(expOut.shape(), out.shape());
+        assertTrue(maxAbsDiff(expOut, out) < 0.05);
+
+        //Without activation quantization: only the weights differ
+        QuantizedModel weightsOnly = new PostTrainingQuantizer.Builder().quantizeActivations(false).build()
+                        .quantize(net, getCnnData());
+        assertEquals(0.0f, weightsOnly.getInputScales()[0], 0.0f);
+        assertTrue(maxAbsDiff(expOut, weightsOnly.output(in)[0]) < 0.05);
+
+        File f = tempDir.newFile();
+        ModelSerializer.writeQuantizedModel(q, f);
+        QuantizedModel restored = ModelSerializer.restoreQuantizedModel(f);
+        assertTrue(restored.getNetwork() instanceof MultiLayerNetwork);
+        assertArrayEquals(q.getInputScales(), restored.getInputScales(), 0.0f);
+        assertEquals(q.unquantizedParams(), restored.unquantizedParams());
+        assertEquals(q.getNetwork().params(), restored.getNetwork().params());
+        assertEquals(out, restored.output(in)[0]);
+    }
+
+    @Test
+    public void testQuantizeComputationGraph() throws Exception {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .weightInit(WeightInit.XAVIER).activation(Activation.TANH).updater(new Adam(0.01))
+                        .graphBuilder().addInputs("in")
+                        .addLayer("0", new DenseLayer.Builder().nIn(4).nOut(8).build(), "in")
+                        .addLayer("1", new DenseLayer.Builder().nIn(4).nOut(8).build(), "in")
+                        .addVertex("merge", new MergeVertex(), "0", "1")
+                        .addLayer("out", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(16).nOut(3).build(), "merge")
+                        .setOutputs("out").build();
+        ComputationGraph net = new ComputationGraph(conf);
+        net.init();
+        for (int i = 0; i < 20; i++) {
+            net.fit(new IrisDataSetIterator(30, 150));
+        }
+
+        QuantizedModel q = new PostTrainingQuantizer.Builder().build().quantize(net, new IrisDataSetIterator(30, 150));
+        assertEquals(3, q.numQuantizedLayers());
+
+        INDArray in = new IrisDataSetIterator(150, 150).next().getFeatures();
+        INDArray out = q.output(in)[0];
+        assertTrue(maxAbsDiff(net.outputSingle(in), out) < 0.05);
+
+        QuantizationReport report = PostTrainingQuantizer.evaluate(net, q, new IrisDataSetIterator(30, 150));
+        assertEquals(150, report.getQuantizedEvaluation().getNumRowCounter());
+        assertTrue(report.getOriginalEvaluation().accuracy() > 0.8);
+        assertTrue(report.toString(), Math.abs(report.getAccuracyDrop()) < 0.05);
+        assertEquals((long) Nd4j.sizeOfDataType() * net.numParams(), report.getOriginalSizeBytes());
+        //Small layers: the per-channel scales are a significant overhead here
+        assertTrue(report.getCompressionRatio() > 1.5);
+        assertTrue(report.toString().contains("Accuracy"));
+
+        File f = tempDir.newFile();
+        ModelSerializer.writeQuantizedModel(q, f);
+        QuantizedModel restored = ModelSerializer.restoreQuantizedModel(f);
+        assertTrue(restored.getNetwork() instanceof ComputationGraph);
+        assertEquals(out, restored.output(in)[0]);
+    }
+}
@@ -0,0 +1,256 @@
+package org.deeplearning4j.nn.updater;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MixedPrecision;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.junit.Test;
+import org.deeplearning4j.optimize.api.StepFunction;
+import org.deeplearning4j.optimize.stepfunctions.NegativeDefaultStepFunction;
+import org.deeplearning4j.optimize.stepfunctions.NegativeGradientStepFunction;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.Assert.*;
+
+public class TestMixedPrecision extends BaseDL4JTest {
+
+    private static MultiLayerConfiguration getConf(MixedPrecision mp) {
+        MultiLayerConfiguration.Builder b = new NeuralNetConfiguration.Builder().seed(12345)
+                        .weightInit(WeightInit.XAVIER).activation(Activation.TANH).updater(new Adam(0.01)).list()
+                        .layer(0, new DenseLayer.Builder().nIn(4).nOut(5).build())
+                        .layer(1, new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(5).nOut(3).build());
+        if (mp != null) {
+            b.mixedPrecision(mp);
+        }
+        return b.build();
+    }
+
+    private static INDArray getLabels() {
+        INDArray labels = Nd4j.zeros(6, 3);
+        for (int i = 0; i < 6; i++) {
+            labels.putScalar(i, i % 3, 1.0);
+        }
+        return labels;
+    }
+
+    @Test
+    public void testLossScalingMultiLayerNetwork() {
+        INDArray in = Nd4j.rand(6, 4);
+        INDArray labels = getLabels();
+
+        MixedPrecision mp = new MixedPrecision.Builder().initialLossScale(1024).dynamicLossScaling(false).build();
+        MultiLayerNetwork exp = new MultiLayerNetwork(getConf(null));
+        exp.init();
+        MultiLayerNetwork net = new MultiLayerNetwork(getConf(mp));
+        net.init();
+        assertNull(exp.getLossScaler());
+        assertEquals(1024, net.getLossScaler().getLossScale(), 0.0);
+
+        //Gradients are scaled during backprop; the score is not
+        exp.setInput(in);
+        exp.setLabels(labels);
+        exp.computeGradientAndScore();
+        net.setInput(in);
+        net.setLabels(labels);
+        net.computeGradientAndScore();
+        assertEquals(exp.score(), net.score(), 1e-6);
+        assertEquals(exp.gradient().gradient().mul(1024), net.gradient().gradient());
+
+        //...and unscaled before the updater is applied
+        for (int i = 0; i < 3; i++) {
+            exp.fit(in, labels);
+            net.fit(in, labels);
+        }
+        assertTrue(exp.params().equalsWithEps(net.params(), 1e-5));
+        assertEquals(0, net.getLossScaler().getSkippedSteps());
+    }
+
+    @Test
+    public void testOverflowSkipsUpdate() {
+        INDArray in = Nd4j.rand(6, 4);
+        INDArray labels = getLabels();
+
+        //Infinite loss scale: the scaled gradients always overflow
+        MixedPrecision mp = new MixedPrecision.Builder().initialLossScale(Double.POSITIVE_INFINITY)
+                        .maxLossScale(Double.POSITIVE_INFINITY).build();
+        MultiLayerNetwork net = new MultiLayerNetwork(getConf(mp));
+        net.init();
+
+        INDArray paramsBefore = net.params().dup();
+        net.fit(in, labels);
+        assertEquals(paramsBefore, net.params());
+        assertEquals(1, net.getLossScaler().getSkippedSteps());
+    }
+
+    @Test
+    public void testLossScalerOverflow() {
+        LossScaler scaler = new LossScaler(new MixedPrecision.Builder().initialLossScale(64).minLossScale(16).build());
+
+        INDArray grad = Nd4j.create(new double[] {64, 128, 256});
+        assertTrue(scaler.unscale(grad));
+        assertEquals(Nd4j.create(new double[] {1, 2, 4}), grad);
+        assertEquals(64, scaler.getLossScale(), 0.0);
+
+        for (double expScale : new double[] {32, 16, 16}) {
+            INDArray overflow = Nd4j.create(new double[] {1, Double.POSITIVE_INFINITY, Double.NaN});
+            assertFalse(scaler.unscale(overflow));
+            assertEquals(expScale, scaler.getLossScale(), 0.0);
+        }
+        assertEquals(3, scaler.getSkippedSteps());
+    }
+
+    @Test
+    public void testDynamicLossScaleIncrease() {
+        INDArray in = Nd4j.rand(6, 4);
+        INDArray labels = getLabels();
+
+        MixedPrecision mp = new MixedPrecision.Builder().initialLossScale(8).scaleWindow(2).maxLossScale(32).build();
+        MultiLayerNetwork net = new MultiLayerNetwork(getConf(mp));
+        net.init();
+
+        double[] expScale = {8, 16, 16, 32, 32, 32};
+        for (int i = 0; i < expScale.length; i++) {
+            net.fit(in, labels);
+            assertEquals(String.valueOf(i), expScale[i], net.getLossScaler().getLossScale(), 0.0);
+        }
+    }
+
+    @Test
+    public void testLossScalingComputationGraph() {
+        INDArray in = Nd4j.rand(6, 4);
+        INDArray labels = getLabels();
+
+        MixedPrecision mp = new MixedPrecision.Builder().initialLossScale(256).dynamicLossScaling(false).build();
+        ComputationGraph[] nets = new ComputationGraph[2];
+        for (int i = 0; i < 2; i++) {
+            ComputationGraphConfiguration.GraphBuilder b = new NeuralNetConfiguration.Builder().seed(12345)
+                            .weightInit(WeightInit.XAVIER).activation(Activation.TANH).updater(new Adam(0.01))
+                            .graphBuilder().addInputs("in")
+                            .addLayer("0", new DenseLayer.Builder().nIn(4).nOut(5).build(), "in")
+                            .addLayer("out", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                            .activation(Activation.SOFTMAX).nIn(5).nOut(3).build(), "0")
+                            .setOutputs("out");
+            if (i == 1) {
+                b.mixedPrecision(mp);
+            }
+            nets[i] = new ComputationGraph(b.build());
+            nets[i].init();
+            nets[i].setInputs(in);
+            nets[i].setLabels(labels);
+            nets[i].computeGradientAndScore();
+        }
+
+        assertEquals(nets[0].score(), nets[1].score(), 1e-6);
+        assertEquals(nets[0].gradient().gradient().mul(256), nets[1].gradient().gradient());
+
+        for (int i = 0; i < 3; i++) {
+            nets[0].fit(new INDArray[] {in}, new INDArray[] {labels});
+            nets[1].fit(new INDArray[] {in}, new INDArray[] {labels});
+        }
+        assertTrue(nets[0].params().equalsWithEps(nets[1].params(), 1e-5));
+    }
+
+    @Test
+    public void testMasterWeights() {
+        MasterWeights master = new MasterWeights();
+        INDArray params = Nd4j.create(new double[] {1, 2, 3});
+        master.step(new NegativeDefaultStepFunction(), params, Nd4j.create(new double[] {0.5, 0.5, 1}));
+        assertEquals(Nd4j.create(new double[] {0.5, 1.5, 2}), params);
+        assertArrayEquals(new float[] {0.5f, 1.5f, 2}, master.getMasterWeights(), 0.0f);
+
+        //Parameters changed externally (e.g. setParams): master weights are reinitialized from them
+        params.assign(10);
+        master.step(new NegativeGradientStepFunction(), params, Nd4j.create(new double[] {1, 2, 3}));
+        assertEquals(Nd4j.create(new double[] {9, 8, 7}), params);
+
+        try {
+            master.step(new StepFunction() {
+                @Override
+                public void step(INDArray x, INDArray line, double step) {}
+
+                @Override
+                public void step(INDArray x, INDArray line) {}
+
+                @Override
+                public void step() {}
+            }, params, params);
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void testMasterWeightsHalfPrecision() {
+        DataBuffer.Type initialType = Nd4j.dataType();
+        Nd4j.setDataType(DataBuffer.Type.HALF);
+        try {
+            //Half precision spacing at 1.0 is 2^-10: updates of 1e-4 are lost when applied to the parameters directly
+            INDArray direct = Nd4j.ones(1, 4);
+            INDArray params = Nd4j.ones(1, 4);
+            INDArray update = Nd4j.valueArrayOf(new int[] {1, 4}, 1e-4);
+            MasterWeights master = new MasterWeights();
+            for (int i = 0; i < 100; i++) {
+                new NegativeGradientStepFunction().step(direct, update);
+                master.step(new NegativeGradientStepFunction(), params, update);
+            }
+
+            assertEquals(DataBuffer.Type.HALF, params.data().dataType());
+            assertEquals(1.0, direct.getDouble(0), 0.0);
+            for (int i = 0; i < 4; i++) {
+                assertEquals(0.99, master.getMasterWeights()[i], 1e-5);
+                assertEquals(0.99, params.getDouble(i), 1e-3);
+            }
+        } finally {
+            Nd4j.setDataType(initialType);
+        }
+    }
+
+    @Test
+    public void testMasterWeightsNetwork() {
+        INDArray in = Nd4j.rand(6, 4);
+        INDArray labels = getLabels();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(getConf(new MixedPrecision()));
+        net.init();
+        assertNotNull(net.getMasterWeights());
+        for (int i = 0; i < 3; i++) {
+            net.fit(in, labels);
+        }
+        assertEquals(Nd4j.create(net.getMasterWeights().getMasterWeights()), net.params());
+
+        MultiLayerNetwork noMaster =
+                        new MultiLayerNetwork(getConf(new MixedPrecision.Builder().masterWeights(false).build()));
+        noMaster.init();
+        assertNull(noMaster.getMasterWeights());
+        assertNotNull(noMaster.getLossScaler());
+    }
+
+    @Test
+    public void testMixedPrecisionConfiguration() {
+        MultiLayerConfiguration conf = getConf(new MixedPrecision.Builder().initialLossScale(128).build());
+        assertEquals(128, conf.getMixedPrecision().getInitialLossScale(), 0.0);
+        assertEquals(conf, MultiLayerConfiguration.fromJson(conf.toJson()));
+        assertEquals(conf, conf.clone());
+        assertNull(getConf(null).getMixedPrecision());
+
+        try {
+            new MixedPrecision.Builder().scaleFactor(0.5).build();
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            //Expected
+        }
+    }
+}
@@ -15,6 +15,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
@@ -26,10 +27,12 @@ import org.nd4j.linalg.learning.config.Sgd;
 import org.nd4j.linalg.lossfunctions.LossFunctions;
 import org.nd4j.linalg.primitives.Pair;
 
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.util.zip.ZipFile;
 
 import static org.junit.Assert.*;
 
@@ -387,4 +390,85 @@ public class ModelSerializerTest extends BaseDL4JTest {
         assertEquals(net.params(), pair.getFirst().params());
         assertNotNull(pair.getSecond());
     }
+
+    @Test
+    public void testWriteMappableModel() throws Exception {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).updater(new Sgd(0.1))
+                        .activation(Activation.TANH).weightInit(WeightInit.XAVIER).list()
+                        .layer(0, new DenseLayer.Builder().nIn(4).nOut(20).build())
+                        .layer(1, new OutputLayer.Builder().lossFunction(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(20).nOut(3).build())
+                        .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        DataSet ds = new IrisDataSetIterator(150, 150).next();
+        net.fit(ds);
+
+        File tempFile = tempDir.newFile();
+        ModelSerializer.writeModelMappable(net, tempFile, true);
+
+        MultiLayerNetwork mapped = ModelSerializer.restoreMultiLayerNetworkMapped(tempFile, true);
+        assertEquals(net.getLayerWiseConfigurations().toJson(), mapped.getLayerWiseConfigurations().toJson());
+        assertEquals(net.params(), mapped.params());
+        assertEquals(net.getUpdater().getStateViewArray(), mapped.getUpdater().getStateViewArray());
+        assertEquals(net.output(ds.getFeatures()), mapped.output(ds.getFeatures()));
+
+        //Data type is stored as a fixed code (1 = float, 2 = double, 3 = half), not as the enum ordinal
+        try (ZipFile zip = new ZipFile(tempFile);
+                        DataInputStream dis = new DataInputStream(
+                                        zip.getInputStream(zip.getEntry(ModelSerializer.COEFFICIENTS_RAW)))) {
+            dis.readInt();
+            dis.readInt();
+            int expectedCode = Nd4j.dataType() == DataBuffer.Type.FLOAT ? 1
+                            : Nd4j.dataType() == DataBuffer.Type.DOUBLE ? 2 : 3;
+            assertEquals(expectedCode, dis.readInt());
+        }
+
+        //Training the mapped network must not modify the file
+        mapped.fit(ds);
+        MultiLayerNetwork standard = ModelSerializer.restoreMultiLayerNetwork(tempFile);
+        assertEquals(net.params(), standard.params());
+        assertEquals(net.getUpdater().getStateViewArray(), standard.getUpdater().getStateViewArray());
+
+        //Adding a normalizer must keep the layout mappable
+        NormalizerStandardize norm = new NormalizerStandardize();
+        norm.fit(ds);
+        ModelSerializer.addNormalizerToModel(tempFile, norm);
+        MultiLayerNetwork mapped2 = ModelSerializer.restoreMultiLayerNetworkMapped(tempFile, false);
+        assertEquals(net.params(), mapped2.params());
+        assertNotNull(ModelSerializer.restoreNormalizerFromFile(tempFile));
+    }
+
+    @Test
+    public void testWriteMappableCGModel() throws Exception {
+        ComputationGraphConfiguration config = new NeuralNetConfiguration.Builder()
+                        .optimizationAlgo(OptimizationAlgorithm.STOCHASTIC_GRADIENT_DESCENT).updater(new Sgd(0.1))
+                        .graphBuilder().addInputs("in")
+                        .addLayer("dense", new DenseLayer.Builder().nIn(4).nOut(2).build(), "in").addLayer("out",
+                                        new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(2).nOut(3)
+                                                        .build(),
+                                        "dense")
+                        .setOutputs("out").pretrain(false).backprop(true).build();
+
+        ComputationGraph cg = new ComputationGraph(config);
+        cg.init();
+
+        File tempFile = tempDir.newFile();
+        ModelSerializer.writeModelMappable(cg, tempFile, true);
+
+        ComputationGraph mapped = ModelSerializer.restoreComputationGraphMapped(tempFile, true);
+        assertEquals(cg.getConfiguration().toJson(), mapped.getConfiguration().toJson());
+        assertEquals(cg.params(), mapped.params());
+        assertEquals(cg.getUpdater().getStateViewArray(), mapped.getUpdater().getStateViewArray());
+
+        ComputationGraph standard = ModelSerializer.restoreComputationGraph(tempFile);
+        assertEquals(cg.params(), standard.params());
+
+        //Standard layout files can still be loaded via the mapped methods
+        File standardFile = tempDir.newFile();
+        ModelSerializer.writeModel(cg, standardFile, true);
+        ComputationGraph fallback = ModelSerializer.restoreComputationGraphMapped(standardFile, true);
+        assertEquals(cg.params(), fallback.params());
+    }
 }
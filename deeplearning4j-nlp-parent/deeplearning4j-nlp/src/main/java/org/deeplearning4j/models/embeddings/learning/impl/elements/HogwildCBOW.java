@@ -0,0 +1,46 @@
+package org.deeplearning4j.models.embeddings.learning.impl.elements;
+
+import lombok.NonNull;
+import org.deeplearning4j.models.embeddings.WeightLookupTable;
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.embeddings.loader.VectorsConfiguration;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CBOW implementation that trains on JVM side with {@link HogwildEngine}: training threads update weights in place
+ * instead of batching AggregateCBOW ops, which is faster on CPU.
+ * Inference (i.e. iterateSample() with inference vector) is still done by CBOW.
+ *
+ * Usage: Word2Vec.Builder().elementsLearningAlgorithm(new HogwildCBOW&lt;VocabWord&gt;())
+ */
+public class HogwildCBOW<T extends SequenceElement> extends CBOW<T> {
+    protected HogwildEngine<T> engine;
+
+    @Override
+    public String getCodeName() {
+        return "HogwildCBOW";
+    }
+
+    @Override
+    public void configure(@NonNull VocabCache<T> vocabCache, @NonNull WeightLookupTable<T> lookupTable,
+                    @NonNull VectorsConfiguration configuration) {
+        super.configure(vocabCache, lookupTable, configuration);
+        this.engine = new HogwildEngine<>(vocabCache, (InMemoryLookupTable<T>) lookupTable, configuration);
+    }
+
+    @Override
+    public double learnSequence(Sequence<T> sequence, AtomicLong nextRandom, double learningRate) {
+        int currentWindow = window;
+
+        if (variableWindows != null && variableWindows.length != 0) {
+            currentWindow = variableWindows[RandomUtils.nextInt(variableWindows.length)];
+        }
+
+        engine.cbow(sequence, nextRandom, learningRate, currentWindow);
+        return 0;
+    }
+}
@@ -0,0 +1,375 @@
+package org.deeplearning4j.models.embeddings.learning.impl.elements;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.embeddings.loader.VectorsConfiguration;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.concurrency.AffinityManager;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JVM implementation of SkipGram and CBOW updates, used by {@link HogwildSkipGram} and {@link HogwildCBOW}.<br>
+ * Training threads update syn0, syn1 and syn1Neg in place, through FloatBuffer views of their off-heap data
+ * buffers, without any synchronization (Hogwild, as the reference word2vec implementation does). No ops are built and
+ * nothing is allocated per word: sequences are copied to per-thread index buffers, and Huffman codes, subsampling
+ * thresholds, negative sampling table and sigmoid table are precomputed as primitive arrays.<br>
+ * Weights have to be FLOAT, 'c' ordered and located on host, so this is meant for CPU backend. NIO buffers are
+ * addressed with int byte offsets, so each weights matrix is limited to {@link #MAX_ELEMENTS} elements (2GB).
+ */
+public class HogwildEngine<T extends SequenceElement> {
+    protected static final float MAX_EXP = 6;
+    // Largest number of FLOAT elements a NIO view of the weights can address
+    public static final long MAX_ELEMENTS = Integer.MAX_VALUE / 4;
+
+    @Getter
+    private final int numWords;
+    @Getter
+    private final int vectorLength;
+    private final int negative;
+    private final boolean useHS;
+    private final double sampling;
+
+    private final FloatBuffer syn0;
+    private final FloatBuffer syn1;
+    private final FloatBuffer syn1Neg;
+    private final float[] expTable;
+    private final float expScale;
+    private final int[] table;
+
+    // per element index: STOP/UNK flags, subsampling thresholds, and Huffman codes/points
+    // at [codeOffsets[index], codeOffsets[index + 1])
+    private final boolean[] excluded;
+    private final double[] samplingThresholds;
+    private final int[] codeOffsets;
+    private final byte[] codes;
+    private final int[] points;
+
+    private final ThreadLocal<Buffers> buffers = new ThreadLocal<>();
+
+    public HogwildEngine(@NonNull VocabCache<T> vocabCache, @NonNull InMemoryLookupTable<T> lookupTable,
+                    @NonNull VectorsConfiguration configuration) {
+        this.numWords = vocabCache.numWords();
+        this.vectorLength = lookupTable.layerSize();
+        this.negative = (int) configuration.getNegative();
+        this.useHS = configuration.isUseHierarchicSoftmax();
+        this.sampling = configuration.getSampling();
+
+        //Row offsets (index * vectorLength) are ints, and can't overflow once the whole matrix fits in a NIO buffer
+        if ((long) numWords * vectorLength > MAX_ELEMENTS)
+            throw new IllegalStateException("Hogwild training supports at most " + MAX_ELEMENTS
+                            + " weights per matrix, but " + numWords + " words x " + vectorLength + " = "
+                            + ((long) numWords * vectorLength) + ". Use SkipGram/CBOW for larger models");
+
+        this.syn0 = floatBuffer(lookupTable.getSyn0(), "syn0");
+        this.syn1 = useHS ? floatBuffer(lookupTable.getSyn1(), "syn1") : null;
+        if (negative > 0) {
+            if (lookupTable.getSyn1Neg() == null)
+                lookupTable.initNegative();
+            this.syn1Neg = floatBuffer(lookupTable.getSyn1Neg(), "syn1Neg");
+            if (lookupTable.getTable() == null)
+                throw new IllegalStateException("Negative sampling table isn't initialized");
+            this.table = lookupTable.getTable().data().asInt();
+        } else {
+            this.syn1Neg = null;
+            this.table = null;
+        }
+
+        double[] exp = lookupTable.getExpTable();
+        this.expTable = new float[exp.length];
+        for (int i = 0; i < exp.length; i++)
+            expTable[i] = (float) exp[i];
+        this.expScale = expTable.length / MAX_EXP / 2;
+
+        this.excluded = new boolean[numWords];
+        this.samplingThresholds = new double[numWords];
+        this.codeOffsets = new int[numWords + 1];
+        int numCodes = 0;
+        for (int i = 0; i < numWords; i++) {
+            T element = vocabCache.elementAtIndex(i);
+            if (element != null && useHS)
+                numCodes += element.getCodeLength();
+        }
+        this.codes = new byte[numCodes];
+        this.points = new int[numCodes];
+
+        double threshold = sampling * vocabCache.totalWordOccurrences();
+        int position = 0;
+        for (int i = 0; i < numWords; i++) {
+            codeOffsets[i] = position;
+            T element = vocabCache.elementAtIndex(i);
+            if (element == null) {
+                excluded[i] = true;
+                continue;
+            }
+            excluded[i] = "STOP".equals(element.getLabel()) || "UNK".equals(element.getLabel());
+
+            double frequency = element.getElementFrequency();
+            samplingThresholds[i] = (Math.sqrt(frequency / threshold) + 1) * threshold / frequency;
+
+            if (useHS) {
+                for (int p = 0; p < element.getCodeLength(); p++) {
+                    int point = element.getPoints().get(p);
+                    if (point < 0 || point >= numWords)
+                        continue;
+                    codes[position] = element.getCodes().get(p);
+                    points[position] = point;
+                    position++;
+                }
+            }
+        }
+        codeOffsets[numWords] = position;
+    }
+
+    private FloatBuffer floatBuffer(INDArray array, String name) {
+        if (array == null)
+            throw new IllegalStateException(name + " isn't initialized");
+        if (array.data().dataType() != DataBuffer.Type.FLOAT)
+            throw new IllegalStateException("Hogwild training requires FLOAT weights, but " + name + " is "
+                            + array.data().dataType());
+        if (array.ordering() != 'c' || array.offset() != 0 || array.length() < (long) numWords * vectorLength)
+            throw new IllegalStateException("Hogwild training requires 'c' ordered [" + numWords + ", " + vectorLength
+                            + "] " + name + ", got " + array.ordering() + " " + Arrays.toString(array.shape()));
+
+        Nd4j.getAffinityManager().ensureLocation(array, AffinityManager.Location.HOST);
+        FloatBuffer buffer = array.data().asNio().order(ByteOrder.nativeOrder()).asFloatBuffer();
+        if (buffer.capacity() < numWords * vectorLength)
+            throw new IllegalStateException("NIO view of " + name + " covers " + buffer.capacity() + " of "
+                            + (numWords * vectorLength) + " elements");
+        return buffer;
+    }
+
+    /**
+     * This method trains SkipGram over given sequence
+     *
+     * @param sequence
+     * @param nextRandom random state of the calling thread
+     * @param learningRate
+     * @param window
+     */
+    public void skipGram(@NonNull Sequence<T> sequence, @NonNull AtomicLong nextRandom, double learningRate,
+                    int window) {
+        Buffers b = buffers();
+        b.random = nextRandom.get();
+        int length = digitize(sequence, b);
+        int[] sentence = b.sentence;
+        float alpha = (float) learningRate;
+
+        for (int i = 0; i < length; i++) {
+            int word = sentence[i];
+            int start = (int) Math.abs(nextRandom(b) % window);
+            if (excluded[word])
+                continue;
+
+            int end = window * 2 + 1 - start;
+            for (int a = start; a < end; a++) {
+                int c = i - window + a;
+                if (a == window || c < 0 || c >= length)
+                    continue;
+                int lastWord = sentence[c];
+                if (!excluded[lastWord])
+                    skipGram(word, lastWord, alpha, b);
+            }
+        }
+        nextRandom.set(b.random);
+    }
+
+    /**
+     * This method trains CBOW over given sequence
+     *
+     * @param sequence
+     * @param nextRandom random state of the calling thread
+     * @param learningRate
+     * @param window
+     */
+    public void cbow(@NonNull Sequence<T> sequence, @NonNull AtomicLong nextRandom, double learningRate, int window) {
+        Buffers b = buffers();
+        b.random = nextRandom.get();
+        int length = digitize(sequence, b);
+        int[] sentence = b.sentence;
+        float[] neu1 = b.neu1;
+        float alpha = (float) learningRate;
+
+        for (int i = 0; i < length; i++) {
+            int word = sentence[i];
+            int start = (int) Math.abs(nextRandom(b) % window);
+            if (excluded[word])
+                continue;
+
+            int end = window * 2 + 1 - start;
+
+            Arrays.fill(neu1, 0.0f);
+            int cw = 0;
+            for (int a = start; a < end; a++) {
+                int c = i - window + a;
+                if (a == window || c < 0 || c >= length || excluded[sentence[c]])
+                    continue;
+                add(syn0, sentence[c] * vectorLength, neu1);
+                cw++;
+            }
+            if (cw == 0)
+                continue;
+            for (int j = 0; j < vectorLength; j++)
+                neu1[j] /= cw;
+
+            float[] neu1e = train(word, neu1, alpha, b);
+
+            for (int a = start; a < end; a++) {
+                int c = i - window + a;
+                if (a == window || c < 0 || c >= length || excluded[sentence[c]])
+                    continue;
+                add(neu1e, syn0, sentence[c] * vectorLength);
+            }
+        }
+        nextRandom.set(b.random);
+    }
+
+    private void skipGram(int word, int lastWord, float alpha, Buffers b) {
+        float[] neu1 = b.neu1;
+        int l1 = lastWord * vectorLength;
+        for (int j = 0; j < vectorLength; j++)
+            neu1[j] = syn0.get(l1 + j);
+
+        float[] neu1e = train(word, neu1, alpha, b);
+        add(neu1e, syn0, l1);
+    }
+
+    /**
+     * Applies HS and negative sampling updates for given word and hidden layer, and returns the hidden layer error
+     */
+    private float[] train(int word, float[] neu1, float alpha, Buffers b) {
+        float[] neu1e = b.neu1e;
+        Arrays.fill(neu1e, 0.0f);
+
+        if (useHS) {
+            for (int d = codeOffsets[word]; d < codeOffsets[word + 1]; d++) {
+                int l2 = points[d] * vectorLength;
+                float f = dot(neu1, syn1, l2);
+                if (f <= -MAX_EXP || f >= MAX_EXP)
+                    continue;
+                float g = (1 - codes[d] - sigmoid(f)) * alpha;
+                update(g, neu1, syn1, l2, neu1e);
+            }
+        }
+
+        if (negative > 0) {
+            for (int d = 0; d <= negative; d++) {
+                int target;
+                float label;
+                if (d == 0) {
+                    target = word;
+                    label = 1;
+                } else {
+                    long random = nextRandom(b);
+                    target = table[(int) ((random >>> 16) % table.length)];
+                    if (target <= 0 || target >= numWords)
+                        target = numWords > 1 ? (int) Math.abs(random % (numWords - 1)) + 1 : 0;
+                    if (target == word)
+                        continue;
+                    label = 0;
+                }
+
+                int l2 = target * vectorLength;
+                float f = dot(neu1, syn1Neg, l2);
+                float g;
+                if (f > MAX_EXP)
+                    g = (label - 1) * alpha;
+                else if (f < -MAX_EXP)
+                    g = label * alpha;
+                else
+                    g = (label - sigmoid(f)) * alpha;
+                update(g, neu1, syn1Neg, l2, neu1e);
+            }
+        }
+        return neu1e;
+    }
+
+    private float sigmoid(float f) {
+        int idx = (int) ((f + MAX_EXP) * expScale);
+        return expTable[idx < expTable.length ? idx : expTable.length - 1];
+    }
+
+    private float dot(float[] x, FloatBuffer y, int offset) {
+        float sum = 0.0f;
+        for (int j = 0; j < vectorLength; j++)
+            sum += x[j] * y.get(offset + j);
+        return sum;
+    }
+
+    // neu1e += g * syn[offset]; syn[offset] += g * neu1
+    private void update(float g, float[] neu1, FloatBuffer syn, int offset, float[] neu1e) {
+        for (int j = 0; j < vectorLength; j++) {
+            float value = syn.get(offset + j);
+            neu1e[j] += g * value;
+            syn.put(offset + j, value + g * neu1[j]);
+        }
+    }
+
+    private void add(FloatBuffer x, int offset, float[] y) {
+        for (int j = 0; j < vectorLength; j++)
+            y[j] += x.get(offset + j);
+    }
+
+    private void add(float[] x, FloatBuffer y, int offset) {
+        for (int j = 0; j < vectorLength; j++)
+            y.put(offset + j, y.get(offset + j) + x[j]);
+    }
+
+    /**
+     * Copies indexes of sequence elements to the thread buffer, skipping unknown and subsampled elements
+     */
+    private int digitize(Sequence<T> sequence, Buffers b) {
+        List<T> elements = sequence.getElements();
+        int size = elements.size();
+        if (b.sentence.length < size)
+            b.sentence = new int[Math.max(size, b.sentence.length * 2)];
+
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            T element = elements.get(i);
+            int index = element == null ? -1 : element.getIndex();
+            if (index < 0 || index >= numWords)
+                continue;
+            if (sampling > 0 && samplingThresholds[index] < (nextRandom(b) & 0xFFFF) / 65536.0)
+                continue;
+            b.sentence[length++] = index;
+        }
+        return length;
+    }
+
+    private static long nextRandom(Buffers b) {
+        b.random = Math.abs(b.random * 25214903917L + 11);
+        return b.random;
+    }
+
+    private Buffers buffers() {
+        Buffers b = buffers.get();
+        if (b == null) {
+            b = new Buffers(vectorLength);
+            buffers.set(b);
+        }
+        return b;
+    }
+
+    private static class Buffers {
+        private int[] sentence = new int[256];
+        private final float[] neu1;
+        private final float[] neu1e;
+        private long random;
+
+        private Buffers(int vectorLength) {
+            neu1 = new float[vectorLength];
+            neu1e = new float[vectorLength];
+        }
+    }
+}
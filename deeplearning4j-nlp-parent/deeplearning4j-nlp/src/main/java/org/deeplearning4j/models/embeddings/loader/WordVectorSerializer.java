@@ -34,6 +34,7 @@ import org.deeplearning4j.models.embeddings.WeightLookupTable;
 import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
 import org.deeplearning4j.models.embeddings.learning.impl.elements.SkipGram;
 import org.deeplearning4j.models.embeddings.reader.impl.BasicModelUtils;
+import org.deeplearning4j.models.embeddings.reader.impl.HnswIndex;
 import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
 import org.deeplearning4j.models.embeddings.wordvectors.WordVectorsImpl;
 import org.deeplearning4j.models.glove.Glove;
@@ -42,6 +43,7 @@ import org.deeplearning4j.models.sequencevectors.SequenceVectors;
 import org.deeplearning4j.models.sequencevectors.interfaces.SequenceElementFactory;
 import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
 import org.deeplearning4j.models.sequencevectors.serialization.VocabWordFactory;
+import org.deeplearning4j.models.word2vec.MappedWordVectors;
 import org.deeplearning4j.models.word2vec.StaticWord2Vec;
 import org.deeplearning4j.models.word2vec.VocabWord;
 import org.deeplearning4j.models.word2vec.Word2Vec;
@@ -68,6 +70,8 @@ import org.nd4j.storage.CompressedRamStorage;
 import org.nd4j.util.OneTimeLogger;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -2091,6 +2095,60 @@ public class WordVectorSerializer {
         return vocabCache;
     }
 
+    /**
+     * This method saves HNSW index to provided File, usually next to the model it was built for.
+     * Please note: only the index graph is saved, word vectors are taken from the model once the index is loaded.
+     *
+     * @param index
+     * @param file
+     * @throws IOException
+     */
+    public static void writeHnswIndex(@NonNull HnswIndex index, @NonNull File file) throws IOException {
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            writeHnswIndex(index, fos);
+        }
+    }
+
+    /**
+     * This method saves HNSW index to provided OutputStream.
+     * Please note: only the index graph is saved, word vectors are taken from the model once the index is loaded.
+     *
+     * @param index
+     * @param stream
+     * @throws IOException
+     */
+    public static void writeHnswIndex(@NonNull HnswIndex index, @NonNull OutputStream stream) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(stream));
+        index.write(dos);
+        dos.flush();
+    }
+
+    /**
+     * This method reads HNSW index from provided File.
+     * Use it with the model it was built for: {@code vec.setModelUtils(new HnswModelUtils<>(index, ef))}
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static HnswIndex readHnswIndex(@NonNull File file) throws IOException {
+        try (FileInputStream fis = new FileInputStream(file)) {
+            return readHnswIndex(fis);
+        }
+    }
+
+    /**
+     * This method reads HNSW index from provided InputStream.
+     * Use it with the model it was built for: {@code vec.setModelUtils(new HnswModelUtils<>(index, ef))}
+     *
+     * @param stream
+     * @return
+     * @throws IOException
+     */
+    public static HnswIndex readHnswIndex(@NonNull InputStream stream) throws IOException {
+        return HnswIndex.read(new DataInputStream(new BufferedInputStream(stream)));
+    }
+
     /**
      * This is utility holder class
      */
@@ -2547,6 +2605,79 @@ public class WordVectorSerializer {
         return word2Vec;
     }
 
+    /**
+     * This method maps word vectors previously saved with writeMappedWordVectors() or convertBinaryToMapped().
+     * Nothing is loaded on the heap: vectors are read from the memory-mapped file, so loading is near-instant for
+     * any model size, and all JVMs using the same file share one page-cached copy of it.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static MappedWordVectors loadMappedModel(@NonNull File file) throws IOException {
+        return MappedWordVectors.load(file);
+    }
+
+    /**
+     * This method saves word vectors in memory-mappable format, see loadMappedModel()
+     *
+     * @param vectors word vectors to save. Vocab is required
+     * @param file
+     * @throws IOException
+     */
+    public static void writeMappedWordVectors(@NonNull WordVectors vectors, @NonNull File file) throws IOException {
+        VocabCache<?> vocab = vectors.vocab();
+        if (vocab.numWords() == 0)
+            throw new IllegalStateException("No words to save");
+        try (MappedWordVectors.Writer writer = new MappedWordVectors.Writer(file,
+                        vectors.getWordVectorMatrix(vocab.wordAtIndex(0)).length())) {
+            for (int i = 0; i < vocab.numWords(); i++) {
+                String word = vocab.wordAtIndex(i);
+                writer.add(word, vectors.getWordVectorMatrix(word).dup().data().asFloat());
+            }
+        }
+    }
+
+    /**
+     * This method converts a binary word2vec model (like well-known Google Model, either compressed or not) into
+     * memory-mappable format, see loadMappedModel().
+     * Please note: the model isn't loaded into memory, it's converted one word at a time.
+     *
+     * @param binaryModel
+     * @param file
+     * @throws IOException
+     */
+    public static void convertBinaryToMapped(@NonNull File binaryModel, @NonNull File file) throws IOException {
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(
+                        GzipUtils.isCompressedFilename(binaryModel.getName())
+                                        ? new GZIPInputStream(new FileInputStream(binaryModel))
+                                        : new FileInputStream(binaryModel)))) {
+            int words = Integer.parseInt(readString(dis));
+            int size = Integer.parseInt(readString(dis));
+
+            byte[] bytes = new byte[4 * size];
+            float[] vector = new float[size];
+            ByteArrayOutputStream word = new ByteArrayOutputStream();
+            try (MappedWordVectors.Writer writer = new MappedWordVectors.Writer(file, size)) {
+                for (int i = 0; i < words; i++) {
+                    // word is followed by a space. Vectors may be followed by a line break
+                    word.reset();
+                    byte b = dis.readByte();
+                    while (b == '\n')
+                        b = dis.readByte();
+                    while (b != ' ') {
+                        word.write(b);
+                        b = dis.readByte();
+                    }
+
+                    dis.readFully(bytes);
+                    ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+                    writer.add(new String(word.toByteArray(), StandardCharsets.UTF_8), vector);
+                }
+            }
+        }
+    }
+
 
     protected interface Reader extends AutoCloseable {
         boolean hasNext();
@@ -79,6 +79,35 @@ public interface ModelUtils<T extends SequenceElement> {
      */
     Collection<String> wordsNearest(INDArray words, int top);
 
+    /**
+     * Batched version of wordsNearest(INDArray, int): nearest elements for each of the given vectors,
+     * computed in a single pass over the lookup table
+     *
+     * @param queries query vectors, one per row
+     * @param top the top n words for each query
+     * @return the words nearest each query, in the order of the rows
+     */
+    List<Collection<String>> wordsNearestBatch(INDArray queries, int top);
+
+    /**
+     * Batched version of wordsNearest(String, int): nearest elements for each of the given labels,
+     * computed in a single pass over the lookup table
+     *
+     * @param labels labels to return nearest elements for
+     * @param n number of nearest words to return for each label
+     * @return the words nearest each label, in the order of the labels (empty for labels not in vocab)
+     */
+    List<Collection<String>> wordsNearestBatch(List<String> labels, int n);
+
+    /**
+     * Batched version of similarity(String, String): similarity of each pair of labels
+     *
+     * @param labels1 first label of each pair
+     * @param labels2 second label of each pair
+     * @return similarity of labels1[i] and labels2[i] (NaN if any of them is not in vocab)
+     */
+    double[] similarityBatch(List<String> labels1, List<String> labels2);
+
 
     Collection<String> wordsNearestSum(String word, int n);
 
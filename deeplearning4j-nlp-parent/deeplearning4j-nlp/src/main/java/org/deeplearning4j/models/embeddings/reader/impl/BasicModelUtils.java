@@ -36,6 +36,9 @@ public class BasicModelUtils<T extends SequenceElement> implements ModelUtils<T>
 
     protected volatile boolean normalized = false;
 
+    // normalized copy of the lookup table, used by batched methods
+    protected volatile INDArray normalizedCopy;
+
 
     public BasicModelUtils() {
 
@@ -48,6 +51,7 @@ public class BasicModelUtils<T extends SequenceElement> implements ModelUtils<T>
 
         // reset normalization trigger on init call
         this.normalized = false;
+        this.normalizedCopy = null;
     }
 
     /**
@@ -274,6 +278,120 @@ public class BasicModelUtils<T extends SequenceElement> implements ModelUtils<T>
 
     }
 
+    /**
+     * Batched version of wordsNearest(INDArray, int): queries are compared to the whole vocabulary with blocked
+     * matrix multiplications (see {@link BatchedSimilarity}), against a normalized copy of the lookup table.
+     *
+     * PLEASE NOTE: unlike wordsNearest(INDArray, int), this method doesn't normalize the underlying lookup table, but
+     * the normalized copy takes as much memory as the lookup table. It's created upon first call, so call init()
+     * again if the lookup table was modified since.
+     *
+     * @param queries query vectors, one per row
+     * @param top the top n words for each query
+     * @return the words nearest each query, in the order of the rows
+     */
+    @Override
+    public List<Collection<String>> wordsNearestBatch(@NonNull INDArray queries, int top) {
+        // a few more results, to address UNK/STOP removal
+        int[][] nearest = BatchedSimilarity.nearest(getNormalizedCopy(), queries, top + 2,
+                        BatchedSimilarity.DEFAULT_BLOCK_SIZE);
+
+        List<Collection<String>> result = new ArrayList<>(nearest.length);
+        for (int[] indexes : nearest) {
+            List<String> words = new ArrayList<>(top);
+            for (int i = 0; i < indexes.length && words.size() < top; i++) {
+                String word = vocabCache.wordAtIndex(indexes[i]);
+                if (word != null && !word.equals("UNK") && !word.equals("STOP"))
+                    words.add(word);
+            }
+            result.add(words);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Collection<String>> wordsNearestBatch(@NonNull List<String> labels, int n) {
+        List<String> known = new ArrayList<>(labels.size());
+        for (String label : labels) {
+            if (vocabCache.hasToken(label))
+                known.add(label);
+        }
+
+        List<Collection<String>> nearest = new ArrayList<>();
+        if (!known.isEmpty()) {
+            INDArray queries = Nd4j.create(known.size(), lookupTable.layerSize());
+            for (int i = 0; i < known.size(); i++)
+                queries.putRow(i, lookupTable.vector(known.get(i)));
+            nearest = wordsNearestBatch(queries, n + 1);
+        }
+
+        List<Collection<String>> result = new ArrayList<>(labels.size());
+        int k = 0;
+        for (String label : labels) {
+            if (!vocabCache.hasToken(label)) {
+                result.add(new ArrayList<String>());
+                continue;
+            }
+            List<String> collection = new ArrayList<>(nearest.get(k++));
+            collection.remove(label);
+            while (collection.size() > n)
+                collection.remove(collection.size() - 1);
+            result.add(collection);
+        }
+        return result;
+    }
+
+    @Override
+    public double[] similarityBatch(@NonNull List<String> labels1, @NonNull List<String> labels2) {
+        if (labels1.size() != labels2.size())
+            throw new IllegalArgumentException("Number of labels doesn't match: " + labels1.size() + " vs "
+                            + labels2.size());
+
+        double[] result = new double[labels1.size()];
+        if (result.length == 0)
+            return result;
+
+        INDArray vectors1 = Nd4j.create(result.length, lookupTable.layerSize());
+        INDArray vectors2 = Nd4j.create(result.length, lookupTable.layerSize());
+        for (int i = 0; i < result.length; i++) {
+            String label1 = labels1.get(i);
+            String label2 = labels2.get(i);
+            if (label1 == null || label2 == null || !vocabCache.hasToken(label1) || !vocabCache.hasToken(label2)) {
+                result[i] = Double.NaN;
+                continue;
+            }
+            vectors1.putRow(i, lookupTable.vector(label1));
+            vectors2.putRow(i, lookupTable.vector(label2));
+        }
+
+        INDArray similarity = BatchedSimilarity.normalizedCopy(vectors1)
+                        .muli(BatchedSimilarity.normalizedCopy(vectors2)).sum(1);
+        for (int i = 0; i < result.length; i++) {
+            if (!Double.isNaN(result[i]))
+                result[i] = similarity.getDouble(i);
+        }
+        return result;
+    }
+
+    protected INDArray getNormalizedCopy() {
+        if (normalizedCopy == null) {
+            synchronized (this) {
+                if (normalizedCopy == null) {
+                    INDArray weights;
+                    if (lookupTable instanceof InMemoryLookupTable) {
+                        weights = ((InMemoryLookupTable) lookupTable).getSyn0();
+                    } else {
+                        weights = Nd4j.create(vocabCache.numWords(), lookupTable.layerSize());
+                        for (int i = 0; i < vocabCache.numWords(); i++)
+                            weights.putRow(i, lookupTable.vector(vocabCache.wordAtIndex(i)));
+                    }
+                    normalizedCopy = BatchedSimilarity.normalizedCopy(weights);
+                }
+            }
+        }
+        return normalizedCopy;
+    }
+
     /**
      * Get top N elements
      *
@@ -0,0 +1,163 @@
+package org.deeplearning4j.models.embeddings.reader.impl;
+
+import lombok.NonNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.BooleanIndexing;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.indexing.conditions.Conditions;
+
+/**
+ * Utility methods for batched cosine similarity search: nearest rows of a matrix (e.g. syn0) for many query vectors
+ * at once.<br>
+ * Queries are compared to blocks of rows of the matrix with one matrix multiplication per block, and the top k rows of
+ * each query are selected while the block similarities are read, with a bounded heap per query: the full
+ * [queries, rows] similarity matrix is never materialized, and there is no full sort.
+ */
+public class BatchedSimilarity {
+    public static final int DEFAULT_BLOCK_SIZE = 8192;
+
+    private BatchedSimilarity() {}
+
+    /**
+     * This method returns a copy of the given matrix, with all rows normalized to unit length (all-zero rows are
+     * kept as is). The given matrix isn't modified.
+     *
+     * @param matrix
+     * @return
+     */
+    public static INDArray normalizedCopy(@NonNull INDArray matrix) {
+        return normalize(matrix.dup('c'));
+    }
+
+    /**
+     * This method normalizes all rows of the given matrix to unit length, in place (all-zero rows are kept as is)
+     *
+     * @param matrix
+     * @return the given matrix
+     */
+    public static INDArray normalize(@NonNull INDArray matrix) {
+        INDArray norms = matrix.norm2(1);
+        BooleanIndexing.replaceWhere(norms, 1.0, Conditions.equals(0.0));
+        return matrix.diviColumnVector(norms);
+    }
+
+    /**
+     * This method returns the k rows most similar (by cosine similarity) to each query
+     *
+     * @param normalized matrix to search, with rows normalized to unit length (see {@link #normalizedCopy(INDArray)})
+     * @param queries query vectors, one per row. Don't need to be normalized
+     * @param k number of rows to return per query
+     * @param blockSize number of rows of the matrix compared to the queries at once
+     * @return indexes of the nearest rows for each query, most similar first
+     */
+    public static int[][] nearest(@NonNull INDArray normalized, @NonNull INDArray queries, int k, int blockSize) {
+        INDArray q = normalizedCopy(queries.isVector() ? queries.reshape(1, queries.length()) : queries);
+        if (q.columns() != normalized.columns())
+            throw new IllegalArgumentException("Invalid query vectors: expected " + normalized.columns()
+                            + " columns, got " + q.columns());
+        int numRows = normalized.rows();
+        int numQueries = q.rows();
+        k = Math.max(0, Math.min(k, numRows));
+        blockSize = Math.max(1, blockSize);
+
+        TopK[] top = new TopK[numQueries];
+        for (int i = 0; i < numQueries; i++)
+            top[i] = new TopK(k);
+
+        INDArray sims = null;
+        for (int start = 0; start < numRows && k > 0; start += blockSize) {
+            int end = Math.min(numRows, start + blockSize);
+            int length = end - start;
+            INDArray block = normalized.get(NDArrayIndex.interval(start, end), NDArrayIndex.all());
+            if (sims == null || sims.columns() != length)
+                sims = Nd4j.create(new int[] {numQueries, length}, 'c');
+            q.mmul(block.transpose(), sims);
+
+            float[] values = sims.data().asFloat();
+            for (int i = 0; i < numQueries; i++)
+                top[i].offer(values, i * length, length, start);
+        }
+
+        int[][] result = new int[numQueries][];
+        for (int i = 0; i < numQueries; i++)
+            result[i] = top[i].sorted();
+        return result;
+    }
+
+    /**
+     * Bounded min heap of (index, similarity): keeps the k most similar indexes offered
+     */
+    public static class TopK {
+        private final int[] indexes;
+        private final float[] sims;
+        private int size;
+
+        public TopK(int k) {
+            indexes = new int[k];
+            sims = new float[k];
+        }
+
+        public void offer(int index, float sim) {
+            if (size < indexes.length) {
+                siftUp(size++, index, sim);
+            } else if (size > 0 && sim > sims[0]) {
+                siftDown(index, sim);
+            }
+        }
+
+        /**
+         * Offer consecutive indexes, starting at firstIndex, with similarities values[offset .. offset + length)
+         */
+        public void offer(float[] values, int offset, int length, int firstIndex) {
+            for (int j = 0; j < length; j++)
+                offer(firstIndex + j, values[offset + j]);
+        }
+
+        private void siftUp(int i, int index, float sim) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (sims[parent] <= sim)
+                    break;
+                indexes[i] = indexes[parent];
+                sims[i] = sims[parent];
+                i = parent;
+            }
+            indexes[i] = index;
+            sims[i] = sim;
+        }
+
+        //Replace the root (least similar) with the given element
+        private void siftDown(int index, float sim) {
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && sims[child + 1] < sims[child])
+                    child++;
+                if (sims[child] >= sim)
+                    break;
+                indexes[i] = indexes[child];
+                sims[i] = sims[child];
+                i = child;
+            }
+            indexes[i] = index;
+            sims[i] = sim;
+        }
+
+        /**
+         * @return indexes by decreasing similarity. Empties the heap
+         */
+        public int[] sorted() {
+            int[] result = new int[size];
+            while (size > 0) {
+                result[size - 1] = indexes[0];
+                size--;
+                int lastIndex = indexes[size];
+                float lastSim = sims[size];
+                if (size > 0)
+                    siftDown(lastIndex, lastSim);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,660 @@
+package org.deeplearning4j.models.embeddings.reader.impl;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.models.embeddings.WeightLookupTable;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.concurrency.AffinityManager;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Hierarchical navigable small world (HNSW) graph over the word vectors of a lookup table, for approximate cosine
+ * similarity search (Malkov and Yashunin, 2016).<br>
+ * Each word is a node of a multi-layer proximity graph: layer 0 contains all the words, and each upper layer a
+ * random, exponentially smaller subset of the layer below. Queries greedily descend the upper layers, then run a
+ * beam search of width ef on layer 0: a larger ef gives a better recall, at the cost of a higher latency.<br>
+ * <br>
+ * The index reads the vectors in place from the weights of the lookup table when they are FLOAT and 'c' ordered, and
+ * only keeps the norm of each vector: the lookup table is never modified, and must not be trained further while the
+ * index is used (see {@link #attach(WeightLookupTable, boolean)} otherwise). If the weights of the lookup table are
+ * replaced by a new array, the index attaches them again on the next search. Only the graph is persisted (see
+ * {@link #write(DataOutputStream)}): the lookup table is attached again once the index is loaded.
+ *
+ * @see HnswModelUtils
+ */
+@Slf4j
+public class HnswIndex {
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 1;
+    private static final int NUM_LOCKS = 1024;
+
+    //Max number of neighbours per node on upper layers, and on layer 0
+    @Getter
+    private final int m;
+    private final int m0;
+    @Getter
+    private final int efConstruction;
+
+    @Getter
+    private int size;
+    @Getter
+    private int dimension;
+    //Hash of the vocabulary words, in index order: checked when attaching the lookup table
+    private long wordsHash;
+
+    //Vectors, [size, dimension] in row-major order: a view of the lookup table weights, or a copy
+    private volatile FloatBuffer vectors;
+    //Lookup table and weights the vectors are a view of (null for a copy). The view doesn't reference the weights, so
+    //they are held here for as long as the view is used
+    private volatile WeightLookupTable<? extends SequenceElement> viewedTable;
+    private volatile INDArray viewedWeights;
+    //Inverse L2 norm of each vector (0 for zero vectors)
+    private float[] invNorms;
+    //Neighbours of each node, by layer. Arrays are replaced (never modified) when links are updated, and the
+    //references are published through the atomic arrays: searches read them without locking
+    private AtomicReferenceArray<int[]>[] links;
+    private volatile int entryPoint = -1;
+    private volatile int maxLevel = -1;
+
+    private final Object[] locks = new Object[NUM_LOCKS];
+    private final ThreadLocal<Visited> visited = new ThreadLocal<Visited>() {
+        @Override
+        protected Visited initialValue() {
+            return new Visited(size);
+        }
+    };
+
+    private HnswIndex(int m, int efConstruction) {
+        if (m < 2 || efConstruction < 1)
+            throw new IllegalArgumentException("Invalid HNSW parameters: m must be at least 2 and efConstruction "
+                            + "positive, got m=" + m + ", efConstruction=" + efConstruction);
+        this.m = m;
+        this.m0 = 2 * m;
+        this.efConstruction = efConstruction;
+        for (int i = 0; i < NUM_LOCKS; i++)
+            locks[i] = new Object();
+    }
+
+    /**
+     * Build the index over all the words of the given lookup table
+     *
+     * @param lookupTable    Lookup table of the words to index
+     * @param m              Max number of neighbours per node (2 * m on layer 0). Larger values give a better
+     *                       recall, for more memory and a slower build. Usually 8 to 48
+     * @param efConstruction Beam width used to find the neighbours of each node while building
+     * @param numThreads     Number of threads used to build the index
+     * @param seed           Seed for the random layer assignment
+     */
+    public static <T extends SequenceElement> HnswIndex build(@NonNull WeightLookupTable<T> lookupTable, int m,
+                    int efConstruction, int numThreads, long seed) {
+        HnswIndex index = new HnswIndex(m, efConstruction);
+        index.attach(lookupTable);
+        index.buildGraph(numThreads, seed);
+        return index;
+    }
+
+    /**
+     * Attach the vectors of the given lookup table to the index, in place when possible. Required for a loaded index
+     * before it is searched.
+     *
+     * @param lookupTable Lookup table of the words the index was built for
+     * @throws IllegalStateException If the lookup table does not match the index: different vocabulary or vector size
+     */
+    public <T extends SequenceElement> void attach(@NonNull WeightLookupTable<T> lookupTable) {
+        attach(lookupTable, false);
+    }
+
+    /**
+     * As per {@link #attach(WeightLookupTable)}
+     *
+     * @param copyVectors If true: the index keeps its own copy of the vectors, instead of reading the weights of the
+     *                    lookup table in place. Required if the lookup table is modified while the index is used
+     */
+    public <T extends SequenceElement> void attach(@NonNull WeightLookupTable<T> lookupTable, boolean copyVectors) {
+        VocabCache<T> vocab = lookupTable.getVocabCache();
+        int numWords = vocab.numWords();
+        int dim = lookupTable.layerSize();
+        if (links != null && (numWords != size || dim != dimension || wordsHash(vocab) != wordsHash))
+            throw new IllegalStateException("Lookup table does not match the HNSW index: index built for " + size
+                            + " words of size " + dimension + ", got " + numWords + " words of size " + dim
+                            + " (or a different vocabulary)");
+        if ((long) numWords * dim > Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many words for the HNSW index: " + numWords + " vectors of size "
+                            + dim);
+
+        INDArray weights = copyVectors ? null : lookupTable.getWeights();
+        FloatBuffer v = weightsView(weights, numWords, dim);
+        if (v == null) {
+            weights = null;
+            float[] copy = new float[numWords * dim];
+            for (int i = 0; i < numWords; i++) {
+                INDArray row = lookupTable.vector(vocab.wordAtIndex(i));
+                if (row == null)
+                    throw new IllegalStateException("No vector for word " + i + " of the vocabulary");
+                System.arraycopy(row.dup().data().asFloat(), 0, copy, i * dim, dim);
+            }
+            v = FloatBuffer.wrap(copy);
+        }
+
+        float[] norms = new float[numWords];
+        for (int i = 0; i < numWords; i++) {
+            double norm = 0;
+            for (int j = i * dim; j < (i + 1) * dim; j++)
+                norm += v.get(j) * v.get(j);
+            norms[i] = norm > 0 ? (float) (1.0 / Math.sqrt(norm)) : 0.0f;
+        }
+        this.size = numWords;
+        this.dimension = dim;
+        this.wordsHash = wordsHash(vocab);
+        this.invNorms = norms;
+        this.viewedTable = weights == null ? null : lookupTable;
+        this.viewedWeights = weights;
+        this.vectors = v;
+    }
+
+    /*
+     * View of the lookup table weights, if they can be read in place: FLOAT, 'c' ordered, one row per word in index
+     * order, and small enough for a NIO buffer (2GB). Null otherwise
+     */
+    private static FloatBuffer weightsView(INDArray weights, int numWords, int dim) {
+        if (weights == null || weights.data().dataType() != DataBuffer.Type.FLOAT || weights.rank() != 2
+                        || weights.ordering() != 'c' || weights.offset() != 0 || weights.rows() != numWords
+                        || weights.columns() != dim || (long) numWords * dim > Integer.MAX_VALUE / 4)
+            return null;
+        Nd4j.getAffinityManager().ensureLocation(weights, AffinityManager.Location.HOST);
+        return weights.data().asNio().order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    /**
+     * @return True if the vectors have been attached, and the index can be searched
+     */
+    public boolean isAttached() {
+        return vectors != null;
+    }
+
+    private void buildGraph(int numThreads, long seed) {
+        long start = System.currentTimeMillis();
+        Random rng = new Random(seed);
+        double levelMult = 1.0 / Math.log(m);
+        links = newLinks(size);
+        for (int i = 0; i < size; i++) {
+            int level = (int) (-Math.log(1.0 - rng.nextDouble()) * levelMult);
+            links[i] = new AtomicReferenceArray<>(level + 1);
+            for (int l = 0; l <= level; l++)
+                links[i].set(l, new int[0]);
+        }
+        if (size == 0)
+            return;
+
+        //First node: entry point of the graph
+        entryPoint = 0;
+        maxLevel = links[0].length() - 1;
+
+        final AtomicInteger next = new AtomicInteger(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Runnable builder = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int node;
+                    while (error.get() == null && (node = next.getAndIncrement()) < size)
+                        insert(node);
+                } catch (Throwable t) {
+                    error.compareAndSet(null, t);
+                }
+            }
+        };
+        Thread[] threads = new Thread[Math.max(1, numThreads) - 1];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(builder, "HnswIndex-builder-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        builder.run();
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while building HNSW index", e);
+            }
+        }
+        if (error.get() != null)
+            throw new RuntimeException("Error building HNSW index", error.get());
+        log.info("Built HNSW index for {} words in {} ms", size, System.currentTimeMillis() - start);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AtomicReferenceArray<int[]>[] newLinks(int size) {
+        return new AtomicReferenceArray[size];
+    }
+
+    private void insert(int node) {
+        int nodeLevel = links[node].length() - 1;
+        int ep;
+        int topLevel;
+        synchronized (this) {
+            ep = entryPoint;
+            topLevel = maxLevel;
+        }
+
+        float[] query = normalized(node);
+        for (int l = topLevel; l > nodeLevel; l--)
+            ep = greedyClosest(query, ep, l);
+
+        int[] entries = {ep};
+        for (int l = Math.min(nodeLevel, topLevel); l >= 0; l--) {
+            NodeHeap candidates = searchLayer(query, entries, efConstruction, l);
+            int[] nearest = candidates.sortedNodes();
+            float[] sims = candidates.sortedSims();
+            int[] neighbours = selectNeighbours(nearest, sims, l == 0 ? m0 : m);
+            setLinks(node, l, neighbours);
+            for (int n : neighbours)
+                addLink(n, node, l);
+            entries = nearest;
+        }
+
+        if (nodeLevel > topLevel) {
+            synchronized (this) {
+                if (nodeLevel > maxLevel) {
+                    maxLevel = nodeLevel;
+                    entryPoint = node;
+                }
+            }
+        }
+    }
+
+    /*
+     * Neighbour selection heuristic: a candidate (in order of decreasing similarity to the base node) is only kept if
+     * it is closer to the base node than to any neighbour already kept. This keeps links in all directions, instead
+     * of only to the densest nearby cluster.
+     */
+    private int[] selectNeighbours(int[] candidates, float[] sims, int max) {
+        int[] selected = new int[Math.min(max, candidates.length)];
+        int count = 0;
+        for (int i = 0; i < candidates.length && count < selected.length; i++) {
+            int c = candidates[i];
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (similarity(c, selected[j]) > sims[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep)
+                selected[count++] = c;
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    private void setLinks(int node, int level, int[] neighbours) {
+        synchronized (lock(node)) {
+            links[node].set(level, neighbours);
+        }
+    }
+
+    private void addLink(int node, int neighbour, int level) {
+        int max = level == 0 ? m0 : m;
+        //Locked: concurrent updates of the same node must not be lost. Readers don't lock
+        synchronized (lock(node)) {
+            int[] current = links[node].get(level);
+            int[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = neighbour;
+            if (updated.length > max) {
+                //Too many links: keep the best ones, according to the selection heuristic
+                NodeHeap heap = new NodeHeap(updated.length, false);
+                for (int n : updated)
+                    heap.push(n, similarity(node, n));
+                updated = selectNeighbours(heap.sortedNodes(), heap.sortedSims(), max);
+            }
+            links[node].set(level, updated);
+        }
+    }
+
+    private int[] neighbours(int node, int level) {
+        return links[node].get(level);
+    }
+
+    private Object lock(int node) {
+        return locks[node % NUM_LOCKS];
+    }
+
+    private int greedyClosest(float[] query, int ep, int level) {
+        int current = ep;
+        float best = similarity(query, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int n : neighbours(current, level)) {
+                float sim = similarity(query, n);
+                if (sim > best) {
+                    best = sim;
+                    current = n;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /*
+     * Beam search on a single layer: returns (up to) the ef nodes most similar to the query
+     */
+    private NodeHeap searchLayer(float[] query, int[] entries, int ef, int level) {
+        Visited v = visited.get();
+        v.reset(size);
+        //Candidates to expand (most similar first), and results found so far (least similar first)
+        NodeHeap candidates = new NodeHeap(Math.max(16, ef), true);
+        NodeHeap results = new NodeHeap(ef + 1, false);
+        for (int e : entries) {
+            if (v.visit(e)) {
+                float sim = similarity(query, e);
+                candidates.push(e, sim);
+                results.push(e, sim);
+                if (results.size() > ef)
+                    results.pop();
+            }
+        }
+
+        while (candidates.size() > 0) {
+            float sim = candidates.topSim();
+            int c = candidates.pop();
+            if (results.size() >= ef && sim < results.topSim())
+                break;
+            for (int n : neighbours(c, level)) {
+                if (!v.visit(n))
+                    continue;
+                float nSim = similarity(query, n);
+                if (results.size() < ef || nSim > results.topSim()) {
+                    candidates.push(n, nSim);
+                    results.push(n, nSim);
+                    if (results.size() > ef)
+                        results.pop();
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Find the (approximate) k words most similar to the query, by cosine similarity
+     *
+     * @param query Query vector (does not need to be normalized)
+     * @param k     Number of words to return
+     * @param ef    Beam width of the search (at least k): larger values give a better recall for a higher latency
+     * @return Indexes of the words in the vocabulary, most similar first
+     */
+    public int[] search(@NonNull INDArray query, int k, int ef) {
+        return search(query.dup().data().asFloat(), k, ef);
+    }
+
+    /**
+     * As per {@link #search(INDArray, int, int)}, for a query vector as a float array
+     */
+    public int[] search(@NonNull float[] query, int k, int ef) {
+        if (vectors == null)
+            throw new IllegalStateException("No vectors attached to the HNSW index: attach the lookup table first");
+        checkWeights();
+        if (query.length != dimension)
+            throw new IllegalArgumentException("Invalid query vector: expected length " + dimension + ", got "
+                            + query.length);
+        if (size == 0 || k <= 0)
+            return new int[0];
+
+        int ep = entryPoint;
+        for (int l = maxLevel; l > 0; l--)
+            ep = greedyClosest(query, ep, l);
+        int[] nearest = searchLayer(query, new int[] {ep}, Math.max(ef, k), 0).sortedNodes();
+        return nearest.length > k ? Arrays.copyOf(nearest, k) : nearest;
+    }
+
+    /*
+     * Attach the lookup table again if its weights were replaced (e.g. reset or loaded) since the view was created:
+     * the old view would keep reading the previous array
+     */
+    private void checkWeights() {
+        WeightLookupTable<? extends SequenceElement> table = viewedTable;
+        if (table == null || table.getWeights() == viewedWeights)
+            return;
+        synchronized (this) {
+            if (viewedTable == table && table.getWeights() != viewedWeights) {
+                log.info("Weights of the lookup table were replaced: attaching them again to the HNSW index");
+                attach(table, false);
+            }
+        }
+    }
+
+    //Normalized vector of a node, used as query while building
+    private float[] normalized(int node) {
+        float[] v = new float[dimension];
+        int offset = node * dimension;
+        for (int i = 0; i < dimension; i++)
+            v[i] = vectors.get(offset + i) * invNorms[node];
+        return v;
+    }
+
+    //Cosine similarity of two nodes
+    private float similarity(int a, int b) {
+        int offsetA = a * dimension;
+        int offsetB = b * dimension;
+        float sum = 0.0f;
+        for (int i = 0; i < dimension; i++)
+            sum += vectors.get(offsetA + i) * vectors.get(offsetB + i);
+        return sum * invNorms[a] * invNorms[b];
+    }
+
+    //Similarity of a query to a node: cosine similarity, times the norm of the query
+    private float similarity(float[] query, int node) {
+        int offset = node * dimension;
+        float sum = 0.0f;
+        for (int i = 0; i < dimension; i++)
+            sum += query[i] * vectors.get(offset + i);
+        return sum * invNorms[node];
+    }
+
+    /**
+     * Write the graph of the index (not the vectors) to the given stream
+     */
+    public void write(@NonNull DataOutputStream out) throws IOException {
+        if (links == null)
+            throw new IllegalStateException("HNSW index has not been built");
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(m);
+        out.writeInt(efConstruction);
+        out.writeInt(size);
+        out.writeInt(dimension);
+        out.writeLong(wordsHash);
+        out.writeInt(entryPoint);
+        out.writeInt(maxLevel);
+        for (AtomicReferenceArray<int[]> nodeLinks : links) {
+            out.writeInt(nodeLinks.length());
+            for (int level = 0; level < nodeLinks.length(); level++) {
+                int[] l = nodeLinks.get(level);
+                out.writeInt(l.length);
+                for (int n : l)
+                    out.writeInt(n);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Read the graph of an index written with {@link #write(DataOutputStream)}. The lookup table must be attached
+     * before the index is searched.
+     */
+    public static HnswIndex read(@NonNull DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC)
+            throw new IOException("Invalid HNSW index: unexpected file header");
+        int version = in.readInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported HNSW index version: " + version);
+        HnswIndex index = new HnswIndex(in.readInt(), in.readInt());
+        index.size = in.readInt();
+        index.dimension = in.readInt();
+        index.wordsHash = in.readLong();
+        index.entryPoint = in.readInt();
+        index.maxLevel = in.readInt();
+        index.links = newLinks(index.size);
+        for (int i = 0; i < index.size; i++) {
+            AtomicReferenceArray<int[]> nodeLinks = new AtomicReferenceArray<>(in.readInt());
+            for (int l = 0; l < nodeLinks.length(); l++) {
+                int[] neighbours = new int[in.readInt()];
+                for (int j = 0; j < neighbours.length; j++)
+                    neighbours[j] = in.readInt();
+                nodeLinks.set(l, neighbours);
+            }
+            index.links[i] = nodeLinks;
+        }
+        return index;
+    }
+
+    private static long wordsHash(VocabCache<?> vocab) {
+        long hash = 17;
+        for (int i = 0; i < vocab.numWords(); i++) {
+            String word = vocab.wordAtIndex(i);
+            hash = 31 * hash + (word == null ? 0 : word.hashCode());
+        }
+        return hash;
+    }
+
+    //Nodes visited by the current search: a node is visited if its mark equals the current stamp
+    private static class Visited {
+        private int[] marks;
+        private int stamp;
+
+        private Visited(int size) {
+            marks = new int[size];
+        }
+
+        private void reset(int size) {
+            if (marks.length < size) {
+                marks = new int[size];
+                stamp = 0;
+            }
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                stamp = 1;
+            }
+        }
+
+        //True if the node had not been visited yet
+        private boolean visit(int node) {
+            if (marks[node] == stamp)
+                return false;
+            marks[node] = stamp;
+            return true;
+        }
+    }
+
+    //Binary heap of (node, similarity), with the most (max heap) or least similar node on top
+    private static class NodeHeap {
+        private final boolean max;
+        private int[] nodes;
+        private float[] sims;
+        private int size;
+        //Number of sorted nodes, once the heap has been sorted (-1 before)
+        private int sortedCount = -1;
+
+        private NodeHeap(int capacity, boolean max) {
+            this.max = max;
+            this.nodes = new int[capacity];
+            this.sims = new float[capacity];
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private float topSim() {
+            return sims[0];
+        }
+
+        private boolean above(float a, float b) {
+            return max ? a > b : a < b;
+        }
+
+        private void push(int node, float sim) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * size);
+                sims = Arrays.copyOf(sims, 2 * size);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!above(sim, sims[parent]))
+                    break;
+                nodes[i] = nodes[parent];
+                sims[i] = sims[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            sims[i] = sim;
+        }
+
+        private int pop() {
+            int top = nodes[0];
+            size--;
+            int node = nodes[size];
+            float sim = sims[size];
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && above(sims[child + 1], sims[child]))
+                    child++;
+                if (!above(sims[child], sim))
+                    break;
+                nodes[i] = nodes[child];
+                sims[i] = sims[child];
+                i = child;
+            }
+            nodes[i] = node;
+            sims[i] = sim;
+            return top;
+        }
+
+        //Nodes by decreasing similarity. Empties the heap
+        private int[] sortedNodes() {
+            sortDescending();
+            return Arrays.copyOf(nodes, sortedCount);
+        }
+
+        private float[] sortedSims() {
+            sortDescending();
+            return Arrays.copyOf(sims, sortedCount);
+        }
+
+        private void sortDescending() {
+            if (sortedCount >= 0)
+                return;
+            int n = size;
+            int[] sortedNodes = new int[n];
+            float[] sortedSims = new float[n];
+            for (int i = 0; i < n; i++) {
+                float sim = sims[0];
+                int node = pop();
+                int pos = max ? i : n - 1 - i;
+                sortedNodes[pos] = node;
+                sortedSims[pos] = sim;
+            }
+            nodes = sortedNodes;
+            sims = sortedSims;
+            sortedCount = n;
+        }
+    }
+}
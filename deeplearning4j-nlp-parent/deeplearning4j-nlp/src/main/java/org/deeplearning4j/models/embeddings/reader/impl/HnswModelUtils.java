@@ -0,0 +1,182 @@
+package org.deeplearning4j.models.embeddings.reader.impl;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.deeplearning4j.models.embeddings.WeightLookupTable;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This is HNSW-based implementation for wordsNearest methods: approximate nearest neighbours search over a
+ * {@link HnswIndex}, suited for many queries over large vocabularies (sub-linear search time, instead of a full pass
+ * over the lookup table for each query).
+ *
+ * Recall/latency trade-off is configured with ef, the beam width of searches: see {@link #setEf(int)}.
+ * The index is built upon first call to wordsNearest, or can be provided (for example, loaded with
+ * WordVectorSerializer.readHnswIndex()), in which case it's attached to the lookup table on init.
+ *
+ * PLEASE NOTE: unlike BasicModelUtils, this implementation doesn't normalize the underlying lookup table: the index
+ * reads the vectors in place when it can (FLOAT, 'c' ordered weights), and only keeps their norms and the graph.
+ * Otherwise it keeps its own copy of the vectors, which takes some memory, dependant on your model size.
+ */
+public class HnswModelUtils<T extends SequenceElement> extends BasicModelUtils<T> {
+    public static final int DEFAULT_M = 16;
+    public static final int DEFAULT_EF_CONSTRUCTION = 200;
+    public static final int DEFAULT_EF = 64;
+
+    protected volatile HnswIndex index;
+    // true if the index was provided, false if it's built from the lookup table
+    protected final boolean prebuilt;
+    @Getter
+    protected final int m;
+    @Getter
+    protected final int efConstruction;
+    @Getter
+    protected volatile int ef;
+    protected final int numThreads;
+
+    private ExecutorService executor;
+
+    public HnswModelUtils() {
+        this(DEFAULT_M, DEFAULT_EF_CONSTRUCTION, DEFAULT_EF);
+    }
+
+    /**
+     * @param m              Max number of neighbours per node of the index (see {@link HnswIndex})
+     * @param efConstruction Beam width used while building the index
+     * @param ef             Beam width used for queries
+     */
+    public HnswModelUtils(int m, int efConstruction, int ef) {
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.ef = ef;
+        this.numThreads = Runtime.getRuntime().availableProcessors();
+        this.prebuilt = false;
+    }
+
+    /**
+     * @param index Prebuilt (or loaded) index, attached to the lookup table on init
+     * @param ef    Beam width used for queries
+     */
+    public HnswModelUtils(@NonNull HnswIndex index, int ef) {
+        this.m = index.getM();
+        this.efConstruction = index.getEfConstruction();
+        this.ef = ef;
+        this.numThreads = Runtime.getRuntime().availableProcessors();
+        this.index = index;
+        this.prebuilt = true;
+    }
+
+    @Override
+    public void init(@NonNull WeightLookupTable<T> lookupTable) {
+        super.init(lookupTable);
+        if (prebuilt) {
+            // prebuilt index: vectors are taken from this lookup table, which has to match the index
+            index.attach(lookupTable);
+        } else {
+            index = null;
+        }
+    }
+
+    /**
+     * Set the beam width used for queries: larger values give a better recall, at the cost of a higher latency.
+     * Values below the number of requested words are raised to that number.
+     */
+    public void setEf(int ef) {
+        if (ef < 1)
+            throw new IllegalArgumentException("ef must be positive, got " + ef);
+        this.ef = ef;
+    }
+
+    /**
+     * @return The index, built if it wasn't before
+     */
+    public HnswIndex getIndex() {
+        checkIndex();
+        return index;
+    }
+
+    protected synchronized void checkIndex() {
+        // build new index if it wasn't created before
+        if (index == null) {
+            index = HnswIndex.build(lookupTable, m, efConstruction, numThreads, 12345L);
+        }
+    }
+
+    /**
+     * Words nearest to the given vector, according to the HNSW index
+     *
+     * @param words vector to look nearest words to
+     * @param top the top n words
+     * @return the (approximate) top n words, most similar first
+     */
+    @Override
+    public Collection<String> wordsNearest(INDArray words, int top) {
+        checkIndex();
+        // a few more results, to address UNK/STOP removal
+        return labels(index.search(words, top + 2, Math.max(ef, top + 2)), top);
+    }
+
+    /**
+     * Batch version of {@link #wordsNearest(INDArray, int)}: queries are searched in parallel
+     *
+     * @param queries query vectors, one per row
+     * @param top the top n words for each query
+     * @return the (approximate) top n words of each query, in the order of the rows
+     */
+    @Override
+    public List<Collection<String>> wordsNearestBatch(@NonNull INDArray queries, final int top) {
+        checkIndex();
+        final int searchEf = Math.max(ef, top + 2);
+        List<Future<Collection<String>>> futures = new ArrayList<>(queries.rows());
+        ExecutorService executor = executor();
+        for (int i = 0; i < queries.rows(); i++) {
+            final float[] query = queries.getRow(i).dup().data().asFloat();
+            futures.add(executor.submit(new Callable<Collection<String>>() {
+                @Override
+                public Collection<String> call() {
+                    return labels(index.search(query, top + 2, searchEf), top);
+                }
+            }));
+        }
+
+        List<Collection<String>> result = new ArrayList<>(futures.size());
+        try {
+            for (Future<Collection<String>> f : futures)
+                result.add(f.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while searching nearest words", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error searching nearest words", e.getCause());
+        }
+        return result;
+    }
+
+    private Collection<String> labels(int[] indexes, int top) {
+        List<String> result = new ArrayList<>(top);
+        for (int i = 0; i < indexes.length && result.size() < top; i++) {
+            String word = vocabCache.wordAtIndex(indexes[i]);
+            if (word != null && !word.equals("UNK") && !word.equals("STOP"))
+                result.add(word);
+        }
+        return result;
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "HnswModelUtils-search");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return executor;
+    }
+}
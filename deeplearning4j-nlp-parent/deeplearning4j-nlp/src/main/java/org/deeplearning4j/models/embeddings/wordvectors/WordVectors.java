@@ -145,6 +145,22 @@ public interface WordVectors extends Serializable {
      */
     Collection<String> wordsNearest(String word, int n);
 
+    /**
+     * Batched version of wordsNearest(INDArray, int): top n words for each of the given vectors
+     * @param queries query vectors, one per row
+     * @param top the top n words for each query
+     * @return the words nearest each query, in the order of the rows
+     */
+    List<Collection<String>> wordsNearestBatch(INDArray queries, int top);
+
+    /**
+     * Batched version of wordsNearest(String, int): top n words most similar to each of the given words
+     * @param words the words to compare
+     * @param n the n to get for each word
+     * @return the top n words of each word, in the order of the words
+     */
+    List<Collection<String>> wordsNearestBatch(List<String> words, int n);
+
 
 
     /**
@@ -155,6 +171,14 @@ public interface WordVectors extends Serializable {
      */
     double similarity(String word, String word2);
 
+    /**
+     * Batched version of similarity(String, String): similarity of each pair of words
+     * @param words1 the first word of each pair
+     * @param words2 the second word of each pair
+     * @return normalized similarities (cosine similarity) of words1[i] and words2[i]
+     */
+    double[] similarityBatch(List<String> words1, List<String> words2);
+
     /**
      * Vocab for the vectors
      * @return
@@ -271,6 +271,30 @@ public class WordVectorsImpl<T extends SequenceElement> implements WordVectors {
         return modelUtils.wordsNearest(word, n);
     }
 
+    /**
+     * Returns nearest words for each of the given vectors, provided by ModelUtils in a single batch
+     *
+     * @param queries query vectors, one per row
+     * @param top the top n words for each query
+     * @return the words nearest each query, in the order of the rows
+     */
+    @Override
+    public List<Collection<String>> wordsNearestBatch(INDArray queries, int top) {
+        return modelUtils.wordsNearestBatch(queries, top);
+    }
+
+    /**
+     * Returns nearest words for each of the given words, provided by ModelUtils in a single batch
+     *
+     * @param words the words to compare
+     * @param n the n to get for each word
+     * @return the top n words of each word, in the order of the words
+     */
+    @Override
+    public List<Collection<String>> wordsNearestBatch(List<String> words, int n) {
+        return modelUtils.wordsNearestBatch(words, n);
+    }
+
 
     /**
      * Returns similarity of two elements, provided by ModelUtils
@@ -283,6 +307,18 @@ public class WordVectorsImpl<T extends SequenceElement> implements WordVectors {
         return modelUtils.similarity(word, word2);
     }
 
+    /**
+     * Returns similarity of each pair of elements, provided by ModelUtils in a single batch
+     *
+     * @param words1 the first word of each pair
+     * @param words2 the second word of each pair
+     * @return normalized similarities (cosine similarity)
+     */
+    @Override
+    public double[] similarityBatch(List<String> words1, List<String> words2) {
+        return modelUtils.similarityBatch(words1, words2);
+    }
+
     @Override
     public VocabCache<T> vocab() {
         return vocab;
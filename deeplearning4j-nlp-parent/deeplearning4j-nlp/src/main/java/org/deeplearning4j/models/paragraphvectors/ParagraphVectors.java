@@ -12,6 +12,7 @@ import org.deeplearning4j.models.embeddings.learning.impl.sequence.DM;
 import org.deeplearning4j.models.embeddings.loader.VectorsConfiguration;
 import org.deeplearning4j.models.embeddings.reader.ModelUtils;
 import org.deeplearning4j.models.embeddings.reader.impl.BasicModelUtils;
+import org.deeplearning4j.models.embeddings.reader.impl.BatchedSimilarity;
 import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
 import org.deeplearning4j.models.sequencevectors.interfaces.SequenceIterator;
 import org.deeplearning4j.models.sequencevectors.interfaces.VectorsListener;
@@ -58,6 +59,8 @@ public class ParagraphVectors extends Word2Vec {
     protected INDArray labelsMatrix;
     protected List<VocabWord> labelsList = new ArrayList<>();
     protected boolean normalizedLabels = false;
+    // normalized copy of labelsMatrix, used by batched methods
+    protected transient INDArray labelsMatrixCopy;
 
     protected transient final Object inferenceLocker = new Object();
     protected transient PriorityScheduler inferenceExecutor;
@@ -155,6 +158,7 @@ public class ParagraphVectors extends Word2Vec {
         if (i > 0) {
             labelsMatrix = Nd4j.pullRows(lookupTable.getWeights(), 1, indexArray);
             labelsList = vocabWordList;
+            labelsMatrixCopy = null;
         }
     }
 
@@ -579,6 +583,83 @@ public class ParagraphVectors extends Word2Vec {
         return BasicModelUtils.getLabels(result, topN);
     }
 
+    /**
+     * This method returns top N labels nearest to each of specified texts.
+     * Documents are inferred in parallel, and compared to all labels at once: see nearestLabelsBatch(INDArray, int)
+     *
+     * @param rawTexts
+     * @param topN
+     * @return labels nearest each text, in the order of the texts (empty for texts with no matches in vocabulary)
+     */
+    public List<Collection<String>> nearestLabelsBatch(@NonNull List<String> rawTexts, int topN) {
+        List<String> documents = new ArrayList<>(rawTexts.size());
+        boolean[] matched = new boolean[rawTexts.size()];
+        for (int i = 0; i < rawTexts.size(); i++) {
+            for (String token : tokenizerFactory.create(rawTexts.get(i)).getTokens()) {
+                if (vocab.containsWord(token)) {
+                    matched[i] = true;
+                    documents.add(rawTexts.get(i));
+                    break;
+                }
+            }
+        }
+
+        List<Collection<String>> nearest = new ArrayList<>();
+        if (!documents.isEmpty())
+            nearest = nearestLabelsBatch(Nd4j.vstack(inferVectorBatched(documents)), topN);
+
+        List<Collection<String>> result = new ArrayList<>(rawTexts.size());
+        int k = 0;
+        for (boolean m : matched)
+            result.add(m ? nearest.get(k++) : new ArrayList<String>());
+        return result;
+    }
+
+    /**
+     * This method returns top N labels nearest to each of specified features vectors.
+     * All vectors are compared to all labels at once, with blocked matrix multiplications against a normalized copy
+     * of labels matrix: the labels matrix used by nearestLabels(INDArray, int) isn't modified.
+     *
+     * @param labelVectors features vectors, one per row
+     * @param topN
+     * @return labels nearest each vector, in the order of the rows
+     */
+    public List<Collection<String>> nearestLabelsBatch(@NonNull INDArray labelVectors, int topN) {
+        if (labelsMatrix == null || labelsList == null || labelsList.isEmpty())
+            extractLabels();
+
+        int numQueries = labelVectors.isVector() ? 1 : labelVectors.rows();
+        List<Collection<String>> result = new ArrayList<>(numQueries);
+
+        // if list still empty - return empty collections
+        if (labelsMatrix == null || labelsList == null || labelsList.isEmpty()) {
+            log.warn("Labels list is empty!");
+            for (int i = 0; i < numQueries; i++)
+                result.add(new ArrayList<String>());
+            return result;
+        }
+
+        if (labelsMatrixCopy == null) {
+            synchronized (this) {
+                if (labelsMatrixCopy == null)
+                    labelsMatrixCopy = BatchedSimilarity.normalizedCopy(labelsMatrix);
+            }
+        }
+
+        int[][] nearest = BatchedSimilarity.nearest(labelsMatrixCopy, labelVectors, topN + 2,
+                        BatchedSimilarity.DEFAULT_BLOCK_SIZE);
+        for (int[] indexes : nearest) {
+            List<String> labels = new ArrayList<>(topN);
+            for (int i = 0; i < indexes.length && labels.size() < topN; i++) {
+                String label = labelsList.get(indexes[i]).getLabel();
+                if (label != null && !label.equals("UNK") && !label.equals("STOP"))
+                    labels.add(label);
+            }
+            result.add(labels);
+        }
+        return result;
+    }
+
     /**
      * Get top N elements
      *
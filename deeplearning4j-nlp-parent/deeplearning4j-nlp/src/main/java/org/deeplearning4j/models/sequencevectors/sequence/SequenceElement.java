@@ -151,6 +151,15 @@ public abstract class SequenceElement implements Comparable<SequenceElement>, Se
         elementFrequency.getAndAdd(by);
     }
 
+    /**
+     * Increases element frequency counter by argument
+     *
+     * @param by
+     */
+    public void increaseElementFrequency(double by) {
+        elementFrequency.getAndAdd(by);
+    }
+
     /**
      * Equals method override should be properly implemented for any extended class, otherwise it will be based on label equality
      *
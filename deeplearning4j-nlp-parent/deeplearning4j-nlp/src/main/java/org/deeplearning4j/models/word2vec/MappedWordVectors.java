@@ -0,0 +1,741 @@
+package org.deeplearning4j.models.word2vec;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.models.embeddings.WeightLookupTable;
+import org.deeplearning4j.models.embeddings.reader.ModelUtils;
+import org.deeplearning4j.models.embeddings.reader.impl.BatchedSimilarity;
+import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * This is special limited WordVectors implementation, serving static (pre-trained) word vectors straight from a
+ * memory-mapped file, written by {@link Writer} (see WordVectorSerializer.writeMappedWordVectors() and
+ * WordVectorSerializer.convertBinaryToMapped()).
+ *
+ * Unlike Word2Vec or StaticWord2Vec, nothing is loaded on the heap: no VocabCache (and no per-word objects), no
+ * lookup table. Loading is near-instant regardless of the model size, word lookups are O(1) through the hash index
+ * stored in the file, and vectors are read from the page cache, so JVMs using the same file on a host share a single
+ * copy of it in memory.
+ *
+ * File layout (little endian), with the vectors matrix aligned to {@link #PAGE_SIZE}:
+ * <pre>
+ * header     : magic, version, numWords, vectorLength, numSlots, and the offsets of the sections below
+ * slots      : int[numSlots], open addressing hash table of word indexes (index + 1, 0 for empty slots)
+ * offsets    : long[numWords + 1], offsets of the words in the strings section
+ * strings    : UTF-8 bytes of all the words, in index order
+ * vectors    : float[numWords][vectorLength], in index order
+ * </pre>
+ *
+ * This implementation DOES NOT provide VocabCache/WeightLookupTable access, or wordsNearestSum/accuracy methods.
+ */
+@Slf4j
+public class MappedWordVectors implements WordVectors {
+    private static final long serialVersionUID = 6219464791257934214L;
+
+    public static final int PAGE_SIZE = 4096;
+    private static final int MAGIC = 0x444C3456;
+    private static final int VERSION = 1;
+    private static final Charset UTF8 = StandardCharsets.UTF_8;
+
+    @Getter
+    private final File file;
+    private String unk = null;
+
+    @Getter
+    private transient int numWords;
+    @Getter
+    private transient int vectorLength;
+    private transient int numSlots;
+    private transient IntBuffer slots;
+    private transient LongBuffer offsets;
+    private transient ByteBuffer strings;
+    // vectors, in chunks of rowsPerChunk rows: a single buffer can't map more than 2GB
+    private transient FloatBuffer[] vectors;
+    private transient int rowsPerChunk;
+
+    private MappedWordVectors(File file) {
+        this.file = file;
+    }
+
+    /**
+     * This method maps the given file, written by {@link Writer}
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static MappedWordVectors load(@NonNull File file) throws IOException {
+        MappedWordVectors vectors = new MappedWordVectors(file);
+        vectors.map();
+        return vectors;
+    }
+
+    private void map() throws IOException {
+        // mapped buffers stay valid once the channel is closed
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            if (channel.size() < PAGE_SIZE)
+                throw new IOException("Invalid mapped word vectors file " + file + ": file is too small");
+            ByteBuffer header = map(channel, 0, PAGE_SIZE);
+            if (header.getInt() != MAGIC)
+                throw new IOException("Invalid mapped word vectors file " + file + ": unexpected file header");
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported mapped word vectors version: " + version);
+            numWords = header.getInt();
+            vectorLength = header.getInt();
+            numSlots = header.getInt();
+            long slotsOffset = header.getLong();
+            long offsetsOffset = header.getLong();
+            long stringsOffset = header.getLong();
+            long vectorsOffset = header.getLong();
+
+            slots = map(channel, slotsOffset, 4L * numSlots).asIntBuffer();
+            offsets = map(channel, offsetsOffset, 8L * (numWords + 1)).asLongBuffer();
+            strings = map(channel, stringsOffset, offsets.get(numWords));
+
+            long rowBytes = 4L * vectorLength;
+            rowsPerChunk = (int) Math.max(1, Integer.MAX_VALUE / rowBytes);
+            int numChunks = (numWords + rowsPerChunk - 1) / rowsPerChunk;
+            vectors = new FloatBuffer[numChunks];
+            for (int c = 0; c < numChunks; c++) {
+                int rows = Math.min(rowsPerChunk, numWords - c * rowsPerChunk);
+                vectors[c] = map(channel, vectorsOffset + c * rowsPerChunk * rowBytes, rows * rowBytes)
+                                .asFloatBuffer();
+            }
+        }
+    }
+
+    private ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Mapped word vectors file section is too large: " + size + " bytes");
+        if (position + size > channel.size())
+            throw new IOException("Invalid mapped word vectors file " + file + ": file is truncated");
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // buffers aren't serializable: the file is mapped again on deserialization
+    private Object readResolve() throws ObjectStreamException {
+        try {
+            MappedWordVectors vectors = load(file);
+            vectors.setUNK(unk);
+            return vectors;
+        } catch (IOException e) {
+            InvalidObjectException ex = new InvalidObjectException("Unable to map word vectors file " + file);
+            ex.initCause(e);
+            throw ex;
+        }
+    }
+
+    @Override
+    public String getUNK() {
+        return unk;
+    }
+
+    @Override
+    public void setUNK(String newUNK) {
+        this.unk = newUNK;
+    }
+
+    /**
+     * Returns true if the model has this word in the vocab
+     *
+     * @param word the word to test for
+     * @return true if the model has the word in the vocab
+     */
+    @Override
+    public boolean hasWord(String word) {
+        return indexOf(word) >= 0;
+    }
+
+    /**
+     * Returns index of the given word, looked up in the hash index of the file
+     *
+     * @param word
+     * @return index of the word, or -1 if it's not in the vocab
+     */
+    @Override
+    public int indexOf(String word) {
+        if (word == null)
+            return -1;
+        byte[] bytes = word.getBytes(UTF8);
+        int mask = numSlots - 1;
+        int slot = hash(bytes, 0, bytes.length) & mask;
+        while (true) {
+            int idx = slots.get(slot) - 1;
+            if (idx < 0)
+                return -1;
+            if (matches(idx, bytes))
+                return idx;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean matches(int idx, byte[] bytes) {
+        long start = offsets.get(idx);
+        if (offsets.get(idx + 1) - start != bytes.length)
+            return false;
+        for (int i = 0; i < bytes.length; i++) {
+            if (strings.get((int) start + i) != bytes[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns word at the given index
+     *
+     * @param idx
+     * @return
+     */
+    public String wordAtIndex(int idx) {
+        if (idx < 0 || idx >= numWords)
+            return null;
+        int start = (int) offsets.get(idx);
+        byte[] bytes = new byte[(int) offsets.get(idx + 1) - start];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = strings.get(start + i);
+        return new String(bytes, UTF8);
+    }
+
+    // index of the word, or of UNK if it's defined
+    private int resolve(String word) {
+        int idx = indexOf(word);
+        if (idx < 0 && getUNK() != null)
+            idx = indexOf(getUNK());
+        return idx;
+    }
+
+    private float[] row(int idx, float[] target) {
+        FloatBuffer chunk = vectors[idx / rowsPerChunk].duplicate();
+        chunk.position((idx % rowsPerChunk) * vectorLength);
+        chunk.get(target);
+        return target;
+    }
+
+    // rows [start, end) into target, in row-major order: one bulk copy per chunk
+    private float[] rows(int start, int end, float[] target) {
+        int position = 0;
+        int idx = start;
+        while (idx < end) {
+            int chunkIdx = idx / rowsPerChunk;
+            int chunkEnd = Math.min(end, (chunkIdx + 1) * rowsPerChunk);
+            FloatBuffer chunk = vectors[chunkIdx].duplicate();
+            chunk.position((idx % rowsPerChunk) * vectorLength);
+            int length = (chunkEnd - idx) * vectorLength;
+            chunk.get(target, position, length);
+            position += length;
+            idx = chunkEnd;
+        }
+        return target;
+    }
+
+    /**
+     * Get the word vector for a given word
+     *
+     * @param word the word to get the matrix for
+     * @return the vector for this word, or null if it's not in the vocab (and no UNK is defined)
+     */
+    @Override
+    public double[] getWordVector(String word) {
+        int idx = resolve(word);
+        if (idx < 0)
+            return null;
+        float[] vector = row(idx, new float[vectorLength]);
+        double[] result = new double[vectorLength];
+        for (int i = 0; i < vectorLength; i++)
+            result[i] = vector[i];
+        return result;
+    }
+
+    /**
+     * Returns the word vector divided by the norm2 of the array
+     *
+     * @param word the word to get the matrix for
+     * @return the looked up matrix
+     */
+    @Override
+    public INDArray getWordVectorMatrixNormalized(String word) {
+        INDArray vector = getWordVectorMatrix(word);
+        return vector == null ? null : Transforms.unitVec(vector);
+    }
+
+    /**
+     * Get the word vector for a given word
+     *
+     * @param word the word to get the matrix for
+     * @return the ndarray for this word, or null if it's not in the vocab (and no UNK is defined)
+     */
+    @Override
+    public INDArray getWordVectorMatrix(String word) {
+        int idx = resolve(word);
+        if (idx < 0)
+            return null;
+        return Nd4j.create(row(idx, new float[vectorLength]));
+    }
+
+    /**
+     * This method returns 2D array, where each row represents corresponding word/label
+     *
+     * @param labels
+     * @return
+     */
+    @Override
+    public INDArray getWordVectors(@NonNull Collection<String> labels) {
+        List<INDArray> words = new ArrayList<>();
+        for (String label : labels) {
+            INDArray vector = getWordVectorMatrix(label);
+            if (vector != null)
+                words.add(vector);
+        }
+
+        return Nd4j.vstack(words);
+    }
+
+    /**
+     * This method returns mean vector, built from words/labels passed in
+     *
+     * @param labels
+     * @return
+     */
+    @Override
+    public INDArray getWordVectorsMean(Collection<String> labels) {
+        return getWordVectors(labels).mean(0);
+    }
+
+    /**
+     * Returns the similarity of 2 words
+     *
+     * @param label1 the first word
+     * @param label2 the second word
+     * @return a normalized similarity (cosine similarity), or NaN if any of labels not exists in vocab (and no UNK
+     *         is defined)
+     */
+    @Override
+    public double similarity(String label1, String label2) {
+        int idx1 = resolve(label1);
+        int idx2 = resolve(label2);
+        if (idx1 < 0 || idx2 < 0) {
+            log.debug("Unknown token requested: [{}] or [{}]", label1, label2);
+            return Double.NaN;
+        }
+        return cosine(row(idx1, new float[vectorLength]), row(idx2, new float[vectorLength]));
+    }
+
+    @Override
+    public double[] similarityBatch(@NonNull List<String> words1, @NonNull List<String> words2) {
+        if (words1.size() != words2.size())
+            throw new IllegalArgumentException("Number of labels doesn't match: " + words1.size() + " vs "
+                            + words2.size());
+        double[] result = new double[words1.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = similarity(words1.get(i), words2.get(i));
+        return result;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        if (normA == 0 || normB == 0)
+            return 0.0;
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    /**
+     * Words nearest to the given vector. This is an exact search: all vectors of the file are scanned.
+     *
+     * @param words query vector
+     * @param top the top n words
+     * @return the words nearest the vector
+     */
+    @Override
+    public Collection<String> wordsNearest(INDArray words, int top) {
+        return wordsNearestBatch(words, top).get(0);
+    }
+
+    /**
+     * Words nearest to each of the given vectors, with a single scan over all vectors of the file: blocks of vectors
+     * are compared to all the queries with one matrix multiplication each (see {@link BatchedSimilarity})
+     *
+     * @param queries query vectors, one per row
+     * @param top the top n words for each query
+     * @return the words nearest each query, in the order of the rows
+     */
+    @Override
+    public List<Collection<String>> wordsNearestBatch(@NonNull INDArray queries, int top) {
+        INDArray normalized = BatchedSimilarity.normalizedCopy(
+                        queries.isVector() ? queries.reshape(1, queries.length()) : queries);
+        if (normalized.columns() != vectorLength)
+            throw new IllegalArgumentException("Invalid query vectors: expected " + vectorLength + " columns, got "
+                            + normalized.columns());
+        int numQueries = normalized.rows();
+        BatchedSimilarity.TopK[] nearest = new BatchedSimilarity.TopK[numQueries];
+        for (int i = 0; i < numQueries; i++) {
+            // a few more results, to address UNK/STOP removal
+            nearest[i] = new BatchedSimilarity.TopK(Math.max(0, Math.min(top + 2, numWords)));
+        }
+
+        int blockSize = BatchedSimilarity.DEFAULT_BLOCK_SIZE;
+        INDArray sims = null;
+        for (int start = 0; start < numWords && top > 0; start += blockSize) {
+            int end = Math.min(numWords, start + blockSize);
+            int length = end - start;
+            float[] data = rows(start, end, new float[length * vectorLength]);
+            INDArray block = BatchedSimilarity.normalize(Nd4j.create(data, new int[] {length, vectorLength}, 'c'));
+            if (sims == null || sims.columns() != length)
+                sims = Nd4j.create(new int[] {numQueries, length}, 'c');
+            normalized.mmul(block.transpose(), sims);
+
+            float[] values = sims.data().asFloat();
+            for (int i = 0; i < numQueries; i++)
+                nearest[i].offer(values, i * length, length, start);
+        }
+
+        List<Collection<String>> result = new ArrayList<>(numQueries);
+        for (BatchedSimilarity.TopK topK : nearest) {
+            List<String> words = new ArrayList<>(top);
+            for (int idx : topK.sorted()) {
+                String word = wordAtIndex(idx);
+                if (words.size() < top && !word.equals("UNK") && !word.equals("STOP"))
+                    words.add(word);
+            }
+            result.add(words);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Collection<String>> wordsNearestBatch(@NonNull List<String> words, int n) {
+        List<String> known = new ArrayList<>(words.size());
+        for (String word : words) {
+            if (hasWord(word))
+                known.add(word);
+        }
+
+        List<Collection<String>> nearest = new ArrayList<>();
+        if (!known.isEmpty())
+            nearest = wordsNearestBatch(getWordVectors(known), n + 1);
+
+        List<Collection<String>> result = new ArrayList<>(words.size());
+        int k = 0;
+        for (String word : words) {
+            if (!hasWord(word)) {
+                result.add(new ArrayList<String>());
+                continue;
+            }
+            List<String> collection = new ArrayList<>(nearest.get(k++));
+            collection.remove(word);
+            while (collection.size() > n)
+                collection.remove(collection.size() - 1);
+            result.add(collection);
+        }
+        return result;
+    }
+
+    /**
+     * Words nearest based on positive and negative words
+     *
+     * @param positive the positive words
+     * @param negative the negative words
+     * @param top      the top n words
+     * @return the words nearest the mean of the words
+     */
+    @Override
+    public Collection<String> wordsNearest(@NonNull Collection<String> positive, @NonNull Collection<String> negative,
+                    int top) {
+        float[] mean = new float[vectorLength];
+        float[] vector = new float[vectorLength];
+        for (String word : positive) {
+            int idx = indexOf(word);
+            if (idx < 0)
+                return new ArrayList<>();
+            row(idx, vector);
+            for (int i = 0; i < vectorLength; i++)
+                mean[i] += vector[i];
+        }
+        for (String word : negative) {
+            int idx = indexOf(word);
+            if (idx < 0)
+                return new ArrayList<>();
+            row(idx, vector);
+            for (int i = 0; i < vectorLength; i++)
+                mean[i] -= vector[i];
+        }
+
+        Collection<String> tempRes = wordsNearest(Nd4j.create(mean), top + positive.size() + negative.size());
+        List<String> realResults = new ArrayList<>();
+        for (String word : tempRes) {
+            if (!positive.contains(word) && !negative.contains(word) && realResults.size() < top)
+                realResults.add(word);
+        }
+        return realResults;
+    }
+
+    /**
+     * Get the top n words most similar to the given word
+     *
+     * @param word the word to compare
+     * @param n    the n to get
+     * @return the top n words
+     */
+    @Override
+    public Collection<String> wordsNearest(String word, int n) {
+        return wordsNearestBatch(Collections.singletonList(word), n).get(0);
+    }
+
+    @Override
+    public Collection<String> wordsNearestSum(INDArray words, int top) {
+        throw new UnsupportedOperationException("Method isn't implemented. Please use usual Word2Vec implementation");
+    }
+
+    @Override
+    public Collection<String> wordsNearestSum(String word, int n) {
+        throw new UnsupportedOperationException("Method isn't implemented. Please use usual Word2Vec implementation");
+    }
+
+    @Override
+    public Collection<String> wordsNearestSum(Collection<String> positive, Collection<String> negative, int top) {
+        throw new UnsupportedOperationException("Method isn't implemented. Please use usual Word2Vec implementation");
+    }
+
+    @Override
+    public Map<String, Double> accuracy(List<String> questions) {
+        throw new UnsupportedOperationException("Method isn't implemented. Please use usual Word2Vec implementation");
+    }
+
+    @Override
+    public List<String> similarWordsInVocabTo(String word, double accuracy) {
+        throw new UnsupportedOperationException("Method isn't implemented. Please use usual Word2Vec implementation");
+    }
+
+    /**
+     * Vocab for the vectors
+     * PLEASE NOTE: This method is not available in this implementation: there's no VocabCache, see
+     * {@link #indexOf(String)}, {@link #wordAtIndex(int)} and {@link #getNumWords()} instead.
+     *
+     * @return
+     */
+    @Override
+    public VocabCache vocab() {
+        throw new UnsupportedOperationException("Method isn't implemented. Please use usual Word2Vec implementation");
+    }
+
+    /**
+     * Lookup table for the vectors
+     * PLEASE NOTE: This method is not available in this implementation.
+     *
+     * @return
+     */
+    @Override
+    public WeightLookupTable lookupTable() {
+        throw new UnsupportedOperationException("Method isn't implemented. Please use usual Word2Vec implementation");
+    }
+
+    /**
+     * Specifies ModelUtils to be used to access model
+     * PLEASE NOTE: This method has no effect in this implementation.
+     *
+     * @param utils
+     */
+    @Override
+    public void setModelUtils(ModelUtils utils) {
+        // no-op
+    }
+
+    // FNV-1a hash of UTF-8 bytes of the word
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= bytes[i] & 0xFF;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    /**
+     * Writer of the mapped word vectors format. Words and vectors are added in index order, and the file is written
+     * on close: vectors are spilled to a temporary file next to the output as they are added, so only the words are
+     * kept in memory (as UTF-8 bytes, without per-word objects).
+     */
+    public static class Writer implements Closeable {
+        private final File output;
+        private final int vectorLength;
+        private final File vectorsFile;
+        private final FileOutputStream vectorsStream;
+        private final FileChannel vectorsChannel;
+        private final ByteBuffer rowBuffer;
+        private final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        private long[] offsets = new long[1024];
+        private int numWords;
+        private boolean closed;
+
+        /**
+         * @param output file to write
+         * @param vectorLength length of the word vectors
+         * @throws IOException
+         */
+        public Writer(@NonNull File output, int vectorLength) throws IOException {
+            if (vectorLength < 1)
+                throw new IllegalArgumentException("Vector length must be positive, got " + vectorLength);
+            this.output = output;
+            this.vectorLength = vectorLength;
+            File dir = output.getAbsoluteFile().getParentFile();
+            this.vectorsFile = File.createTempFile(output.getName(), ".vectors", dir);
+            this.vectorsStream = new FileOutputStream(vectorsFile);
+            this.vectorsChannel = vectorsStream.getChannel();
+            this.rowBuffer = ByteBuffer.allocate(4 * vectorLength).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * This method adds the next word, with its vector
+         *
+         * @param word
+         * @param vector
+         * @throws IOException
+         */
+        public void add(@NonNull String word, @NonNull float[] vector) throws IOException {
+            if (closed)
+                throw new IllegalStateException("Writer is closed");
+            if (vector.length != vectorLength)
+                throw new IllegalArgumentException("Invalid vector length for word [" + word + "]: expected "
+                                + vectorLength + ", got " + vector.length);
+            if (numWords == Integer.MAX_VALUE - 1)
+                throw new IllegalStateException("Too many words");
+
+            byte[] bytes = word.getBytes(UTF8);
+            strings.write(bytes);
+            if (numWords + 2 > offsets.length)
+                offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+            offsets[numWords + 1] = offsets[numWords] + bytes.length;
+
+            rowBuffer.clear();
+            rowBuffer.asFloatBuffer().put(vector);
+            while (rowBuffer.hasRemaining())
+                vectorsChannel.write(rowBuffer);
+            numWords++;
+        }
+
+        /**
+         * This method writes the mapped word vectors file, and removes temporary data
+         *
+         * @throws IOException
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+            closed = true;
+            try {
+                vectorsStream.close();
+                write();
+            } finally {
+                if (!vectorsFile.delete())
+                    vectorsFile.deleteOnExit();
+            }
+        }
+
+        private void write() throws IOException {
+            byte[] stringBytes = strings.toByteArray();
+
+            // hash index, with at least twice as many slots as words: there's always an empty slot
+            int numSlots = 2;
+            while (numSlots < 2L * numWords)
+                numSlots <<= 1;
+            int mask = numSlots - 1;
+            int[] slots = new int[numSlots];
+            int duplicates = 0;
+            for (int i = 0; i < numWords; i++) {
+                int start = (int) offsets[i];
+                int length = (int) (offsets[i + 1] - start);
+                int slot = hash(stringBytes, start, length) & mask;
+                boolean duplicate = false;
+                while (slots[slot] != 0) {
+                    int other = slots[slot] - 1;
+                    int otherStart = (int) offsets[other];
+                    if (offsets[other + 1] - otherStart == length && equal(stringBytes, start, otherStart, length)) {
+                        duplicate = true;
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                if (duplicate)
+                    duplicates++;
+                else
+                    slots[slot] = i + 1;
+            }
+            if (duplicates > 0)
+                log.warn("{} duplicate words: only the first occurrence of each word can be looked up", duplicates);
+
+            long slotsOffset = PAGE_SIZE;
+            long offsetsOffset = slotsOffset + 4L * numSlots;
+            long stringsOffset = offsetsOffset + 8L * (numWords + 1);
+            long vectorsOffset = align(stringsOffset + stringBytes.length);
+
+            try (RandomAccessFile raf = new RandomAccessFile(output, "rw"); FileChannel channel = raf.getChannel()) {
+                channel.truncate(0);
+
+                ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(numWords).putInt(vectorLength).putInt(numSlots);
+                header.putLong(slotsOffset).putLong(offsetsOffset).putLong(stringsOffset).putLong(vectorsOffset);
+                header.clear();
+                writeFully(channel, header, 0);
+
+                ByteBuffer slotsBuffer = ByteBuffer.allocate(4 * numSlots).order(ByteOrder.LITTLE_ENDIAN);
+                slotsBuffer.asIntBuffer().put(slots);
+                writeFully(channel, slotsBuffer, slotsOffset);
+
+                ByteBuffer offsetsBuffer = ByteBuffer.allocate(8 * (numWords + 1)).order(ByteOrder.LITTLE_ENDIAN);
+                offsetsBuffer.asLongBuffer().put(offsets, 0, numWords + 1);
+                writeFully(channel, offsetsBuffer, offsetsOffset);
+
+                writeFully(channel, ByteBuffer.wrap(stringBytes), stringsOffset);
+
+                // vectors start after the padding: writing at that position extends the file
+                channel.position(vectorsOffset);
+                try (FileInputStream fis = new FileInputStream(vectorsFile); FileChannel in = fis.getChannel()) {
+                    long size = in.size();
+                    long transferred = 0;
+                    while (transferred < size)
+                        transferred += in.transferTo(transferred, size - transferred, channel);
+                }
+            }
+            log.info("Wrote {} word vectors of length {} to {}", numWords, vectorLength, output);
+        }
+
+        private static boolean equal(byte[] bytes, int start1, int start2, int length) {
+            for (int i = 0; i < length; i++) {
+                if (bytes[start1 + i] != bytes[start2 + i])
+                    return false;
+            }
+            return true;
+        }
+
+        private static long align(long offset) {
+            return (offset + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining())
+                position += channel.write(buffer, position);
+        }
+    }
+}
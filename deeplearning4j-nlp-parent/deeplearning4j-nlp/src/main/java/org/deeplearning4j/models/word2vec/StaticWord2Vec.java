@@ -80,6 +80,21 @@ public class StaticWord2Vec implements WordVectors {
         throw new UnsupportedOperationException("Method isn't implemented. Please use usual Word2Vec implementation");
     }
 
+    @Override
+    public List<Collection<String>> wordsNearestBatch(INDArray queries, int top) {
+        throw new UnsupportedOperationException("Method isn't implemented. Please use usual Word2Vec implementation");
+    }
+
+    @Override
+    public List<Collection<String>> wordsNearestBatch(List<String> words, int n) {
+        throw new UnsupportedOperationException("Method isn't implemented. Please use usual Word2Vec implementation");
+    }
+
+    @Override
+    public double[] similarityBatch(List<String> words1, List<String> words2) {
+        throw new UnsupportedOperationException("Method isn't implemented. Please use usual Word2Vec implementation");
+    }
+
     /**
      * Get the top n words most similar to the given word
      * PLEASE NOTE: This method is not available in this implementation.
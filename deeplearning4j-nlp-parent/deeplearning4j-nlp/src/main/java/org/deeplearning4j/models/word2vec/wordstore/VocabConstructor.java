@@ -9,6 +9,7 @@ import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
 import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
 import org.deeplearning4j.models.word2vec.Huffman;
 import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.PrimitiveCache;
 import org.deeplearning4j.text.invertedindex.InvertedIndex;
 import org.deeplearning4j.util.ThreadUtils;
 import org.slf4j.Logger;
@@ -180,7 +181,7 @@ public class VocabConstructor<T extends SequenceElement> {
         log.debug("Target vocab size before building: [" + cache.numWords() + "]");
         final AtomicLong loopCounter = new AtomicLong(0);
 
-        AbstractCache<T> topHolder = new AbstractCache.Builder<T>().minElementFrequency(0).build();
+        VocabCache<T> topHolder = buildTemporaryHolder();
 
         int cnt = 0;
         int numProc = Runtime.getRuntime().availableProcessors();
@@ -197,7 +198,7 @@ public class VocabConstructor<T extends SequenceElement> {
             log.debug("Target vocab size before building: [" + cache.numWords() + "]");
             cnt++;
 
-            AbstractCache<T> tempHolder = new AbstractCache.Builder<T>().build();
+            VocabCache<T> tempHolder = buildTemporaryHolder();
 
 
             List<Long> timesHasNext = new ArrayList<>();
@@ -345,6 +346,10 @@ public class VocabConstructor<T extends SequenceElement> {
 
         executorService.shutdown();
 
+        // vocabulary is built, so PrimitiveCache lookups don't need its lock anymore
+        if (cache instanceof PrimitiveCache)
+            ((PrimitiveCache<T>) cache).freeze();
+
         System.gc();
 
         long endSequences = seqCount.get();
@@ -356,8 +361,27 @@ public class VocabConstructor<T extends SequenceElement> {
         return cache;
     }
 
-    protected void filterVocab(AbstractCache<T> cache, int minWordFrequency) {
+    /**
+     * This method builds temporary vocabulary used while sources are scanned.
+     * PrimitiveCache target gets PrimitiveCache holders, so no element objects are created for rare words.
+     *
+     * @return
+     */
+    protected VocabCache<T> buildTemporaryHolder() {
+        if (cache instanceof PrimitiveCache)
+            return new PrimitiveCache.Builder<T>()
+                            .elementFactory(((PrimitiveCache<T>) cache).getElementFactory()).build();
+        return new AbstractCache.Builder<T>().minElementFrequency(0).build();
+    }
+
+    protected void filterVocab(VocabCache<T> cache, int minWordFrequency) {
         int numWords = cache.numWords();
+        if (cache instanceof PrimitiveCache) {
+            ((PrimitiveCache<T>) cache).removeRareElements(minWordFrequency);
+            log.debug("Scavenger: Words before: {}; Words after: {};", numWords, cache.numWords());
+            return;
+        }
+
         LinkedBlockingQueue<String> labelsToRemove = new LinkedBlockingQueue<>();
         for (T element : cache.vocabWords()) {
             if (element.getElementFrequency() < minWordFrequency && !element.isSpecial() && !element.isLabel())
@@ -518,11 +542,11 @@ public class VocabConstructor<T extends SequenceElement> {
     protected class VocabRunnable implements Runnable {
         private final AtomicLong finalCounter;
         private final Sequence<T> document;
-        private final AbstractCache<T> targetVocab;
+        private final VocabCache<T> targetVocab;
         private final AtomicLong loopCounter;
         private boolean done;
 
-        public VocabRunnable(@NonNull AbstractCache<T> targetVocab, @NonNull Sequence<T> sequence,
+        public VocabRunnable(@NonNull VocabCache<T> targetVocab, @NonNull Sequence<T> sequence,
                         @NonNull AtomicLong finalCounter, @NonNull AtomicLong loopCounter) {
             this.finalCounter = finalCounter;
             this.document = sequence;
@@ -579,8 +603,13 @@ public class VocabConstructor<T extends SequenceElement> {
                         // if element exists in tempHolder, we should update it seqCount, but only once per sequence
                         if (!seqMap.containsKey(token)) {
                             seqMap.put(token, new AtomicLong(1));
-                            T element = targetVocab.wordFor(token);
-                            element.incrementSequencesCount();
+                            // PrimitiveCache counts sequences without creating element objects
+                            if (targetVocab instanceof PrimitiveCache) {
+                                targetVocab.incrementDocCount(token, 1);
+                            } else {
+                                T element = targetVocab.wordFor(token);
+                                element.incrementSequencesCount();
+                            }
                         }
 
                         if (index != null) {
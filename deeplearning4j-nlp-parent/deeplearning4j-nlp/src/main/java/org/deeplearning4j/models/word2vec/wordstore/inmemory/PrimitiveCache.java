@@ -0,0 +1,1124 @@
+package org.deeplearning4j.models.word2vec.wordstore.inmemory;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ *
+ * This is VocabCache implementation backed by primitive arrays instead of maps of SequenceElements, for huge
+ * vocabularies.<br>
+ * Labels are packed into a single char arena, and are looked up through an open addressing table of their 64 bit
+ * hashes. Frequencies, sequences counts, Huffman indexes and flags are kept in parallel arrays.<br>
+ * SequenceElement objects are only created (with ElementFactory) when an element is requested, e.g. by wordFor() or
+ * vocabWords() to build the Huffman tree, and are kept from then on: the element object holds the counters of its
+ * label afterwards. So counting a corpus with VocabConstructor doesn't create any per-token object.
+ * Special elements, labels and elements with Huffman codes are kept as passed to addToken().<br>
+ * Once vocabulary is built, freeze() publishes its lookup structures, and lookups don't take the lock anymore.
+ *
+ */
+@Slf4j
+public class PrimitiveCache<T extends SequenceElement> implements VocabCache<T> {
+
+    /**
+     * This interface creates SequenceElement objects for labels stored in PrimitiveCache
+     */
+    public interface ElementFactory<T extends SequenceElement> extends Serializable {
+        T create(String label);
+    }
+
+    private static final int DEFAULT_EXPECTED_SIZE = 1024;
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private static final byte FLAG_SPECIAL = 1;
+    private static final byte FLAG_LABEL = 2;
+
+    @Getter
+    private final ElementFactory<T> elementFactory;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // per element arrays, indexed by internal id [0, size)
+    private int size;
+    private long[] hashes;
+    private double[] frequencies;
+    private long[] sequences;
+    private int[] indexes;
+    private byte[] flags;
+    private int[] labelOffsets;
+    private int[] labelLengths;
+    private SequenceElement[] elements;
+
+    // open addressing table of id + 1, 0 is empty slot
+    private int[] table;
+    // Huffman index -> id + 1
+    private int[] idxMap = new int[0];
+
+    private char[] arena;
+    private int arenaSize;
+    private int arenaGarbage;
+
+    private double totalWordCount;
+    private AtomicLong documentsCounter = new AtomicLong(0);
+
+    // lookup structures published by freeze(), null while vocabulary is modified
+    private transient volatile Snapshot snapshot;
+
+    protected PrimitiveCache(int expectedSize, @NonNull ElementFactory<T> elementFactory) {
+        this.elementFactory = elementFactory;
+        int capacity = Math.max(16, expectedSize);
+        allocate(capacity);
+        table = new int[tableLength(capacity)];
+        arena = new char[capacity * 8];
+    }
+
+    /**
+     * Does nothing, this vocabulary is serialized as a whole
+     */
+    @Override
+    public void loadVocab() {
+        // no-op
+    }
+
+    /**
+     * Returns true, if number of elements in vocabulary > 0, false otherwise
+     *
+     * @return
+     */
+    @Override
+    public boolean vocabExists() {
+        return numWords() > 0;
+    }
+
+    /**
+     * Does nothing, this vocabulary is serialized as a whole
+     */
+    @Override
+    public void saveVocab() {
+        // no-op
+    }
+
+    /**
+     * Returns collection of labels available in this vocabulary. Returned collection is a copy
+     *
+     * @return
+     */
+    @Override
+    public Collection<String> words() {
+        Snapshot frozen = snapshot;
+        if (frozen != null) {
+            List<String> words = new ArrayList<>(frozen.size);
+            for (int id = 0; id < frozen.size; id++) {
+                if (frozen.labelLengths[id] >= 0)
+                    words.add(frozen.label(id));
+            }
+            return Collections.unmodifiableCollection(words);
+        }
+
+        lock.readLock().lock();
+        try {
+            List<String> words = new ArrayList<>(size);
+            for (int id = 0; id < size; id++) {
+                if (labelLengths[id] >= 0)
+                    words.add(label(id));
+            }
+            return Collections.unmodifiableCollection(words);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Increment frequency for specified label by 1
+     *
+     * @param word the word to increment the count for
+     */
+    @Override
+    public void incrementWordCount(String word) {
+        incrementWordCount(word, 1);
+    }
+
+    /**
+     * Increment frequency for specified label by specified value
+     *
+     * @param word the word to increment the count for
+     * @param increment the amount to increment by
+     */
+    @Override
+    public void incrementWordCount(String word, int increment) {
+        lock.writeLock().lock();
+        try {
+            int id = find(word);
+            if (id >= 0) {
+                addFrequency(id, increment);
+                totalWordCount += increment;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the SequenceElement's frequency over training corpus
+     *
+     * @param word the word to retrieve the occurrence frequency for
+     * @return
+     */
+    @Override
+    public int wordFrequency(@NonNull String word) {
+        Snapshot frozen = snapshot;
+        if (frozen != null) {
+            int id = frozen.find(word);
+            return id >= 0 ? (int) frozen.elements[id].getElementFrequency() : 0;
+        }
+
+        lock.readLock().lock();
+        try {
+            int id = find(word);
+            return id >= 0 ? (int) frequency(id) : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks, if specified label exists in vocabulary
+     *
+     * @param word the word to check for
+     * @return
+     */
+    @Override
+    public boolean containsWord(String word) {
+        Snapshot frozen = snapshot;
+        if (frozen != null)
+            return frozen.find(word) >= 0;
+
+        lock.readLock().lock();
+        try {
+            return find(word) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the label of the element at specified Huffman index
+     *
+     * @param index the index of the word to get
+     * @return
+     */
+    @Override
+    public String wordAtIndex(int index) {
+        Snapshot frozen = snapshot;
+        if (frozen != null) {
+            int id = frozen.idAtIndex(index);
+            return id >= 0 ? frozen.label(id) : null;
+        }
+
+        lock.readLock().lock();
+        try {
+            int id = idAtIndex(index);
+            return id >= 0 ? label(id) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns SequenceElement at specified index
+     *
+     * @param index
+     * @return
+     */
+    @Override
+    public T elementAtIndex(int index) {
+        Snapshot frozen = snapshot;
+        if (frozen != null) {
+            int id = frozen.idAtIndex(index);
+            return id >= 0 ? frozen.<T>element(id) : null;
+        }
+
+        lock.readLock().lock();
+        try {
+            int id = idAtIndex(index);
+            if (id < 0)
+                return null;
+            if (isKept(id))
+                return kept(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            int id = idAtIndex(index);
+            return id >= 0 ? element(id) : null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns Huffman index for specified label
+     *
+     * @param label the label to get index for
+     * @return >=0 if label exists, -1 if Huffman tree wasn't built yet, -2 if specified label wasn't found
+     */
+    @Override
+    public int indexOf(String label) {
+        Snapshot frozen = snapshot;
+        if (frozen != null) {
+            int id = frozen.find(label);
+            return id >= 0 ? frozen.elements[id].getIndex() : -2;
+        }
+
+        lock.readLock().lock();
+        try {
+            int id = find(label);
+            return id >= 0 ? index(id) : -2;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns collection of SequenceElements stored in this vocabulary. Please note: this method creates objects for
+     * all elements, and the returned collection is a copy
+     *
+     * @return
+     */
+    @Override
+    public Collection<T> vocabWords() {
+        Snapshot frozen = snapshot;
+        if (frozen != null) {
+            List<T> result = new ArrayList<>(frozen.size);
+            for (int id = 0; id < frozen.size; id++)
+                result.add(frozen.<T>element(id));
+            return result;
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<T> result = new ArrayList<>(size);
+            for (int id = 0; id < size; id++)
+                result.add(element(id));
+            return result;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns total number of elements observed
+     *
+     * @return
+     */
+    @Override
+    public long totalWordOccurrences() {
+        lock.readLock().lock();
+        try {
+            return (long) totalWordCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns SequenceElement for specified label
+     *
+     * @param label to fetch element for
+     * @return
+     */
+    @Override
+    public T wordFor(@NonNull String label) {
+        return elementFor(SequenceElement.getLongHash(label), label);
+    }
+
+    @Override
+    public T wordFor(long id) {
+        return elementFor(id, null);
+    }
+
+    /**
+     * This method allows to insert specified label to specified Huffman tree position.
+     * CAUTION: Never use this, unless you 100% sure what are you doing.
+     *
+     * @param index
+     * @param label
+     */
+    @Override
+    public void addWordToIndex(int index, String label) {
+        if (index < 0 || label == null)
+            return;
+        lock.writeLock().lock();
+        try {
+            int id = find(label);
+            if (id >= 0)
+                mapIndex(index, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void addWordToIndex(int index, long elementId) {
+        if (index < 0)
+            return;
+        lock.writeLock().lock();
+        try {
+            int id = find(elementId, null);
+            if (id >= 0)
+                mapIndex(index, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    @Deprecated
+    public void putVocabWord(String word) {
+        if (!containsWord(word))
+            throw new IllegalStateException("Specified label is not present in vocabulary");
+    }
+
+    /**
+     * Returns number of elements in this vocabulary
+     *
+     * @return
+     */
+    @Override
+    public int numWords() {
+        Snapshot frozen = snapshot;
+        if (frozen != null)
+            return frozen.size;
+
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns number of documents (if applicable) the label was observed in.
+     *
+     * @param word the number of documents the word appeared in
+     * @return
+     */
+    @Override
+    public int docAppearedIn(String word) {
+        Snapshot frozen = snapshot;
+        if (frozen != null) {
+            int id = frozen.find(word);
+            return id >= 0 ? (int) frozen.elements[id].getSequencesCount() : -1;
+        }
+
+        lock.readLock().lock();
+        try {
+            int id = find(word);
+            return id >= 0 ? (int) sequencesCount(id) : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Increment number of documents the label was observed in
+     *
+     * @param word the word to increment by
+     * @param howMuch
+     */
+    @Override
+    public void incrementDocCount(String word, long howMuch) {
+        lock.writeLock().lock();
+        try {
+            int id = find(word);
+            if (id >= 0)
+                addSequencesCount(id, howMuch);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Set exact number of observed documents that contain specified word
+     *
+     * @param word the word to set the count for
+     * @param count the count of the word
+     */
+    @Override
+    public void setCountForDoc(String word, long count) {
+        lock.writeLock().lock();
+        try {
+            int id = find(word);
+            if (id >= 0) {
+                if (isKept(id))
+                    elements[id].setSequencesCount(count);
+                else
+                    sequences[id] = count;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns total number of documents observed (if applicable)
+     *
+     * @return
+     */
+    @Override
+    public long totalNumberOfDocs() {
+        return documentsCounter.get();
+    }
+
+    /**
+     * Increment total number of documents observed by 1
+     */
+    @Override
+    public void incrementTotalDocCount() {
+        documentsCounter.incrementAndGet();
+    }
+
+    /**
+     * Increment total number of documents observed by specified value
+     */
+    @Override
+    public void incrementTotalDocCount(long by) {
+        documentsCounter.addAndGet(by);
+    }
+
+    /**
+     * Returns collection of SequenceElements from this vocabulary. The same as vocabWords() method
+     *
+     * @return collection of SequenceElements
+     */
+    @Override
+    public Collection<T> tokens() {
+        return vocabWords();
+    }
+
+    /**
+     * This method adds specified SequenceElement to vocabulary. If element already exists, its frequency and
+     * sequences count are added to the existing ones.
+     * Only counters of the element are stored, unless it's special, a label or has Huffman codes
+     *
+     * @param element the word to add
+     */
+    @Override
+    public void addToken(@NonNull T element) {
+        lock.writeLock().lock();
+        try {
+            add(element);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns SequenceElement for specified label. The same as wordFor() method.
+     *
+     * @param label the label to get the token for
+     * @return
+     */
+    @Override
+    public T tokenFor(String label) {
+        return wordFor(label);
+    }
+
+    @Override
+    public T tokenFor(long id) {
+        return wordFor(id);
+    }
+
+    /**
+     * Checks, if specified label already exists in vocabulary. The same as containsWord() method.
+     *
+     * @param label the token to test
+     * @return
+     */
+    @Override
+    public boolean hasToken(String label) {
+        return containsWord(label);
+    }
+
+    /**
+     * This method imports all elements from VocabCache passed as argument.
+     * Elements of other PrimitiveCache are imported without creating element objects.
+     *
+     * @param vocabCache
+     */
+    @Override
+    public void importVocabulary(@NonNull VocabCache<T> vocabCache) {
+        if (vocabCache instanceof PrimitiveCache && vocabCache != this) {
+            PrimitiveCache<T> other = (PrimitiveCache<T>) vocabCache;
+            other.lock.readLock().lock();
+            lock.writeLock().lock();
+            try {
+                for (int id = 0; id < other.size; id++) {
+                    if (other.isKept(id)) {
+                        add(other.kept(id));
+                    } else {
+                        double frequency = other.frequencies[id];
+                        add(other.hashes[id], other.label(id), frequency, other.sequences[id], other.indexes[id],
+                                        other.flags[id], null);
+                        totalWordCount += frequency;
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+                other.lock.readLock().unlock();
+            }
+        } else {
+            for (T element : vocabCache.vocabWords()) {
+                this.addToken(element);
+            }
+        }
+        this.documentsCounter.addAndGet(vocabCache.totalNumberOfDocs());
+    }
+
+    @Override
+    public void updateWordsOccurencies() {
+        lock.writeLock().lock();
+        try {
+            totalWordCount = 0;
+            for (int id = 0; id < size; id++) {
+                double value = frequency(id);
+                if (value > 0)
+                    totalWordCount += value;
+            }
+            log.info("Updated counter: [" + (long) totalWordCount + "]");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeElement(String label) {
+        lock.writeLock().lock();
+        try {
+            int id = label == null ? -1 : find(label);
+            if (id < 0)
+                throw new IllegalStateException("Can't get label: '" + label + "'");
+            remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeElement(T element) {
+        removeElement(element.getLabel());
+    }
+
+    /**
+     * This method removes all elements with frequency below specified threshold, except special elements and labels.
+     * Unlike removeElement() calls over vocabWords(), it doesn't create element objects.
+     *
+     * @param minElementFrequency
+     * @return number of removed elements
+     */
+    public int removeRareElements(int minElementFrequency) {
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            // remove() moves the last element to the removed position, and it was checked already
+            for (int id = size - 1; id >= 0; id--) {
+                if ((flags(id) & (FLAG_SPECIAL | FLAG_LABEL)) == 0 && frequency(id) < minElementFrequency) {
+                    remove(id);
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method publishes lookup structures of the built vocabulary, so wordFor(), elementAtIndex(), containsWord()
+     * and other lookups don't take the lock afterwards. Element objects are created for all elements, so their
+     * counters can still be updated.
+     * Any structural change (new element, removal or Huffman index change) unfreezes vocabulary.
+     */
+    public void freeze() {
+        lock.writeLock().lock();
+        try {
+            for (int id = 0; id < size; id++)
+                element(id);
+            snapshot = new Snapshot(size, hashes, table, arena, labelOffsets, labelLengths, elements, idxMap);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns true, if lookups are served without locking, i.e. freeze() was called and vocabulary wasn't changed since
+     *
+     * @return
+     */
+    public boolean isFrozen() {
+        return snapshot != null;
+    }
+
+    private T elementFor(long hash, String label) {
+        Snapshot frozen = snapshot;
+        if (frozen != null) {
+            int id = frozen.find(hash, label);
+            return id >= 0 ? frozen.<T>element(id) : null;
+        }
+
+        lock.readLock().lock();
+        try {
+            int id = find(hash, label);
+            if (id < 0)
+                return null;
+            if (isKept(id))
+                return kept(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            int id = find(hash, label);
+            return id >= 0 ? element(id) : null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(T element) {
+        String label = element.getLabel();
+        long hash = label != null ? SequenceElement.getLongHash(label) : element.getStorageId();
+        double frequency = element.getElementFrequency();
+        byte flag = (byte) ((element.isSpecial() ? FLAG_SPECIAL : 0) | (element.isLabel() ? FLAG_LABEL : 0));
+        boolean keep = flag != 0 || label == null || element.getCodeLength() > 0;
+        add(hash, label, frequency, element.getSequencesCount(), element.getIndex(), flag, keep ? element : null);
+        totalWordCount += frequency;
+    }
+
+    private void add(long hash, String label, double frequency, long sequencesCount, int index, byte flag, T element) {
+        int id = find(hash, label);
+        if (id >= 0) {
+            addFrequency(id, frequency);
+            addSequencesCount(id, sequencesCount);
+            return;
+        }
+
+        thaw();
+        ensureCapacity(size + 1);
+        id = size++;
+        hashes[id] = hash;
+        frequencies[id] = frequency;
+        sequences[id] = sequencesCount;
+        indexes[id] = index;
+        flags[id] = flag;
+        if (label == null) {
+            labelOffsets[id] = 0;
+            labelLengths[id] = -1;
+        } else {
+            ensureArena(label.length());
+            label.getChars(0, label.length(), arena, arenaSize);
+            labelOffsets[id] = arenaSize;
+            labelLengths[id] = label.length();
+            arenaSize += label.length();
+        }
+        if (element != null)
+            keep(id, element);
+
+        int mask = table.length - 1;
+        int slot = slot(hash, mask);
+        while (table[slot] != 0)
+            slot = (slot + 1) & mask;
+        table[slot] = id + 1;
+    }
+
+    /**
+     * Removes element, and moves the last element to its id
+     */
+    private void remove(int id) {
+        thaw();
+        deleteSlot(slotOf(id));
+        int index = index(id);
+        if (idAtIndex(index) == id)
+            idxMap[index] = 0;
+        totalWordCount -= frequency(id);
+        if (labelLengths[id] > 0)
+            arenaGarbage += labelLengths[id];
+
+        int last = --size;
+        if (id != last) {
+            table[slotOf(last)] = id + 1;
+            int lastIndex = index(last);
+            if (idAtIndex(lastIndex) == last)
+                idxMap[lastIndex] = id + 1;
+
+            hashes[id] = hashes[last];
+            frequencies[id] = frequencies[last];
+            sequences[id] = sequences[last];
+            indexes[id] = indexes[last];
+            flags[id] = flags[last];
+            labelOffsets[id] = labelOffsets[last];
+            labelLengths[id] = labelLengths[last];
+            if (elements != null)
+                elements[id] = elements[last];
+        }
+        if (elements != null)
+            elements[last] = null;
+    }
+
+    private int find(String label) {
+        if (label == null)
+            return -1;
+        return find(SequenceElement.getLongHash(label), label);
+    }
+
+    /**
+     * Returns id of the element with specified hash and label (any label, if null), or -1
+     */
+    private int find(long hash, String label) {
+        return find(table, hashes, arena, labelOffsets, labelLengths, hash, label);
+    }
+
+    private static int find(int[] table, long[] hashes, char[] arena, int[] labelOffsets, int[] labelLengths,
+                    long hash, String label) {
+        int mask = table.length - 1;
+        for (int slot = slot(hash, mask); table[slot] != 0; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (hashes[id] == hash && (label == null || labelEquals(arena, labelOffsets[id], labelLengths[id], label)))
+                return id;
+        }
+        return -1;
+    }
+
+    private int slotOf(int id) {
+        int mask = table.length - 1;
+        int slot = slot(hashes[id], mask);
+        while (table[slot] != id + 1)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    // backward shift deletion, so no tombstones are needed for linear probing
+    private void deleteSlot(int slot) {
+        int mask = table.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+            int home = slot(hashes[table[next] - 1], mask);
+            boolean stays = hole <= next ? (hole < home && home <= next) : (hole < home || home <= next);
+            if (!stays) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    private static int slot(long hash, int mask) {
+        int h = (int) (hash ^ (hash >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static boolean labelEquals(char[] arena, int offset, int length, String label) {
+        if (length != label.length())
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (arena[offset + i] != label.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private String label(int id) {
+        return label(arena, labelOffsets[id], labelLengths[id]);
+    }
+
+    private static String label(char[] arena, int offset, int length) {
+        return length < 0 ? null : new String(arena, offset, length);
+    }
+
+    private int idAtIndex(int index) {
+        return idAtIndex(idxMap, index);
+    }
+
+    private static int idAtIndex(int[] idxMap, int index) {
+        return index >= 0 && index < idxMap.length ? idxMap[index] - 1 : -1;
+    }
+
+    private void mapIndex(int index, int id) {
+        thaw();
+        int previous = index(id);
+        if (previous != index && idAtIndex(previous) == id)
+            idxMap[previous] = 0;
+        if (index >= idxMap.length)
+            idxMap = Arrays.copyOf(idxMap, Math.max(index + 1, (int) Math.min(MAX_ARRAY_LENGTH, idxMap.length * 2L)));
+        idxMap[index] = id + 1;
+
+        if (isKept(id))
+            elements[id].setIndex(index);
+        indexes[id] = index;
+    }
+
+    /*
+        Once element object was created, it holds counters of its label
+     */
+
+    private boolean isKept(int id) {
+        return elements != null && elements[id] != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T kept(int id) {
+        return (T) elements[id];
+    }
+
+    private void keep(int id, T element) {
+        if (elements == null)
+            elements = new SequenceElement[hashes.length];
+        elements[id] = element;
+    }
+
+    private T element(int id) {
+        if (isKept(id))
+            return kept(id);
+
+        T element = elementFactory.create(label(id));
+        // frequency may be fractional, so it's added instead of set
+        element.setElementFrequency(0);
+        element.increaseElementFrequency(frequencies[id]);
+        element.setSequencesCount(sequences[id]);
+        element.setIndex(indexes[id]);
+        element.setSpecial((flags[id] & FLAG_SPECIAL) != 0);
+        element.markAsLabel((flags[id] & FLAG_LABEL) != 0);
+        keep(id, element);
+        return element;
+    }
+
+    private double frequency(int id) {
+        return isKept(id) ? elements[id].getElementFrequency() : frequencies[id];
+    }
+
+    private void addFrequency(int id, double frequency) {
+        if (isKept(id))
+            elements[id].increaseElementFrequency(frequency);
+        else
+            frequencies[id] += frequency;
+    }
+
+    private long sequencesCount(int id) {
+        return isKept(id) ? elements[id].getSequencesCount() : sequences[id];
+    }
+
+    private void addSequencesCount(int id, long count) {
+        if (isKept(id))
+            elements[id].incrementSequencesCount(count);
+        else
+            sequences[id] += count;
+    }
+
+    private int index(int id) {
+        return isKept(id) ? elements[id].getIndex() : indexes[id];
+    }
+
+    private byte flags(int id) {
+        if (!isKept(id))
+            return flags[id];
+        SequenceElement element = elements[id];
+        return (byte) ((element.isSpecial() ? FLAG_SPECIAL : 0) | (element.isLabel() ? FLAG_LABEL : 0));
+    }
+
+    /**
+     * Arrays of published snapshot are never modified: they are copied before the first structural change
+     */
+    private void thaw() {
+        if (snapshot == null)
+            return;
+        snapshot = null;
+        hashes = hashes.clone();
+        table = table.clone();
+        arena = arena.clone();
+        labelOffsets = labelOffsets.clone();
+        labelLengths = labelLengths.clone();
+        if (elements != null)
+            elements = elements.clone();
+        idxMap = idxMap.clone();
+    }
+
+    private void allocate(int capacity) {
+        hashes = new long[capacity];
+        frequencies = new double[capacity];
+        sequences = new long[capacity];
+        indexes = new int[capacity];
+        flags = new byte[capacity];
+        labelOffsets = new int[capacity];
+        labelLengths = new int[capacity];
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > hashes.length) {
+            int capacity = (int) Math.min(MAX_ARRAY_LENGTH, Math.max(required, hashes.length * 3L / 2));
+            if (capacity < required)
+                throw new IllegalStateException("Vocabulary can't hold more than " + MAX_ARRAY_LENGTH + " elements");
+            hashes = Arrays.copyOf(hashes, capacity);
+            frequencies = Arrays.copyOf(frequencies, capacity);
+            sequences = Arrays.copyOf(sequences, capacity);
+            indexes = Arrays.copyOf(indexes, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            labelOffsets = Arrays.copyOf(labelOffsets, capacity);
+            labelLengths = Arrays.copyOf(labelLengths, capacity);
+            if (elements != null)
+                elements = Arrays.copyOf(elements, capacity);
+        }
+
+        int tableLength = tableLength(required);
+        if (tableLength > table.length) {
+            table = new int[tableLength];
+            int mask = tableLength - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = slot(hashes[id], mask);
+                while (table[slot] != 0)
+                    slot = (slot + 1) & mask;
+                table[slot] = id + 1;
+            }
+        }
+    }
+
+    // table is kept at most half full
+    private static int tableLength(int capacity) {
+        if (capacity > 1 << 29)
+            return 1 << 30;
+        return Integer.highestOneBit(Math.max(8, capacity) * 2 - 1) * 2;
+    }
+
+    private void ensureArena(int length) {
+        if (arenaSize + length <= arena.length)
+            return;
+
+        // labels of removed elements are dropped when arena is full
+        if (arenaGarbage > arenaSize / 2) {
+            char[] compacted = new char[arena.length];
+            int offset = 0;
+            for (int id = 0; id < size; id++) {
+                int labelLength = labelLengths[id];
+                if (labelLength > 0) {
+                    System.arraycopy(arena, labelOffsets[id], compacted, offset, labelLength);
+                    labelOffsets[id] = offset;
+                    offset += labelLength;
+                }
+            }
+            arena = compacted;
+            arenaSize = offset;
+            arenaGarbage = 0;
+            if (arenaSize + length <= arena.length)
+                return;
+        }
+
+        long required = (long) arenaSize + length;
+        if (required > MAX_ARRAY_LENGTH)
+            throw new IllegalStateException("Vocabulary labels can't hold more than " + MAX_ARRAY_LENGTH + " chars");
+        arena = Arrays.copyOf(arena, (int) Math.min(MAX_ARRAY_LENGTH, Math.max(required, arena.length * 3L / 2)));
+    }
+
+    /**
+     * Lookup structures of frozen vocabulary. All elements are created before freezing, so counters are read from
+     * element objects
+     */
+    private static class Snapshot {
+        private final int size;
+        private final long[] hashes;
+        private final int[] table;
+        private final char[] arena;
+        private final int[] labelOffsets;
+        private final int[] labelLengths;
+        private final SequenceElement[] elements;
+        private final int[] idxMap;
+
+        private Snapshot(int size, long[] hashes, int[] table, char[] arena, int[] labelOffsets, int[] labelLengths,
+                        SequenceElement[] elements, int[] idxMap) {
+            this.size = size;
+            this.hashes = hashes;
+            this.table = table;
+            this.arena = arena;
+            this.labelOffsets = labelOffsets;
+            this.labelLengths = labelLengths;
+            this.elements = elements;
+            this.idxMap = idxMap;
+        }
+
+        private int find(String label) {
+            if (label == null)
+                return -1;
+            return find(SequenceElement.getLongHash(label), label);
+        }
+
+        private int find(long hash, String label) {
+            return PrimitiveCache.find(table, hashes, arena, labelOffsets, labelLengths, hash, label);
+        }
+
+        private String label(int id) {
+            return PrimitiveCache.label(arena, labelOffsets[id], labelLengths[id]);
+        }
+
+        private int idAtIndex(int index) {
+            return PrimitiveCache.idAtIndex(idxMap, index);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T extends SequenceElement> T element(int id) {
+            return (T) elements[id];
+        }
+    }
+
+    /**
+     * This factory creates VocabWords, for PrimitiveCache&lt;VocabWord&gt;
+     */
+    public static class VocabWordFactory implements ElementFactory<VocabWord> {
+        @Override
+        public VocabWord create(String label) {
+            return new VocabWord(1.0, label);
+        }
+    }
+
+    public static class Builder<T extends SequenceElement> {
+        protected int expectedSize = DEFAULT_EXPECTED_SIZE;
+        protected ElementFactory<T> elementFactory;
+
+        /**
+         * Number of elements expected in vocabulary, so arrays are allocated upfront
+         *
+         * @param expectedSize
+         * @return
+         */
+        public Builder<T> expectedSize(int expectedSize) {
+            this.expectedSize = expectedSize;
+            return this;
+        }
+
+        /**
+         * Factory used to create element objects on demand. This option is required,
+         * use VocabWordFactory for VocabWord vocabularies
+         *
+         * @param elementFactory
+         * @return
+         */
+        public Builder<T> elementFactory(@NonNull ElementFactory<T> elementFactory) {
+            this.elementFactory = elementFactory;
+            return this;
+        }
+
+        public PrimitiveCache<T> build() {
+            if (elementFactory == null)
+                throw new IllegalStateException("ElementFactory is required, e.g. PrimitiveCache.VocabWordFactory");
+            return new PrimitiveCache<>(expectedSize, elementFactory);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.deeplearning4j.models.embeddings.reader.impl;
+
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
+import org.junit.Before;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BasicModelUtilsTest {
+    private static final int NUM_WORDS = 1000;
+
+    private InMemoryLookupTable<VocabWord> lookupTable;
+
+    @Before
+    public void setUp() {
+        AbstractCache<VocabWord> vocab = new AbstractCache.Builder<VocabWord>().build();
+        for (int i = 0; i < NUM_WORDS; i++) {
+            VocabWord word = new VocabWord(1.0, "word_" + i);
+            vocab.addToken(word);
+            vocab.addWordToIndex(i, word.getLabel());
+        }
+        lookupTable = new InMemoryLookupTable.Builder<VocabWord>().cache(vocab).vectorLength(16).seed(12345).build();
+        lookupTable.resetWeights(true);
+    }
+
+    @Test
+    public void testWordsNearestBatch() {
+        BasicModelUtils<VocabWord> utils = new BasicModelUtils<>();
+        utils.init(lookupTable);
+
+        INDArray syn0Before = lookupTable.getSyn0().dup();
+        INDArray queries = Nd4j.rand(20, 16, 12345).subi(0.5);
+        List<Collection<String>> batch = utils.wordsNearestBatch(queries, 10);
+        List<Collection<String>> labels = utils.wordsNearestBatch(Arrays.asList("word_1", "unknown", "word_2"), 5);
+        double[] sims = utils.similarityBatch(Arrays.asList("word_1", "word_3", "unknown"),
+                        Arrays.asList("word_2", "word_4", "word_5"));
+
+        // batched methods don't normalize the lookup table
+        assertEquals(syn0Before, lookupTable.getSyn0());
+
+        assertEquals(20, batch.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(new ArrayList<>(utils.wordsNearest(queries.getRow(i), 10)), batch.get(i));
+        }
+
+        assertEquals(3, labels.size());
+        assertEquals(utils.wordsNearest("word_1", 5), labels.get(0));
+        assertTrue(labels.get(1).isEmpty());
+        assertEquals(utils.wordsNearest("word_2", 5), labels.get(2));
+
+        assertEquals(utils.similarity("word_1", "word_2"), sims[0], 1e-5);
+        assertEquals(utils.similarity("word_3", "word_4"), sims[1], 1e-5);
+        assertTrue(Double.isNaN(sims[2]));
+    }
+
+    @Test
+    public void testNearestBlocks() {
+        INDArray normalized = BatchedSimilarity.normalizedCopy(lookupTable.getSyn0());
+        INDArray queries = Nd4j.rand(7, 16, 12345).subi(0.5);
+
+        int[][] single = BatchedSimilarity.nearest(normalized, queries, 15, NUM_WORDS);
+        int[][] blocked = BatchedSimilarity.nearest(normalized, queries, 15, 128);
+        for (int i = 0; i < single.length; i++) {
+            assertArrayEquals(single[i], blocked[i]);
+
+            INDArray sims = normalized.mmul(queries.getRow(i).transpose());
+            for (int j = 1; j < single[i].length; j++)
+                assertTrue(sims.getDouble(single[i][j - 1]) >= sims.getDouble(single[i][j]));
+            assertEquals(Nd4j.argMax(sims, 0).getInt(0), single[i][0]);
+        }
+    }
+}
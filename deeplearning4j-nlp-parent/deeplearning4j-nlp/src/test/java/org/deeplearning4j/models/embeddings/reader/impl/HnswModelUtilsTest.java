@@ -0,0 +1,154 @@
+package org.deeplearning4j.models.embeddings.reader.impl;
+
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.embeddings.loader.WordVectorSerializer;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class HnswModelUtilsTest {
+    private static final int NUM_WORDS = 2000;
+    private static final int NUM_QUERIES = 50;
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    private InMemoryLookupTable<VocabWord> lookupTable;
+
+    @Before
+    public void setUp() {
+        AbstractCache<VocabWord> vocab = new AbstractCache.Builder<VocabWord>().build();
+        for (int i = 0; i < NUM_WORDS; i++) {
+            VocabWord word = new VocabWord(1.0, "word_" + i);
+            vocab.addToken(word);
+            vocab.addWordToIndex(i, word.getLabel());
+        }
+        lookupTable = new InMemoryLookupTable.Builder<VocabWord>().cache(vocab).vectorLength(32).seed(12345).build();
+        lookupTable.resetWeights(true);
+    }
+
+    @Test
+    public void testRecallAgainstExactSearch() {
+        INDArray syn0Before = lookupTable.getSyn0().dup();
+        HnswModelUtils<VocabWord> hnsw = new HnswModelUtils<>(16, 100, 100);
+        hnsw.init(lookupTable);
+        INDArray queries = Nd4j.rand(NUM_QUERIES, 32, 12345).subi(0.5);
+        List<Collection<String>> approximate = hnsw.wordsNearestBatch(queries, 10);
+
+        // the index doesn't modify the lookup table
+        assertEquals(syn0Before, lookupTable.getSyn0());
+
+        BasicModelUtils<VocabWord> exact = new BasicModelUtils<>();
+        exact.init(lookupTable);
+        assertEquals(NUM_QUERIES, approximate.size());
+        int found = 0;
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            INDArray query = queries.getRow(i);
+            Set<String> expected = new HashSet<>(exact.wordsNearest(query, 10));
+            Collection<String> single = hnsw.wordsNearest(query, 10);
+            assertEquals(new ArrayList<>(single), new ArrayList<>(approximate.get(i)));
+            for (String word : approximate.get(i)) {
+                if (expected.contains(word))
+                    found++;
+            }
+        }
+        double recall = found / (double) (10 * NUM_QUERIES);
+        assertTrue("Recall too low: " + recall, recall >= 0.9);
+    }
+
+    @Test
+    public void testSaveLoad() throws Exception {
+        HnswModelUtils<VocabWord> hnsw = new HnswModelUtils<>();
+        hnsw.init(lookupTable);
+        HnswIndex index = hnsw.getIndex();
+
+        File file = new File(testDir.newFolder(), "index.hnsw");
+        WordVectorSerializer.writeHnswIndex(index, file);
+        HnswIndex restored = WordVectorSerializer.readHnswIndex(file);
+        assertFalse(restored.isAttached());
+        assertEquals(index.getSize(), restored.getSize());
+        assertEquals(index.getDimension(), restored.getDimension());
+
+        HnswModelUtils<VocabWord> loaded = new HnswModelUtils<>(restored, HnswModelUtils.DEFAULT_EF);
+        loaded.init(lookupTable);
+        assertTrue(restored.isAttached());
+        for (int i = 0; i < 20; i++) {
+            INDArray query = lookupTable.vector("word_" + i);
+            assertEquals(hnsw.wordsNearest(query, 5), loaded.wordsNearest(query, 5));
+            assertEquals("word_" + i, loaded.wordsNearest(query, 1).iterator().next());
+        }
+    }
+
+    @Test
+    public void testCopiedVectors() throws Exception {
+        HnswModelUtils<VocabWord> hnsw = new HnswModelUtils<>();
+        hnsw.init(lookupTable);
+        HnswIndex index = hnsw.getIndex();
+
+        File file = new File(testDir.newFolder(), "index.hnsw");
+        WordVectorSerializer.writeHnswIndex(index, file);
+        HnswIndex copied = WordVectorSerializer.readHnswIndex(file);
+        copied.attach(lookupTable, true);
+
+        INDArray syn0 = lookupTable.getSyn0().dup();
+        for (int i = 0; i < 20; i++)
+            assertArrayEquals(index.search(syn0.getRow(i), 5, 64), copied.search(syn0.getRow(i), 5, 64));
+
+        // the copy doesn't see later changes of the lookup table, the in place index does
+        lookupTable.getSyn0().negi();
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, copied.search(syn0.getRow(i), 1, 64)[0]);
+            assertNotEquals(i, index.search(syn0.getRow(i), 1, 64)[0]);
+        }
+    }
+
+    @Test
+    public void testReplacedWeights() {
+        HnswModelUtils<VocabWord> hnsw = new HnswModelUtils<>();
+        hnsw.init(lookupTable);
+        HnswIndex index = hnsw.getIndex();
+
+        // the index follows the new weights array, not the one it was built with
+        INDArray syn0 = lookupTable.getSyn0();
+        INDArray replaced = syn0.neg();
+        lookupTable.setSyn0(replaced);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, index.search(replaced.getRow(i), 1, 64)[0]);
+            assertNotEquals(i, index.search(syn0.getRow(i), 1, 64)[0]);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLoadForDifferentVocab() throws Exception {
+        HnswModelUtils<VocabWord> hnsw = new HnswModelUtils<>();
+        hnsw.init(lookupTable);
+        File file = new File(testDir.newFolder(), "index.hnsw");
+        WordVectorSerializer.writeHnswIndex(hnsw.getIndex(), file);
+
+        AbstractCache<VocabWord> vocab = new AbstractCache.Builder<VocabWord>().build();
+        for (int i = 0; i < NUM_WORDS; i++) {
+            VocabWord word = new VocabWord(1.0, "other_" + i);
+            vocab.addToken(word);
+            vocab.addWordToIndex(i, word.getLabel());
+        }
+        InMemoryLookupTable<VocabWord> other =
+                        new InMemoryLookupTable.Builder<VocabWord>().cache(vocab).vectorLength(32).build();
+        other.resetWeights(true);
+
+        new HnswModelUtils<VocabWord>(WordVectorSerializer.readHnswIndex(file), 64).init(other);
+    }
+}
@@ -58,6 +58,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -199,6 +200,13 @@ public class ParagraphVectorsTest {
             System.out.println(label + "/DOC_16392: " + vec.similarity(label, "DOC_16392"));
         }
         assertTrue(result.contains("DOC_16392"));
+
+        INDArray queries = Nd4j.vstack(vec.getWordVectorMatrix("DOC_16392"), vec.getWordVectorMatrix("DOC_3720"));
+        List<Collection<String>> batch = vec.nearestLabelsBatch(queries, 10);
+        assertEquals(2, batch.size());
+        assertEquals(10, batch.get(0).size());
+        assertTrue(batch.get(0).contains("DOC_16392"));
+        assertTrue(batch.get(1).contains("DOC_3720"));
         //assertTrue(result.contains("DOC_21383"));
 
 
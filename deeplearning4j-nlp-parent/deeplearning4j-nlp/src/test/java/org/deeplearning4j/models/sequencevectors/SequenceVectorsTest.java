@@ -9,7 +9,12 @@ import org.nd4j.linalg.io.ClassPathResource;
 import org.datavec.api.writable.Writable;
 import org.deeplearning4j.models.embeddings.WeightLookupTable;
 import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.embeddings.learning.ElementsLearningAlgorithm;
+import org.deeplearning4j.models.embeddings.learning.impl.elements.CBOW;
 import org.deeplearning4j.models.embeddings.learning.impl.elements.GloVe;
+import org.deeplearning4j.models.embeddings.learning.impl.elements.HogwildCBOW;
+import org.deeplearning4j.models.embeddings.learning.impl.elements.HogwildEngine;
+import org.deeplearning4j.models.embeddings.learning.impl.elements.HogwildSkipGram;
 import org.deeplearning4j.models.embeddings.learning.impl.elements.SkipGram;
 import org.deeplearning4j.models.embeddings.loader.VectorsConfiguration;
 import org.deeplearning4j.models.embeddings.loader.WordVectorSerializer;
@@ -252,6 +257,82 @@ public class SequenceVectorsTest {
                                         .epochs(1).resetModel(false).trainElementsRepresentation(false).build();
     }
 
+    @Test
+    public void testHogwildSkipGram() throws Exception {
+        // hierarchic softmax
+        compareWithAggregate(new SkipGram<VocabWord>(), new HogwildSkipGram<VocabWord>(), true, 0);
+    }
+
+    @Test
+    public void testHogwildCBOW() throws Exception {
+        // negative sampling
+        compareWithAggregate(new CBOW<VocabWord>(), new HogwildCBOW<VocabWord>(), false, 5);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testHogwildTooLarge() {
+        // row offsets would overflow int: rejected before weights are touched
+        AbstractCache<VocabWord> vocabCache = new AbstractCache.Builder<VocabWord>().build();
+        for (String word : new String[] {"day", "night", "week"}) {
+            vocabCache.addToken(new VocabWord(1.0, word));
+            vocabCache.addWordToIndex(vocabCache.numWords() - 1, word);
+        }
+        InMemoryLookupTable<VocabWord> lookupTable = new InMemoryLookupTable.Builder<VocabWord>().cache(vocabCache)
+                        .vectorLength((int) (HogwildEngine.MAX_ELEMENTS / 2)).build();
+        new HogwildEngine<>(vocabCache, lookupTable, new VectorsConfiguration());
+    }
+
+    /**
+     * Trains both algorithms on the same corpus with the same seed, and checks that hogwild path learns the same
+     * relations as aggregate one
+     */
+    private void compareWithAggregate(ElementsLearningAlgorithm<VocabWord> aggregate,
+                    ElementsLearningAlgorithm<VocabWord> hogwild, boolean useHS, int negative) throws Exception {
+        SequenceVectors<VocabWord> expected = fitDayNight(aggregate, useHS, negative);
+        SequenceVectors<VocabWord> vectors = fitDayNight(hogwild, useHS, negative);
+
+        assertEquals(expected.getVocab().numWords(), vectors.getVocab().numWords());
+
+        double expectedSim = expected.similarity("day", "night");
+        double sim = vectors.similarity("day", "night");
+        logger.info(aggregate.getCodeName() + " day/night similarity: " + expectedSim + "; "
+                        + hogwild.getCodeName() + ": " + sim);
+        assertTrue(expectedSim > 0.6d);
+        assertTrue(sim > 0.6d);
+        assertEquals(expectedSim, sim, 0.15d);
+
+        Collection<String> expectedNearest = expected.wordsNearest("day", 10);
+        Collection<String> nearest = vectors.wordsNearest("day", 10);
+        logger.info(aggregate.getCodeName() + " nearest to day: " + expectedNearest + "; " + hogwild.getCodeName()
+                        + ": " + nearest);
+        assertTrue(expectedNearest.contains("night"));
+        assertTrue(nearest.contains("night"));
+    }
+
+    private SequenceVectors<VocabWord> fitDayNight(ElementsLearningAlgorithm<VocabWord> algorithm, boolean useHS,
+                    int negative) throws Exception {
+        File file = new ClassPathResource("big/raw_sentences.txt").getFile();
+
+        TokenizerFactory t = new DefaultTokenizerFactory();
+        t.setTokenPreProcessor(new CommonPreprocessor());
+
+        SentenceTransformer transformer = new SentenceTransformer.Builder().iterator(new BasicLineIterator(file))
+                        .tokenizerFactory(t).build();
+
+        AbstractSequenceIterator<VocabWord> sequenceIterator =
+                        new AbstractSequenceIterator.Builder<>(transformer).build();
+
+        // single worker, so each path is reproducible for given seed
+        SequenceVectors<VocabWord> vectors = new SequenceVectors.Builder<VocabWord>(new VectorsConfiguration())
+                        .minWordFrequency(5).iterate(sequenceIterator).batchSize(250).iterations(1).epochs(1)
+                        .layerSize(100).useHierarchicSoftmax(useHS).negativeSample(negative).seed(42).workers(1)
+                        .elementsLearningAlgorithm(algorithm).resetModel(true).trainElementsRepresentation(true)
+                        .build();
+
+        vectors.fit();
+        return vectors;
+    }
+
     @Ignore
     @Test
     public void testGlove1() throws Exception {
@@ -0,0 +1,84 @@
+package org.deeplearning4j.models.word2vec;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.deeplearning4j.models.embeddings.loader.WordVectorSerializer;
+import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.io.ClassPathResource;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MappedWordVectorsTest {
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    private File binaryModel;
+    private Word2Vec word2vec;
+
+    @Before
+    public void setUp() throws Exception {
+        binaryModel = new ClassPathResource("word2vec/googleload/sample_vec.bin").getFile();
+        word2vec = WordVectorSerializer.readWord2VecModel(binaryModel);
+    }
+
+    @Test
+    public void testConvertBinary() throws Exception {
+        File file = new File(testDir.newFolder(), "vectors.mapped");
+        WordVectorSerializer.convertBinaryToMapped(binaryModel, file);
+        checkVectors(WordVectorSerializer.loadMappedModel(file));
+    }
+
+    @Test
+    public void testWriteWordVectors() throws Exception {
+        File file = new File(testDir.newFolder(), "vectors.mapped");
+        WordVectorSerializer.writeMappedWordVectors(word2vec, file);
+        MappedWordVectors mapped = WordVectorSerializer.loadMappedModel(file);
+        checkVectors(mapped);
+
+        // buffers are mapped again on deserialization
+        checkVectors(SerializationUtils.clone(mapped));
+    }
+
+    private void checkVectors(MappedWordVectors mapped) {
+        assertEquals(word2vec.vocab().numWords(), mapped.getNumWords());
+        assertEquals(word2vec.getLayerSize(), mapped.getVectorLength());
+        for (int i = 0; i < mapped.getNumWords(); i++) {
+            String word = word2vec.vocab().wordAtIndex(i);
+            assertEquals(word, mapped.wordAtIndex(i));
+            assertEquals(i, mapped.indexOf(word));
+            assertTrue(mapped.hasWord(word));
+            assertEquals(word2vec.getWordVectorMatrix(word), mapped.getWordVectorMatrix(word));
+        }
+        assertFalse(mapped.hasWord("no_such_word"));
+        assertNull(mapped.getWordVectorMatrix("no_such_word"));
+        assertTrue(Double.isNaN(mapped.similarity("no_such_word", word2vec.vocab().wordAtIndex(0))));
+
+        String word1 = word2vec.vocab().wordAtIndex(1);
+        String word2 = word2vec.vocab().wordAtIndex(2);
+        assertEquals(word2vec.similarity(word1, word2), mapped.similarity(word1, word2), 1e-5);
+        assertEquals(new ArrayList<>(word2vec.wordsNearest(word1, 5)), mapped.wordsNearest(word1, 5));
+        assertEquals(word2vec.wordsNearestBatch(Arrays.asList(word1, word2), 3),
+                        mapped.wordsNearestBatch(Arrays.asList(word1, word2), 3));
+    }
+
+    @Test
+    public void testUnk() throws Exception {
+        File file = new File(testDir.newFolder(), "vectors.mapped");
+        WordVectorSerializer.convertBinaryToMapped(binaryModel, file);
+        WordVectors mapped = WordVectorSerializer.loadMappedModel(file);
+
+        String unk = word2vec.vocab().wordAtIndex(0);
+        mapped.setUNK(unk);
+        assertEquals(mapped.getWordVectorMatrix(unk), mapped.getWordVectorMatrix("no_such_word"));
+        String word = word2vec.vocab().wordAtIndex(1);
+        assertEquals(mapped.similarity(unk, word), mapped.similarity("no_such_word", word), 1e-6);
+    }
+}
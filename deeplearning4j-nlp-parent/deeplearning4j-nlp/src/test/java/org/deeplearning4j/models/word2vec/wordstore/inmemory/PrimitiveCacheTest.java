@@ -0,0 +1,205 @@
+package org.deeplearning4j.models.word2vec.wordstore.inmemory;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.deeplearning4j.models.sequencevectors.iterators.AbstractSequenceIterator;
+import org.deeplearning4j.models.sequencevectors.transformers.impl.SentenceTransformer;
+import org.deeplearning4j.models.word2vec.Huffman;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.deeplearning4j.models.word2vec.wordstore.VocabConstructor;
+import org.deeplearning4j.text.sentenceiterator.BasicLineIterator;
+import org.deeplearning4j.text.tokenization.tokenizer.preprocessor.CommonPreprocessor;
+import org.deeplearning4j.text.tokenization.tokenizerfactory.DefaultTokenizerFactory;
+import org.deeplearning4j.text.tokenization.tokenizerfactory.TokenizerFactory;
+import org.junit.Test;
+import org.nd4j.linalg.io.ClassPathResource;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class PrimitiveCacheTest {
+
+    @Test
+    public void testHuffman() throws Exception {
+        PrimitiveCache<VocabWord> cache = newCache();
+
+        cache.addToken(new VocabWord(1.0, "word"));
+        cache.addToken(new VocabWord(2.0, "test"));
+        cache.addToken(new VocabWord(3.0, "tester"));
+        cache.addToken(new VocabWord(1.0, "word"));
+
+        assertEquals(3, cache.numWords());
+        assertEquals(7, cache.totalWordOccurrences());
+        assertEquals(2, cache.wordFrequency("word"));
+
+        Huffman huffman = new Huffman(cache.tokens());
+        huffman.build();
+        huffman.applyIndexes(cache);
+
+        assertEquals("tester", cache.wordAtIndex(0));
+        assertEquals("test", cache.wordAtIndex(1));
+        assertEquals("word", cache.wordAtIndex(2));
+
+        VocabWord word = cache.tokenFor("tester");
+        assertEquals(0, word.getIndex());
+        assertTrue(word.getCodeLength() > 0);
+        assertSame(word, cache.elementAtIndex(0));
+        assertEquals(2, cache.indexOf("word"));
+        assertEquals(-2, cache.indexOf("unknown"));
+    }
+
+    @Test
+    public void testRemoval() throws Exception {
+        PrimitiveCache<VocabWord> cache = new PrimitiveCache.Builder<VocabWord>().expectedSize(4)
+                        .elementFactory(new PrimitiveCache.VocabWordFactory()).build();
+
+        // enough elements to resize arrays and hash table a few times
+        for (int i = 0; i < 10000; i++)
+            cache.addToken(new VocabWord(i % 10 + 1, "word_" + i));
+        VocabWord unk = new VocabWord(1.0, "UNK");
+        unk.setSpecial(true);
+        cache.addToken(unk);
+        for (int i = 0; i < 10000; i++)
+            cache.addWordToIndex(i, "word_" + i);
+
+        assertEquals(10001, cache.numWords());
+        assertEquals(55001, cache.totalWordOccurrences());
+
+        cache.removeElement("word_0");
+        assertFalse(cache.containsWord("word_0"));
+        assertNull(cache.wordAtIndex(0));
+        assertEquals(10000, cache.numWords());
+
+        // frequencies 1..5 are removed, special elements are kept
+        assertEquals(4999, cache.removeRareElements(6));
+        assertEquals(5001, cache.numWords());
+        assertSame(unk, cache.wordFor("UNK"));
+        for (int i = 1; i < 10000; i++) {
+            String label = "word_" + i;
+            boolean kept = i % 10 >= 5;
+            assertEquals(kept, cache.containsWord(label));
+            assertEquals(kept ? label : null, cache.wordAtIndex(i));
+            assertEquals(kept ? i % 10 + 1 : 0, cache.wordFrequency(label));
+        }
+        assertEquals(5001, new HashSet<>(cache.words()).size());
+        assertEquals(40001, cache.totalWordOccurrences());
+    }
+
+    @Test
+    public void testFreeze() throws Exception {
+        PrimitiveCache<VocabWord> cache = newCache();
+        cache.addToken(new VocabWord(1.0, "word"));
+        cache.addToken(new VocabWord(2.0, "test"));
+        cache.addWordToIndex(0, "test");
+        cache.addWordToIndex(1, "word");
+        assertFalse(cache.isFrozen());
+
+        cache.freeze();
+        assertTrue(cache.isFrozen());
+        assertTrue(cache.containsWord("word"));
+        assertFalse(cache.containsWord("unknown"));
+        assertNull(cache.wordFor("unknown"));
+        VocabWord test = cache.wordFor("test");
+        assertSame(test, cache.elementAtIndex(0));
+        assertEquals("word", cache.wordAtIndex(1));
+        assertEquals(1, cache.indexOf("word"));
+        assertEquals(2, cache.numWords());
+
+        // counters are kept by element objects, so they don't unfreeze vocabulary
+        cache.incrementWordCount("test", 3);
+        cache.incrementDocCount("test", 2);
+        assertTrue(cache.isFrozen());
+        assertEquals(5, cache.wordFrequency("test"));
+        assertEquals(2, cache.docAppearedIn("test"));
+        assertEquals(6, cache.totalWordOccurrences());
+
+        // structural changes do
+        cache.addToken(new VocabWord(1.0, "tester"));
+        assertFalse(cache.isFrozen());
+        assertTrue(cache.containsWord("tester"));
+        assertSame(test, cache.wordFor("test"));
+
+        cache.freeze();
+        cache.removeElement("word");
+        assertFalse(cache.isFrozen());
+        assertFalse(cache.containsWord("word"));
+        assertEquals(2, cache.numWords());
+    }
+
+    @Test
+    public void testFractionalFrequencies() throws Exception {
+        PrimitiveCache<VocabWord> cache = newCache();
+        cache.addToken(new VocabWord(0.5, "word"));
+        cache.addToken(new VocabWord(0.75, "word"));
+        assertEquals(1.25, cache.wordFor("word").getElementFrequency(), 1e-9);
+
+        cache.addToken(new VocabWord(0.5, "word"));
+        assertEquals(1.75, cache.wordFor("word").getElementFrequency(), 1e-9);
+        assertEquals(1, cache.wordFrequency("word"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFactoryRequired() throws Exception {
+        new PrimitiveCache.Builder<VocabWord>().build();
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        PrimitiveCache<VocabWord> cache = newCache();
+        cache.addToken(new VocabWord(1.0, "word"));
+        cache.addToken(new VocabWord(2.0, "test"));
+        cache.incrementDocCount("test", 3);
+        cache.addWordToIndex(0, "test");
+
+        PrimitiveCache<VocabWord> restored = SerializationUtils.clone(cache);
+        assertEquals(2, restored.numWords());
+        assertEquals(3, restored.docAppearedIn("test"));
+        assertEquals("test", restored.wordAtIndex(0));
+        assertEquals(1, restored.wordFrequency("word"));
+    }
+
+    @Test
+    public void testBuildJointVocabulary() throws Exception {
+        File inputFile = new ClassPathResource("big/raw_sentences.txt").getFile();
+        TokenizerFactory t = new DefaultTokenizerFactory();
+        t.setTokenPreProcessor(new CommonPreprocessor());
+
+        VocabCache<VocabWord> expected = buildVocabulary(inputFile, t, new AbstractCache.Builder<VocabWord>().build());
+        VocabCache<VocabWord> cache = buildVocabulary(inputFile, t, newCache());
+
+        assertTrue(((PrimitiveCache<VocabWord>) cache).isFrozen());
+        assertEquals(242, cache.numWords());
+        assertEquals(expected.numWords(), cache.numWords());
+        assertEquals(expected.totalWordOccurrences(), cache.totalWordOccurrences());
+        assertEquals(expected.totalNumberOfDocs(), cache.totalNumberOfDocs());
+
+        Collection<String> words = cache.words();
+        assertEquals(new HashSet<>(expected.words()), new HashSet<>(words));
+        for (String word : words) {
+            assertEquals(expected.wordFrequency(word), cache.wordFrequency(word));
+            assertEquals(expected.docAppearedIn(word), cache.docAppearedIn(word));
+            assertEquals(expected.wordFor(word).getCodes(), cache.wordFor(word).getCodes());
+        }
+        for (int i = 0; i < cache.numWords(); i++)
+            assertEquals(expected.wordAtIndex(i), cache.wordAtIndex(i));
+    }
+
+    private static PrimitiveCache<VocabWord> newCache() {
+        return new PrimitiveCache.Builder<VocabWord>().elementFactory(new PrimitiveCache.VocabWordFactory()).build();
+    }
+
+    private static VocabCache<VocabWord> buildVocabulary(File file, TokenizerFactory t, VocabCache<VocabWord> cache)
+                    throws Exception {
+        SentenceTransformer transformer = new SentenceTransformer.Builder().iterator(new BasicLineIterator(file))
+                        .tokenizerFactory(t).build();
+        AbstractSequenceIterator<VocabWord> sequenceIterator =
+                        new AbstractSequenceIterator.Builder<>(transformer).build();
+
+        VocabConstructor<VocabWord> constructor = new VocabConstructor.Builder<VocabWord>()
+                        .addSource(sequenceIterator, 5).setTargetVocabCache(cache).build();
+        return constructor.buildJointVocabulary(false, true);
+    }
+}
@@ -28,6 +28,7 @@ import org.deeplearning4j.nn.conf.layers.Layer;
 import org.deeplearning4j.nn.conf.layers.OutputLayer;
 import org.deeplearning4j.nn.conf.memory.MemoryReport;
 import org.deeplearning4j.nn.conf.memory.NetworkMemoryReport;
+import org.deeplearning4j.util.GradientCheckpointUtils;
 import org.nd4j.linalg.activations.Activation;
 import org.nd4j.linalg.activations.IActivation;
 import org.nd4j.shade.jackson.databind.JsonNode;
@@ -90,6 +91,19 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
     protected int tbpttFwdLength = 20;
     protected int tbpttBackLength = 20;
 
+    /**
+     * Names of the vertices whose output activations are retained during training when using gradient
+     * checkpointing. Activations of other vertices are recomputed during backprop. Null: gradient checkpointing is
+     * not used
+     */
+    protected List<String> checkpointVertices;
+
+    /**
+     * Mixed precision training configuration (master weights, loss scaling). Null: mixed precision training is not
+     * used
+     */
+    protected MixedPrecision mixedPrecision;
+
     protected NeuralNetConfiguration defaultConfiguration;
 
     //Counter for the number of parameter updates so far
@@ -251,6 +265,8 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
         conf.inferenceWorkspaceMode = inferenceWorkspaceMode;
         conf.cacheMode = this.cacheMode;
         conf.defaultConfiguration.cacheMode = this.cacheMode;
+        conf.checkpointVertices = (this.checkpointVertices == null ? null : new ArrayList<>(this.checkpointVertices));
+        conf.mixedPrecision = (this.mixedPrecision == null ? null : this.mixedPrecision.clone());
 
         return conf;
     }
@@ -486,6 +502,64 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
         return topologicalOrdering;
     }
 
+    /**
+     * Resolve the gradient checkpoints for this configuration.<br>
+     * Automatic selection (requested == null) only considers vertices that split the topological order of the graph:
+     * i.e., vertices after the checkpoint don't use any activations from before it (other than network inputs).
+     *
+     * @param requested Names of the vertices to use as checkpoints, or null to select the checkpoints automatically
+     * @return Checkpoint vertex names, in topological order
+     */
+    protected List<String> resolveCheckpointVertices(List<String> requested) {
+        List<String> order = topologicalOrdering();
+        int n = order.size();
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            positions.put(order.get(i), i);
+        }
+
+        List<String> out = new ArrayList<>();
+        if (requested == null) {
+            int[][] inputPositions = new int[n][];
+            boolean[] retainedProducer = new boolean[n];
+            boolean[] retainedConsumer = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                String name = order.get(i);
+                retainedProducer[i] = networkInputs.contains(name);
+                retainedConsumer[i] = networkOutputs.contains(name);
+                List<String> in = vertexInputs.get(name);
+                if (in != null) {
+                    inputPositions[i] = new int[in.size()];
+                    for (int j = 0; j < in.size(); j++) {
+                        inputPositions[i][j] = positions.get(in.get(j));
+                    }
+                }
+            }
+
+            boolean[] cut = GradientCheckpointUtils.cutPositions(inputPositions, retainedProducer, retainedConsumer);
+            for (int p : GradientCheckpointUtils.selectCheckpoints(cut)) {
+                out.add(order.get(p));
+            }
+        } else {
+            for (String s : requested) {
+                if (!vertices.containsKey(s)) {
+                    throw new IllegalStateException("Invalid configuration: gradient checkpoint \"" + s
+                                    + "\" is not a valid vertex");
+                }
+                if (networkOutputs.contains(s)) {
+                    throw new IllegalStateException("Invalid configuration: gradient checkpoint \"" + s
+                                    + "\" is a network output");
+                }
+            }
+            for (String s : order) {
+                if (requested.contains(s)) {
+                    out.add(s);
+                }
+            }
+        }
+        return out;
+    }
+
     /**
      * Get a {@link MemoryReport} for the given computation graph configuration. This is used to estimate the
      * memory requirements for the given network configuration and input
@@ -538,8 +612,15 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
             memoryReportMap.put(s, mr);
         }
 
+        //Network structure: used to estimate peak memory when activations are released after their last use
+        Map<String, List<String>> inputsCopy = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> e : vertexInputs.entrySet()) {
+            inputsCopy.put(e.getKey(), new ArrayList<>(e.getValue()));
+        }
+
         return new NetworkMemoryReport(memoryReportMap, ComputationGraphConfiguration.class, "ComputationGraph",
-                        inputTypes);
+                        inputTypes, topologicalOrdering, inputsCopy, new ArrayList<>(networkOutputs),
+                        checkpointVertices == null ? null : new ArrayList<>(checkpointVertices));
     }
 
 
@@ -568,6 +649,10 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
 
         protected boolean allowDisconnected = false;
 
+        protected List<String> checkpointVertices;
+        protected boolean checkpointAuto = false;
+        protected MixedPrecision mixedPrecision;
+
         public GraphBuilder(NeuralNetConfiguration.Builder globalConfiguration) {
             this.globalConfiguration = globalConfiguration;
         }
@@ -854,6 +939,57 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
             return this;
         }
 
+        /**
+         * Enable gradient checkpointing, with automatically selected checkpoints (roughly every sqrt(nVertices)-th
+         * vertex, out of the vertices that split the graph). See {@link #gradientCheckpointing(String...)}
+         */
+        public GraphBuilder gradientCheckpointing() {
+            this.checkpointAuto = true;
+            this.checkpointVertices = null;
+            return this;
+        }
+
+        /**
+         * Enable gradient checkpointing (activation recomputation) for training: only the output activations of the
+         * specified vertices (and any other activations still needed by a later segment) are retained during the
+         * forward pass. The activations of all other vertices are recomputed from the previous checkpoint during
+         * backprop. This trades extra computation (up to one additional forward pass per iteration) for reduced
+         * activation memory.<br>
+         * Checkpoints work best on vertices that split the graph: i.e., no vertex after the checkpoint uses
+         * activations from before it. Use {@link #gradientCheckpointing()} to select such vertices automatically.<br>
+         * Notes: this is not applied for truncated BPTT; the memory savings require WorkspaceMode.SEPARATE or
+         * WorkspaceMode.NONE; and training listeners receive only the retained activations in onForwardPass
+         *
+         * @param checkpointVertices Names of the vertices whose output activations should be retained
+         */
+        public GraphBuilder gradientCheckpointing(String... checkpointVertices) {
+            this.checkpointVertices = Arrays.asList(checkpointVertices);
+            this.checkpointAuto = false;
+            return this;
+        }
+
+        /**
+         * Enable mixed precision training, with the default {@link MixedPrecision} configuration (dynamic loss
+         * scaling). See {@link #mixedPrecision(MixedPrecision)}
+         */
+        public GraphBuilder mixedPrecision() {
+            return mixedPrecision(new MixedPrecision());
+        }
+
+        /**
+         * Enable mixed precision training. Parameters, activations and gradients are stored and computed in the
+         * global ND4J data type (set {@code Nd4j.setDataType(DataBuffer.Type.HALF)} for half precision); updates are
+         * applied to a single precision master copy of the parameters, the loss is scaled during backprop so that
+         * small gradients remain representable, and iterations where the scaled gradients overflow are skipped.
+         * See {@link MixedPrecision} for details
+         *
+         * @param mixedPrecision Mixed precision configuration
+         */
+        public GraphBuilder mixedPrecision(@NonNull MixedPrecision mixedPrecision) {
+            this.mixedPrecision = mixedPrecision;
+            return this;
+        }
+
         /**
          * Used only during validation after building.<br>
          * If true: don't throw an exception on configurations containing vertices that are 'disconnected'. A disconnected
@@ -887,6 +1023,7 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
             conf.trainingWorkspaceMode = globalConfiguration.trainingWorkspaceMode;
             conf.inferenceWorkspaceMode = globalConfiguration.inferenceWorkspaceMode;
             conf.cacheMode = globalConfiguration.cacheMode;
+            conf.mixedPrecision = mixedPrecision;
 
             conf.defaultConfiguration = globalConfiguration.build();
             conf.getDefaultConfiguration().setPretrain(pretrain);
@@ -917,6 +1054,10 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
 
             conf.validate(allowDisconnected); //throws exception for invalid configuration
 
+            if (checkpointAuto || checkpointVertices != null) {
+                conf.checkpointVertices = conf.resolveCheckpointVertices(checkpointAuto ? null : checkpointVertices);
+            }
+
             //Automatically add preprocessors, set nIns for CNN->dense transitions, etc
             if (!networkInputTypes.isEmpty()) {
                 conf.addPreProcessors(networkInputTypes.toArray(new InputType[networkInputs.size()]));
@@ -0,0 +1,135 @@
+package org.deeplearning4j.nn.conf;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Configuration for mixed precision training of a {@link org.deeplearning4j.nn.multilayer.MultiLayerNetwork} or
+ * {@link org.deeplearning4j.nn.graph.ComputationGraph}.<br>
+ * Parameters, activations and gradients are stored and computed in the global ND4J data type - i.e., half
+ * precision when {@code Nd4j.setDataType(DataBuffer.Type.HALF)} is used. Small gradient values are not representable
+ * in half precision, hence the loss (and so all gradients) is multiplied by a loss scale during backprop. The
+ * gradients are divided by the loss scale again before the updater is applied.<br>
+ * With dynamic loss scaling, the loss scale is reduced (and the parameter update for that iteration is skipped)
+ * whenever the scaled gradients overflow (contain NaN or infinite values), and it is increased again after a number
+ * of iterations without overflow.<br>
+ * With master weights (default), parameter updates are accumulated in a single precision copy of the parameters,
+ * which is rounded into the network parameters after each step (see
+ * {@link org.deeplearning4j.nn.updater.MasterWeights}). Master weights are not used when the updates are shared
+ * through a GradientsAccumulator (ParallelWrapper gradients sharing).
+ */
+@Data
+@NoArgsConstructor
+public class MixedPrecision implements Serializable, Cloneable {
+
+    private double initialLossScale = 32768.0;
+    private boolean dynamicLossScaling = true;
+    private double scaleFactor = 2.0;
+    private int scaleWindow = 1000;
+    private double minLossScale = 1.0;
+    private double maxLossScale = 16777216.0;
+    private boolean masterWeights = true;
+
+    private MixedPrecision(Builder builder) {
+        this.initialLossScale = builder.initialLossScale;
+        this.dynamicLossScaling = builder.dynamicLossScaling;
+        this.scaleFactor = builder.scaleFactor;
+        this.scaleWindow = builder.scaleWindow;
+        this.minLossScale = builder.minLossScale;
+        this.maxLossScale = builder.maxLossScale;
+        this.masterWeights = builder.masterWeights;
+    }
+
+    @Override
+    public MixedPrecision clone() {
+        try {
+            return (MixedPrecision) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static class Builder {
+        private double initialLossScale = 32768.0;
+        private boolean dynamicLossScaling = true;
+        private double scaleFactor = 2.0;
+        private int scaleWindow = 1000;
+        private double minLossScale = 1.0;
+        private double maxLossScale = 16777216.0;
+        private boolean masterWeights = true;
+
+        /**
+         * Loss scale to start training with. Default: 2^15
+         */
+        public Builder initialLossScale(double initialLossScale) {
+            this.initialLossScale = initialLossScale;
+            return this;
+        }
+
+        /**
+         * If true (default): adjust the loss scale during training. If false: always use the initial loss scale
+         */
+        public Builder dynamicLossScaling(boolean dynamicLossScaling) {
+            this.dynamicLossScaling = dynamicLossScaling;
+            return this;
+        }
+
+        /**
+         * Factor by which the loss scale is divided on overflow, and multiplied after {@link #scaleWindow(int)}
+         * iterations without overflow. Default: 2.0
+         */
+        public Builder scaleFactor(double scaleFactor) {
+            this.scaleFactor = scaleFactor;
+            return this;
+        }
+
+        /**
+         * Number of consecutive iterations without overflow before the loss scale is increased. Default: 1000
+         */
+        public Builder scaleWindow(int scaleWindow) {
+            this.scaleWindow = scaleWindow;
+            return this;
+        }
+
+        /**
+         * Minimum loss scale. Default: 1.0
+         */
+        public Builder minLossScale(double minLossScale) {
+            this.minLossScale = minLossScale;
+            return this;
+        }
+
+        /**
+         * Maximum loss scale. Default: 2^24
+         */
+        public Builder maxLossScale(double maxLossScale) {
+            this.maxLossScale = maxLossScale;
+            return this;
+        }
+
+        /**
+         * If true (default): keep a single precision master copy of the parameters, and apply the updates to it.
+         * If false: apply the updates to the parameters directly, in the global data type
+         */
+        public Builder masterWeights(boolean masterWeights) {
+            this.masterWeights = masterWeights;
+            return this;
+        }
+
+        public MixedPrecision build() {
+            if (initialLossScale <= 0 || minLossScale <= 0 || maxLossScale < minLossScale) {
+                throw new IllegalStateException("Invalid loss scale configuration: initial and minimum loss scale must "
+                                + "be positive, and maximum loss scale must be >= minimum loss scale. Got initial="
+                                + initialLossScale + ", min=" + minLossScale + ", max=" + maxLossScale);
+            }
+            if (scaleFactor <= 1.0 || scaleWindow <= 0) {
+                throw new IllegalStateException("Invalid loss scale configuration: scale factor must be > 1.0 and "
+                                + "scale window must be > 0. Got scaleFactor=" + scaleFactor + ", scaleWindow="
+                                + scaleWindow);
+            }
+            return new MixedPrecision(this);
+        }
+    }
+}
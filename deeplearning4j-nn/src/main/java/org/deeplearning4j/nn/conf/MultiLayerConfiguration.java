@@ -27,6 +27,7 @@ import org.deeplearning4j.nn.conf.layers.*;
 import org.deeplearning4j.nn.conf.memory.LayerMemoryReport;
 import org.deeplearning4j.nn.conf.memory.MemoryReport;
 import org.deeplearning4j.nn.conf.memory.NetworkMemoryReport;
+import org.deeplearning4j.util.GradientCheckpointUtils;
 import org.nd4j.linalg.activations.Activation;
 import org.nd4j.linalg.activations.IActivation;
 import org.nd4j.linalg.factory.Nd4j;
@@ -74,6 +75,18 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
     @Setter
     protected CacheMode cacheMode;
 
+    /**
+     * Indices of the layers whose output activations are retained during training when using gradient checkpointing.
+     * Activations of all other layers are recomputed during backprop. Null: gradient checkpointing is not used
+     */
+    protected int[] checkpointLayers;
+
+    /**
+     * Mixed precision training configuration (master weights, loss scaling). Null: mixed precision training is not
+     * used
+     */
+    protected MixedPrecision mixedPrecision;
+
     //Counter for the number of parameter updates so far
     // This is important for learning rate schedules, for example, and is stored here to ensure it is persisted
     // for Spark and model serialization
@@ -298,6 +311,8 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             clone.inferenceWorkspaceMode = this.inferenceWorkspaceMode;
             clone.trainingWorkspaceMode = this.trainingWorkspaceMode;
             clone.cacheMode = this.cacheMode;
+            clone.checkpointLayers = (this.checkpointLayers == null ? null : this.checkpointLayers.clone());
+            clone.mixedPrecision = (this.mixedPrecision == null ? null : this.mixedPrecision.clone());
 
             return clone;
 
@@ -320,12 +335,16 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
     public NetworkMemoryReport getMemoryReport(InputType inputType) {
 
         Map<String, MemoryReport> memoryReportMap = new LinkedHashMap<>();
+        List<String> checkpointNames = (checkpointLayers == null ? null : new ArrayList<String>());
         int nLayers = confs.size();
         for (int i = 0; i < nLayers; i++) {
             String layerName = confs.get(i).getLayer().getLayerName();
             if (layerName == null) {
                 layerName = String.valueOf(i);
             }
+            if (checkpointLayers != null && Arrays.binarySearch(checkpointLayers, i) >= 0) {
+                checkpointNames.add(layerName);
+            }
 
             //Pass input type through preprocessor, if necessary
             InputPreProcessor preproc = getInputPreProcess(i);
@@ -340,7 +359,8 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             inputType = confs.get(i).getLayer().getOutputType(i, inputType);
         }
 
-        return new NetworkMemoryReport(memoryReportMap, MultiLayerConfiguration.class, "MultiLayerNetwork", inputType);
+        return new NetworkMemoryReport(memoryReportMap, MultiLayerConfiguration.class, "MultiLayerNetwork",
+                        new InputType[] {inputType}, null, null, null, checkpointNames);
     }
 
     @Data
@@ -359,6 +379,9 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
         protected WorkspaceMode trainingWorkspaceMode = WorkspaceMode.SEPARATE;
         protected WorkspaceMode inferenceWorkspaceMode = WorkspaceMode.SEPARATE;
         protected CacheMode cacheMode = CacheMode.NONE;
+        protected int[] checkpointLayers;
+        protected boolean checkpointAuto = false;
+        protected MixedPrecision mixedPrecision;
 
         /**
          * Specify the processors.
@@ -419,6 +442,54 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             return this;
         }
 
+        /**
+         * Enable gradient checkpointing, with automatically selected checkpoints (roughly every sqrt(nLayers)-th layer).
+         * See {@link #gradientCheckpointing(int...)}
+         */
+        public Builder gradientCheckpointing() {
+            this.checkpointAuto = true;
+            this.checkpointLayers = null;
+            return this;
+        }
+
+        /**
+         * Enable gradient checkpointing (activation recomputation) for training: only the output activations of the
+         * specified layers are retained during the forward pass, and the activations of all other layers are
+         * recomputed from the previous checkpoint during backprop. This trades extra computation (up to one additional
+         * forward pass per iteration) for reduced activation memory.<br>
+         * Notes: this is not applied for truncated BPTT; the memory savings require WorkspaceMode.SEPARATE or
+         * WorkspaceMode.NONE; and training listeners receive only the retained activations in onForwardPass
+         *
+         * @param checkpointLayers Indices of the layers whose output activations should be retained
+         */
+        public Builder gradientCheckpointing(int... checkpointLayers) {
+            this.checkpointLayers = checkpointLayers;
+            this.checkpointAuto = false;
+            return this;
+        }
+
+        /**
+         * Enable mixed precision training, with the default {@link MixedPrecision} configuration (dynamic loss
+         * scaling). See {@link #mixedPrecision(MixedPrecision)}
+         */
+        public Builder mixedPrecision() {
+            return mixedPrecision(new MixedPrecision());
+        }
+
+        /**
+         * Enable mixed precision training. Parameters, activations and gradients are stored and computed in the
+         * global ND4J data type (set {@code Nd4j.setDataType(DataBuffer.Type.HALF)} for half precision); updates are
+         * applied to a single precision master copy of the parameters, the loss is scaled during backprop so that
+         * small gradients remain representable, and iterations where the scaled gradients overflow are skipped.
+         * See {@link MixedPrecision} for details
+         *
+         * @param mixedPrecision Mixed precision configuration
+         */
+        public Builder mixedPrecision(@NonNull MixedPrecision mixedPrecision) {
+            this.mixedPrecision = mixedPrecision;
+            return this;
+        }
+
         /**The type of backprop. Default setting is used for most networks (MLP, CNN etc),
          * but optionally truncated BPTT can be used for training recurrent neural networks.
          * If using TruncatedBPTT make sure you set both tBPTTForwardLength() and tBPTTBackwardLength()
@@ -557,6 +628,27 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             conf.trainingWorkspaceMode = trainingWorkspaceMode;
             conf.inferenceWorkspaceMode = inferenceWorkspaceMode;
             conf.cacheMode = cacheMode;
+            conf.mixedPrecision = mixedPrecision;
+
+            if (checkpointAuto) {
+                //Candidates: all layers except the last two. The input to the output layer is retained anyway
+                boolean[] candidates = new boolean[confs.size() - 1];
+                for (int i = 0; i < candidates.length - 1; i++) {
+                    candidates[i] = true;
+                }
+                conf.checkpointLayers = GradientCheckpointUtils.selectCheckpoints(candidates);
+            } else if (checkpointLayers != null) {
+                for (int c : checkpointLayers) {
+                    if (c < 0 || c >= confs.size() - 1) {
+                        throw new IllegalStateException("Invalid configuration: gradient checkpoint layer index " + c
+                                        + " is not valid. Must be between 0 and " + (confs.size() - 2)
+                                        + " inclusive (i.e., not the output layer)");
+                    }
+                }
+                int[] sorted = checkpointLayers.clone();
+                Arrays.sort(sorted);
+                conf.checkpointLayers = sorted;
+            }
 
             Nd4j.getRandom().setSeed(conf.getConf(0).getSeed());
             return conf;
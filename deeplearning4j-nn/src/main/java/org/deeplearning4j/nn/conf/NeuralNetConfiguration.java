@@ -296,11 +296,15 @@ public class NeuralNetConfiguration implements Serializable, Cloneable {
             WorkspaceMode wsmTest = (globalConfig.setIWM ? globalConfig.inferenceWorkspaceMode : inferenceWorkspaceMode);
 
 
-            return new MultiLayerConfiguration.Builder().backprop(backprop).inputPreProcessors(inputPreProcessors)
-                            .pretrain(pretrain).backpropType(backpropType).tBPTTForwardLength(tbpttFwdLength)
-                            .tBPTTBackwardLength(tbpttBackLength).setInputType(this.inputType)
-                            .trainingWorkspaceMode(wsmTrain).cacheMode(globalConfig.cacheMode)
-                            .inferenceWorkspaceMode(wsmTest).confs(list).build();
+            MultiLayerConfiguration.Builder builder = new MultiLayerConfiguration.Builder().backprop(backprop)
+                            .inputPreProcessors(inputPreProcessors).pretrain(pretrain).backpropType(backpropType)
+                            .tBPTTForwardLength(tbpttFwdLength).tBPTTBackwardLength(tbpttBackLength)
+                            .setInputType(this.inputType).trainingWorkspaceMode(wsmTrain)
+                            .cacheMode(globalConfig.cacheMode).inferenceWorkspaceMode(wsmTest).confs(list);
+            builder.checkpointLayers = checkpointLayers;
+            builder.checkpointAuto = checkpointAuto;
+            builder.mixedPrecision = mixedPrecision;
+            return builder.build();
         }
 
         /** Helper class for setting input types */
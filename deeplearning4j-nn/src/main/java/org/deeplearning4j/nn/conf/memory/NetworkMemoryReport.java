@@ -4,20 +4,35 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
 import org.deeplearning4j.nn.conf.CacheMode;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
 import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.util.ActivationLiveness;
 import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.shade.jackson.annotation.JsonProperty;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  *
  * Network memory reports is a class that is used to store/represent the memory requirements of a
  * {@link org.deeplearning4j.nn.multilayer.MultiLayerNetwork} or {@link org.deeplearning4j.nn.graph.ComputationGraph},
- * composed of multiple layers and/or vertices.
+ * composed of multiple layers and/or vertices.<br>
+ * <br>
+ * If the network structure (topological order, vertex inputs and network outputs) is provided, the report can also
+ * estimate the activation memory when activations and epsilons are released as soon as their last consumer has run
+ * (see {@link ActivationLiveness}): during inference only the live activations are needed at any time, and during
+ * training only the live epsilons (activations are all retained for backprop). Released arrays are only freed
+ * with {@link WorkspaceMode#NONE}: with workspaces enabled they occupy the workspace until the end of the pass, and
+ * the network doesn't release them at all. The liveness estimate therefore only applies to WorkspaceMode.NONE (see
+ * {@link #getActivationMemoryBytes(int, MemoryUseMode, CacheMode, DataBuffer.Type, WorkspaceMode)}).<br>
+ * If gradient checkpoints are provided, the report can also estimate the training activation memory with gradient
+ * checkpointing: only the checkpoint activations plus the activations of one segment are held at any time.
  *
  * @author Alex Black
  */
@@ -31,16 +46,51 @@ public class NetworkMemoryReport extends MemoryReport {
     private final Class<?> modelClass;
     private final String modelName;
     private final InputType[] networkInputTypes;
+    private final List<String> topologicalOrder;
+    private final Map<String, List<String>> vertexInputs;
+    private final List<String> networkOutputs;
+    private final List<String> checkpoints;
+
+    public NetworkMemoryReport(Map<String, MemoryReport> layerAndVertexReports, Class<?> modelClass, String modelName,
+                    InputType... networkInputTypes) {
+        this(layerAndVertexReports, modelClass, modelName, networkInputTypes, null, null, null, null);
+    }
+
+    public NetworkMemoryReport(Map<String, MemoryReport> layerAndVertexReports, Class<?> modelClass, String modelName,
+                    InputType[] networkInputTypes, List<String> topologicalOrder,
+                    Map<String, List<String>> vertexInputs, List<String> networkOutputs) {
+        this(layerAndVertexReports, modelClass, modelName, networkInputTypes, topologicalOrder, vertexInputs,
+                        networkOutputs, null);
+    }
 
+    /**
+     * @param layerAndVertexReports Memory reports for each layer/vertex
+     * @param modelClass            Class of the model
+     * @param modelName             Name of the model
+     * @param networkInputTypes     Input types for the network
+     * @param topologicalOrder      Names of all vertices (including network inputs) in topological order. May be null
+     * @param vertexInputs          Key: vertex name. Value: names of the inputs to that vertex. May be null
+     * @param networkOutputs        Names of the network outputs. May be null
+     * @param checkpoints           Names of the gradient checkpoint layers/vertices, in order. Null if gradient
+     *                              checkpointing is not used
+     */
     public NetworkMemoryReport(
                     @NonNull @JsonProperty("layerAndVertexReports") Map<String, MemoryReport> layerAndVertexReports,
                     @NonNull @JsonProperty("modelClass") Class<?> modelClass,
                     @JsonProperty("modelName") String modelName,
-                    @NonNull @JsonProperty("networkInputTypes") InputType... networkInputTypes) {
+                    @NonNull @JsonProperty("networkInputTypes") InputType[] networkInputTypes,
+                    @JsonProperty("topologicalOrder") List<String> topologicalOrder,
+                    @JsonProperty("vertexInputs") Map<String, List<String>> vertexInputs,
+                    @JsonProperty("networkOutputs") List<String> networkOutputs,
+                    @JsonProperty("checkpoints") List<String> checkpoints) {
         this.layerAndVertexReports = layerAndVertexReports;
         this.modelClass = modelClass;
         this.modelName = modelName;
         this.networkInputTypes = networkInputTypes;
+        this.topologicalOrder = topologicalOrder;
+        this.vertexInputs = vertexInputs;
+        this.networkOutputs = networkOutputs;
+        this.checkpoints = checkpoints;
     }
 
 
@@ -109,6 +159,205 @@ public class NetworkMemoryReport extends MemoryReport {
         return totalBytes;
     }
 
+    /**
+     * @return True if the network structure is available, and hence the activation liveness estimates
+     */
+    public boolean hasActivationLiveness() {
+        return topologicalOrder != null && vertexInputs != null && networkOutputs != null;
+    }
+
+    /**
+     * Get the memory (in bytes) used for activations, plus activation gradients when training, for the given
+     * configuration.
+     *
+     * @param minibatchSize      Mini batch size to estimate the memory for
+     * @param memoryUseMode      The memory use mode (training or inference)
+     * @param cacheMode          The CacheMode to use
+     * @param dataType           Nd4j datatype
+     * @param activationLiveness If true: estimate the peak memory when activations (inference) or epsilons
+     *                           (training) are released once their last consumer has run. This is only achieved with
+     *                           WorkspaceMode.NONE. If false: all activations and epsilons are assumed to be kept
+     *                           until the end of the iteration
+     * @return Estimated activation memory in bytes
+     */
+    public long getActivationMemoryBytes(int minibatchSize, @NonNull MemoryUseMode memoryUseMode,
+                    @NonNull CacheMode cacheMode, @NonNull DataBuffer.Type dataType, boolean activationLiveness) {
+        long activations = getMemoryBytes(MemoryType.ACTIVATIONS, minibatchSize, memoryUseMode, cacheMode, dataType);
+        long epsilons = memoryUseMode == MemoryUseMode.TRAINING ? getMemoryBytes(MemoryType.ACTIVATION_GRADIENTS,
+                        minibatchSize, memoryUseMode, cacheMode, dataType) : 0;
+        if (!activationLiveness) {
+            return activations + epsilons;
+        }
+        if (!hasActivationLiveness()) {
+            throw new IllegalStateException("Cannot estimate activation liveness: network structure is not "
+                            + "available for this memory report");
+        }
+
+        if (memoryUseMode == MemoryUseMode.INFERENCE) {
+            return peakLiveBytes(false, MemoryType.ACTIVATIONS, minibatchSize, memoryUseMode, cacheMode, dataType);
+        } else {
+            //All activations are needed for backprop; epsilons are released in the reverse topological order
+            return activations + peakLiveBytes(true, MemoryType.ACTIVATION_GRADIENTS, minibatchSize, memoryUseMode,
+                            cacheMode, dataType);
+        }
+    }
+
+    /**
+     * Get the memory (in bytes) used for activations, plus activation gradients when training, for the given
+     * workspace mode. The activation liveness estimate is used for {@link WorkspaceMode#NONE} if the network structure
+     * is available; with workspaces, activations and epsilons are kept in the workspace until the end of the
+     * iteration, and the full activation memory is returned.
+     *
+     * @param minibatchSize Mini batch size to estimate the memory for
+     * @param memoryUseMode The memory use mode (training or inference)
+     * @param cacheMode     The CacheMode to use
+     * @param dataType      Nd4j datatype
+     * @param workspaceMode Workspace mode of the network for the given memory use mode
+     * @return Estimated activation memory in bytes
+     */
+    public long getActivationMemoryBytes(int minibatchSize, @NonNull MemoryUseMode memoryUseMode,
+                    @NonNull CacheMode cacheMode, @NonNull DataBuffer.Type dataType,
+                    @NonNull WorkspaceMode workspaceMode) {
+        boolean liveness = workspaceMode == WorkspaceMode.NONE && hasActivationLiveness();
+        return getActivationMemoryBytes(minibatchSize, memoryUseMode, cacheMode, dataType, liveness);
+    }
+
+    /**
+     * Get the total memory use in bytes for the given configuration, optionally using the activation liveness
+     * estimate for the activation memory. See {@link #getActivationMemoryBytes(int, MemoryUseMode, CacheMode,
+     * DataBuffer.Type, boolean)}
+     */
+    public long getTotalMemoryBytes(int minibatchSize, @NonNull MemoryUseMode memoryUseMode,
+                    @NonNull CacheMode cacheMode, @NonNull DataBuffer.Type dataType, boolean activationLiveness) {
+        long total = getTotalMemoryBytes(minibatchSize, memoryUseMode, cacheMode, dataType);
+        if (!activationLiveness) {
+            return total;
+        }
+        return total - getActivationMemoryBytes(minibatchSize, memoryUseMode, cacheMode, dataType, false)
+                        + getActivationMemoryBytes(minibatchSize, memoryUseMode, cacheMode, dataType, true);
+    }
+
+    /**
+     * @return True if gradient checkpoints are set for this network
+     */
+    public boolean hasCheckpoints() {
+        return checkpoints != null && !checkpoints.isEmpty();
+    }
+
+    /**
+     * Estimate the memory (in bytes) used for activations plus activation gradients during training with gradient
+     * checkpointing. Only the checkpoint activations are retained for the whole iteration; the activations of the
+     * other layers/vertices are held for one segment (between two checkpoints) at a time. This assumes the
+     * checkpoints split the network, i.e., no activations before a checkpoint are needed after it.
+     *
+     * @param minibatchSize Mini batch size to estimate the memory for
+     * @param cacheMode     The CacheMode to use
+     * @param dataType      Nd4j datatype
+     * @return Estimated activation memory in bytes, for training with gradient checkpointing
+     */
+    public long getCheckpointedActivationMemoryBytes(int minibatchSize, @NonNull CacheMode cacheMode,
+                    @NonNull DataBuffer.Type dataType) {
+        if (!hasCheckpoints()) {
+            throw new IllegalStateException("Cannot estimate gradient checkpointing memory: no checkpoints are set "
+                            + "for this memory report");
+        }
+        MemoryUseMode mode = MemoryUseMode.TRAINING;
+        Iterable<String> order = topologicalOrder != null ? topologicalOrder : layerAndVertexReports.keySet();
+
+        long retained = 0;
+        long maxSegment = 0;
+        long currSegment = 0;
+        for (String s : order) {
+            MemoryReport r = layerAndVertexReports.get(s);
+            long bytes = r == null ? 0 : r.getMemoryBytes(MemoryType.ACTIVATIONS, minibatchSize, mode, cacheMode,
+                            dataType);
+            if (checkpoints.contains(s)) {
+                retained += bytes;
+                maxSegment = Math.max(maxSegment, currSegment);
+                currSegment = 0;
+            } else {
+                currSegment += bytes;
+            }
+        }
+        maxSegment = Math.max(maxSegment, currSegment);
+
+        long epsilons = getMemoryBytes(MemoryType.ACTIVATION_GRADIENTS, minibatchSize, mode, cacheMode, dataType);
+        return retained + maxSegment + epsilons;
+    }
+
+    /**
+     * Estimated training memory saved by gradient checkpointing, in bytes: see
+     * {@link #getCheckpointedActivationMemoryBytes(int, CacheMode, DataBuffer.Type)}
+     */
+    public long getCheckpointingSavingsBytes(int minibatchSize, @NonNull CacheMode cacheMode,
+                    @NonNull DataBuffer.Type dataType) {
+        return getActivationMemoryBytes(minibatchSize, MemoryUseMode.TRAINING, cacheMode, dataType, false)
+                        - getCheckpointedActivationMemoryBytes(minibatchSize, cacheMode, dataType);
+    }
+
+    /**
+     * Peak size of simultaneously live arrays of the given memory type.<br>
+     * Forward: activations of a vertex are live from the vertex until its last consumer.<br>
+     * Backward: epsilons produced by a vertex (with respect to its inputs) are live from the vertex until the last of
+     * its inputs has been backpropagated through.
+     */
+    private long peakLiveBytes(boolean backward, MemoryType memoryType, int minibatchSize,
+                    MemoryUseMode memoryUseMode, CacheMode cacheMode, DataBuffer.Type dataType) {
+        int n = topologicalOrder.size();
+        Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            indices.put(topologicalOrder.get(i), i);
+        }
+
+        int[] order = new int[n];
+        long[] sizes = new long[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = backward ? n - 1 - i : i;
+            MemoryReport r = layerAndVertexReports.get(topologicalOrder.get(i));
+            //Network inputs are owned by the caller, and aren't part of the report
+            sizes[i] = r == null ? 0 : r.getMemoryBytes(memoryType, minibatchSize, memoryUseMode, cacheMode, dataType);
+        }
+
+        List<List<Integer>> consumed = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            consumed.add(new ArrayList<Integer>());
+        }
+        for (Map.Entry<String, List<String>> e : vertexInputs.entrySet()) {
+            Integer vertex = indices.get(e.getKey());
+            if (vertex == null || e.getValue() == null)
+                continue;
+            for (String in : e.getValue()) {
+                int input = indices.get(in);
+                if (backward) {
+                    //Epsilons flow from the vertex to its inputs
+                    consumed.get(input).add(vertex);
+                } else {
+                    consumed.get(vertex).add(input);
+                }
+            }
+        }
+        int[][] consumedBy = new int[n][];
+        for (int i = 0; i < n; i++) {
+            List<Integer> l = consumed.get(i);
+            consumedBy[i] = new int[l.size()];
+            for (int j = 0; j < l.size(); j++) {
+                consumedBy[i][j] = l.get(j);
+            }
+        }
+
+        int[] retained;
+        if (backward) {
+            retained = new int[0];
+        } else {
+            retained = new int[networkOutputs.size()];
+            for (int i = 0; i < retained.length; i++) {
+                retained[i] = indices.get(networkOutputs.get(i));
+            }
+        }
+
+        return new ActivationLiveness(order, consumedBy, retained).peakLiveSize(sizes);
+    }
+
     @Override
     public String toString() {
 
@@ -146,6 +395,32 @@ public class NetworkMemoryReport extends MemoryReport {
         appendFixedPlusVariable(sb, "  Inference Memory (FP32)             ", fixedMemBytes, perEx);
         appendFixedPlusVariable(sb, "  Training Memory (FP32):             ", fixedMemBytesTrain, perExTrain);
 
+        if (hasActivationLiveness()) {
+            long perExAct = getActivationMemoryBytes(1, MemoryUseMode.INFERENCE, CacheMode.NONE,
+                            DataBuffer.Type.FLOAT, false);
+            long perExActLive = getActivationMemoryBytes(1, MemoryUseMode.INFERENCE, CacheMode.NONE,
+                            DataBuffer.Type.FLOAT, true);
+            long perExActTrain = getActivationMemoryBytes(1, MemoryUseMode.TRAINING, CacheMode.NONE,
+                            DataBuffer.Type.FLOAT, false);
+            long perExActTrainLive = getActivationMemoryBytes(1, MemoryUseMode.TRAINING, CacheMode.NONE,
+                            DataBuffer.Type.FLOAT, true);
+
+            sb.append("  Peak Activation Memory (FP32):\n");
+            appendFixedPlusVariable(sb, "  - Inference                         ", 0, perExAct);
+            appendFixedPlusVariable(sb, "  - Inference, WorkspaceMode.NONE     ", 0, perExActLive);
+            appendFixedPlusVariable(sb, "  - Training                          ", 0, perExActTrain);
+            appendFixedPlusVariable(sb, "  - Training, WorkspaceMode.NONE      ", 0, perExActTrainLive);
+        }
+
+        if (hasCheckpoints()) {
+            long perExActTrain = getActivationMemoryBytes(1, MemoryUseMode.TRAINING, CacheMode.NONE,
+                            DataBuffer.Type.FLOAT, false);
+            long perExActCheckpointed = getCheckpointedActivationMemoryBytes(1, CacheMode.NONE, DataBuffer.Type.FLOAT);
+            sb.append("  Gradient Checkpoints:               ").append(checkpoints).append("\n");
+            appendFixedPlusVariable(sb, "  - Training Activation Memory        ", 0, perExActTrain);
+            appendFixedPlusVariable(sb, "  - With Gradient Checkpointing       ", 0, perExActCheckpointed);
+        }
+
         sb.append("  Inference Memory Breakdown (FP32):\n");
         appendBreakDown(sb, MemoryUseMode.INFERENCE, CacheMode.NONE, DataBuffer.Type.FLOAT);
 
@@ -48,14 +48,19 @@ import org.deeplearning4j.nn.graph.vertex.impl.InputVertex;
 import org.deeplearning4j.nn.graph.vertex.impl.LayerVertex;
 import org.deeplearning4j.nn.layers.FrozenLayer;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.updater.LossScaler;
+import org.deeplearning4j.nn.updater.MasterWeights;
 import org.deeplearning4j.nn.updater.graph.ComputationGraphUpdater;
 import org.deeplearning4j.optimize.Solver;
 import org.deeplearning4j.optimize.api.ConvexOptimizer;
 import org.deeplearning4j.optimize.api.IterationListener;
 import org.deeplearning4j.optimize.api.TrainingListener;
 import org.deeplearning4j.optimize.solvers.accumulation.GradientsAccumulator;
+import org.deeplearning4j.util.ActivationLiveness;
+import org.deeplearning4j.util.GradientCheckpointUtils;
 import org.deeplearning4j.util.ModelSerializer;
 import org.deeplearning4j.util.NetworkUtils;
+import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
 import org.nd4j.linalg.api.memory.enums.*;
@@ -103,6 +108,13 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
     @Setter
     private boolean initDone = false;
     protected boolean clearTbpttState = true;  //Mainly for unit testing (should be enabled otherwise)
+    /**
+     * If true: activations and epsilons are released once their last consumer has run, during output() and
+     * supervised backprop, checkpointed or not (see {@link #getActivationLiveness()}). Only applies when the workspace
+     * mode of the pass is WorkspaceMode.NONE: with workspaces, released arrays would still occupy the workspace until
+     * the end of the pass, so they are kept. Mainly for unit testing (should be enabled otherwise)
+     */
+    protected boolean releaseActivations = true;
 
     public final static String WORKSPACE_CACHE = "LOOP_CACHE";
     public final static String WORKSPACE_EXTERNAL = "LOOP_EXTERNAL";
@@ -150,6 +162,21 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
      * (and hence also backward pass, which is the opposite to this) is conducted in the network.
      */
     protected int[] topologicalOrder;
+    /**
+     * Liveness of vertex activations over the topological order: used to release activations (and epsilons) as soon
+     * as their last consumer has run. Built lazily, see {@link #getActivationLiveness()}
+     */
+    protected transient ActivationLiveness activationLiveness;
+    /**
+     * Gradient checkpointing: segments of the topological order, as [first, last] positions (inclusive), and for each
+     * vertex (by index) its segment and whether its output activations must be retained during the checkpointed
+     * forward pass
+     */
+    protected transient int[][] checkpointSegments;
+    protected transient int[] checkpointSegmentOf;
+    protected transient boolean[] checkpointRetained;
+    protected transient LossScaler lossScaler; //Loss scaling state for mixed precision training
+    protected transient MasterWeights masterWeights; //FP32 parameters copy for mixed precision training
     /**
      * A list of layers. Each of these layers is present in a GraphVertex, but are here for easy reference.
      * This array also defines the order in which the getLayer(int) method returns layers.
@@ -397,6 +424,11 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
             workspaceConfigurationCache.setPolicyMirroring(MirroringPolicy.HOST_ONLY);
         }
 
+        if (configuration.getMixedPrecision() != null && Nd4j.dataType() != DataBuffer.Type.HALF) {
+            OneTimeLogger.warn(log, "Mixed precision training is enabled, but global data type is {}: use "
+                + "Nd4j.setDataType(DataBuffer.Type.HALF) for half precision computation", Nd4j.dataType());
+        }
+
         //First: build topological ordering, based on configuration. Used for forward pass, backprop and order of parameters/gradients
         topologicalOrder = topologicalSortOrder();
 
@@ -1317,6 +1349,41 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         return out;
     }
 
+    /**
+     * Get the liveness of the vertex activations over the topological order of the network. Network output
+     * activations are retained until the end of the forward pass; all other activations are no longer needed
+     * once the last vertex consuming them has been executed.
+     *
+     * @return Activation liveness for this network
+     */
+    public ActivationLiveness getActivationLiveness() {
+        if (activationLiveness == null) {
+            if (topologicalOrder == null)
+                topologicalOrder = topologicalSortOrder();
+
+            int[][] vertexInputs = new int[vertices.length][];
+            for (GraphVertex gv : vertices) {
+                VertexIndices[] in = gv.getInputVertices();
+                if (gv.isInputVertex() || in == null)
+                    continue;
+                int[] idxs = new int[in.length];
+                for (int j = 0; j < in.length; j++) {
+                    idxs[j] = in[j].getVertexIndex();
+                }
+                vertexInputs[gv.getVertexIndex()] = idxs;
+            }
+
+            List<String> outputNames = configuration.getNetworkOutputs();
+            int[] retained = new int[outputNames.size()];
+            for (int i = 0; i < retained.length; i++) {
+                retained[i] = verticesMap.get(outputNames.get(i)).getVertexIndex();
+            }
+
+            activationLiveness = new ActivationLiveness(topologicalOrder, vertexInputs, retained);
+        }
+        return activationLiveness;
+    }
+
     @Override
     public void computeGradientAndScore() {
         synchronizeIterEpochCounts();
@@ -1345,6 +1412,19 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                     }
                 }
                 calcBackpropGradients(true);
+            } else if (useGradientCheckpointing()) {
+                //Gradient checkpointing: only the checkpoint activations are retained in the forward pass; the others
+                // are recomputed segment by segment during backprop
+                long[] segmentSeeds = new long[getCheckpointSegments().length];
+                Map<String, INDArray> activations = feedForwardCheckpointed(segmentSeeds);
+                if (!trainingListeners.isEmpty()) {
+                    try (MemoryWorkspace workspace = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                        for (TrainingListener tl : trainingListeners) {
+                            tl.onForwardPass(this, activations);
+                        }
+                    }
+                }
+                calcBackpropGradientsCheckpointed(segmentSeeds);
             } else {
                 Map<String, INDArray> activations = feedForward(true, true, false, false);
                 if (!trainingListeners.isEmpty()) {
@@ -1565,6 +1645,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                                                 boolean includeNonLayerVertexActivations, boolean publicApi) {
         return feedForward(train,excludeOutputLayers,includeNonLayerVertexActivations,publicApi,-1);
     }
+
     /**
      * PLEASE NEVER USE THIS METHOD IF YOU"RE NOT SURE WHAT YOU'll GET
      *
@@ -1572,6 +1653,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
      * @param excludeOutputLayers
      * @param includeNonLayerVertexActivations
      * @param publicApi
+     * @param layerFeedForwardIdx
      * @return
      */
     protected Map<String, INDArray> feedForward(boolean train,
@@ -1579,9 +1661,36 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                                                 boolean includeNonLayerVertexActivations,
                                                 boolean publicApi,
                                                 int layerFeedForwardIdx) {
+        return feedForward(train, excludeOutputLayers, includeNonLayerVertexActivations, publicApi,
+                        layerFeedForwardIdx, false);
+    }
+
+    /**
+     * PLEASE NEVER USE THIS METHOD IF YOU"RE NOT SURE WHAT YOU'll GET
+     *
+     * @param train
+     * @param excludeOutputLayers
+     * @param includeNonLayerVertexActivations
+     * @param publicApi
+     * @param layerFeedForwardIdx
+     * @param releaseActivations If true: release each activation once its last consumer has run (see
+     *                           {@link #getActivationLiveness()}). Only the network outputs are then present in the
+     *                           returned map, and layer inputs are not retained - i.e., not usable for backprop.
+     *                           Ignored unless the workspace mode is WorkspaceMode.NONE
+     * @return
+     */
+    protected Map<String, INDArray> feedForward(boolean train,
+                                                boolean excludeOutputLayers,
+                                                boolean includeNonLayerVertexActivations,
+                                                boolean publicApi,
+                                                int layerFeedForwardIdx,
+                                                boolean releaseActivations) {
         Map<String, INDArray> layerActivations = new HashMap<>();
 
         WorkspaceMode wsm = configuration.getTrainingWorkspaceMode();
+        //Releasing only frees memory without workspaces: workspace arrays are only reclaimed at the end of the pass
+        releaseActivations &= wsm == WorkspaceMode.NONE;
+        int[][] releasedAfter = releaseActivations ? getActivationLiveness().getReleasedAfter() : null;
         MemoryWorkspace workspace;
         switch(wsm){
             case NONE:
@@ -1734,6 +1843,10 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                 }
             }
 
+            if (releaseActivations) {
+                releaseForwardActivations(current, releasedAfter[i], layerActivations);
+            }
+
             if(layerFeedForwardIdx > 0 && current.getVertexIndex() == layerFeedForwardIdx) break;
 
         }
@@ -1749,6 +1862,36 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         return layerActivations;
     }
 
+    /**
+     * Drop all references to activations that are no longer needed once the given vertex has been executed: the
+     * inputs held by the vertex (and its layer), and any activations whose last consumer was this vertex.
+     * Network outputs are never released.
+     */
+    private void releaseForwardActivations(GraphVertex current, int[] released, Map<String, INDArray> layerActivations) {
+        if (!current.isInputVertex()) {
+            current.clear();
+            if (current.hasLayer() && !current.isOutputVertex()) {
+                current.getLayer().clear();
+            }
+        }
+        for (int v : released) {
+            layerActivations.remove(vertices[v].getVertexName());
+        }
+    }
+
+    /**
+     * Drop all references to activations and epsilons that are no longer needed once the given vertex has been
+     * backpropagated through. Output vertices are left as-is, as their layers are needed for score calculation.
+     */
+    private void releaseBackwardActivations(GraphVertex current) {
+        if (current.isOutputVertex())
+            return;
+        current.clear();
+        if (current.hasLayer()) {
+            current.getLayer().clear();
+        }
+    }
+
     /**
      * Return an array of network outputs (predictions) at test time, given the specified network inputs
      * Network outputs are for output layers only.
@@ -1830,9 +1973,24 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         }
     }
 
+    /**
+     * Build a frozen, inference-only execution plan for this network. The plan shares this network's parameters,
+     * precomputes the vertex schedule and activation liveness, and stores activations with disjoint lifetimes in
+     * shared buffers, which are reused across calls.
+     * See {@link InferencePlan} for details.
+     *
+     * @return Inference plan for this network
+     */
+    public InferencePlan inferencePlan() {
+        if (!initCalled)
+            init();
+        return new InferencePlan(this);
+    }
+
     protected INDArray[] silentOutput(boolean train, INDArray... input) {
         setInputs(input);
-        Map<String, INDArray> activations = feedForward(train, false, false, false);
+        //Only the network outputs are returned: intermediate activations can be released as soon as they are consumed
+        Map<String, INDArray> activations = feedForward(train, false, false, false, -1, releaseActivations);
         INDArray[] outputs = new INDArray[numOutputArrays];
         int i = 0;
         for (String s : configuration.getNetworkOutputs()) {
@@ -1972,6 +2130,12 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
             wsExternalActive = Nd4j.getWorkspaceManager().checkIfWorkspaceExistsAndActive(WORKSPACE_EXTERNAL);
         }
 
+        //Standard supervised case: activations and epsilons of a vertex aren't needed once it has been backpropagated
+        // through. For external errors, the caller may still use the layer inputs afterwards, so keep them. As in
+        // feedForward, this is only done without workspaces
+        boolean releaseBackprop = releaseActivations && wsm == WorkspaceMode.NONE
+                        && (externalEpsilons == null || externalEpsilons.length == 0);
+
         //Do backprop according to the reverse of the topological ordering of the network
         boolean[] setVertexEpsilon = new boolean[topologicalOrder.length]; //If true: already set epsilon for this vertex; later epsilons should be *added* to the existing one, not set
         for (int i = topologicalOrder.length - 1; i >= 0; i--) {
@@ -2011,6 +2175,9 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
 
                 Pair<Gradient, INDArray[]> pair = current.doBackward(truncatedBPTT);
                 INDArray[] epsilons = pair.getSecond();
+                if (current.isOutputVertex()) {
+                    scaleLoss(pair);
+                }
 
                 for (int x = 0; x < epsilons.length; x++) {
                     if (epsilons[x] == null) {
@@ -2082,6 +2249,10 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                     for (Triple<String, INDArray, Character> t : tempList)
                         gradients.addFirst(t);
                 }
+
+                if (releaseBackprop) {
+                    releaseBackwardActivations(current);
+                }
             }
         }
 
@@ -2106,6 +2277,327 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         }
     }
 
+    /**
+     * Get the loss scaling state used for mixed precision training (see
+     * {@link ComputationGraphConfiguration.GraphBuilder#mixedPrecision(org.deeplearning4j.nn.conf.MixedPrecision)})
+     *
+     * @return Loss scaler, or null if mixed precision training is not enabled
+     */
+    public LossScaler getLossScaler() {
+        if (lossScaler == null && configuration.getMixedPrecision() != null) {
+            lossScaler = new LossScaler(configuration.getMixedPrecision());
+        }
+        return lossScaler;
+    }
+
+    /**
+     * Get the single precision master copy of the parameters used for mixed precision training (see
+     * {@link org.deeplearning4j.nn.conf.MixedPrecision.Builder#masterWeights(boolean)})
+     *
+     * @return Master weights, or null if mixed precision training or master weights are not enabled
+     */
+    public MasterWeights getMasterWeights() {
+        MixedPrecision mp = configuration.getMixedPrecision();
+        if (masterWeights == null && mp != null && mp.isMasterWeights()) {
+            masterWeights = new MasterWeights();
+        }
+        return masterWeights;
+    }
+
+    /**
+     * Mixed precision training: scale the gradients and epsilons of an output vertex by the current loss scale. The
+     * gradients are unscaled again by the updater
+     */
+    private void scaleLoss(Pair<Gradient, INDArray[]> outputVertexGradients) {
+        LossScaler scaler = getLossScaler();
+        if (scaler != null) {
+            scaler.scale(outputVertexGradients.getFirst(), outputVertexGradients.getSecond());
+        }
+    }
+
+    private boolean useGradientCheckpointing() {
+        List<String> checkpoints = configuration.getCheckpointVertices();
+        if (checkpoints == null || checkpoints.isEmpty())
+            return false;
+        for (String s : configuration.getNetworkOutputs()) {
+            GraphVertex gv = verticesMap.get(s);
+            if (!gv.hasLayer() || !(gv.getLayer() instanceof IOutputLayer))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Segments of the topological order used for gradient checkpointing, as [first, last] positions (inclusive).
+     * Each segment ends at one of the configured checkpoint vertices
+     */
+    protected int[][] getCheckpointSegments() {
+        if (checkpointSegments == null) {
+            if (topologicalOrder == null)
+                topologicalOrder = topologicalSortOrder();
+
+            int[] position = new int[vertices.length];
+            for (int i = 0; i < topologicalOrder.length; i++) {
+                position[topologicalOrder[i]] = i;
+            }
+
+            List<String> names = configuration.getCheckpointVertices();
+            int[] checkpoints = new int[names.size()];
+            for (int i = 0; i < checkpoints.length; i++) {
+                checkpoints[i] = position[verticesMap.get(names.get(i)).getVertexIndex()];
+            }
+            int[][] segments = GradientCheckpointUtils.segments(checkpoints, topologicalOrder.length);
+
+            int[] segmentOf = new int[vertices.length];
+            for (int s = 0; s < segments.length; s++) {
+                for (int p = segments[s][0]; p <= segments[s][1]; p++) {
+                    segmentOf[topologicalOrder[p]] = s;
+                }
+            }
+
+            //An activation is retained if it is a network input or checkpoint, if it is used in a later segment,
+            // or if it is the input to an output layer (needed after backprop for the score)
+            boolean[] retained = new boolean[vertices.length];
+            for (int i = 0; i < checkpoints.length; i++) {
+                retained[topologicalOrder[checkpoints[i]]] = true;
+            }
+            for (GraphVertex gv : vertices) {
+                if (gv.isInputVertex()) {
+                    retained[gv.getVertexIndex()] = true;
+                }
+                VertexIndices[] outputsTo = gv.getOutputVertices();
+                if (outputsTo == null)
+                    continue;
+                for (VertexIndices v : outputsTo) {
+                    GraphVertex consumer = vertices[v.getVertexIndex()];
+                    if (segmentOf[v.getVertexIndex()] != segmentOf[gv.getVertexIndex()]
+                                    || (consumer.isOutputVertex() && consumer.getLayer() instanceof IOutputLayer)) {
+                        retained[gv.getVertexIndex()] = true;
+                    }
+                }
+            }
+
+            checkpointSegments = segments;
+            checkpointSegmentOf = segmentOf;
+            checkpointRetained = retained;
+        }
+        return checkpointSegments;
+    }
+
+    /**
+     * Forward pass (training) for gradient checkpointing. Each segment of the topological order is executed in a
+     * single workspace scope; only the retained activations (see {@link #getCheckpointSegments()}) outlive the segment.
+     * Output layers are not executed, as per {@link #feedForward(boolean, boolean)} with excludeOutputLayers = true
+     *
+     * @param segmentSeeds Output: RNG seed used for each segment, so that dropout etc. are identical on recomputation
+     * @return Retained activations of the layer vertices, by vertex name
+     */
+    protected Map<String, INDArray> feedForwardCheckpointed(long[] segmentSeeds) {
+        int[][] segments = getCheckpointSegments();
+        Map<String, INDArray> layerActivations = new HashMap<>();
+        MemoryWorkspace workspace = checkpointSegmentWorkspace();
+
+        for (int s = 0; s < segments.length; s++) {
+            segmentSeeds[s] = Nd4j.getRandom().nextLong();
+            Nd4j.getRandom().setSeed(segmentSeeds[s]);
+
+            try (MemoryWorkspace ws = workspace.notifyScopeEntered()) {
+                for (int i = segments[s][0]; i <= segments[s][1]; i++) {
+                    GraphVertex current = vertices[topologicalOrder[i]];
+                    INDArray out;
+                    if (current.isInputVertex()) {
+                        out = inputs[current.getVertexIndex()].leverageOrDetach(WORKSPACE_EXTERNAL);
+                    } else if (current.isOutputVertex() && current.getLayer() instanceof IOutputLayer) {
+                        continue;
+                    } else {
+                        out = current.doForward(true);
+                        if (checkpointRetained[current.getVertexIndex()]) {
+                            out = out.leverageOrDetach(WORKSPACE_EXTERNAL);
+                        }
+                    }
+
+                    if (checkpointRetained[current.getVertexIndex()] && (current.isInputVertex() || current.hasLayer())) {
+                        layerActivations.put(current.getVertexName(), out);
+                    }
+                    setCheckpointedOutputs(current, out, -1);
+                }
+            }
+        }
+
+        return layerActivations;
+    }
+
+    /**
+     * Backprop for gradient checkpointing: the activations of each segment are recomputed (in reverse segment order)
+     * from the retained activations, and then backpropagated through, in the same workspace scope.
+     * Supervised learning only (all network outputs are output layers)
+     *
+     * @param segmentSeeds RNG seeds used for each segment in the forward pass
+     */
+    protected void calcBackpropGradientsCheckpointed(long[] segmentSeeds) {
+        if (flattenedGradients == null) {
+            initGradientsView();
+        }
+
+        int[][] segments = getCheckpointSegments();
+        MemoryWorkspace workspace = checkpointSegmentWorkspace();
+        LinkedList<Triple<String, INDArray, Character>> gradients = new LinkedList<>();
+        boolean[] setVertexEpsilon = new boolean[topologicalOrder.length];
+        boolean frozen = false;
+        //As per calcBackpropGradients: activations of a vertex are released once it has been backpropagated through
+        boolean releaseBackprop = releaseActivations && configuration.getTrainingWorkspaceMode() == WorkspaceMode.NONE;
+
+        for (int s = segments.length - 1; s >= 0 && !frozen; s--) {
+            int first = segments[s][0];
+            int last = segments[s][1];
+            try (MemoryWorkspace ws = workspace.notifyScopeEntered()) {
+                //Recompute the segment activations, with the same RNG state (dropout, weight noise) as the forward pass
+                List<Layer> segmentLayers = new ArrayList<>();
+                for (int i = first; i <= last; i++) {
+                    GraphVertex current = vertices[topologicalOrder[i]];
+                    if (current.hasLayer()) {
+                        segmentLayers.add(current.getLayer());
+                        current.getLayer().clearNoiseWeightParams();
+                    }
+                }
+                List<Pair<INDArray, INDArray>> state = GradientCheckpointUtils
+                                .snapshotForwardState(segmentLayers.toArray(new Layer[segmentLayers.size()]));
+                Nd4j.getRandom().setSeed(segmentSeeds[s]);
+                for (int i = first; i <= last; i++) {
+                    GraphVertex current = vertices[topologicalOrder[i]];
+                    if (current.isInputVertex() || (current.isOutputVertex() && current.getLayer() instanceof IOutputLayer))
+                        continue;
+                    setCheckpointedOutputs(current, current.doForward(true), s);
+                }
+                GradientCheckpointUtils.restoreForwardState(state);
+
+                for (int i = last; i >= first; i--) {
+                    GraphVertex current = vertices[topologicalOrder[i]];
+                    if (current.isInputVertex())
+                        continue;
+                    if (current.hasLayer() && current.getLayer() instanceof FrozenLayer) {
+                        frozen = true;
+                        break;
+                    }
+
+                    if (current.isOutputVertex()) {
+                        int thisOutputNumber = configuration.getNetworkOutputs().indexOf(current.getVertexName());
+                        ((IOutputLayer) current.getLayer()).setLabels(labels[thisOutputNumber]);
+                    }
+
+                    Pair<Gradient, INDArray[]> pair = current.doBackward(false);
+                    INDArray[] epsilons = pair.getSecond();
+                    if (current.isOutputVertex()) {
+                        scaleLoss(pair);
+                    }
+
+                    VertexIndices[] inputVertices = current.getInputVertices();
+                    if (inputVertices != null) {
+                        for (int j = 0; j < inputVertices.length; j++) {
+                            GraphVertex gv = vertices[inputVertices[j].getVertexIndex()];
+                            INDArray eps = epsilons[j];
+                            //Epsilons for vertices in earlier segments must survive this segment's workspace scope
+                            boolean external = checkpointSegmentOf[gv.getVertexIndex()] != s;
+                            if (external && eps != null) {
+                                eps = eps.leverageOrDetach(WORKSPACE_EXTERNAL);
+                            }
+                            if (setVertexEpsilon[gv.getVertexIndex()]) {
+                                if (external && Nd4j.getWorkspaceManager().checkIfWorkspaceExistsAndActive(WORKSPACE_EXTERNAL)) {
+                                    try (MemoryWorkspace wsB = Nd4j.getWorkspaceManager()
+                                                    .getWorkspaceForCurrentThread(WORKSPACE_EXTERNAL)
+                                                    .notifyScopeBorrowed()) {
+                                        gv.setEpsilon(gv.getEpsilon().add(eps));
+                                    }
+                                } else {
+                                    gv.setEpsilon(gv.getEpsilon().add(eps));
+                                }
+                            } else {
+                                gv.setEpsilon(eps);
+                            }
+                            setVertexEpsilon[gv.getVertexIndex()] = true;
+                        }
+                    }
+
+                    if (pair.getFirst() != null) {
+                        Gradient g = pair.getFirst();
+                        LinkedList<Triple<String, INDArray, Character>> tempList = new LinkedList<>();
+                        for (Map.Entry<String, INDArray> entry : g.gradientForVariable().entrySet()) {
+                            String origName = entry.getKey();
+                            tempList.addFirst(new Triple<>(current.getVertexName() + "_" + origName, entry.getValue(),
+                                            g.flatteningOrderForVariable(origName)));
+                        }
+                        for (Triple<String, INDArray, Character> t : tempList)
+                            gradients.addFirst(t);
+                    }
+
+                    if (releaseBackprop) {
+                        releaseBackwardActivations(current);
+                    }
+                }
+            }
+        }
+
+        Gradient gradient = new DefaultGradient(flattenedGradients);
+        for (Triple<String, INDArray, Character> t : gradients) {
+            gradient.setGradientFor(t.getFirst(), t.getSecond(), t.getThird());
+        }
+
+        if (configuration.getTrainingWorkspaceMode() == WorkspaceMode.SEPARATE)
+            Nd4j.getWorkspaceManager().getWorkspaceForCurrentThread(WORKSPACE_FEED_FORWARD).initializeWorkspace();
+
+        this.gradient = gradient;
+
+        for (GraphVertex gv : vertices) {
+            gv.clear();
+        }
+    }
+
+    /**
+     * Set the output of a vertex as the input of the vertices it feeds into. Retained activations are set in the
+     * scope of workspace external, as their consumers may be executed in a later segment.
+     *
+     * @param onlySegment If >= 0: only set the inputs of vertices in this segment, other than output layers (whose
+     *                    inputs were set in the forward pass, and are still required for the score)
+     */
+    private void setCheckpointedOutputs(GraphVertex current, INDArray out, int onlySegment) {
+        VertexIndices[] outputsTo = current.getOutputVertices();
+        if (outputsTo == null)
+            return;
+        boolean toExternal = onlySegment < 0 && checkpointRetained[current.getVertexIndex()]
+                        && Nd4j.getWorkspaceManager().checkIfWorkspaceExistsAndActive(WORKSPACE_EXTERNAL);
+        for (VertexIndices v : outputsTo) {
+            GraphVertex consumer = vertices[v.getVertexIndex()];
+            if (onlySegment >= 0) {
+                if (consumer.isOutputVertex() && consumer.getLayer() instanceof IOutputLayer)
+                    continue;
+                if (checkpointSegmentOf[v.getVertexIndex()] != onlySegment)
+                    continue;
+            }
+            if (toExternal) {
+                try (MemoryWorkspace wsB = Nd4j.getWorkspaceManager().getWorkspaceForCurrentThread(WORKSPACE_EXTERNAL)
+                                .notifyScopeBorrowed()) {
+                    consumer.setInput(v.getVertexEdgeNumber(), out);
+                }
+            } else {
+                consumer.setInput(v.getVertexEdgeNumber(), out);
+            }
+        }
+    }
+
+    private MemoryWorkspace checkpointSegmentWorkspace() {
+        WorkspaceMode wsm = configuration.getTrainingWorkspaceMode();
+        switch (wsm) {
+            case NONE:
+                return new DummyWorkspace();
+            case SINGLE:
+                return Nd4j.getWorkspaceManager().getWorkspaceForCurrentThread(workspaceConfigurationExternal, WORKSPACE_EXTERNAL);
+            case SEPARATE:
+                return Nd4j.getWorkspaceManager().getWorkspaceForCurrentThread(workspaceConfigurationFeedForward, WORKSPACE_FEED_FORWARD);
+            default:
+                throw new RuntimeException("Unknown workspace mode: " + wsm);
+        }
+    }
+
     @Override
     public ComputationGraph clone() {
         ComputationGraph cg = new ComputationGraph(configuration.clone());
@@ -0,0 +1,320 @@
+package org.deeplearning4j.nn.graph;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.graph.vertex.GraphVertex;
+import org.deeplearning4j.nn.graph.vertex.VertexIndices;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
+import org.nd4j.linalg.api.memory.enums.AllocationPolicy;
+import org.nd4j.linalg.api.memory.enums.LearningPolicy;
+import org.nd4j.linalg.api.memory.enums.ResetPolicy;
+import org.nd4j.linalg.api.memory.enums.SpillPolicy;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A frozen, inference-only execution plan for a trained {@link ComputationGraph}.<br>
+ * The plan is built once: the vertex schedule, the input sources of every vertex and the liveness of every activation
+ * are resolved up front, so a forward pass is a plain loop over arrays - no map lookups, no topological sort and no
+ * workspace mode switching.<br>
+ * Activations are stored in buffer slots: an activation is live from the step producing it until the step of its
+ * last consumer (network outputs until the end of the pass), and activations with disjoint live intervals share the
+ * same slot. Each vertex is executed in a dedicated workspace holding only its working memory, which is reset after
+ * every step; its output is then copied into its slot. Slots and the workspace grow to the largest size seen, so
+ * repeated calls with the same input shapes don't allocate any new memory, and the activation memory is the sum of
+ * the slot sizes rather than the sum of all activations.<br>
+ * The plan shares the parameters of the source network (they are not copied), but holds none of its training state:
+ * no gradient view, no updater, no solver.
+ * <p>
+ * Instances are not thread safe - calls are serialized. Use one plan per thread for parallel inference.
+ *
+ * @see ComputationGraph#inferencePlan()
+ */
+@Slf4j
+public class InferencePlan {
+    private static final AtomicInteger planCounter = new AtomicInteger(0);
+
+    private static final WorkspaceConfiguration workspaceConfiguration = WorkspaceConfiguration.builder()
+            .initialSize(0).overallocationLimit(0.2).policyReset(ResetPolicy.BLOCK_LEFT)
+            .policyAllocation(AllocationPolicy.OVERALLOCATE).policySpill(SpillPolicy.REALLOCATE)
+            .policyLearning(LearningPolicy.OVER_TIME).build();
+
+    private final ComputationGraph graph;
+    private final GraphVertex[] vertices;
+    private final String workspaceId;
+
+    private final int numInputs;
+    /** Vertex indices of the non-input vertices, in execution order */
+    private final int[] schedule;
+    /** For each step of the schedule: vertex index feeding each input of the vertex */
+    private final int[][] inputSources;
+    /** Vertex indices of the network outputs */
+    private final int[] outputs;
+    /** For each step of the schedule: buffer slot holding the output activations of the vertex */
+    private final int[] slotOf;
+
+    private final DataBuffer[] slots;
+    /** For each step of the schedule: output array of the last call, and the slot buffer backing it */
+    private final INDArray[] stepOutputs;
+    private final DataBuffer[] stepBuffers;
+    private final INDArray[] activations;
+    private boolean masksSet = false;
+
+    /**
+     * Build an inference plan for the given (initialized) network
+     *
+     * @param trained Network to build the plan for. Parameters are shared, not copied
+     */
+    public InferencePlan(@NonNull ComputationGraph trained) {
+        if (trained.params() == null && trained.numParams() > 0)
+            throw new IllegalStateException("Network must be initialized before building an inference plan");
+
+        //Separate graph instance: vertices hold per-call state (inputs, masks), so they can't be shared with the
+        // source network. Only the parameters are shared
+        this.graph = new ComputationGraph(trained.getConfiguration().clone());
+        this.graph.init(trained.params(), false);
+
+        this.vertices = graph.getVertices();
+        this.numInputs = graph.getNumInputArrays();
+        this.workspaceId = "INFERENCE_PLAN_" + planCounter.getAndIncrement();
+
+        int[] topologicalOrder = graph.topologicalSortOrder();
+        int[][] vertexInputs = new int[vertices.length][];
+        for (GraphVertex v : vertices) {
+            VertexIndices[] in = v.getInputVertices();
+            if (in == null || v.isInputVertex())
+                continue;
+            int[] idxs = new int[in.length];
+            for (int j = 0; j < in.length; j++) {
+                idxs[j] = in[j].getVertexIndex();
+            }
+            vertexInputs[v.getVertexIndex()] = idxs;
+        }
+
+        List<String> outputNames = graph.getConfiguration().getNetworkOutputs();
+        this.outputs = new int[outputNames.size()];
+        for (int i = 0; i < outputs.length; i++) {
+            outputs[i] = graph.getVertex(outputNames.get(i)).getVertexIndex();
+        }
+
+        int nSteps = topologicalOrder.length - numInputs;
+        this.schedule = new int[nSteps];
+        this.inputSources = new int[nSteps][];
+        int step = 0;
+        for (int i = 0; i < topologicalOrder.length; i++) {
+            GraphVertex v = vertices[topologicalOrder[i]];
+            if (v.isInputVertex())
+                continue;
+            schedule[step] = v.getVertexIndex();
+            inputSources[step] = vertexInputs[v.getVertexIndex()];
+            step++;
+        }
+
+        this.slotOf = assignSlots(schedule, inputSources, outputs, vertices.length);
+        int nSlots = 0;
+        for (int slot : slotOf) {
+            nSlots = Math.max(nSlots, slot + 1);
+        }
+        this.slots = new DataBuffer[nSlots];
+        this.stepOutputs = new INDArray[nSteps];
+        this.stepBuffers = new DataBuffer[nSteps];
+        this.activations = new INDArray[vertices.length];
+    }
+
+    /**
+     * Assign a buffer slot to the output of every step, so that activations sharing a slot have disjoint live
+     * intervals: a step's output is live from that step until the last step consuming it. Greedy assignment in
+     * schedule order, reusing the first slot whose current activation is dead
+     */
+    private static int[] assignSlots(int[] schedule, int[][] inputSources, int[] outputs, int nVertices) {
+        int[] lastUse = new int[nVertices];
+        for (int s = 0; s < schedule.length; s++) {
+            lastUse[schedule[s]] = s;
+        }
+        for (int s = 0; s < schedule.length; s++) {
+            for (int src : inputSources[s]) {
+                lastUse[src] = Math.max(lastUse[src], s);
+            }
+        }
+        for (int out : outputs) {
+            lastUse[out] = Integer.MAX_VALUE;
+        }
+
+        int[] slotOf = new int[schedule.length];
+        List<Integer> busyUntil = new ArrayList<>();
+        for (int s = 0; s < schedule.length; s++) {
+            int slot = -1;
+            for (int k = 0; k < busyUntil.size() && slot < 0; k++) {
+                //Strictly before this step: the inputs of this step are still being read when its output is written
+                if (busyUntil.get(k) < s)
+                    slot = k;
+            }
+            if (slot < 0) {
+                slot = busyUntil.size();
+                busyUntil.add(0);
+            }
+            busyUntil.set(slot, lastUse[schedule[s]]);
+            slotOf[s] = slot;
+        }
+        return slotOf;
+    }
+
+    /**
+     * @return Number of vertices executed per forward pass (excluding network inputs)
+     */
+    public int numSteps() {
+        return schedule.length;
+    }
+
+    /**
+     * @return Number of buffer slots holding the activations of a forward pass
+     */
+    public int numSlots() {
+        return slots.length;
+    }
+
+    /**
+     * Generate network outputs for the given inputs. Returned arrays are detached copies, i.e. not backed by the plan
+     * buffers.
+     *
+     * @param input Network inputs
+     * @return Network outputs, in the order defined in the network configuration
+     */
+    public INDArray[] output(@NonNull INDArray... input) {
+        return output(input, null);
+    }
+
+    /**
+     * Generate network outputs for the given inputs and input masks. Returned arrays are detached copies, i.e. not
+     * backed by the plan buffers.
+     *
+     * @param input      Network inputs
+     * @param inputMasks Input mask arrays. May be null
+     * @return Network outputs, in the order defined in the network configuration
+     */
+    public synchronized INDArray[] output(@NonNull INDArray[] input, INDArray[] inputMasks) {
+        INDArray[] out = new INDArray[outputs.length];
+        try {
+            execute(input, inputMasks);
+            try (MemoryWorkspace scope = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                for (int i = 0; i < outputs.length; i++) {
+                    out[i] = activations[outputs[i]].dup();
+                }
+            }
+        } finally {
+            clearState();
+        }
+        return out;
+    }
+
+    /**
+     * Generate network outputs for the given inputs, writing them into the provided arrays. With preallocated output
+     * arrays, and after the first call for a given input shape, this method doesn't allocate any new memory.
+     *
+     * @param input      Network inputs
+     * @param inputMasks Input mask arrays. May be null
+     * @param output     Arrays to write the network outputs into. Must have the shapes of the network outputs
+     */
+    public synchronized void output(@NonNull INDArray[] input, INDArray[] inputMasks, @NonNull INDArray[] output) {
+        if (output.length != outputs.length)
+            throw new IllegalArgumentException("Invalid number of output arrays: network has " + outputs.length
+                    + " outputs, got " + output.length + " arrays");
+
+        try {
+            execute(input, inputMasks);
+            for (int i = 0; i < outputs.length; i++) {
+                INDArray act = activations[outputs[i]];
+                if (!Arrays.equals(act.shape(), output[i].shape()))
+                    throw new IllegalArgumentException("Invalid shape for output array " + i + ": expected "
+                            + Arrays.toString(act.shape()) + ", got " + Arrays.toString(output[i].shape()));
+                output[i].assign(act);
+            }
+        } finally {
+            clearState();
+        }
+    }
+
+    /**
+     * Run the schedule. Activations are left in their slots
+     */
+    private void execute(INDArray[] input, INDArray[] inputMasks) {
+        if (input.length != numInputs)
+            throw new IllegalArgumentException("Invalid number of inputs: network has " + numInputs
+                    + " inputs, got " + input.length);
+
+        if (inputMasks != null) {
+            graph.setLayerMaskArrays(inputMasks, null);
+            masksSet = true;
+        }
+
+        //Preprocessors need the minibatch size, which the graph derives from its inputs
+        graph.setInputs(input);
+        System.arraycopy(input, 0, activations, 0, numInputs);
+
+        for (int s = 0; s < schedule.length; s++) {
+            GraphVertex v = vertices[schedule[s]];
+            int[] sources = inputSources[s];
+            for (int j = 0; j < sources.length; j++) {
+                v.setInput(j, activations[sources[j]]);
+            }
+
+            //Working memory of the vertex only: the workspace is reset when the step is done
+            try (MemoryWorkspace ws = Nd4j.getWorkspaceManager().getAndActivateWorkspace(workspaceConfiguration,
+                            workspaceId)) {
+                INDArray out = v.doForward(false);
+                INDArray slotted = stepOutput(s, out);
+                slotted.assign(out);
+                activations[schedule[s]] = slotted;
+            }
+        }
+    }
+
+    /**
+     * Output array of the given step, backed by its slot. The slot is grown if needed, and the array is reused as
+     * long as the output shape doesn't change
+     */
+    private INDArray stepOutput(int step, INDArray out) {
+        int slot = slotOf[step];
+        INDArray current = stepOutputs[step];
+        if (current != null && stepBuffers[step] == slots[slot] && current.ordering() == out.ordering()
+                        && Arrays.equals(current.shape(), out.shape()))
+            return current;
+
+        try (MemoryWorkspace scope = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+            if (slots[slot] == null || slots[slot].length() < out.length()) {
+                //Arrays of other steps on the old buffer are rebuilt when they are next used
+                slots[slot] = Nd4j.createBuffer(out.length());
+            }
+            int[] shape = out.shape();
+            current = Nd4j.create(slots[slot], shape, Nd4j.getStrides(shape, out.ordering()), 0, out.ordering());
+        }
+        stepOutputs[step] = current;
+        stepBuffers[step] = slots[slot];
+        return current;
+    }
+
+    private void clearState() {
+        Arrays.fill(activations, null);
+        graph.setInputs((INDArray[]) null);
+        graph.clearLayersStates();
+        if (masksSet) {
+            graph.clearLayerMaskArrays();
+            masksSet = false;
+        }
+    }
+
+    /**
+     * Release the memory held by the plan workspace for the current thread. Slots are released with the plan
+     */
+    public void destroyWorkspace() {
+        if (Nd4j.getWorkspaceManager().checkIfWorkspaceExists(workspaceId))
+            Nd4j.getWorkspaceManager().getWorkspaceForCurrentThread(workspaceId).destroyWorkspace();
+    }
+}
@@ -41,6 +41,8 @@ import org.deeplearning4j.nn.gradient.DefaultGradient;
 import org.deeplearning4j.nn.gradient.Gradient;
 import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.layers.FrozenLayer;
+import org.deeplearning4j.nn.updater.LossScaler;
+import org.deeplearning4j.nn.updater.MasterWeights;
 import org.deeplearning4j.nn.updater.MultiLayerUpdater;
 import org.deeplearning4j.nn.updater.UpdaterCreator;
 import org.deeplearning4j.nn.weights.WeightInit;
@@ -49,8 +51,10 @@ import org.deeplearning4j.optimize.api.ConvexOptimizer;
 import org.deeplearning4j.optimize.api.IterationListener;
 import org.deeplearning4j.optimize.api.TrainingListener;
 import org.deeplearning4j.optimize.solvers.accumulation.GradientsAccumulator;
+import org.deeplearning4j.util.GradientCheckpointUtils;
 import org.deeplearning4j.util.ModelSerializer;
 import org.deeplearning4j.util.NetworkUtils;
+import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
 import org.nd4j.linalg.api.memory.enums.*;
@@ -122,6 +126,8 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
     protected int layerIndex; //For Layer.get/setIndex()
 
     protected transient Solver solver; //Used to call optimizers during backprop
+    protected transient LossScaler lossScaler; //Loss scaling state for mixed precision training
+    protected transient MasterWeights masterWeights; //FP32 parameters copy for mixed precision training
 
     protected final static String WORKSPACE_EXTERNAL = "LOOP_EXTERNAL";
     protected final static String WORKSPACE_FEED_FORWARD = "LOOP_FF";
@@ -572,6 +578,11 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
             workspaceConfigurationCache.setPolicyMirroring(MirroringPolicy.HOST_ONLY);
         }
 
+        if (layerWiseConfigurations.getMixedPrecision() != null && Nd4j.dataType() != DataBuffer.Type.HALF) {
+            OneTimeLogger.warn(log, "Mixed precision training is enabled, but global data type is {}: use "
+                        + "Nd4j.setDataType(DataBuffer.Type.HALF) for half precision computation", Nd4j.dataType());
+        }
+
         int nLayers = getnLayers();
 
         if (nLayers < 1)
@@ -1412,6 +1423,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                 throw new IllegalStateException("No labels found");
             outputLayer.setLabels(labels);
             currPair = outputLayer.backpropGradient(null);
+            scaleLoss(currPair);
 
             for (Map.Entry<String, INDArray> entry : currPair.getFirst().gradientForVariable().entrySet()) {
                 String origName = entry.getKey();
@@ -1426,6 +1438,10 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
 
             layerFrom = numLayers - 2;
         } else {
+            LossScaler scaler = getLossScaler();
+            if (scaler != null && epsilon != null) {
+                epsilon = epsilon.mul(scaler.getLossScale());
+            }
             currPair = new Pair<>(null, epsilon);
             layerFrom = numLayers - 1;
         }
@@ -1518,6 +1534,192 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         return new Pair<>(gradient, currPair.getSecond());
     }
 
+    /**
+     * Get the loss scaling state used for mixed precision training (see
+     * {@link MultiLayerConfiguration.Builder#mixedPrecision(org.deeplearning4j.nn.conf.MixedPrecision)})
+     *
+     * @return Loss scaler, or null if mixed precision training is not enabled
+     */
+    public LossScaler getLossScaler() {
+        if (lossScaler == null && layerWiseConfigurations.getMixedPrecision() != null) {
+            lossScaler = new LossScaler(layerWiseConfigurations.getMixedPrecision());
+        }
+        return lossScaler;
+    }
+
+    /**
+     * Get the single precision master copy of the parameters used for mixed precision training (see
+     * {@link org.deeplearning4j.nn.conf.MixedPrecision.Builder#masterWeights(boolean)})
+     *
+     * @return Master weights, or null if mixed precision training or master weights are not enabled
+     */
+    public MasterWeights getMasterWeights() {
+        MixedPrecision mp = layerWiseConfigurations.getMixedPrecision();
+        if (masterWeights == null && mp != null && mp.isMasterWeights()) {
+            masterWeights = new MasterWeights();
+        }
+        return masterWeights;
+    }
+
+    /**
+     * Mixed precision training: scale the output layer gradients and epsilon by the current loss scale. The
+     * gradients are unscaled again by the updater
+     */
+    private void scaleLoss(Pair<Gradient, INDArray> outputLayerGradients) {
+        LossScaler scaler = getLossScaler();
+        if (scaler != null) {
+            scaler.scale(outputLayerGradients.getFirst(), outputLayerGradients.getSecond());
+        }
+    }
+
+    private MemoryWorkspace checkpointSegmentWorkspace() {
+        WorkspaceMode wsm = layerWiseConfigurations.getTrainingWorkspaceMode();
+        switch (wsm) {
+            case NONE:
+                return new DummyWorkspace();
+            case SINGLE:
+                return Nd4j.getWorkspaceManager().getWorkspaceForCurrentThread(workspaceConfigurationExternal, WORKSPACE_EXTERNAL);
+            case SEPARATE:
+                return Nd4j.getWorkspaceManager().getWorkspaceForCurrentThread(workspaceConfigurationFeedForward, WORKSPACE_FEED_FORWARD);
+            default:
+                throw new IllegalStateException("Unknown workspace mode: " + wsm);
+        }
+    }
+
+    /**
+     * Forward pass (training) for gradient checkpointing. Each segment of layers is executed in a single workspace
+     * scope; only the output of the last layer in each segment is retained.
+     *
+     * @param segments     Segments of layers, as [first, last] layer indices (inclusive)
+     * @param segmentSeeds Output: RNG seed used for each segment, so that dropout etc. are identical on recomputation
+     * @return The network input, followed by the output activations of each segment. The last element is the input
+     *         to the output layer
+     */
+    protected List<INDArray> feedForwardCheckpointed(int[][] segments, long[] segmentSeeds) {
+        INDArray currInput =
+                        layerWiseConfigurations.getTrainingWorkspaceMode() == WorkspaceMode.NONE || !input.isAttached()
+                                        ? input : input.migrate();
+        List<INDArray> activations = new ArrayList<>();
+        activations.add(currInput);
+
+        MemoryWorkspace workspace = checkpointSegmentWorkspace();
+        for (int s = 0; s < segments.length; s++) {
+            segmentSeeds[s] = Nd4j.getRandom().nextLong();
+            Nd4j.getRandom().setSeed(segmentSeeds[s]);
+
+            try (MemoryWorkspace ws = workspace.notifyScopeEntered()) {
+                for (int i = segments[s][0]; i <= segments[s][1]; i++) {
+                    currInput = activationFromPrevLayer(i, currInput, true);
+                }
+                currInput = currInput.leverageOrDetach(WORKSPACE_EXTERNAL);
+            }
+            activations.add(currInput);
+        }
+
+        return activations;
+    }
+
+    /**
+     * Backprop for gradient checkpointing: the activations of each segment are recomputed (in reverse segment order)
+     * from the retained input to the segment, and then backpropagated through, in the same workspace scope.
+     * Sets the gradient and epsilon fields, as per {@link #backprop()}
+     *
+     * @param segments          Segments, as per {@link #feedForwardCheckpointed(int[][], long[])}
+     * @param segmentSeeds      RNG seeds used for each segment in the forward pass
+     * @param segmentActivations Activations returned by {@link #feedForwardCheckpointed(int[][], long[])}
+     */
+    protected void backpropCheckpointed(int[][] segments, long[] segmentSeeds, List<INDArray> segmentActivations) {
+        if (flattenedGradients == null) {
+            initGradientsView();
+        }
+        if (!(getOutputLayer() instanceof IOutputLayer)) {
+            log.warn("Warning: final layer isn't output layer. You cannot use backprop without an output layer.");
+            this.gradient = null;
+            this.epsilon = null;
+            return;
+        }
+        if (labels == null)
+            throw new IllegalStateException("No labels found");
+
+        int numLayers = getnLayers();
+        LinkedList<Triple<String, INDArray, Character>> gradientList = new LinkedList<>();
+
+        IOutputLayer outputLayer = (IOutputLayer) getOutputLayer();
+        outputLayer.setLabels(labels);
+        Pair<Gradient, INDArray> currPair = outputLayer.backpropGradient(null);
+        scaleLoss(currPair);
+        for (Map.Entry<String, INDArray> entry : currPair.getFirst().gradientForVariable().entrySet()) {
+            String origName = entry.getKey();
+            gradientList.addLast(new Triple<>(String.valueOf(numLayers - 1) + "_" + origName, entry.getValue(),
+                            currPair.getFirst().flatteningOrderForVariable(origName)));
+        }
+        INDArray currEpsilon = currPair.getSecond();
+        if (layerWiseConfigurations.getInputPreProcess(numLayers - 1) != null)
+            currEpsilon = layerWiseConfigurations.getInputPreProcess(numLayers - 1).backprop(currEpsilon,
+                            getInputMiniBatchSize());
+        currEpsilon = currEpsilon.leverageOrDetach(WORKSPACE_EXTERNAL);
+
+        MemoryWorkspace workspace = checkpointSegmentWorkspace();
+        boolean frozen = false;
+        for (int s = segments.length - 1; s >= 0 && !frozen; s--) {
+            int first = segments[s][0];
+            int last = segments[s][1];
+            try (MemoryWorkspace ws = workspace.notifyScopeEntered()) {
+                //Recompute the segment activations, with the same RNG state (dropout, weight noise) as the forward pass
+                Layer[] segmentLayers = Arrays.copyOfRange(layers, first, last + 1);
+                List<Pair<INDArray, INDArray>> state = GradientCheckpointUtils.snapshotForwardState(segmentLayers);
+                for (Layer l : segmentLayers) {
+                    l.clearNoiseWeightParams();
+                }
+                Nd4j.getRandom().setSeed(segmentSeeds[s]);
+                INDArray act = segmentActivations.get(s);
+                for (int i = first; i <= last; i++) {
+                    act = activationFromPrevLayer(i, act, true);
+                }
+                GradientCheckpointUtils.restoreForwardState(state);
+
+                for (int j = last; j >= first; j--) {
+                    Layer currLayer = layers[j];
+                    if (currLayer instanceof FrozenLayer) {
+                        frozen = true;
+                        break;
+                    }
+                    currPair = currLayer.backpropGradient(currEpsilon);
+
+                    LinkedList<Triple<String, INDArray, Character>> tempList = new LinkedList<>();
+                    for (Map.Entry<String, INDArray> entry : currPair.getFirst().gradientForVariable().entrySet()) {
+                        String origName = entry.getKey();
+                        tempList.addFirst(new Triple<>(String.valueOf(j) + "_" + origName, entry.getValue(),
+                                        currPair.getFirst().flatteningOrderForVariable(origName)));
+                    }
+                    for (Triple<String, INDArray, Character> triple : tempList)
+                        gradientList.addFirst(triple);
+
+                    currEpsilon = currPair.getSecond();
+                    if (layerWiseConfigurations.getInputPreProcess(j) != null)
+                        currEpsilon = layerWiseConfigurations.getInputPreProcess(j).backprop(currEpsilon,
+                                        getInputMiniBatchSize());
+                }
+
+                //Epsilon at the start of the segment: needed by the previous segment, in a new workspace scope
+                if (currEpsilon != null) {
+                    currEpsilon = currEpsilon.leverageOrDetach(WORKSPACE_EXTERNAL);
+                }
+            }
+        }
+
+        if (layerWiseConfigurations.getTrainingWorkspaceMode() == WorkspaceMode.SEPARATE) {
+            Nd4j.getWorkspaceManager().getWorkspaceForCurrentThread(WORKSPACE_FEED_FORWARD).initializeWorkspace();
+        }
+
+        Gradient gradient = new DefaultGradient(flattenedGradients);
+        for (Triple<String, INDArray, Character> triple : gradientList) {
+            gradient.setGradientFor(triple.getFirst(), triple.getSecond(), triple.getThird());
+        }
+        this.gradient = gradient;
+        this.epsilon = currEpsilon;
+    }
+
     protected void doTruncatedBPTT(INDArray input, INDArray labels, INDArray featuresMaskArray,
                     INDArray labelsMaskArray) {
         if (input.rank() != 3 || labels.rank() != 3) {
@@ -1654,6 +1856,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         LinkedList<Pair<String, INDArray>> gradientList = new LinkedList<>();
 
         Pair<Gradient, INDArray> currPair = outputLayer.backpropGradient(null);
+        scaleLoss(currPair);
 
         for (Map.Entry<String, INDArray> entry : currPair.getFirst().gradientForVariable().entrySet()) {
             multiGradientKey = String.valueOf(numLayers - 1) + "_" + entry.getKey();
@@ -2385,6 +2588,26 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                 if(clearTbpttState) {
                     rnnClearPreviousState();
                 }
+            } else if (layerWiseConfigurations.getCheckpointLayers() != null && layers.length > 1) {
+                synchronizeIterEpochCounts();
+
+                //Gradient checkpointing: only the checkpoint activations are retained in the forward pass; the others
+                // are recomputed segment by segment during backprop
+                int[][] segments = GradientCheckpointUtils.segments(layerWiseConfigurations.getCheckpointLayers(),
+                                layers.length - 1);
+                long[] segmentSeeds = new long[segments.length];
+                List<INDArray> activations = feedForwardCheckpointed(segments, segmentSeeds);
+                if (!trainingListeners.isEmpty()) {
+                    for (TrainingListener tl : trainingListeners) {
+                        tl.onForwardPass(this, activations);
+                    }
+                }
+                INDArray actSecondLastLayer = activations.get(activations.size() - 1);
+                if (layerWiseConfigurations.getInputPreProcess(layers.length - 1) != null)
+                    actSecondLastLayer = layerWiseConfigurations.getInputPreProcess(layers.length - 1)
+                            .preProcess(actSecondLastLayer, getInputMiniBatchSize());
+                getOutputLayer().setInput(actSecondLastLayer);
+                backpropCheckpointed(segments, segmentSeeds, activations);
             } else {
                 synchronizeIterEpochCounts();
 
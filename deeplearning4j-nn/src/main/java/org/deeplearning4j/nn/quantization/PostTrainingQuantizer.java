@@ -0,0 +1,206 @@
+package org.deeplearning4j.nn.quantization;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.datasets.iterator.impl.MultiDataSetIteratorAdapter;
+import org.deeplearning4j.eval.Evaluation;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.Deconvolution2D;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.layers.SeparableConvolution2D;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+
+/**
+ * Post-training quantization of a trained {@link MultiLayerNetwork} or {@link ComputationGraph} to an inference-only
+ * {@link QuantizedModel} with 8 bit weights.<br>
+ * The weights of {@link DenseLayer}, {@link ConvolutionLayer} and {@link OutputLayer} layers are quantized with one
+ * scale per output channel (output neuron for dense and output layers, output feature map for convolution layers).
+ * The range of the input activations of these layers is calibrated by running the original network on a sample of
+ * data: the input of each quantized layer is then quantized to 8 bits using the largest absolute value observed during
+ * calibration.<br>
+ * Use {@link #evaluate(Model, QuantizedModel, DataSetIterator)} to measure the accuracy drop due to quantization.
+ * <pre>
+ * {@code
+ * PostTrainingQuantizer quantizer = new PostTrainingQuantizer.Builder().calibrationBatches(10).build();
+ * QuantizedModel quantized = quantizer.quantize(net, calibrationData);
+ * QuantizationReport report = PostTrainingQuantizer.evaluate(net, quantized, testData);
+ * ModelSerializer.writeQuantizedModel(quantized, file);
+ * }
+ * </pre>
+ */
+@Slf4j
+@Getter
+public class PostTrainingQuantizer {
+
+    private final int calibrationBatches;
+    private final boolean quantizeActivations;
+
+    private PostTrainingQuantizer(Builder builder) {
+        this.calibrationBatches = builder.calibrationBatches;
+        this.quantizeActivations = builder.quantizeActivations;
+    }
+
+    /**
+     * @return True if the weights of the given layer can be quantized
+     */
+    public static boolean isQuantizable(org.deeplearning4j.nn.conf.layers.Layer layer) {
+        if (layer instanceof Deconvolution2D || layer instanceof SeparableConvolution2D)
+            return false;
+        return layer instanceof DenseLayer || layer instanceof ConvolutionLayer || layer instanceof OutputLayer;
+    }
+
+    /**
+     * Dimension of the weights array holding the output channels: weights are [nIn, nOut] for dense and output layers,
+     * and [nOut, nIn, kH, kW] for convolution layers
+     */
+    private static int channelDimension(org.deeplearning4j.nn.conf.layers.Layer layer) {
+        return layer instanceof ConvolutionLayer ? 0 : 1;
+    }
+
+    /**
+     * Quantize the given network
+     *
+     * @param network     Trained network. Not modified
+     * @param calibration Data used to calibrate the activation ranges. Labels are not used
+     * @return The quantized model
+     */
+    public QuantizedModel quantize(@NonNull MultiLayerNetwork network, @NonNull DataSetIterator calibration) {
+        return quantize(network, new MultiDataSetIteratorAdapter(calibration));
+    }
+
+    /**
+     * Quantize the given (single input) network
+     *
+     * @param network     Trained network. Not modified
+     * @param calibration Data used to calibrate the activation ranges. Labels are not used
+     * @return The quantized model
+     */
+    public QuantizedModel quantize(@NonNull ComputationGraph network, @NonNull DataSetIterator calibration) {
+        return quantize(network, new MultiDataSetIteratorAdapter(calibration));
+    }
+
+    /**
+     * Quantize the given network
+     *
+     * @param network     Trained network. Not modified
+     * @param calibration Data used to calibrate the activation ranges. Labels are not used
+     * @return The quantized model
+     */
+    public QuantizedModel quantize(@NonNull ComputationGraph network, @NonNull MultiDataSetIterator calibration) {
+        return quantize((Model) network, calibration);
+    }
+
+    private QuantizedModel quantize(Model network, MultiDataSetIterator calibration) {
+        Layer[] layers = QuantizedModel.layers(network);
+        QuantizedTensor[] weights = new QuantizedTensor[layers.length];
+        for (int i = 0; i < layers.length; i++) {
+            org.deeplearning4j.nn.conf.layers.Layer l = layers[i].conf().getLayer();
+            if (isQuantizable(l)) {
+                weights[i] = QuantizedTensor.quantizePerChannel(
+                                layers[i].getParam(DefaultParamInitializer.WEIGHT_KEY), channelDimension(l));
+            }
+        }
+
+        float[] inputScales = new float[layers.length];
+        if (quantizeActivations) {
+            float[] maxAbs = calibrate(network, calibration);
+            for (int i = 0; i < layers.length; i++) {
+                if (weights[i] != null && maxAbs[i] > 0.0f) {
+                    inputScales[i] = maxAbs[i] / QuantizedTensor.MAX_QUANTIZED_VALUE;
+                }
+            }
+        }
+
+        QuantizedModel quantized = new QuantizedModel(network, weights, inputScales);
+        log.info("Quantized {} of {} layers: parameter size reduced from {} to {} bytes",
+                        quantized.numQuantizedLayers(), layers.length, sizeBytes(network),
+                        quantized.quantizedSizeBytes());
+        return quantized;
+    }
+
+    /**
+     * Run the network on the calibration data, and record the largest absolute input value of each layer
+     */
+    private float[] calibrate(Model network, MultiDataSetIterator calibration) {
+        if (calibration.resetSupported())
+            calibration.reset();
+        float[] maxAbs = new float[QuantizedModel.layers(network).length];
+        int count = 0;
+        while (calibration.hasNext() && (calibrationBatches <= 0 || count < calibrationBatches)) {
+            MultiDataSet mds = calibration.next();
+            QuantizedModel.forward(network, mds.getFeatures(), null, maxAbs, null);
+            count++;
+        }
+        if (count == 0)
+            throw new IllegalStateException("Cannot calibrate activation ranges: calibration iterator has no data");
+        return maxAbs;
+    }
+
+    /**
+     * Evaluate the original and the quantized model on the same data, to measure the accuracy drop due to
+     * quantization
+     *
+     * @param original  Original (full precision) network
+     * @param quantized Quantized model
+     * @param data      Data to evaluate on
+     * @return Report comparing the two evaluations
+     */
+    public static QuantizationReport evaluate(@NonNull Model original, @NonNull QuantizedModel quantized,
+                    @NonNull DataSetIterator data) {
+        if (data.resetSupported())
+            data.reset();
+        Evaluation originalEval;
+        if (original instanceof MultiLayerNetwork) {
+            originalEval = ((MultiLayerNetwork) original).evaluate(data);
+        } else if (original instanceof ComputationGraph) {
+            originalEval = ((ComputationGraph) original).evaluate(data);
+        } else {
+            throw new IllegalArgumentException("Cannot evaluate model of type " + original.getClass().getName());
+        }
+        Evaluation quantizedEval = quantized.evaluate(data);
+        return new QuantizationReport(originalEval, quantizedEval, sizeBytes(original),
+                        quantized.quantizedSizeBytes());
+    }
+
+    private static long sizeBytes(Model network) {
+        INDArray params = network.params();
+        return params == null ? 0 : params.length() * (long) params.data().getElementSize();
+    }
+
+    public static class Builder {
+        private int calibrationBatches = 10;
+        private boolean quantizeActivations = true;
+
+        /**
+         * Maximum number of minibatches used to calibrate the activation ranges. Values <= 0: use all data.
+         * Default: 10
+         */
+        public Builder calibrationBatches(int calibrationBatches) {
+            this.calibrationBatches = calibrationBatches;
+            return this;
+        }
+
+        /**
+         * If true (default): quantize the inputs of the quantized layers to 8 bits. If false: only the weights are
+         * quantized, and no calibration is performed
+         */
+        public Builder quantizeActivations(boolean quantizeActivations) {
+            this.quantizeActivations = quantizeActivations;
+            return this;
+        }
+
+        public PostTrainingQuantizer build() {
+            return new PostTrainingQuantizer(this);
+        }
+    }
+}
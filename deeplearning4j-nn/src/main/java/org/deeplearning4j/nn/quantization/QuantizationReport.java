@@ -0,0 +1,55 @@
+package org.deeplearning4j.nn.quantization;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.deeplearning4j.eval.Evaluation;
+
+/**
+ * Accuracy and size comparison of a full precision network and its {@link QuantizedModel}, as returned by
+ * {@link PostTrainingQuantizer#evaluate(org.deeplearning4j.nn.api.Model, QuantizedModel,
+ * org.nd4j.linalg.dataset.api.iterator.DataSetIterator)}
+ */
+@Data
+@AllArgsConstructor
+public class QuantizationReport {
+
+    private final Evaluation originalEvaluation;
+    private final Evaluation quantizedEvaluation;
+    private final long originalSizeBytes;
+    private final long quantizedSizeBytes;
+
+    /**
+     * @return Accuracy of the original network minus accuracy of the quantized model
+     */
+    public double getAccuracyDrop() {
+        return originalEvaluation.accuracy() - quantizedEvaluation.accuracy();
+    }
+
+    /**
+     * @return F1 score of the original network minus F1 score of the quantized model
+     */
+    public double getF1Drop() {
+        return originalEvaluation.f1() - quantizedEvaluation.f1();
+    }
+
+    /**
+     * @return Ratio of the original parameter size to the quantized parameter size
+     */
+    public double getCompressionRatio() {
+        return quantizedSizeBytes == 0 ? 0.0 : (double) originalSizeBytes / quantizedSizeBytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("----- Quantization Report -----\n");
+        sb.append(String.format("%-24s%12s%12s%12s\n", "", "Original", "Quantized", "Drop"));
+        sb.append(String.format("%-24s%12.4f%12.4f%12.4f\n", "Accuracy", originalEvaluation.accuracy(),
+                        quantizedEvaluation.accuracy(), getAccuracyDrop()));
+        sb.append(String.format("%-24s%12.4f%12.4f%12.4f\n", "F1", originalEvaluation.f1(),
+                        quantizedEvaluation.f1(), getF1Drop()));
+        sb.append(String.format("%-24s%12d%12d\n", "Parameter bytes", originalSizeBytes, quantizedSizeBytes));
+        sb.append(String.format("Compression ratio: %.2fx\n", getCompressionRatio()));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,427 @@
+package org.deeplearning4j.nn.quantization;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.deeplearning4j.eval.Evaluation;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.InputPreProcessor;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.graph.vertex.GraphVertex;
+import org.deeplearning4j.nn.graph.vertex.VertexIndices;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An inference-only model produced by {@link PostTrainingQuantizer}: the weights of the dense, convolution and output
+ * layers are stored as 8 bit integers with per-channel scales ({@link QuantizedTensor}), and the inputs to these layers
+ * are quantized to 8 bits using the activation ranges observed during calibration.<br>
+ * All other parameters (biases, batch norm parameters, etc) are kept in full precision.<br>
+ * Only the int8 values and scales of the quantized weights are kept: each layer's weights are dequantized into a
+ * buffer shared by all layers (the size of the largest quantized weights array) just before the layer is executed.
+ * Outputs are the same as those of an int8 inference engine using the same quantization parameters, up to floating
+ * point rounding.
+ * <p>
+ * Use {@link org.deeplearning4j.util.ModelSerializer#writeQuantizedModel(QuantizedModel, java.io.File)} to save the
+ * model in the compact int8 format. Instances are not thread safe.
+ */
+public class QuantizedModel {
+
+    /**
+     * Underlying network. Its parameters array only holds the parameters that are not quantized: the weights of the
+     * quantized layers are views of the shared dequantization buffer
+     */
+    @Getter
+    private final Model network;
+    /**
+     * Quantized weights, indexed by layer index. Null for layers that are not quantized
+     */
+    @Getter
+    private final QuantizedTensor[] quantizedWeights;
+    /**
+     * Quantization scale for the input activations of each layer, indexed by layer index. 0 if the layer input is not
+     * quantized
+     */
+    @Getter
+    private final float[] inputScales;
+    /**
+     * Weights of each quantized layer, as views of the shared dequantization buffer
+     */
+    private final INDArray[] weightViews;
+
+    /**
+     * @param network          Initialized MultiLayerNetwork or ComputationGraph. Not modified: the quantized model
+     *                         uses its own network, holding a copy of the parameters that are not quantized
+     * @param quantizedWeights Quantized weights, indexed by layer index (null for layers that are not quantized)
+     * @param inputScales      Input activation scales, indexed by layer index (0 for no input quantization)
+     */
+    public QuantizedModel(@NonNull Model network, @NonNull QuantizedTensor[] quantizedWeights,
+                    @NonNull float[] inputScales) {
+        if (!(network instanceof MultiLayerNetwork) && !(network instanceof ComputationGraph))
+            throw new IllegalArgumentException("Only MultiLayerNetwork and ComputationGraph models can be quantized, got "
+                            + network.getClass().getName());
+        Layer[] layers = layers(network);
+        if (quantizedWeights.length != layers.length || inputScales.length != layers.length)
+            throw new IllegalArgumentException("Expected quantization parameters for " + layers.length
+                            + " layers, got " + quantizedWeights.length + " weights and " + inputScales.length
+                            + " input scales");
+        this.quantizedWeights = quantizedWeights;
+        this.inputScales = inputScales;
+        this.weightViews = new INDArray[layers.length];
+
+        //The new network's layers are initially views of the original parameters: they are then moved to a compact
+        //array holding only the parameters that are not quantized, so no full precision copy of the weights is kept
+        if (network instanceof MultiLayerNetwork) {
+            CompactMultiLayerNetwork net = new CompactMultiLayerNetwork(
+                            ((MultiLayerNetwork) network).getLayerWiseConfigurations().clone());
+            net.init(network.params(), false);
+            net.setFlattenedParams(compactParams(net.getLayers()));
+            this.network = net;
+        } else {
+            CompactComputationGraph graph =
+                            new CompactComputationGraph(((ComputationGraph) network).getConfiguration().clone());
+            graph.init(network.params(), false);
+            graph.setFlattenedParams(compactParams(graph.getLayers()));
+            this.network = graph;
+        }
+    }
+
+    /**
+     * Replace the parameter table of each layer by views of a new array holding only the parameters that are not
+     * quantized, plus views of the shared dequantization buffer for the quantized weights
+     *
+     * @return The new parameters array, or null if all parameters are quantized
+     */
+    private INDArray compactParams(Layer[] layers) {
+        long numUnquantized = 0;
+        int maxWeights = 0;
+        for (int i = 0; i < layers.length; i++) {
+            for (Map.Entry<String, INDArray> e : layers[i].paramTable().entrySet()) {
+                if (quantizedWeights[i] != null && DefaultParamInitializer.WEIGHT_KEY.equals(e.getKey())) {
+                    maxWeights = Math.max(maxWeights, e.getValue().length());
+                } else {
+                    numUnquantized += e.getValue().length();
+                }
+            }
+        }
+
+        INDArray compact;
+        DataBuffer weightBuffer;
+        try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+            compact = numUnquantized > 0 ? Nd4j.create(1, (int) numUnquantized) : null;
+            weightBuffer = maxWeights > 0 ? Nd4j.createBuffer(maxWeights) : null;
+        }
+
+        int offset = 0;
+        for (int i = 0; i < layers.length; i++) {
+            Map<String, INDArray> table = new LinkedHashMap<>();
+            INDArray weights = null;
+            int start = offset;
+            for (Map.Entry<String, INDArray> e : layers[i].paramTable().entrySet()) {
+                INDArray p = e.getValue();
+                if (quantizedWeights[i] != null && DefaultParamInitializer.WEIGHT_KEY.equals(e.getKey())) {
+                    weights = Nd4j.create(weightBuffer, p.shape(), Nd4j.getStrides(p.shape(), p.ordering()), 0,
+                                    p.ordering());
+                    table.put(e.getKey(), weights);
+                    continue;
+                }
+                INDArray view = compact.get(NDArrayIndex.point(0), NDArrayIndex.interval(offset, offset + p.length()))
+                                .reshape(p.ordering(), p.shape());
+                view.assign(p);
+                table.put(e.getKey(), view);
+                offset += p.length();
+            }
+            if (table.isEmpty())
+                continue;
+
+            //The flattened view of the layer covers the unquantized parameters only (or the weights, if the layer has
+            //no other parameters): set it before adding the weights, as its length is checked against the table
+            Map<String, INDArray> unquantized = new LinkedHashMap<>(table);
+            INDArray flattened;
+            if (offset > start) {
+                unquantized.remove(DefaultParamInitializer.WEIGHT_KEY);
+                flattened = compact.get(NDArrayIndex.point(0), NDArrayIndex.interval(start, offset));
+            } else {
+                flattened = Nd4j.create(weightBuffer, new int[] {1, weights.length()}, new int[] {1, 1}, 0, 'c');
+            }
+            layers[i].setParamTable(unquantized);
+            layers[i].setParamsViewArray(flattened);
+            layers[i].setParamTable(table);
+            weightViews[i] = weights;
+        }
+        return compact;
+    }
+
+    /**
+     * Dequantize the weights of the given layer into the shared dequantization buffer
+     */
+    private void dequantizeWeights(int layerIdx) {
+        if (weightViews[layerIdx] != null) {
+            weightViews[layerIdx].assign(quantizedWeights[layerIdx].dequantize());
+        }
+    }
+
+    static Layer[] layers(Model network) {
+        if (network instanceof MultiLayerNetwork)
+            return ((MultiLayerNetwork) network).getLayers();
+        return ((ComputationGraph) network).getLayers();
+    }
+
+    /**
+     * @return Number of layers with int8 weights
+     */
+    public int numQuantizedLayers() {
+        int count = 0;
+        for (QuantizedTensor t : quantizedWeights) {
+            if (t != null)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return Size of the model parameters in the quantized format, in bytes: int8 weights and scales, plus the
+     *         remaining parameters in full precision
+     */
+    public long quantizedSizeBytes() {
+        long bytes = 0;
+        for (INDArray p : unquantizedParamList()) {
+            bytes += p.length() * (long) p.data().getElementSize();
+        }
+        for (QuantizedTensor t : quantizedWeights) {
+            if (t != null)
+                bytes += t.sizeBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return All parameters except the quantized weights, flattened in layer and parameter order. Null if all
+     *         parameters are quantized
+     */
+    public INDArray unquantizedParams() {
+        List<INDArray> params = unquantizedParamList();
+        if (params.isEmpty())
+            return null;
+        return Nd4j.toFlattened('c', params);
+    }
+
+    /**
+     * Set all parameters except the quantized weights, from an array returned by {@link #unquantizedParams()}
+     */
+    public void setUnquantizedParams(@NonNull INDArray params) {
+        long offset = 0;
+        for (INDArray p : unquantizedParamList()) {
+            INDArray values = params.get(NDArrayIndex.point(0), NDArrayIndex.interval(offset, offset + p.length()));
+            p.assign(values.dup().reshape('c', p.shape()));
+            offset += p.length();
+        }
+        if (offset != params.length())
+            throw new IllegalArgumentException("Invalid parameters array: expected length " + offset + ", got "
+                            + params.length());
+    }
+
+    private List<INDArray> unquantizedParamList() {
+        Layer[] layers = layers(network);
+        List<INDArray> out = new ArrayList<>();
+        for (int i = 0; i < layers.length; i++) {
+            for (Map.Entry<String, INDArray> e : layers[i].paramTable().entrySet()) {
+                if (quantizedWeights[i] != null && DefaultParamInitializer.WEIGHT_KEY.equals(e.getKey()))
+                    continue;
+                if (e.getValue().length() > 0)
+                    out.add(e.getValue());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Generate the network outputs for the given inputs
+     *
+     * @param input Network inputs
+     * @return Network outputs, in the order defined in the network configuration
+     */
+    public INDArray[] output(@NonNull INDArray... input) {
+        return forward(network, input, inputScales, null, this);
+    }
+
+    /**
+     * Evaluate the (single output) model on the given data
+     *
+     * @param iterator Data to evaluate on
+     * @return Evaluation of the quantized model
+     */
+    public Evaluation evaluate(@NonNull DataSetIterator iterator) {
+        if (iterator.resetSupported())
+            iterator.reset();
+        Evaluation e = new Evaluation();
+        while (iterator.hasNext()) {
+            DataSet ds = iterator.next();
+            INDArray out = output(ds.getFeatures())[0];
+            if (out.rank() == 3) {
+                e.evalTimeSeries(ds.getLabels(), out, ds.getLabelsMaskArray());
+            } else {
+                e.eval(ds.getLabels(), out);
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Quantize the values to 8 bits with the given scale, and return the dequantized values
+     */
+    static INDArray fakeQuantize(INDArray in, float scale) {
+        INDArray q = Transforms.round(in.div(scale), false);
+        Transforms.max(q, -QuantizedTensor.MAX_QUANTIZED_VALUE, false);
+        Transforms.min(q, QuantizedTensor.MAX_QUANTIZED_VALUE, false);
+        return q.muli(scale);
+    }
+
+    /**
+     * Inference forward pass, layer by layer.
+     *
+     * @param network     Network to run
+     * @param input       Network inputs
+     * @param inputScales If not null: quantize the input of each layer with a positive scale
+     * @param maxAbs      If not null: record the maximum absolute input value of each layer (calibration)
+     * @param quantized   If not null: dequantize the weights of each layer of this model before executing it
+     */
+    static INDArray[] forward(Model network, INDArray[] input, float[] inputScales, float[] maxAbs,
+                    QuantizedModel quantized) {
+        try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+            if (network instanceof MultiLayerNetwork) {
+                if (input.length != 1)
+                    throw new IllegalArgumentException("MultiLayerNetwork has 1 input, got " + input.length);
+                return new INDArray[] {forward((MultiLayerNetwork) network, input[0], inputScales, maxAbs, quantized)};
+            }
+            return forward((ComputationGraph) network, input, inputScales, maxAbs, quantized);
+        }
+    }
+
+    private static INDArray layerInput(int layerIdx, INDArray in, float[] inputScales, float[] maxAbs) {
+        if (maxAbs != null) {
+            maxAbs[layerIdx] = Math.max(maxAbs[layerIdx], Transforms.abs(in, true).maxNumber().floatValue());
+        }
+        if (inputScales != null && inputScales[layerIdx] > 0.0f) {
+            return fakeQuantize(in, inputScales[layerIdx]);
+        }
+        return in;
+    }
+
+    private static INDArray forward(MultiLayerNetwork net, INDArray input, float[] inputScales, float[] maxAbs,
+                    QuantizedModel quantized) {
+        MultiLayerConfiguration conf = net.getLayerWiseConfigurations();
+        Layer[] layers = net.getLayers();
+        int miniBatch = input.size(0);
+        net.setInputMiniBatchSize(miniBatch);
+
+        INDArray current = input;
+        try {
+            for (int i = 0; i < layers.length; i++) {
+                InputPreProcessor preProcessor = conf.getInputPreProcess(i);
+                if (preProcessor != null) {
+                    current = preProcessor.preProcess(current, miniBatch);
+                }
+                if (quantized != null) {
+                    quantized.dequantizeWeights(i);
+                }
+                current = layers[i].activate(layerInput(i, current, inputScales, maxAbs), false);
+            }
+        } finally {
+            for (Layer l : layers) {
+                l.clear();
+            }
+        }
+        return current;
+    }
+
+    private static INDArray[] forward(ComputationGraph graph, INDArray[] input, float[] inputScales,
+                    float[] maxAbs, QuantizedModel quantized) {
+        GraphVertex[] vertices = graph.getVertices();
+        Layer[] layers = graph.getLayers();
+        Map<Layer, Integer> layerIndices = new IdentityHashMap<>();
+        for (int i = 0; i < layers.length; i++) {
+            layerIndices.put(layers[i], i);
+        }
+
+        //Preprocessors need the minibatch size, which the graph derives from its inputs
+        graph.setInputs(input);
+        INDArray[] activations = new INDArray[vertices.length];
+        System.arraycopy(input, 0, activations, 0, input.length);
+        try {
+            for (int idx : graph.topologicalSortOrder()) {
+                GraphVertex v = vertices[idx];
+                if (v.isInputVertex())
+                    continue;
+                Integer layerIdx = v.hasLayer() ? layerIndices.get(v.getLayer()) : null;
+                VertexIndices[] inputs = v.getInputVertices();
+                for (int j = 0; j < inputs.length; j++) {
+                    INDArray in = activations[inputs[j].getVertexIndex()];
+                    if (layerIdx != null) {
+                        in = layerInput(layerIdx, in, inputScales, maxAbs);
+                    }
+                    v.setInput(j, in);
+                }
+                if (layerIdx != null && quantized != null) {
+                    quantized.dequantizeWeights(layerIdx);
+                }
+                activations[idx] = v.doForward(false);
+                v.clear();
+            }
+
+            List<String> outputNames = graph.getConfiguration().getNetworkOutputs();
+            INDArray[] out = new INDArray[outputNames.size()];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = activations[graph.getVertex(outputNames.get(i)).getVertexIndex()];
+            }
+            return out;
+        } finally {
+            graph.setInputs((INDArray[]) null);
+            for (Layer l : layers) {
+                l.clear();
+            }
+        }
+    }
+
+    /**
+     * MultiLayerNetwork whose parameters array can be replaced after initialization
+     */
+    private static class CompactMultiLayerNetwork extends MultiLayerNetwork {
+        private CompactMultiLayerNetwork(MultiLayerConfiguration conf) {
+            super(conf);
+        }
+
+        private void setFlattenedParams(INDArray params) {
+            this.flattenedParams = params;
+        }
+    }
+
+    /**
+     * ComputationGraph whose parameters array can be replaced after initialization
+     */
+    private static class CompactComputationGraph extends ComputationGraph {
+        private CompactComputationGraph(ComputationGraphConfiguration conf) {
+            super(conf);
+        }
+
+        private void setFlattenedParams(INDArray params) {
+            this.flattenedParams = params;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.deeplearning4j.nn.quantization;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A weight array quantized to signed 8 bit integers, with one scale per channel (symmetric quantization: zero is
+ * always exactly representable, values are in the range [-127, 127]).<br>
+ * The original value of an element is approximately {@code values[i] * scales[channel(i)]}. Values are stored in 'c'
+ * order, using the shape of the original array.
+ */
+@Getter
+public class QuantizedTensor implements Serializable {
+
+    public static final int MAX_QUANTIZED_VALUE = 127;
+
+    private final int[] shape;
+    private final int channelDimension;
+    private final byte[] values;
+    private final float[] scales;
+
+    public QuantizedTensor(@NonNull int[] shape, int channelDimension, @NonNull byte[] values, @NonNull float[] scales) {
+        if (channelDimension < 0 || channelDimension >= shape.length)
+            throw new IllegalArgumentException("Invalid channel dimension " + channelDimension + " for array with shape "
+                            + Arrays.toString(shape));
+        long length = 1;
+        for (int s : shape)
+            length *= s;
+        if (values.length != length || scales.length != shape[channelDimension])
+            throw new IllegalArgumentException("Invalid quantized array: expected " + length + " values and "
+                            + shape[channelDimension] + " scales for shape " + Arrays.toString(shape) + ", got "
+                            + values.length + " values and " + scales.length + " scales");
+        this.shape = shape;
+        this.channelDimension = channelDimension;
+        this.values = values;
+        this.scales = scales;
+    }
+
+    /**
+     * Quantize the given array, using one scale per index along the channel dimension. Each scale is set so that the
+     * largest absolute value in the channel maps to {@link #MAX_QUANTIZED_VALUE}
+     *
+     * @param array            Array to quantize
+     * @param channelDimension Dimension of the array holding the channels - for example the output dimension of a
+     *                         weight matrix
+     */
+    public static QuantizedTensor quantizePerChannel(@NonNull INDArray array, int channelDimension) {
+        int[] shape = array.shape();
+        float[] data = array.dup('c').data().asFloat();
+        int nChannels = shape[channelDimension];
+        int inner = innerLength(shape, channelDimension);
+
+        float[] maxAbs = new float[nChannels];
+        for (int i = 0; i < data.length; i++) {
+            int c = (i / inner) % nChannels;
+            maxAbs[c] = Math.max(maxAbs[c], Math.abs(data[i]));
+        }
+
+        float[] scales = new float[nChannels];
+        for (int c = 0; c < nChannels; c++) {
+            scales[c] = maxAbs[c] / MAX_QUANTIZED_VALUE;
+        }
+
+        byte[] values = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            float scale = scales[(i / inner) % nChannels];
+            if (scale > 0.0f) {
+                int q = Math.round(data[i] / scale);
+                values[i] = (byte) Math.max(-MAX_QUANTIZED_VALUE, Math.min(MAX_QUANTIZED_VALUE, q));
+            }
+        }
+        return new QuantizedTensor(shape, channelDimension, values, scales);
+    }
+
+    private static int innerLength(int[] shape, int channelDimension) {
+        int inner = 1;
+        for (int i = channelDimension + 1; i < shape.length; i++)
+            inner *= shape[i];
+        return inner;
+    }
+
+    /**
+     * @return The dequantized ('c' order) array, in the global ND4J data type
+     */
+    public INDArray dequantize() {
+        int nChannels = shape[channelDimension];
+        int inner = innerLength(shape, channelDimension);
+        float[] data = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            data[i] = values[i] * scales[(i / inner) % nChannels];
+        }
+        return Nd4j.create(data, shape, 'c');
+    }
+
+    /**
+     * @return Number of bytes used by the quantized values and scales
+     */
+    public long sizeBytes() {
+        return values.length + 4L * scales.length;
+    }
+
+    public void write(@NonNull DataOutputStream dos) throws IOException {
+        dos.writeInt(shape.length);
+        for (int s : shape)
+            dos.writeInt(s);
+        dos.writeInt(channelDimension);
+        for (float s : scales)
+            dos.writeFloat(s);
+        dos.write(values);
+    }
+
+    public static QuantizedTensor read(@NonNull DataInputStream dis) throws IOException {
+        int[] shape = new int[dis.readInt()];
+        long length = 1;
+        for (int i = 0; i < shape.length; i++) {
+            shape[i] = dis.readInt();
+            length *= shape[i];
+        }
+        int channelDimension = dis.readInt();
+        if (channelDimension < 0 || channelDimension >= shape.length)
+            throw new IOException("Invalid quantized array: channel dimension " + channelDimension + " for shape "
+                            + Arrays.toString(shape));
+        float[] scales = new float[shape[channelDimension]];
+        for (int i = 0; i < scales.length; i++)
+            scales[i] = dis.readFloat();
+        byte[] values = new byte[(int) length];
+        dis.readFully(values);
+        return new QuantizedTensor(shape, channelDimension, values, scales);
+    }
+}
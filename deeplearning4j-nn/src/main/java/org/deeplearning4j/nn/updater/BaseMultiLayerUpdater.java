@@ -182,6 +182,13 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
      */
     protected abstract boolean isMiniBatch();
 
+    /**
+     * @return The loss scaler for mixed precision training, or null if mixed precision training is not used
+     */
+    protected LossScaler getLossScaler() {
+        return null;
+    }
+
     /**
      * Set the view array. Note that this does an assign operation - the provided array is not stored internally.
      *
@@ -215,6 +222,8 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
      * 1. Pre-apply: gradient clipping, etc on a per-layer basis
      * 2. Execute the updater (Adam, Nesterov momentum, etc) - in blocks of layers at a time
      * 3. Divide by minibatch size
+     * For mixed precision training, the gradient is first checked for overflow and unscaled; on overflow, the gradient
+     * is set to zero and the update is skipped
      *
      * @param gradient  Gradient to updater
      * @param iteration The current iteration (i.e., number of parameter updates so far)
@@ -227,6 +236,13 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
         // hence should be the same object under normal circumstances
         boolean isExternal = gradient.gradient() != getFlattenedGradientsView();
 
+        //Mixed precision: unscale the gradient, or skip this update if the scaled gradient overflowed
+        LossScaler lossScaler = getLossScaler();
+        if (lossScaler != null && !lossScaler.unscale(gradient.gradient())) {
+            gradient.gradient().assign(0);
+            return;
+        }
+
         //Split up the gradients on a per-layer basis, for pre-apply
         Map<String, Gradient> layerGradients = new HashMap<>();
 
@@ -0,0 +1,92 @@
+package org.deeplearning4j.nn.updater;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.conf.MixedPrecision;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.indexing.BooleanIndexing;
+import org.nd4j.linalg.indexing.conditions.Conditions;
+
+import java.io.Serializable;
+
+/**
+ * Loss scaling for mixed precision training, as configured by {@link MixedPrecision}.<br>
+ * The network scales the output layer gradients and epsilons by the current loss scale during backprop (see
+ * {@link #scale(Gradient, INDArray...)}), and the updater checks the scaled gradients for overflow and unscales them
+ * before they are applied (see {@link #unscale(INDArray)}).
+ */
+@Slf4j
+public class LossScaler implements Serializable {
+
+    private final MixedPrecision config;
+    @Getter
+    private double lossScale;
+    @Getter
+    private int stepsSinceOverflow;
+    @Getter
+    private long skippedSteps;
+
+    public LossScaler(@NonNull MixedPrecision config) {
+        this.config = config;
+        this.lossScale = config.getInitialLossScale();
+    }
+
+    /**
+     * Multiply the given gradients and epsilons in-place by the current loss scale
+     *
+     * @param gradient Gradient to scale. May be null
+     * @param epsilons Epsilons to scale. Null entries are ignored
+     */
+    public void scale(Gradient gradient, INDArray... epsilons) {
+        if (lossScale == 1.0)
+            return;
+        if (gradient != null) {
+            for (INDArray g : gradient.gradientForVariable().values()) {
+                g.muli(lossScale);
+            }
+        }
+        if (epsilons != null) {
+            for (INDArray e : epsilons) {
+                if (e != null) {
+                    e.muli(lossScale);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check the (scaled) gradient for overflow, and divide it in-place by the loss scale. With dynamic loss scaling,
+     * the loss scale is updated for the next iteration.
+     *
+     * @param gradient Flattened gradient for the network
+     * @return True if the gradient is valid and has been unscaled; false if it overflowed, in which case the
+     *         parameter update for this iteration should be skipped
+     */
+    public boolean unscale(INDArray gradient) {
+        if (gradient == null)
+            return true;
+
+        boolean overflow = BooleanIndexing.or(gradient, Conditions.isNan())
+                        || BooleanIndexing.or(gradient, Conditions.isInfinite());
+        if (overflow) {
+            skippedSteps++;
+            stepsSinceOverflow = 0;
+            if (config.isDynamicLossScaling()) {
+                lossScale = Math.max(config.getMinLossScale(), lossScale / config.getScaleFactor());
+            }
+            log.debug("Gradient overflow: skipping parameter update. Loss scale is now {}", lossScale);
+            return false;
+        }
+
+        if (lossScale != 1.0) {
+            gradient.divi(lossScale);
+        }
+        if (config.isDynamicLossScaling() && ++stepsSinceOverflow >= config.getScaleWindow()) {
+            lossScale = Math.min(config.getMaxLossScale(), lossScale * config.getScaleFactor());
+            stepsSinceOverflow = 0;
+        }
+        return true;
+    }
+}
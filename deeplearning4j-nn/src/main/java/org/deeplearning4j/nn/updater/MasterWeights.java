@@ -0,0 +1,86 @@
+package org.deeplearning4j.nn.updater;
+
+import lombok.NonNull;
+import org.deeplearning4j.nn.conf.MixedPrecision;
+import org.deeplearning4j.optimize.api.StepFunction;
+import org.deeplearning4j.optimize.stepfunctions.DefaultStepFunction;
+import org.deeplearning4j.optimize.stepfunctions.GradientStepFunction;
+import org.deeplearning4j.optimize.stepfunctions.NegativeDefaultStepFunction;
+import org.deeplearning4j.optimize.stepfunctions.NegativeGradientStepFunction;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.Serializable;
+
+/**
+ * Single precision (FP32) master copy of the network parameters for mixed precision training, as configured by
+ * {@link MixedPrecision}.<br>
+ * The network parameters, activations and gradients are stored and computed in the global ND4J data type, i.e. half
+ * precision with {@code Nd4j.setDataType(DataBuffer.Type.HALF)}. Updates much smaller than the parameters are lost
+ * when they are added to half precision values, hence updates are accumulated in this copy instead, and the network
+ * parameters are set to the (rounded) master weights after each step.<br>
+ * The copy is kept on heap as a float array, as ND4J ops require all their arrays to have the same data type. It is
+ * initialized from the network parameters on first use, and again whenever the parameters were changed other than by
+ * this class (setParams(), parameter averaging, etc.).
+ */
+public class MasterWeights implements Serializable {
+
+    private transient float[] master;
+    // network parameters as last written by step(), to detect external changes
+    private transient INDArray written;
+
+    /**
+     * Apply the update to the master weights, and copy the result into the network parameters
+     *
+     * @param stepFunction Step function of the optimizer. Only the default step functions (adding or subtracting
+     *                     the update) are supported
+     * @param params       Flattened network parameters
+     * @param update       Flattened update, as computed by the updater
+     */
+    public void step(@NonNull StepFunction stepFunction, @NonNull INDArray params, @NonNull INDArray update) {
+        float sign = sign(stepFunction);
+        if (master == null || master.length != params.length() || !params.equalsWithEps(written, 0.0)) {
+            master = toFloat(params);
+        }
+
+        float[] u = toFloat(update);
+        for (int i = 0; i < master.length; i++) {
+            master[i] += sign * u[i];
+        }
+
+        //Rounds the master weights to the global data type
+        params.assign(Nd4j.create(master, params.shape(), 'c'));
+
+        try (MemoryWorkspace workspace = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+            if (written == null || written.length() != params.length()) {
+                written = params.dup('c');
+            } else {
+                written.assign(params);
+            }
+        }
+    }
+
+    /**
+     * @return Copy of the master weights, or null if no step was done yet
+     */
+    public float[] getMasterWeights() {
+        return master == null ? null : master.clone();
+    }
+
+    private static float sign(StepFunction stepFunction) {
+        if (stepFunction instanceof NegativeDefaultStepFunction || stepFunction instanceof NegativeGradientStepFunction)
+            return -1.0f;
+        if (stepFunction instanceof DefaultStepFunction || stepFunction instanceof GradientStepFunction)
+            return 1.0f;
+        throw new IllegalStateException("Mixed precision master weights don't support step function "
+                        + stepFunction.getClass().getSimpleName());
+    }
+
+    private static float[] toFloat(INDArray array) {
+        //Views (e.g. of the flattened parameters) are copied first, so only the elements of the array are read
+        if (array.offset() != 0 || array.length() != array.data().length() || array.ordering() != 'c')
+            array = array.dup('c');
+        return array.data().asFloat();
+    }
+}
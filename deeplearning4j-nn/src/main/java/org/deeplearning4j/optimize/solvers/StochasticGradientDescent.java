@@ -22,6 +22,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.deeplearning4j.nn.api.Model;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.updater.MasterWeights;
 import org.deeplearning4j.optimize.api.IterationListener;
 import org.deeplearning4j.optimize.api.StepFunction;
 import org.deeplearning4j.optimize.api.TerminationCondition;
@@ -75,7 +78,13 @@ public class StochasticGradientDescent extends BaseOptimizer {
             // if there's no update available - just go on then
         } else {
             // if accumulator isn't used - we just to for direct updates application
-            stepFunction.step(params, gradient.gradient());
+            MasterWeights masterWeights = getMasterWeights(model);
+            if (masterWeights != null) {
+                // mixed precision: the update is applied to the FP32 copy of the parameters
+                masterWeights.step(stepFunction, params, gradient.gradient());
+            } else {
+                stepFunction.step(params, gradient.gradient());
+            }
         }
 
         //Note: model.params() is always in-place for MultiLayerNetwork and ComputationGraph, hence no setParams is necessary there
@@ -97,6 +106,15 @@ public class StochasticGradientDescent extends BaseOptimizer {
         return true;
     }
 
+    private static MasterWeights getMasterWeights(Model model) {
+        if (model instanceof MultiLayerNetwork) {
+            return ((MultiLayerNetwork) model).getMasterWeights();
+        } else if (model instanceof ComputationGraph) {
+            return ((ComputationGraph) model).getMasterWeights();
+        }
+        return null;
+    }
+
     @Override
     public void preProcessLine() {}
 
@@ -0,0 +1,131 @@
+package org.deeplearning4j.optimize.solvers.accumulation;
+
+import lombok.NonNull;
+import org.deeplearning4j.exception.DL4JInvalidConfigException;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.GradientCodec;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.GradientCodecs;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.compression.ThresholdCompression;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+/**
+ * Encoded updates message format for updates covering only a contiguous range (bucket) of the flattened parameters.
+ * <br>
+ * A bucket message wraps a regular threshold or bitmap encoded message, produced from a view of the bucket, with a
+ * header holding the position of the bucket: [offset, length, inner message length, {@link #BUCKET_ENCODING}],
+ * followed by the inner message. The encoding type is stored at the same position as in regular messages, so
+ * {@link #decode(INDArray, INDArray)} handles both kinds of messages.
+ * <br>
+ * Small or dense updates can also be sent as is, with a dense message: [length, 0, 0, {@link #DENSE_ENCODING}],
+ * followed by the values, as floats.
+ * <br>
+ * Messages with any other encoding are decoded by the {@link GradientCodec} registered for it in
+ * {@link GradientCodecs}.
+ */
+public class BucketEncoding {
+    public static final int BUCKET_ENCODING = 0x42434B54;
+    public static final int DENSE_ENCODING = 0x444E5345;
+    public static final int HEADER_LENGTH = 4;
+
+    private BucketEncoding() {}
+
+    /**
+     * Wrap an encoded message into a bucket message
+     *
+     * @param encoded Message encoded from a view of the updates, in range [offset, offset + length)
+     * @param offset  Offset of the bucket in the flattened updates vector
+     * @param length  Length of the bucket
+     * @return Bucket message
+     */
+    public static INDArray wrap(@NonNull INDArray encoded, int offset, int length) {
+        DataBuffer inner = encoded.data();
+        int innerLength = (int) inner.length();
+
+        DataBuffer buffer = Nd4j.getDataBufferFactory().createInt(HEADER_LENGTH + innerLength);
+        buffer.put(0, offset);
+        buffer.put(1, length);
+        buffer.put(2, innerLength);
+        buffer.put(3, BUCKET_ENCODING);
+        Nd4j.getMemoryManager().memcpy(payload(buffer, innerLength), inner);
+        return Nd4j.createArrayFromShapeBuffer(buffer, encoded.shapeInfoDataBuffer());
+    }
+
+    /**
+     * Encode the given updates as a dense message. Just like threshold encoding, encoded values are subtracted from
+     * the updates: only the float rounding error remains there
+     *
+     * @param updates Updates to encode (row vector)
+     * @return Dense message
+     */
+    public static INDArray encodeDense(@NonNull INDArray updates) {
+        int length = updates.length();
+        float[] values = updates.dup().data().asFloat();
+        updates.subi(Nd4j.create(values, new int[] {1, length}));
+
+        DataBuffer buffer = Nd4j.getDataBufferFactory().createInt(HEADER_LENGTH + length);
+        buffer.put(0, length);
+        buffer.put(1, 0);
+        buffer.put(2, 0);
+        buffer.put(3, DENSE_ENCODING);
+        //Values are stored as raw float bits: same element size, so a plain memory copy does the conversion
+        Nd4j.getMemoryManager().memcpy(payload(buffer, length), Nd4j.getDataBufferFactory().createFloat(values));
+        return Nd4j.createArrayFromShapeBuffer(buffer, updates.shapeInfoDataBuffer());
+    }
+
+    /**
+     * Decode the given (bucket, threshold or bitmap encoded) message, adding the decoded values to the target array
+     *
+     * @param message Encoded message
+     * @param target  Flattened updates vector (row vector) to decode the message into
+     * @return Encoding of the decoded values: {@link ThresholdCompression#FLEXIBLE_ENCODING},
+     *         {@link ThresholdCompression#BITMAP_ENCODING}, {@link #DENSE_ENCODING} or the encoding of a
+     *         {@link GradientCodec}
+     */
+    public static int decode(@NonNull INDArray message, @NonNull INDArray target) {
+        int encoding = message.data().getInt(3);
+        if (encoding == ThresholdCompression.FLEXIBLE_ENCODING) {
+            Nd4j.getExecutioner().thresholdDecode(message, target);
+        } else if (encoding == ThresholdCompression.BITMAP_ENCODING) {
+            Nd4j.getExecutioner().bitmapDecode(message, target);
+        } else if (encoding == DENSE_ENCODING) {
+            DataBuffer data = message.data();
+            int length = data.getInt(0);
+            if (length != target.length())
+                throw new DL4JInvalidConfigException("Dense message of length " + length
+                                + " can't be decoded into updates of length " + target.length());
+
+            DataBuffer values = Nd4j.getDataBufferFactory().createFloat(length);
+            Nd4j.getMemoryManager().memcpy(values, payload(data, length));
+            target.addi(Nd4j.create(values.asFloat(), new int[] {1, length}));
+        } else if (encoding == BUCKET_ENCODING) {
+            DataBuffer data = message.data();
+            int offset = data.getInt(0);
+            int length = data.getInt(1);
+            int innerLength = data.getInt(2);
+            if (offset < 0 || length < 1 || offset + length > target.length())
+                throw new DL4JInvalidConfigException("Bucket [" + offset + ", " + (offset + length)
+                                + ") is out of bounds for updates of length " + target.length());
+
+            //Inner message is decoded in place, through a view of the message buffer
+            DataBuffer inner = payload(data, innerLength);
+            INDArray bucket = target.get(NDArrayIndex.point(0), NDArrayIndex.interval(offset, offset + length));
+            INDArray innerMessage = Nd4j.createArrayFromShapeBuffer(inner, bucket.shapeInfoDataBuffer());
+            encoding = decode(innerMessage, bucket);
+        } else {
+            GradientCodec codec = GradientCodecs.forEncoding(encoding);
+            if (codec == null)
+                throw new DL4JInvalidConfigException("Unknown compression header received: " + encoding);
+            codec.decode(message, target);
+        }
+        return encoding;
+    }
+
+    /**
+     * View of the message payload, i.e. the given number of elements following the header. No data is copied
+     */
+    private static DataBuffer payload(DataBuffer message, long length) {
+        return Nd4j.createBuffer(message, HEADER_LENGTH, length);
+    }
+}
@@ -5,12 +5,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.deeplearning4j.exception.DL4JInvalidConfigException;
 import org.deeplearning4j.nn.api.Model;
 import org.deeplearning4j.optimize.api.StepFunction;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.GradientCodec;
 import org.deeplearning4j.util.ThreadUtils;
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
 import org.nd4j.linalg.api.memory.enums.*;
 import org.nd4j.linalg.api.ndarray.INDArray;
-import org.nd4j.linalg.compression.ThresholdCompression;
 import org.nd4j.linalg.exception.ND4JIllegalStateException;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.util.AtomicThrowable;
@@ -149,6 +149,26 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
         return getOptimalBufferSize(model.params().length(), numWorkers, queueSize);
     }
 
+    /**
+     * This method returns optimal bufferSize for a given model, with updates encoded by the given codec
+     *
+     * @param codec Codec updates are encoded with. Null for threshold/bitmap encoding
+     * @param paramsLength
+     * @param numWorkers
+     * @param queueSize
+     * @return
+     */
+    public static int getOptimalBufferSize(GradientCodec codec, int paramsLength, int numWorkers, int queueSize) {
+        if (codec == null)
+            return getOptimalBufferSize(paramsLength, numWorkers, queueSize);
+
+        long bufferSize = (codec.maxEncodedLength(paramsLength) + 65536) * numWorkers * queueSize * 4;
+        if (bufferSize > Integer.MAX_VALUE)
+            throw new DL4JInvalidConfigException("Buffer of " + bufferSize + " bytes required for "
+                            + codec.getClass().getSimpleName() + " messages is too large");
+        return (int) bufferSize;
+    }
+
     @Override
     public void fallbackToSingleConsumerMode(boolean reallyFallback) {
         if (externalSource != null && externalSource instanceof Registerable)
@@ -251,13 +271,7 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
             while (!messages.get(index.get()).isEmpty()) {
                 INDArray compressed = messages.get(index.get()).poll();
 
-                int encoding = compressed.data().getInt(3);
-                if (encoding == ThresholdCompression.FLEXIBLE_ENCODING)
-                    Nd4j.getExecutioner().thresholdDecode(compressed, updates);
-                else if (encoding == ThresholdCompression.BITMAP_ENCODING)
-                    Nd4j.getExecutioner().bitmapDecode(compressed, updates);
-                else
-                    throw new DL4JInvalidConfigException("Unknown compression header received: " + encoding);
+                BucketEncoding.decode(compressed, updates);
 
                 cnt++;
             }
@@ -276,23 +290,10 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
                                         .getAndActivateWorkspace(appliedConfiguration, "CGA_APPLY")) {
                             INDArray compressed_copy = compressed.unsafeDuplication(true);
 
-                            int encoding = compressed.data().getInt(3);
-                            if (encoding == ThresholdCompression.FLEXIBLE_ENCODING)
-                                Nd4j.getExecutioner().thresholdDecode(compressed_copy, updates);
-                            else if (encoding == ThresholdCompression.BITMAP_ENCODING)
-                                Nd4j.getExecutioner().bitmapDecode(compressed_copy, updates);
-                            else
-                                throw new DL4JInvalidConfigException(
-                                                "Unknown compression header received: " + encoding);
+                            BucketEncoding.decode(compressed_copy, updates);
                         }
                     } else {
-                        int encoding = compressed.data().getInt(3);
-                        if (encoding == ThresholdCompression.FLEXIBLE_ENCODING)
-                            Nd4j.getExecutioner().thresholdDecode(compressed, updates);
-                        else if (encoding == ThresholdCompression.BITMAP_ENCODING)
-                            Nd4j.getExecutioner().bitmapDecode(compressed, updates);
-                        else
-                            throw new DL4JInvalidConfigException("Unknown compression header received: " + encoding);
+                        BucketEncoding.decode(compressed, updates);
                     }
                     cnt++;
                     ent++;
@@ -335,13 +336,7 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
             while (!messages.get(index.get()).isEmpty()) {
                 INDArray compressed = messages.get(index.get()).poll();
 
-                int encoding = compressed.data().getInt(3);
-                if (encoding == ThresholdCompression.FLEXIBLE_ENCODING)
-                    Nd4j.getExecutioner().thresholdDecode(compressed, updates);
-                else if (encoding == ThresholdCompression.BITMAP_ENCODING)
-                    Nd4j.getExecutioner().bitmapDecode(compressed, updates);
-                else
-                    throw new DL4JInvalidConfigException("Unknown compression header received: " + encoding);
+                BucketEncoding.decode(compressed, updates);
 
                 cnt++;
             }
@@ -360,23 +355,10 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
                         try (MemoryWorkspace workspace = Nd4j.getWorkspaceManager()
                                         .getAndActivateWorkspace(appliedConfiguration, "CGA_APPLY")) {
                             INDArray compressed_copy = compressed.unsafeDuplication(true);
-                            int encoding = compressed.data().getInt(3);
-                            if (encoding == ThresholdCompression.FLEXIBLE_ENCODING)
-                                Nd4j.getExecutioner().thresholdDecode(compressed_copy, updates);
-                            else if (encoding == ThresholdCompression.BITMAP_ENCODING)
-                                Nd4j.getExecutioner().bitmapDecode(compressed_copy, updates);
-                            else
-                                throw new DL4JInvalidConfigException(
-                                                "Unknown compression header received: " + encoding);
+                            BucketEncoding.decode(compressed_copy, updates);
                         }
                     } else {
-                        int encoding = compressed.data().getInt(3);
-                        if (encoding == ThresholdCompression.FLEXIBLE_ENCODING)
-                            Nd4j.getExecutioner().thresholdDecode(compressed, updates);
-                        else if (encoding == ThresholdCompression.BITMAP_ENCODING)
-                            Nd4j.getExecutioner().bitmapDecode(compressed, updates);
-                        else
-                            throw new DL4JInvalidConfigException("Unknown compression header received: " + encoding);
+                        BucketEncoding.decode(compressed, updates);
                     }
                     cnt++;
                     ent++;
@@ -547,6 +529,7 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
         protected int queueSize = 5;
         protected MessageHandler handler;
         protected Double boundary = null;
+        protected GradientCodec codec;
 
         /**
          * This
@@ -572,6 +555,19 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
             return this;
         }
 
+        /**
+         * This method allows to specify the codec updates are encoded with, instead of threshold encoding.
+         * Only used with the default MessageHandler
+         *
+         * Default value: null (threshold encoding)
+         * @param codec
+         * @return
+         */
+        public Builder gradientCodec(@NonNull GradientCodec codec) {
+            this.codec = codec;
+            return this;
+        }
+
         /**
          * This method allows to set encoding threshold for this accumulator instance
          *
@@ -623,6 +619,9 @@ public class EncodedGradientsAccumulator implements GradientsAccumulator, Regist
                     handler = new EncodingHandler(threshold);
                 else
                     handler = new EncodingHandler(threshold, boundary);
+
+                if (codec != null)
+                    ((EncodingHandler) handler).setGradientCodec(codec);
             }
 
             EncodedGradientsAccumulator accumulator =
@@ -3,14 +3,22 @@ package org.deeplearning4j.optimize.solvers.accumulation;
 import com.google.common.util.concurrent.AtomicDouble;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.exception.DL4JInvalidConfigException;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.GradientCodec;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.GradientCodecs;
 import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.compression.NDArrayCompressor;
+import org.nd4j.linalg.compression.ThresholdCompression;
 import org.nd4j.linalg.exception.ND4JIllegalStateException;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -19,6 +27,11 @@ import java.util.concurrent.atomic.AtomicLong;
  *
  * This handler is used as basement for distributed handler though.
  *
+ * In adaptive mode (see {@link #setTargetSparsity(double)} and {@link #setTargetBytesPerIteration(long)}), each segment
+ * of the updates gets its own threshold, tuned to encode a target number of values, instead of threshold decay.
+ *
+ * Threshold encoding can be replaced by any other encoding, see {@link #setGradientCodec(GradientCodec)}.
+ *
  * PLEASE NOTE: This handler does NOT provide any network connectivity. *
  * @author raver119@gmail.com
  */
@@ -30,12 +43,28 @@ public class EncodingHandler implements MessageHandler {
     protected int stepDelay;
     protected Double boundary = null;
     protected NDArrayCompressor compressor;
-    protected AtomicInteger atomicBoundary = new AtomicInteger(-1);
+    protected int bucketSize = 0;
+    protected int[] segmentOffsets;
+
+    // adaptive encoding: per-segment thresholds are tuned to hit a target number of encoded values
+    protected static final double MIN_ADAPTIVE_THRESHOLD = 1e-10;
+    protected static final double MIN_ADAPTATION = 0.5;
+    protected static final double MAX_ADAPTATION = 2.0;
+    protected static final double SATURATED_ADAPTATION = 1.1;
+    protected double targetSparsity = 0.0;
+    protected long targetBytesPerIteration = 0L;
+
+    // if defined, updates are encoded with this codec instead of threshold encoding
+    protected GradientCodec codec;
 
-    protected ThreadLocal<AtomicLong> iterations = new ThreadLocal<>();
-    protected ThreadLocal<AtomicLong> lastStep = new ThreadLocal<>();
-    protected ThreadLocal<AtomicDouble> currentThreshold = new ThreadLocal<>();
-    protected ThreadLocal<AtomicBoolean> bitmapMode = new ThreadLocal<>();
+    // compression stats, shared by all threads
+    protected final AtomicLong originalBytes = new AtomicLong(0);
+    protected final AtomicLong encodedBytes = new AtomicLong(0);
+    protected final AtomicLong messages = new AtomicLong(0);
+    protected final Map<Integer, Double> residualNorms = new ConcurrentHashMap<>();
+
+    // encoding state is tracked separately for each thread, and for each bucket
+    protected ThreadLocal<Map<Integer, EncodingState>> encodingState = new ThreadLocal<>();
 
     /**
      * This method builds new EncodingHandler instance with initial threshold of 1e-3
@@ -91,6 +120,28 @@ public class EncodingHandler implements MessageHandler {
      */
     public EncodingHandler(double threshold, double minThreshold, double thresholdStep, double stepTrigger,
                     int stepDelay, int shakeFrequency, Double boundary) {
+        this(threshold, minThreshold, thresholdStep, stepTrigger, stepDelay, shakeFrequency, boundary, 0);
+    }
+
+    /**
+     * This method builds new EncodingHandler instance
+     *
+     * @param threshold Initial encoding threshold
+     * @param minThreshold Minimal encoding threshold (for threshold decay)
+     * @param thresholdStep Decay step for threshold decay
+     * @param stepTrigger Sparse/Dense ratio that will trigger decay step. In range 0..100
+     * @param stepDelay Minimal number of iterations between decay steps
+     * @param shakeFrequency How ofter we'll be sending dense updates with lower threshold
+     * @param boundary
+     * @param bucketSize If > 0, updates are encoded and sent in buckets of this many elements, starting from the end of
+     *                   the flattened updates (i.e. from the output layers), instead of one message per update. 0 to
+     *                   disable bucketing
+     */
+    public EncodingHandler(double threshold, double minThreshold, double thresholdStep, double stepTrigger,
+                    int stepDelay, int shakeFrequency, Double boundary, int bucketSize) {
+        if (bucketSize < 0)
+            throw new DL4JInvalidConfigException("Bucket size should be non-negative value");
+        this.bucketSize = bucketSize;
         this.threshold = threshold;
         this.minThreshold = minThreshold;
         this.stepTrigger = stepTrigger;
@@ -111,33 +162,216 @@ public class EncodingHandler implements MessageHandler {
         compressor.configure(threshold);
     }
 
+    /**
+     * This method enables adaptive encoding with a target sparsity: for each segment of the updates (see
+     * {@link #setSegmentOffsets(int[])}), the threshold is tuned after each message, so that about
+     * targetSparsity * segment length values get encoded. Threshold, bitmap or dense encoding is chosen for each
+     * message, whichever is the most compact for the target.<br>
+     * PLEASE NOTE: minThreshold, thresholdStep, stepTrigger, stepDelay and shakeFrequency are ignored in adaptive mode
+     *
+     * @param targetSparsity Fraction of the updates values to send with each message, in range (0, 1]. 0 to disable
+     */
+    public void setTargetSparsity(double targetSparsity) {
+        if (targetSparsity < 0.0 || targetSparsity > 1.0)
+            throw new DL4JInvalidConfigException("Target sparsity should be in range 0..1, got " + targetSparsity);
+        this.targetSparsity = targetSparsity;
+    }
+
+    /**
+     * This method enables adaptive encoding with a budget of bytes per iteration: same as
+     * {@link #setTargetSparsity(double)}, but the number of values to encode for each segment is derived from the
+     * budget, split between segments proportionally to their length. Takes precedence over the target sparsity
+     *
+     * @param targetBytesPerIteration Bytes to send per iteration (encoding headers excluded). 0 to disable
+     */
+    public void setTargetBytesPerIteration(long targetBytesPerIteration) {
+        if (targetBytesPerIteration < 0)
+            throw new DL4JInvalidConfigException("Target bytes per iteration should be non-negative value");
+        this.targetBytesPerIteration = targetBytesPerIteration;
+    }
+
+    /**
+     * This method sets the codec updates are encoded with, instead of threshold encoding. Bucketing and segments still
+     * apply: each bucket is encoded separately, with the codec.<br>
+     * PLEASE NOTE: threshold decay and adaptive encoding settings are ignored if a codec is defined
+     *
+     * @param codec Codec to use. Null to use threshold encoding
+     */
+    public void setGradientCodec(GradientCodec codec) {
+        if (codec != null && GradientCodecs.forEncoding(codec.getEncoding()) == null
+                        && codec.getEncoding() != ThresholdCompression.FLEXIBLE_ENCODING)
+            GradientCodecs.register(codec);
+        this.codec = codec;
+    }
+
+    public GradientCodec getGradientCodec() {
+        return codec;
+    }
+
+    /**
+     * This method sets the boundaries of the segments updates are split into before encoding, i.e. parameters of
+     * each layer. Each segment is encoded with its own threshold, and sent as a separate message, starting from the
+     * last segment. Overrides the bucket size
+     *
+     * @param segmentOffsets Offset of each segment in the flattened updates, starting with 0, followed by the total
+     *                       length of the updates. Null to use buckets instead
+     */
+    public void setSegmentOffsets(int[] segmentOffsets) {
+        if (segmentOffsets != null) {
+            if (segmentOffsets.length < 2 || segmentOffsets[0] != 0)
+                throw new DL4JInvalidConfigException(
+                                "Segment offsets should start with 0, and end with updates length");
+            for (int i = 1; i < segmentOffsets.length; i++) {
+                if (segmentOffsets[i] <= segmentOffsets[i - 1])
+                    throw new DL4JInvalidConfigException("Segment offsets should be strictly increasing");
+            }
+        }
+        this.segmentOffsets = segmentOffsets;
+    }
+
+    /**
+     * @return True if adaptive encoding is enabled, false otherwise
+     */
+    public boolean isAdaptive() {
+        return targetSparsity > 0.0 || targetBytesPerIteration > 0;
+    }
+
+    /**
+     * @return True if updates are split into multiple messages, false otherwise
+     */
+    public boolean isSegmented() {
+        return segmentOffsets != null || bucketSize > 0;
+    }
+
     public INDArray encodeUpdates(INDArray updates) {
-        // special op should be called here for encoding
-        if (bitmapMode.get() == null) {
-            bitmapMode.set(new AtomicBoolean(true));
-            currentThreshold.set(new AtomicDouble(threshold));
-            iterations.set(new AtomicLong(0));
-            lastStep.set(new AtomicLong(0));
+        return encodeUpdates(updates, 0, updates.lengthLong());
+    }
+
+    /**
+     * This method encodes given updates, using the encoding state of the given bucket
+     *
+     * @param updates     Updates to encode. Encoded values are subtracted from this array
+     * @param bucket      Index of the bucket these updates belong to. Always 0 if bucketing is disabled
+     * @param totalLength Length of the whole updates vector the bucket belongs to
+     * @return Encoded updates, or null if there's nothing to send
+     */
+    protected INDArray encodeUpdates(INDArray updates, int bucket, long totalLength) {
+        Map<Integer, EncodingState> states = encodingState.get();
+        if (states == null) {
+            states = new HashMap<>();
+            encodingState.set(states);
         }
 
-        iterations.get().incrementAndGet();
+        EncodingState state = states.get(bucket);
+        if (state == null) {
+            state = new EncodingState(threshold,
+                            boundary == null ? null : (int) (updates.lengthLong() * boundary));
+            states.put(bucket, state);
+        }
 
-        if (boundary != null && atomicBoundary.get() < 0)
-            atomicBoundary.compareAndSet(-1, (int) (updates.lengthLong() * boundary));
+        INDArray encoded;
+        if (codec != null) {
+            encoded = codec.encode(updates);
+        } else if (isAdaptive()) {
+            encoded = encodeAdaptive(updates, state, adaptiveTarget(updates.length(), totalLength));
+            residualNorms.put(bucket, updates.norm2Number().doubleValue());
+        } else {
+            encoded = encodeThreshold(updates, state);
+        }
+
+        originalBytes.addAndGet(updates.lengthLong() * Nd4j.sizeOfDataType());
+        if (encoded != null) {
+            encodedBytes.addAndGet(encoded.data().length() * 4);
+            messages.incrementAndGet();
+        }
+        return encoded;
+    }
+
+    /**
+     * @return Number of values to encode for a segment of the given length
+     */
+    protected int adaptiveTarget(int length, long totalLength) {
+        // each value takes one int in threshold encoded messages
+        double target = targetBytesPerIteration > 0 ? targetBytesPerIteration / 4.0 * length / totalLength
+                        : targetSparsity * length;
+        return (int) Math.max(1, Math.min(length, Math.round(target)));
+    }
+
+    /**
+     * This method encodes given updates with the most compact encoding for the given number of values, and tunes the
+     * threshold of the segment, so that the next message encodes about that many values
+     *
+     * @param updates Updates to encode. Encoded values are subtracted from this array
+     * @param state   Encoding state of the segment
+     * @param target  Number of values to encode
+     * @return Encoded updates, or null if there's nothing to send
+     */
+    protected INDArray encodeAdaptive(INDArray updates, EncodingState state, int target) {
+        int length = updates.length();
+        AtomicDouble currentThreshold = state.currentThreshold;
+        state.iterations.incrementAndGet();
+
+        // the budget allows to send everything: dense values take one int each, just like threshold encoded ones
+        if (target >= length)
+            return BucketEncoding.encodeDense(updates);
+
+        INDArray encoded;
+        long values;
+        boolean saturated = false;
+        if (target >= length / 16) {
+            // bitmap encoding takes 2 bits per value, whatever the number of encoded values
+            DataBuffer buffer = Nd4j.getDataBufferFactory().createInt(updates.lengthLong() / 16 + 5);
+            encoded = Nd4j.createArrayFromShapeBuffer(buffer, updates.shapeInfoDataBuffer());
+            values = Nd4j.getExecutioner().bitmapEncode(updates, encoded, currentThreshold.get());
+        } else {
+            // number of encoded values is capped by the target, so the budget is never exceeded
+            encoded = Nd4j.getExecutioner().thresholdEncode(updates, currentThreshold.get(), target);
+            values = encoded == null ? 0 : encoded.data().getInt(0);
+            saturated = values >= target;
+        }
+
+        double factor;
+        if (values == 0) {
+            factor = MIN_ADAPTATION;
+        } else {
+            factor = Math.min(MAX_ADAPTATION, Math.max(MIN_ADAPTATION, Math.sqrt(values / (double) target)));
+            // the real number of values above threshold is unknown once the cap is hit, but it's above the target
+            if (saturated)
+                factor = Math.max(factor, SATURATED_ADAPTATION);
+        }
+        currentThreshold.set(Math.max(MIN_ADAPTIVE_THRESHOLD, currentThreshold.get() * factor));
+
+        return values == 0 ? null : encoded;
+    }
+
+    /**
+     * This method encodes given updates with the configured threshold, stepping it down with sparse updates
+     *
+     * @param updates Updates to encode. Encoded values are subtracted from this array
+     * @param state   Encoding state of the bucket
+     * @return Encoded updates, or null if there's nothing to send
+     */
+    protected INDArray encodeThreshold(INDArray updates, EncodingState state) {
+        // special op should be called here for encoding
+        AtomicBoolean bitmapMode = state.bitmapMode;
+        AtomicDouble currentThreshold = state.currentThreshold;
+        AtomicLong iterations = state.iterations;
+        AtomicLong lastStep = state.lastStep;
+
+        iterations.incrementAndGet();
 
         INDArray encoded = null;
 
-        if (!bitmapMode.get().get()) {
+        if (!bitmapMode.get()) {
             // if shakeFrequency hits here, we'll use bitmap encoding for one round for 1/3 of current threshold
-            if (shakeFrequency != 0 && iterations.get().get() % shakeFrequency == 0) {
+            if (shakeFrequency != 0 && iterations.get() % shakeFrequency == 0) {
                 DataBuffer buffer = Nd4j.getDataBufferFactory().createInt(updates.lengthLong() / 16 + 5);
                 encoded = Nd4j.createArrayFromShapeBuffer(buffer, updates.shapeInfoDataBuffer());
 
-                Nd4j.getExecutioner().bitmapEncode(updates, encoded, currentThreshold.get().get() / 3);
+                Nd4j.getExecutioner().bitmapEncode(updates, encoded, currentThreshold.get() / 3);
             } else {
                 // otherwise (probably most often - we go for sparse
-                encoded = Nd4j.getExecutioner().thresholdEncode(updates, currentThreshold.get().get(),
-                                boundary == null ? null : atomicBoundary.get());
+                encoded = Nd4j.getExecutioner().thresholdEncode(updates, currentThreshold.get(), state.boundary);
 
                 // updates were TOO sparse, nothing to share here
                 if (encoded == null)
@@ -149,12 +383,12 @@ public class EncodingHandler implements MessageHandler {
                 // if updates are too dense - we fallback to bitmap encoding
                 if (encLen >= (updates.lengthLong() / 16)) {
                     log.debug("Going back to bitmapEncoding");
-                    bitmapMode.get().set(true);
+                    bitmapMode.set(true);
 
                     DataBuffer buffer = Nd4j.getDataBufferFactory().createInt(updates.lengthLong() / 16 + 5);
                     encoded = Nd4j.createArrayFromShapeBuffer(buffer, updates.shapeInfoDataBuffer());
 
-                    Nd4j.getExecutioner().bitmapEncode(updates, encoded, currentThreshold.get().get());
+                    Nd4j.getExecutioner().bitmapEncode(updates, encoded, currentThreshold.get());
 
                     return encoded;
                 }
@@ -162,23 +396,21 @@ public class EncodingHandler implements MessageHandler {
 
                 // after encoding is finished, and updates are sparse enough - let's step down a bit
                 // and we don't step down too early, so we wait for 50 iterations at least to step down
-                if (minThreshold <= currentThreshold.get().get()
-                                && minThreshold < currentThreshold.get().get() - thresholdStep
-                                && iterations.get().get() > lastStep.get().get() + stepDelay
-                                && encodingRatio < stepTrigger) {
-                    currentThreshold.get().addAndGet(-thresholdStep);
+                if (minThreshold <= currentThreshold.get() && minThreshold < currentThreshold.get() - thresholdStep
+                                && iterations.get() > lastStep.get() + stepDelay && encodingRatio < stepTrigger) {
+                    currentThreshold.addAndGet(-thresholdStep);
                     lastStep.set(iterations.get());
-                    log.debug("Threshold steps down to {}", currentThreshold.get().get());
+                    log.debug("Threshold steps down to {}", currentThreshold.get());
                 }
             }
         } else {
             DataBuffer buffer = Nd4j.getDataBufferFactory().createInt(updates.lengthLong() / 16 + 5);
             encoded = Nd4j.createArrayFromShapeBuffer(buffer, updates.shapeInfoDataBuffer());
 
-            long values = Nd4j.getExecutioner().bitmapEncode(updates, encoded, currentThreshold.get().get());
+            long values = Nd4j.getExecutioner().bitmapEncode(updates, encoded, currentThreshold.get());
 
             if (values < (updates.lengthLong() / 16 + 5) / 2) {
-                bitmapMode.get().set(false);
+                bitmapMode.set(false);
                 log.debug("Switched to threshold encoding");
             }
         }
@@ -206,8 +438,51 @@ public class EncodingHandler implements MessageHandler {
         accumulator.receiveUpdate(message);
     }
 
+    /**
+     * @return Ratio of the size of the encoded updates to the size of the original updates, over all messages since
+     *         the last call to {@link #resetStats()}, or NaN if nothing was encoded yet
+     */
+    public double getCompressionRatio() {
+        long encoded = encodedBytes.get();
+        return encoded == 0 ? Double.NaN : originalBytes.get() / (double) encoded;
+    }
+
+    /**
+     * @return L2 norm of the residual (values not sent yet) after the last message of each segment, as seen by the
+     *         most recent worker encoding that segment. Only tracked in adaptive mode, NaN otherwise
+     */
+    public double getResidualNorm() {
+        if (residualNorms.isEmpty())
+            return Double.NaN;
+        double sum = 0.0;
+        for (Double norm : residualNorms.values())
+            sum += norm * norm;
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * @return Number of messages encoded since the last call to {@link #resetStats()}
+     */
+    public long getMessagesCount() {
+        return messages.get();
+    }
+
+    /**
+     * This method resets compression ratio and residual norm stats
+     */
+    public void resetStats() {
+        originalBytes.set(0);
+        encodedBytes.set(0);
+        messages.set(0);
+        residualNorms.clear();
+    }
+
     @Override
     public boolean broadcastUpdates(INDArray updates) {
+        int[] segments = segments(updates.length());
+        if (segments != null)
+            return broadcastBuckets(updates, segments);
+
         /*
             we want to do 2 things here:
             1) encode updates
@@ -220,4 +495,71 @@ public class EncodingHandler implements MessageHandler {
         } else
             return false;
     }
+
+    /**
+     * @return Offsets of the segments updates of the given length are split into, followed by the length, or null if
+     *         updates should be sent as a single message
+     */
+    public int[] segments(int length) {
+        if (segmentOffsets != null) {
+            if (segmentOffsets[segmentOffsets.length - 1] != length)
+                throw new DL4JInvalidConfigException("Segments cover " + segmentOffsets[segmentOffsets.length - 1]
+                                + " values, but updates length is " + length);
+            return segmentOffsets;
+        }
+
+        if (bucketSize <= 0 || length <= bucketSize)
+            return null;
+
+        int numBuckets = (length + bucketSize - 1) / bucketSize;
+        int[] offsets = new int[numBuckets + 1];
+        for (int b = 0; b < numBuckets; b++)
+            offsets[b] = b * bucketSize;
+        offsets[numBuckets] = length;
+        return offsets;
+    }
+
+    /**
+     * This method encodes and sends updates bucket by bucket, in reverse order: parameters of the output layers are
+     * at the end of the flattened updates, so their messages are sent first, and the transfer of each bucket overlaps
+     * with the encoding of the remaining ones
+     *
+     * @param updates Updates to send
+     * @param offsets Offsets of the buckets, followed by the length of the updates
+     */
+    protected boolean broadcastBuckets(INDArray updates, int[] offsets) {
+        int length = updates.length();
+        boolean sent = false;
+        for (int b = offsets.length - 2; b >= 0; b--) {
+            int from = offsets[b];
+            int to = offsets[b + 1];
+            INDArray bucket = updates.get(NDArrayIndex.point(0), NDArrayIndex.interval(from, to));
+
+            INDArray encoded = encodeUpdates(bucket, b, length);
+            if (encoded == null)
+                continue;
+
+            // bucket messages aren't attached to any workspace, just like regular ones
+            INDArray message;
+            try (MemoryWorkspace workspace = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                message = BucketEncoding.wrap(encoded, from, to - from);
+            }
+            sendMessage(message);
+            sent = true;
+        }
+        return sent;
+    }
+
+    protected static class EncodingState {
+        protected final AtomicLong iterations = new AtomicLong(0);
+        protected final AtomicLong lastStep = new AtomicLong(0);
+        protected final AtomicDouble currentThreshold;
+        protected final AtomicBoolean bitmapMode = new AtomicBoolean(true);
+        protected final Integer boundary;
+
+        protected EncodingState(double threshold, Integer boundary) {
+            this.currentThreshold = new AtomicDouble(threshold);
+            this.boundary = boundary;
+        }
+    }
 }
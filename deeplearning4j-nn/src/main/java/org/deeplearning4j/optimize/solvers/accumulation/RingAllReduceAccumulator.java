@@ -0,0 +1,330 @@
+package org.deeplearning4j.optimize.solvers.accumulation;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.optimize.api.StepFunction;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.util.AtomicThrowable;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GradientsAccumulator implementation doing dense, bucketed ring all-reduce of the updates of all workers.<br>
+ * The flattened update vector is split into buckets of {@link #getBucketSize()} elements. Each bucket is reduced with
+ * the usual two phase ring algorithm: the bucket is split into one chunk per worker, partial sums travel around the
+ * ring during the reduce-scatter phase, and the fully reduced chunks travel around the ring again during the
+ * all-gather phase. Every worker moves exactly 2 * (N - 1) / N times the bucket size per bucket, independently of the
+ * number of workers.<br>
+ * There's no global barrier: each worker only waits for its two ring neighbours, and each bucket is applied to the
+ * parameters as soon as it is reduced, while the following buckets are still in flight.<br>
+ * All workers apply the same (summed or averaged) update, so replicas starting from the same parameters stay in sync.
+ * <br>
+ * Workers have to be bound to their ring position with {@link #registerWorker(int)}, and the number of workers
+ * participating in each training round has to be announced with {@link #registerConsumers(int)}: only the first N
+ * workers take part in a round with N consumers.
+ *
+ * PLEASE NOTE: workers access the buffers of their neighbours directly, so on multi-GPU systems peer-to-peer access
+ * between devices is required.
+ */
+@Slf4j
+public class RingAllReduceAccumulator implements GradientsAccumulator, Registerable {
+    public static final int DEFAULT_BUCKET_SIZE = 1024 * 1024;
+
+    // progress of each worker: (round << 32) | (next step to perform in this round)
+    private static final int STEP_BITS = 32;
+
+    @Getter
+    protected final int parties;
+    @Getter
+    protected final int bucketSize;
+    @Getter
+    protected final boolean average;
+
+    // one buffer per ring position, holding the partially reduced update of this worker
+    protected transient AtomicReferenceArray<INDArray> buffers;
+    protected transient AtomicLongArray progress;
+
+    // number of consumers for the rounds with less than "parties" workers. All other rounds use all workers
+    protected transient Map<Long, Integer> partialRounds = new ConcurrentHashMap<>();
+    protected transient AtomicLong registeredRounds = new AtomicLong(0);
+
+    protected transient ThreadLocal<WorkerState> workerState = new ThreadLocal<>();
+    protected final AtomicBoolean bypassMode = new AtomicBoolean(false);
+    protected final AtomicThrowable throwable = new AtomicThrowable();
+
+    /**
+     * Creates an accumulator averaging the updates of all workers, with buckets of {@link #DEFAULT_BUCKET_SIZE}
+     * elements
+     *
+     * @param parties Number of workers
+     */
+    public RingAllReduceAccumulator(int parties) {
+        this(parties, DEFAULT_BUCKET_SIZE, true);
+    }
+
+    /**
+     * @param parties    Number of workers
+     * @param bucketSize Number of elements reduced at once. Smaller buckets allow more overlap between the reduction
+     *                   and the parameters update, at the cost of more synchronization between neighbours
+     * @param average    If true: apply the average of the workers updates. If false: apply their sum, as
+     *                   {@link EncodedGradientsAccumulator} does
+     */
+    public RingAllReduceAccumulator(int parties, int bucketSize, boolean average) {
+        if (parties < 1)
+            throw new IllegalArgumentException("Number of parties must be positive, got " + parties);
+        if (bucketSize < 1)
+            throw new IllegalArgumentException("Bucket size must be positive, got " + bucketSize);
+        this.parties = parties;
+        this.bucketSize = bucketSize;
+        this.average = average;
+        this.buffers = new AtomicReferenceArray<>(parties);
+        this.progress = new AtomicLongArray(parties);
+    }
+
+    /**
+     * Bind the current thread to the given ring position. Must be called by each worker thread before training
+     *
+     * @param index Position of this worker in the ring, in range 0 to parties-1
+     */
+    public void registerWorker(int index) {
+        if (index < 0 || index >= parties)
+            throw new IllegalArgumentException(
+                            "Worker index must be in range 0 to " + (parties - 1) + ", got " + index);
+        WorkerState state = workerState.get();
+        if (state != null && state.index != index)
+            throw new IllegalStateException("Thread is already registered as worker " + state.index);
+        if (state == null)
+            workerState.set(new WorkerState(index));
+    }
+
+    @Override
+    public void registerConsumers(int numConsumers) {
+        if (numConsumers < 1 || numConsumers > parties)
+            throw new IllegalArgumentException(
+                            "Number of consumers must be in range 1 to " + parties + ", got " + numConsumers);
+        long round = registeredRounds.get();
+        if (numConsumers < parties)
+            partialRounds.put(round, numConsumers);
+        registeredRounds.incrementAndGet();
+    }
+
+    @Override
+    public void fallbackToSingleConsumerMode(boolean reallyFallback) {
+        bypassMode.set(reallyFallback);
+    }
+
+    @Override
+    public void storeUpdate(INDArray array) {
+        // no-op: the reduction is done bucket by bucket in applyUpdate(), so each bucket can be applied as soon as
+        // it is reduced
+    }
+
+    @Override
+    public void applyUpdate(StepFunction function, INDArray params, INDArray updates) {
+        applyUpdate(function, params, updates, Double.NaN);
+    }
+
+    @Override
+    public void applyUpdate(StepFunction function, INDArray params, INDArray updates, double alpha) {
+        if (bypassMode.get()) {
+            step(function, params, updates, alpha);
+            return;
+        }
+
+        WorkerState state = workerState.get();
+        if (state == null)
+            throw new IllegalStateException(
+                            "Current thread isn't registered as a worker: call registerWorker() first");
+
+        try {
+            int consumers = nextRound(state);
+            if (consumers == 1) {
+                step(function, params, updates, alpha);
+            } else {
+                allReduce(state, consumers, function, params, updates, alpha);
+            }
+            progress.set(state.index, stamp(state.round + 1, 0));
+            state.round++;
+        } catch (RuntimeException e) {
+            throwable.setIfFirst(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Wait until the current round is registered, skipping the rounds this worker doesn't take part in
+     *
+     * @return Number of workers in the round
+     */
+    protected int nextRound(WorkerState state) {
+        while (true) {
+            while (registeredRounds.get() <= state.round) {
+                checkThrowable();
+                LockSupport.parkNanos(1000L);
+            }
+
+            Integer partial = partialRounds.get(state.round);
+            int consumers = partial == null ? parties : partial;
+            if (state.index < consumers)
+                return consumers;
+
+            // not a member of this round: let the neighbours know we're done with it
+            progress.set(state.index, stamp(state.round + 1, 0));
+            state.round++;
+        }
+    }
+
+    protected void allReduce(WorkerState state, int consumers, StepFunction function, INDArray params,
+                    INDArray updates, double alpha) {
+        int me = state.index;
+        int prev = (me + consumers - 1) % consumers;
+        int next = (me + 1) % consumers;
+        int length = updates.length();
+
+        INDArray own = buffers.get(me);
+        if (own == null || own.length() != length) {
+            // we don't want ring buffers to be attached to any workspace
+            try (MemoryWorkspace workspace = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                own = Nd4j.create(1, length);
+            }
+            buffers.set(me, own);
+        }
+
+        // upstream buffer is only known after the upstream neighbour completed step 0 of this round: it may have
+        // (re)allocated it at the start of the round. Neighbours keep their buffer until the next round, so the
+        // reference stays valid until this round is over
+        INDArray upstream = null;
+
+        int step = 0;
+        for (int bucketStart = 0; bucketStart < length; bucketStart += bucketSize) {
+            int bucketEnd = (int) Math.min(length, (long) bucketStart + bucketSize);
+
+            // step 0: copy this worker's update into its ring buffer
+            awaitNeighbours(state, prev, next, step);
+            slice(own, bucketStart, bucketEnd).assign(slice(updates, bucketStart, bucketEnd));
+            completeStep(state, ++step);
+
+            // reduce-scatter: after consumers - 1 steps, this worker holds the reduced chunk (me + 1)
+            for (int s = 0; s < consumers - 1; s++) {
+                int chunk = (me - s - 1 + consumers) % consumers;
+                awaitNeighbours(state, prev, next, step);
+                if (upstream == null)
+                    upstream = buffers.get(prev);
+                INDArray target = chunk(own, bucketStart, bucketEnd, chunk, consumers);
+                if (target != null) {
+                    target.addi(chunk(upstream, bucketStart, bucketEnd, chunk, consumers));
+                    if (average && s == consumers - 2)
+                        target.divi(consumers);
+                }
+                completeStep(state, ++step);
+            }
+
+            // all-gather: reduced chunks travel around the ring
+            for (int s = 0; s < consumers - 1; s++) {
+                int chunk = (me - s + consumers) % consumers;
+                awaitNeighbours(state, prev, next, step);
+                INDArray target = chunk(own, bucketStart, bucketEnd, chunk, consumers);
+                if (target != null)
+                    target.assign(chunk(upstream, bucketStart, bucketEnd, chunk, consumers));
+                completeStep(state, ++step);
+            }
+
+            // this bucket is reduced: it can be applied while the neighbours are still working on it
+            step(function, slice(params, bucketStart, bucketEnd), slice(own, bucketStart, bucketEnd), alpha);
+        }
+    }
+
+    /**
+     * Wait until both neighbours have completed all steps before the given one: the upstream neighbour has produced
+     * the data this step reads, and the downstream neighbour has consumed the data this step overwrites
+     */
+    protected void awaitNeighbours(WorkerState state, int prev, int next, int step) {
+        long required = stamp(state.round, step);
+        while (progress.get(prev) < required || progress.get(next) < required) {
+            checkThrowable();
+            LockSupport.parkNanos(1000L);
+        }
+    }
+
+    protected void completeStep(WorkerState state, int step) {
+        // neighbours read our buffer directly, so all pending operations have to be finished here
+        Nd4j.getExecutioner().commit();
+        progress.set(state.index, stamp(state.round, step));
+    }
+
+    protected void checkThrowable() {
+        if (throwable.isTriggered())
+            throw new RuntimeException("Ring all-reduce aborted: another worker failed", throwable.get());
+    }
+
+    private static long stamp(long round, int step) {
+        return (round << STEP_BITS) | step;
+    }
+
+    private static void step(StepFunction function, INDArray params, INDArray updates, double alpha) {
+        if (Double.isNaN(alpha))
+            function.step(params, updates);
+        else
+            function.step(params, updates, alpha);
+    }
+
+    private static INDArray slice(INDArray vector, int from, int to) {
+        return vector.get(NDArrayIndex.point(0), NDArrayIndex.interval(from, to));
+    }
+
+    /**
+     * @return Chunk c out of n of the given bucket, or null if the chunk is empty
+     */
+    private static INDArray chunk(INDArray vector, int bucketStart, int bucketEnd, int c, int n) {
+        long size = bucketEnd - bucketStart;
+        int from = (int) (bucketStart + size * c / n);
+        int to = (int) (bucketStart + size * (c + 1) / n);
+        return from == to ? null : slice(vector, from, to);
+    }
+
+    @Override
+    public void receiveUpdate(INDArray array) {
+        throw new UnsupportedOperationException("Ring all-reduce doesn't support external updates");
+    }
+
+    @Override
+    public void setExternalSource(Queue<INDArray> source) {
+        throw new UnsupportedOperationException("Ring all-reduce doesn't support external updates");
+    }
+
+    /**
+     * This method resets the rounds state. Must only be called while no training is in progress: workers registered
+     * before the reset have to register again
+     */
+    @Override
+    public void reset() {
+        partialRounds.clear();
+        registeredRounds.set(0);
+        progress = new AtomicLongArray(parties);
+        workerState = new ThreadLocal<>();
+    }
+
+    @Override
+    public void touch() {
+        // no-op: ring buffers are allocated by each worker on first use
+    }
+
+    protected static class WorkerState {
+        protected final int index;
+        protected long round;
+
+        protected WorkerState(int index) {
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.deeplearning4j.optimize.solvers.accumulation.encoding;
+
+import org.deeplearning4j.exception.DL4JInvalidConfigException;
+import org.deeplearning4j.optimize.solvers.accumulation.BucketEncoding;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.concurrency.AffinityManager;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Arrays;
+
+/**
+ * Base class for codecs encoding updates on the JVM side. Messages are laid out as
+ * [length, header1, header2, encoding], followed by the payload.
+ *
+ * @see GradientCodec
+ */
+public abstract class BaseGradientCodec implements GradientCodec {
+    public static final int HEADER_LENGTH = BucketEncoding.HEADER_LENGTH;
+
+    //Scratch arrays of each thread, reused across messages: codecs stay stateless, and nothing of the size of the
+    //updates is allocated per message
+    private static final ThreadLocal<float[][]> scratch = new ThreadLocal<>();
+
+    /**
+     * @param slot   Index of the scratch array (0 is used by {@link #values(INDArray)})
+     * @param length Min length of the array
+     * @return Scratch array of the calling thread, of at least the given length. Contents are undefined
+     */
+    protected static float[] scratch(int slot, int length) {
+        float[][] arrays = scratch.get();
+        if (arrays == null) {
+            arrays = new float[2][0];
+            scratch.set(arrays);
+        }
+        if (arrays[slot].length < length)
+            arrays[slot] = new float[length];
+        return arrays[slot];
+    }
+
+    /**
+     * @return True if the values of the array can be read and written in place through its data buffer, in linear
+     *         index order: contiguous FLOAT vector or 'c' order array
+     */
+    protected static boolean inPlace(INDArray array) {
+        return array.data().dataType() == DataBuffer.Type.FLOAT && array.elementWiseStride() == 1
+                        && (array.isVector() || array.ordering() == 'c');
+    }
+
+    /**
+     * @return Values of the given updates, in a scratch array of the calling thread (only the first
+     *         {@code updates.length()} values are valid, until the next call on this thread)
+     */
+    protected static float[] values(INDArray updates) {
+        int length = updates.length();
+        float[] values = scratch(0, length);
+        if (inPlace(updates)) {
+            Nd4j.getAffinityManager().ensureLocation(updates, AffinityManager.Location.HOST);
+            DataBuffer data = updates.data();
+            long offset = updates.offset();
+            for (int i = 0; i < length; i++)
+                values[i] = data.getFloat(offset + i);
+        } else {
+            System.arraycopy(updates.dup('c').data().asFloat(), 0, values, 0, length);
+        }
+        return values;
+    }
+
+    /**
+     * This method sets the values of the updates (first {@code updates.length()} values of the given array), i.e. the
+     * residual once encoded values have been subtracted
+     */
+    protected static void setValues(INDArray updates, float[] values) {
+        int length = updates.length();
+        if (inPlace(updates)) {
+            DataBuffer data = updates.data();
+            long offset = updates.offset();
+            for (int i = 0; i < length; i++)
+                data.put(offset + i, values[i]);
+            Nd4j.getAffinityManager().tagLocation(updates, AffinityManager.Location.HOST);
+        } else {
+            updates.assign(Nd4j.create(Arrays.copyOf(values, length), updates.shape()));
+        }
+    }
+
+    /**
+     * This method adds decoded values (first {@code target.length()} values of the given array) to the target array
+     */
+    protected static void add(INDArray target, float[] decoded) {
+        int length = target.length();
+        if (inPlace(target)) {
+            Nd4j.getAffinityManager().ensureLocation(target, AffinityManager.Location.HOST);
+            DataBuffer data = target.data();
+            long offset = target.offset();
+            for (int i = 0; i < length; i++)
+                data.put(offset + i, data.getFloat(offset + i) + decoded[i]);
+            Nd4j.getAffinityManager().tagLocation(target, AffinityManager.Location.HOST);
+        } else {
+            target.addi(Nd4j.create(Arrays.copyOf(decoded, length), target.shape()));
+        }
+    }
+
+    /**
+     * This method creates message array around given data, setting the encoding id of this codec in the header
+     *
+     * @param updates Encoded updates
+     * @param data    Message data: header, followed by the payload
+     */
+    protected INDArray message(INDArray updates, int[] data) {
+        data[0] = updates.length();
+        data[3] = getEncoding();
+        DataBuffer buffer = Nd4j.getDataBufferFactory().createInt(data);
+        return Nd4j.createArrayFromShapeBuffer(buffer, updates.shapeInfoDataBuffer());
+    }
+
+    /**
+     * This method checks that given message was encoded by this codec, from updates of the same length as the target
+     *
+     * @return Message data: header, followed by the payload. Read in place, not copied
+     */
+    protected DataBuffer read(INDArray message, INDArray target) {
+        DataBuffer data = message.data();
+        if (data.length() < HEADER_LENGTH || data.getInt(3) != getEncoding())
+            throw new DL4JInvalidConfigException("Message wasn't encoded with " + getClass().getSimpleName());
+        if (data.getInt(0) != target.length())
+            throw new DL4JInvalidConfigException("Message of length " + data.getInt(0)
+                            + " can't be decoded into updates of length " + target.length());
+        return data;
+    }
+}
@@ -0,0 +1,52 @@
+package org.deeplearning4j.optimize.solvers.accumulation.encoding;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.shade.jackson.annotation.JsonTypeInfo;
+
+import java.io.Serializable;
+
+/**
+ * This interface describes an encoding of updates messages, for use with
+ * {@link org.deeplearning4j.optimize.solvers.accumulation.EncodingHandler} (see
+ * {@link org.deeplearning4j.optimize.solvers.accumulation.EncodingHandler#setGradientCodec(GradientCodec)}).
+ *
+ * Messages are INT arrays, with the same header layout as built-in threshold/bitmap messages: 4 header values, the
+ * last of them being the encoding id returned by {@link #getEncoding()}. This way messages of any codec can be decoded
+ * with {@link org.deeplearning4j.optimize.solvers.accumulation.BucketEncoding#decode(INDArray, INDArray)}, and
+ * wrapped into bucket messages. Codecs are found by encoding id in {@link GradientCodecs}.
+ *
+ * Error feedback: encoded values are subtracted from the updates, so whatever was lost by the encoding stays in the
+ * residual, and gets sent with later messages.
+ *
+ * PLEASE NOTE: All implementations of this interface must be thread-safe, and are expected to be stateless.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, include = JsonTypeInfo.As.PROPERTY, property = "@class")
+public interface GradientCodec extends Serializable {
+
+    /**
+     * @return Encoding id of the messages produced by this codec. Must be unique among registered codecs
+     */
+    int getEncoding();
+
+    /**
+     * This method encodes given updates
+     *
+     * @param updates Updates to encode (row vector). Encoded values are subtracted from this array
+     * @return Encoded message, or null if there's nothing to send
+     */
+    INDArray encode(INDArray updates);
+
+    /**
+     * This method decodes given message, adding the decoded values to the target array
+     *
+     * @param message Message produced by {@link #encode(INDArray)}
+     * @param target  Updates array (row vector) of the same length as the encoded updates
+     */
+    void decode(INDArray message, INDArray target);
+
+    /**
+     * @param length Length of the updates
+     * @return Max length (number of INT values) of the messages encoding updates of the given length
+     */
+    long maxEncodedLength(long length);
+}
@@ -0,0 +1,65 @@
+package org.deeplearning4j.optimize.solvers.accumulation.encoding;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.exception.DL4JInvalidConfigException;
+import org.deeplearning4j.optimize.solvers.accumulation.BucketEncoding;
+import org.nd4j.linalg.compression.ThresholdCompression;
+
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link GradientCodec}s messages can be decoded with, by encoding id.<br>
+ * {@link TopKCodec}, {@link SignCodec} and {@link Int8Codec} are always registered. Custom codecs are registered
+ * either with {@link #register(GradientCodec)} (on every JVM decoding their messages), or as a service: list the
+ * codec class in a {@code META-INF/services/org.deeplearning4j.optimize.solvers.accumulation.encoding.GradientCodec}
+ * file, and give it a public no-arg constructor.
+ */
+@Slf4j
+public class GradientCodecs {
+    private static final Map<Integer, GradientCodec> codecs = new ConcurrentHashMap<>();
+
+    static {
+        register(new TopKCodec());
+        register(new SignCodec());
+        register(new Int8Codec());
+
+        try {
+            for (GradientCodec codec : ServiceLoader.load(GradientCodec.class))
+                register(codec);
+        } catch (ServiceConfigurationError e) {
+            log.error("Failed to load gradient codecs", e);
+        }
+    }
+
+    private GradientCodecs() {}
+
+    /**
+     * This method registers given codec, so that its messages can be decoded
+     *
+     * @param codec Codec to register. Its encoding id can't be one of the built-in encodings
+     */
+    public static void register(@NonNull GradientCodec codec) {
+        int encoding = codec.getEncoding();
+        if (encoding == ThresholdCompression.FLEXIBLE_ENCODING || encoding == ThresholdCompression.BITMAP_ENCODING
+                        || encoding == BucketEncoding.BUCKET_ENCODING || encoding == BucketEncoding.DENSE_ENCODING)
+            throw new DL4JInvalidConfigException("Encoding " + encoding + " of " + codec.getClass().getName()
+                            + " is reserved for built-in encodings");
+
+        GradientCodec previous = codecs.putIfAbsent(encoding, codec);
+        if (previous != null && previous.getClass() != codec.getClass())
+            throw new DL4JInvalidConfigException("Encoding " + encoding + " of " + codec.getClass().getName()
+                            + " is already used by " + previous.getClass().getName());
+    }
+
+    /**
+     * @param encoding Encoding id, as found in messages header
+     * @return Codec for the given encoding, or null if there's no such codec registered
+     */
+    public static GradientCodec forEncoding(int encoding) {
+        return codecs.get(encoding);
+    }
+}
@@ -0,0 +1,63 @@
+package org.deeplearning4j.optimize.solvers.accumulation.encoding;
+
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+/**
+ * 8-bit quantization: each value is rounded to one of 255 levels, evenly spaced between -max and +max magnitude of
+ * the message. Rounding errors stay in the residual.<br>
+ * Message layout: [length, scale as float bits, 0, {@link #INT8_ENCODING}], followed by the quantized values, 4 per
+ * INT. Decoded value is the quantized value times the scale.
+ */
+public class Int8Codec extends BaseGradientCodec {
+    public static final int INT8_ENCODING = 0x494E5438;
+
+    @Override
+    public int getEncoding() {
+        return INT8_ENCODING;
+    }
+
+    @Override
+    public INDArray encode(INDArray updates) {
+        int length = updates.length();
+        float[] values = values(updates);
+        float max = 0.0f;
+        for (int i = 0; i < length; i++)
+            max = Math.max(max, Math.abs(values[i]));
+        if (max == 0.0f)
+            return null;
+
+        float scale = max / 127.0f;
+        int[] data = new int[HEADER_LENGTH + (length + 3) / 4];
+        data[1] = Float.floatToRawIntBits(scale);
+        for (int i = 0; i < length; i++) {
+            int q = Math.max(-127, Math.min(127, Math.round(values[i] / scale)));
+            data[HEADER_LENGTH + i / 4] |= (q & 0xFF) << (8 * (i % 4));
+            values[i] -= q * scale;
+        }
+        setValues(updates, values);
+        return message(updates, data);
+    }
+
+    @Override
+    public void decode(INDArray message, INDArray target) {
+        DataBuffer data = read(message, target);
+        float scale = Float.intBitsToFloat(data.getInt(1));
+        int length = data.getInt(0);
+        float[] decoded = scratch(1, length);
+        for (int i = 0; i < length; i += 4) {
+            int packed = data.getInt(HEADER_LENGTH + i / 4);
+            for (int j = i; j < Math.min(length, i + 4); j++) {
+                // sign extension of the byte
+                byte q = (byte) (packed >> (8 * (j % 4)));
+                decoded[j] = q * scale;
+            }
+        }
+        add(target, decoded);
+    }
+
+    @Override
+    public long maxEncodedLength(long length) {
+        return HEADER_LENGTH + (length + 3) / 4;
+    }
+}
@@ -0,0 +1,64 @@
+package org.deeplearning4j.optimize.solvers.accumulation.encoding;
+
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+/**
+ * 1-bit sign encoding with error feedback: each value is sent as its sign, times a single scale for the whole message
+ * (the mean magnitude of the values). The difference between the values and their encoded approximation stays in the
+ * residual, so that sign compression doesn't bias the updates over time.<br>
+ * Message layout: [length, scale as float bits, 0, {@link #SIGN_ENCODING}], followed by the signs, 32 per INT (bit
+ * set for negative values).
+ */
+public class SignCodec extends BaseGradientCodec {
+    public static final int SIGN_ENCODING = 0x5349474E;
+
+    @Override
+    public int getEncoding() {
+        return SIGN_ENCODING;
+    }
+
+    @Override
+    public INDArray encode(INDArray updates) {
+        int length = updates.length();
+        float[] values = values(updates);
+        double sum = 0.0;
+        for (int i = 0; i < length; i++)
+            sum += Math.abs(values[i]);
+        float scale = (float) (sum / length);
+        if (scale == 0.0f)
+            return null;
+
+        int[] data = new int[HEADER_LENGTH + (length + 31) / 32];
+        data[1] = Float.floatToRawIntBits(scale);
+        for (int i = 0; i < length; i++) {
+            if (values[i] < 0.0f) {
+                data[HEADER_LENGTH + i / 32] |= 1 << (i % 32);
+                values[i] += scale;
+            } else {
+                values[i] -= scale;
+            }
+        }
+        setValues(updates, values);
+        return message(updates, data);
+    }
+
+    @Override
+    public void decode(INDArray message, INDArray target) {
+        DataBuffer data = read(message, target);
+        float scale = Float.intBitsToFloat(data.getInt(1));
+        int length = data.getInt(0);
+        float[] decoded = scratch(1, length);
+        for (int i = 0; i < length; i += 32) {
+            int signs = data.getInt(HEADER_LENGTH + i / 32);
+            for (int j = i; j < Math.min(length, i + 32); j++)
+                decoded[j] = (signs & (1 << (j % 32))) != 0 ? -scale : scale;
+        }
+        add(target, decoded);
+    }
+
+    @Override
+    public long maxEncodedLength(long length) {
+        return HEADER_LENGTH + (length + 31) / 32;
+    }
+}
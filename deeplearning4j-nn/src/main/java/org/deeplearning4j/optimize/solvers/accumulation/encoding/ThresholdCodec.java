@@ -0,0 +1,48 @@
+package org.deeplearning4j.optimize.solvers.accumulation.encoding;
+
+import org.deeplearning4j.exception.DL4JInvalidConfigException;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.compression.ThresholdCompression;
+import org.nd4j.linalg.factory.Nd4j;
+
+/**
+ * Threshold encoding with a fixed threshold: values with magnitude above the threshold are sent as +/- threshold, one
+ * INT per value. Same messages as the sparse messages of
+ * {@link org.deeplearning4j.optimize.solvers.accumulation.EncodingHandler}, without threshold decay or bitmap fallback
+ */
+public class ThresholdCodec implements GradientCodec {
+    private final double threshold;
+
+    public ThresholdCodec() {
+        this(1e-3);
+    }
+
+    /**
+     * @param threshold Encoding threshold
+     */
+    public ThresholdCodec(double threshold) {
+        if (threshold <= 0.0)
+            throw new DL4JInvalidConfigException("Threshold should have positive value");
+        this.threshold = threshold;
+    }
+
+    @Override
+    public int getEncoding() {
+        return ThresholdCompression.FLEXIBLE_ENCODING;
+    }
+
+    @Override
+    public INDArray encode(INDArray updates) {
+        return Nd4j.getExecutioner().thresholdEncode(updates, threshold);
+    }
+
+    @Override
+    public void decode(INDArray message, INDArray target) {
+        Nd4j.getExecutioner().thresholdDecode(message, target);
+    }
+
+    @Override
+    public long maxEncodedLength(long length) {
+        return length + BaseGradientCodec.HEADER_LENGTH;
+    }
+}
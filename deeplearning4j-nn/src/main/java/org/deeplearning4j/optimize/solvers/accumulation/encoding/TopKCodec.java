@@ -0,0 +1,131 @@
+package org.deeplearning4j.optimize.solvers.accumulation.encoding;
+
+import org.deeplearning4j.exception.DL4JInvalidConfigException;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.Arrays;
+
+/**
+ * Top-k sparsification: the k values with the largest magnitude are sent as is, as (index, value) pairs. Message
+ * layout: [length, number of values, 0, {@link #TOPK_ENCODING}], followed by the indices, then by the values as
+ * float bits. Two INTs per sent value.
+ */
+public class TopKCodec extends BaseGradientCodec {
+    public static final int TOPK_ENCODING = 0x544F504B;
+
+    private final double fraction;
+
+    public TopKCodec() {
+        this(1e-3);
+    }
+
+    /**
+     * @param fraction Fraction of the updates values to send with each message, in range (0, 1]
+     */
+    public TopKCodec(double fraction) {
+        if (fraction <= 0.0 || fraction > 1.0)
+            throw new DL4JInvalidConfigException("Fraction should be in range (0, 1], got " + fraction);
+        this.fraction = fraction;
+    }
+
+    @Override
+    public int getEncoding() {
+        return TOPK_ENCODING;
+    }
+
+    @Override
+    public INDArray encode(INDArray updates) {
+        int length = updates.length();
+        float[] values = values(updates);
+        int k = (int) Math.max(1, Math.min(length, Math.round(fraction * length)));
+
+        float[] magnitudes = scratch(1, length);
+        for (int i = 0; i < length; i++)
+            magnitudes[i] = Math.abs(values[i]);
+        float kth = select(magnitudes, length, length - k);
+
+        // values above the k-th magnitude first, then values equal to it until there are k of them. Zeros are skipped.
+        // Indices are written to the message directly, values once the number of sent values is known
+        int[] data = new int[HEADER_LENGTH + 2 * k];
+        int count = 0;
+        for (int i = 0; i < length && count < k; i++) {
+            if (Math.abs(values[i]) > kth)
+                data[HEADER_LENGTH + count++] = i;
+        }
+        for (int i = 0; i < length && count < k && kth > 0.0f; i++) {
+            if (Math.abs(values[i]) == kth)
+                data[HEADER_LENGTH + count++] = i;
+        }
+        if (count == 0)
+            return null;
+        if (count < k)
+            data = Arrays.copyOf(data, HEADER_LENGTH + 2 * count);
+
+        data[1] = count;
+        for (int j = 0; j < count; j++) {
+            int idx = data[HEADER_LENGTH + j];
+            data[HEADER_LENGTH + count + j] = Float.floatToRawIntBits(values[idx]);
+            values[idx] = 0.0f;
+        }
+        setValues(updates, values);
+        return message(updates, data);
+    }
+
+    @Override
+    public void decode(INDArray message, INDArray target) {
+        DataBuffer data = read(message, target);
+        int count = data.getInt(1);
+        int length = data.getInt(0);
+        float[] decoded = scratch(1, length);
+        Arrays.fill(decoded, 0, length, 0.0f);
+        for (int j = 0; j < count; j++)
+            decoded[data.getInt(HEADER_LENGTH + j)] += Float.intBitsToFloat(data.getInt(HEADER_LENGTH + count + j));
+        add(target, decoded);
+    }
+
+    @Override
+    public long maxEncodedLength(long length) {
+        return HEADER_LENGTH + 2 * Math.max(1, Math.min(length, Math.round(fraction * length)));
+    }
+
+    /**
+     * Quickselect: reorders the array, and returns the value that would be at the given position once sorted
+     */
+    protected static float select(float[] a, int n) {
+        return select(a, a.length, n);
+    }
+
+    /**
+     * As per {@link #select(float[], int)}, for the first length values of the array
+     */
+    protected static float select(float[] a, int length, int n) {
+        int lo = 0;
+        int hi = length - 1;
+        while (lo < hi) {
+            float pivot = a[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (a[i] < pivot)
+                    i++;
+                while (a[j] > pivot)
+                    j--;
+                if (i <= j) {
+                    float t = a[i];
+                    a[i] = a[j];
+                    a[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (n <= j)
+                hi = j;
+            else if (n >= i)
+                lo = i;
+            else
+                return a[n];
+        }
+        return a[n];
+    }
+}
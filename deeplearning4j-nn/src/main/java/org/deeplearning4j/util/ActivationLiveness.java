@@ -0,0 +1,125 @@
+package org.deeplearning4j.util;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Liveness analysis of vertex activations over a topological ordering of a graph.<br>
+ * An activation is live from the step that produces it, until the step of its last consumer. Activations of
+ * retained vertices (usually the network outputs) stay live until the end of the pass.
+ */
+public class ActivationLiveness {
+    /** Marker for activations that must be retained until the end of the pass */
+    public static final int RETAINED = Integer.MAX_VALUE;
+
+    private final int[] topologicalOrder;
+    /** Per vertex index: position (in topological order) of the last vertex consuming this vertex's activations */
+    private final int[] lastUse;
+    /** Per position in topological order: vertex indices whose activations are no longer needed after this step */
+    @Getter
+    private final int[][] releasedAfter;
+
+    /**
+     * @param topologicalOrder Topological ordering of the vertex indices
+     * @param vertexInputs     For each vertex index: indices of the vertices it takes as input (null or empty for network inputs)
+     * @param retained         Vertex indices that must be retained until the end of the pass (usually network outputs)
+     */
+    public ActivationLiveness(@NonNull int[] topologicalOrder, @NonNull int[][] vertexInputs, @NonNull int[] retained) {
+        int nVertices = vertexInputs.length;
+        this.topologicalOrder = topologicalOrder;
+        this.lastUse = new int[nVertices];
+
+        int[] position = new int[nVertices];
+        for (int i = 0; i < topologicalOrder.length; i++) {
+            position[topologicalOrder[i]] = i;
+        }
+
+        //Unconsumed activations die right after they have been produced
+        for (int v = 0; v < nVertices; v++) {
+            lastUse[v] = position[v];
+        }
+        for (int v = 0; v < nVertices; v++) {
+            if (vertexInputs[v] == null)
+                continue;
+            for (int in : vertexInputs[v]) {
+                lastUse[in] = Math.max(lastUse[in], position[v]);
+            }
+        }
+        for (int r : retained) {
+            lastUse[r] = RETAINED;
+        }
+
+        List<List<Integer>> released = new ArrayList<>(topologicalOrder.length);
+        for (int i = 0; i < topologicalOrder.length; i++) {
+            released.add(new ArrayList<Integer>());
+        }
+        for (int v = 0; v < nVertices; v++) {
+            if (lastUse[v] != RETAINED)
+                released.get(lastUse[v]).add(v);
+        }
+
+        releasedAfter = new int[topologicalOrder.length][0];
+        for (int i = 0; i < topologicalOrder.length; i++) {
+            List<Integer> l = released.get(i);
+            releasedAfter[i] = new int[l.size()];
+            for (int j = 0; j < l.size(); j++) {
+                releasedAfter[i][j] = l.get(j);
+            }
+        }
+    }
+
+    /**
+     * @param vertexIdx Index of the vertex
+     * @return Position in the topological order after which activations of the vertex are no longer needed, or
+     * {@link #RETAINED} if they have to be kept until the end of the pass
+     */
+    public int getLastUse(int vertexIdx) {
+        return lastUse[vertexIdx];
+    }
+
+    /**
+     * Peak total size of simultaneously live activations, given the size of each vertex's activations
+     *
+     * @param activationSizes Size (for example in bytes) of activations of each vertex index
+     * @return Peak size of live activations, over all steps of the pass
+     */
+    public long peakLiveSize(@NonNull long[] activationSizes) {
+        long live = 0;
+        long peak = 0;
+        for (int i = 0; i < topologicalOrder.length; i++) {
+            live += activationSizes[topologicalOrder[i]];
+            peak = Math.max(peak, live);
+            for (int v : releasedAfter[i]) {
+                live -= activationSizes[v];
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Total size of all activations, i.e. the peak size when no activations are released before the end of the pass
+     *
+     * @param activationSizes Size (for example in bytes) of activations of each vertex index
+     * @return Total size of activations
+     */
+    public long totalSize(@NonNull long[] activationSizes) {
+        long total = 0;
+        for (int v : topologicalOrder) {
+            total += activationSizes[v];
+        }
+        return total;
+    }
+
+    /**
+     * @return Maximum number of simultaneously live activations, over all steps of the pass
+     */
+    public int peakLiveCount() {
+        long[] ones = new long[lastUse.length];
+        Arrays.fill(ones, 1L);
+        return (int) peakLiveSize(ones);
+    }
+}
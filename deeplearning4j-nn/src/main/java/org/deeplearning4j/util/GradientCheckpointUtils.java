@@ -0,0 +1,145 @@
+package org.deeplearning4j.util;
+
+import lombok.NonNull;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.layers.normalization.BatchNormalization;
+import org.deeplearning4j.nn.params.BatchNormalizationParamInitializer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.primitives.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Utilities for gradient checkpointing (activation recomputation) in {@link org.deeplearning4j.nn.multilayer.MultiLayerNetwork}
+ * and {@link org.deeplearning4j.nn.graph.ComputationGraph}.<br>
+ * With gradient checkpointing, the forward pass during training is split into segments over the topological order of
+ * the network. Only the activations at the end of each segment (the checkpoints) are retained; the activations within
+ * a segment are recomputed from the previous checkpoint during backprop, one segment at a time.
+ */
+public class GradientCheckpointUtils {
+
+    private GradientCheckpointUtils() {}
+
+    /**
+     * Automatically select checkpoints: roughly every sqrt(numPositions)-th position, out of the candidate positions.
+     * This minimizes (number of checkpoints + size of the largest segment) for networks with similar activation sizes.
+     *
+     * @param isCandidate For each position: whether the position may be used as a checkpoint
+     * @return Checkpoint positions, in increasing order
+     */
+    public static int[] selectCheckpoints(@NonNull boolean[] isCandidate) {
+        int n = isCandidate.length;
+        int step = Math.max(1, (int) Math.ceil(Math.sqrt(n)));
+
+        List<Integer> out = new ArrayList<>();
+        int last = -1;
+        for (int i = 0; i < n; i++) {
+            if (isCandidate[i] && i - last >= step) {
+                out.add(i);
+                last = i;
+            }
+        }
+
+        int[] ret = new int[out.size()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = out.get(i);
+        }
+        return ret;
+    }
+
+    /**
+     * Positions in a topological order that can be used as checkpoints: position p is a valid checkpoint if no
+     * activations produced before position p are needed after position p - i.e., everything after p only depends on
+     * the vertex at position p, or on activations that are retained anyway.
+     *
+     * @param inputPositions   For each position: the positions of its inputs (null or empty if none)
+     * @param retainedProducer For each position: whether its activations are retained anyway (network inputs)
+     * @param retainedConsumer For each position: whether its inputs are retained anyway (network outputs)
+     * @return For each position: true if it can be used as a checkpoint
+     */
+    public static boolean[] cutPositions(@NonNull int[][] inputPositions, @NonNull boolean[] retainedProducer,
+                    @NonNull boolean[] retainedConsumer) {
+        int n = inputPositions.length;
+        int[] lastUse = new int[n];
+        for (int i = 0; i < n; i++) {
+            lastUse[i] = i;
+        }
+        for (int w = 0; w < n; w++) {
+            if (retainedConsumer[w] || inputPositions[w] == null)
+                continue;
+            for (int u : inputPositions[w]) {
+                lastUse[u] = Math.max(lastUse[u], w);
+            }
+        }
+
+        boolean[] cut = new boolean[n];
+        int maxLastUse = -1;
+        for (int p = 0; p < n; p++) {
+            cut[p] = maxLastUse <= p && !retainedProducer[p] && !retainedConsumer[p];
+            if (!retainedProducer[p]) {
+                maxLastUse = Math.max(maxLastUse, lastUse[p]);
+            }
+        }
+        return cut;
+    }
+
+    /**
+     * Split positions 0..numPositions-1 into segments, each ending at a checkpoint (the last segment ends at the last
+     * position)
+     *
+     * @param checkpoints  Checkpoint positions
+     * @param numPositions Total number of positions
+     * @return Segments, as [first, last] positions (inclusive)
+     */
+    public static int[][] segments(@NonNull int[] checkpoints, int numPositions) {
+        int[] sorted = checkpoints.clone();
+        Arrays.sort(sorted);
+
+        List<int[]> out = new ArrayList<>();
+        int start = 0;
+        for (int c : sorted) {
+            if (c < start || c >= numPositions - 1)
+                continue;
+            out.add(new int[] {start, c});
+            start = c + 1;
+        }
+        if (start < numPositions) {
+            out.add(new int[] {start, numPositions - 1});
+        }
+        return out.toArray(new int[out.size()][]);
+    }
+
+    /**
+     * Some layers may update state during the training forward pass (for example, the global mean/variance estimates
+     * of batch normalization, when a helper such as cuDNN is used). When a segment is recomputed, this state must not
+     * be updated a second time.
+     * This method takes a copy of that state, to be restored with {@link #restoreForwardState(List)} after the
+     * recomputation
+     *
+     * @param layers Layers that are about to be recomputed
+     * @return Pairs of (state array, copy)
+     */
+    public static List<Pair<INDArray, INDArray>> snapshotForwardState(Layer... layers) {
+        List<Pair<INDArray, INDArray>> out = new ArrayList<>();
+        for (Layer l : layers) {
+            if (l instanceof BatchNormalization) {
+                INDArray mean = l.getParam(BatchNormalizationParamInitializer.GLOBAL_MEAN);
+                INDArray var = l.getParam(BatchNormalizationParamInitializer.GLOBAL_VAR);
+                out.add(new Pair<>(mean, mean.dup()));
+                out.add(new Pair<>(var, var.dup()));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Restore state previously saved via {@link #snapshotForwardState(Layer...)}
+     */
+    public static void restoreForwardState(List<Pair<INDArray, INDArray>> snapshot) {
+        for (Pair<INDArray, INDArray> p : snapshot) {
+            p.getFirst().assign(p.getSecond());
+        }
+    }
+}
@@ -5,6 +5,9 @@ import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.Pointer;
 import org.deeplearning4j.nn.api.Layer;
 import org.deeplearning4j.nn.api.Model;
 import org.deeplearning4j.nn.api.Updater;
@@ -12,7 +15,11 @@ import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.quantization.QuantizedModel;
+import org.deeplearning4j.nn.quantization.QuantizedTensor;
 import org.deeplearning4j.nn.updater.graph.ComputationGraphUpdater;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.concurrency.AffinityManager;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
 import org.nd4j.linalg.dataset.api.preprocessor.DataNormalization;
@@ -20,10 +27,19 @@ import org.nd4j.linalg.dataset.api.preprocessor.Normalizer;
 import org.nd4j.linalg.dataset.api.preprocessor.serializer.NormalizerSerializer;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.heartbeat.reports.Task;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.linalg.primitives.Pair;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -38,6 +54,25 @@ public class ModelSerializer {
 
     public static final String UPDATER_BIN = "updaterState.bin";
     public static final String NORMALIZER_BIN = "normalizer.bin";
+    public static final String COEFFICIENTS_RAW = "coefficients.raw";
+    public static final String UPDATER_RAW = "updaterState.raw";
+    public static final String QUANTIZED_WEIGHTS_BIN = "quantizedWeights.bin";
+
+    //Layout of the raw (memory-mappable) entries: fixed header, zero padding, then the array data in native byte order
+    private static final int RAW_MAGIC = 0x444C3452; //"DL4R"
+    private static final int RAW_VERSION = 1;
+    private static final int RAW_HEADER_LENGTH = 32;
+    private static final int RAW_DATA_ALIGNMENT = 64;
+    private static final int ZIP_LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int ZIP_LOCAL_HEADER_LENGTH = 30;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final long MAX_MAPPED_CHUNK_BYTES = Integer.MAX_VALUE - RAW_DATA_ALIGNMENT;
+    //Data type codes of raw entries: fixed values, independent of the order of the DataBuffer.Type constants
+    private static final int RAW_TYPE_FLOAT = 1;
+    private static final int RAW_TYPE_DOUBLE = 2;
+    private static final int RAW_TYPE_HALF = 3;
+    private static final int QUANTIZED_MAGIC = 0x444C3451; //"DL4Q"
+    private static final int QUANTIZED_VERSION = 1;
 
     private ModelSerializer() {}
 
@@ -169,6 +204,97 @@ public class ModelSerializer {
         zipfile.close();
     }
 
+    /**
+     * Write a model to a file, using the memory-mappable layout: parameters (and optionally updater state) are stored
+     * uncompressed at the start of the archive, so they can be loaded via
+     * {@link #restoreMultiLayerNetworkMapped(File, boolean)} or {@link #restoreComputationGraphMapped(File, boolean)}
+     * without inflating or copying them onto the heap.<br>
+     * Files written with this method can also be loaded with the standard restore methods.
+     *
+     * @param model       the model to write
+     * @param file        the file to write to
+     * @param saveUpdater whether to save the updater or not
+     * @throws IOException
+     */
+    public static void writeModelMappable(@NonNull Model model, @NonNull File file, boolean saveUpdater)
+            throws IOException {
+        writeModelMappable(model, file, saveUpdater, null);
+    }
+
+    /**
+     * Write a model to a file, using the memory-mappable layout. See {@link #writeModelMappable(Model, File, boolean)}
+     *
+     * @param model             the model to write
+     * @param file              the file to write to
+     * @param saveUpdater       whether to save the updater or not
+     * @param dataNormalization the normalizer to save (optional)
+     * @throws IOException
+     */
+    public static void writeModelMappable(@NonNull Model model, @NonNull File file, boolean saveUpdater,
+                    DataNormalization dataNormalization) throws IOException {
+        try (BufferedOutputStream stream = new BufferedOutputStream(new FileOutputStream(file))) {
+            writeModelMappable(model, stream, saveUpdater, dataNormalization);
+        }
+    }
+
+    /**
+     * Write a model to an output stream, using the memory-mappable layout. The stream is expected to be positioned at
+     * the start of the file being written, as data offsets are aligned relative to the first byte written.
+     * See {@link #writeModelMappable(Model, File, boolean)}
+     *
+     * @param model             the model to save
+     * @param stream            the output stream to write to
+     * @param saveUpdater       whether to save the updater for the model or not
+     * @param dataNormalization the normalizer ot save (may be null)
+     * @throws IOException
+     */
+    public static void writeModelMappable(@NonNull Model model, @NonNull OutputStream stream, boolean saveUpdater,
+                    DataNormalization dataNormalization) throws IOException {
+        CountingOutputStream counter = new CountingOutputStream(new CloseShieldOutputStream(stream));
+        ZipOutputStream zipfile = new ZipOutputStream(counter);
+
+        //Raw entries go first: the mapped loader locates them by walking the local file headers from the start
+        // of the archive, which is only possible while every preceding entry is STORED with known sizes
+        INDArray params = model.params();
+        if (params != null) {
+            writeRawEntry(zipfile, counter, COEFFICIENTS_RAW, params);
+        }
+
+        if (saveUpdater) {
+            INDArray updaterState = null;
+            if (model instanceof MultiLayerNetwork) {
+                updaterState = ((MultiLayerNetwork) model).getUpdater().getStateViewArray();
+            } else if (model instanceof ComputationGraph) {
+                updaterState = ((ComputationGraph) model).getUpdater().getStateViewArray();
+            }
+
+            if (updaterState != null && updaterState.length() > 0) {
+                writeRawEntry(zipfile, counter, UPDATER_RAW, updaterState);
+            }
+        }
+
+        String json = "";
+        if (model instanceof MultiLayerNetwork) {
+            json = ((MultiLayerNetwork) model).getLayerWiseConfigurations().toJson();
+        } else if (model instanceof ComputationGraph) {
+            json = ((ComputationGraph) model).getConfiguration().toJson();
+        }
+        zipfile.putNextEntry(new ZipEntry("configuration.json"));
+        zipfile.write(json.getBytes());
+
+        if (params == null) {
+            zipfile.putNextEntry(new ZipEntry("coefficients.bin"));
+            zipfile.putNextEntry(new ZipEntry("noParams.marker"));
+        }
+
+        if (dataNormalization != null) {
+            zipfile.putNextEntry(new ZipEntry(NORMALIZER_BIN));
+            NormalizerSerializer.getDefault().write(dataNormalization, zipfile);
+        }
+
+        zipfile.close();
+    }
+
     /**
      * Load a multi layer network from a file
      *
@@ -190,6 +316,28 @@ public class ModelSerializer {
      */
     public static MultiLayerNetwork restoreMultiLayerNetwork(@NonNull File file, boolean loadUpdater)
             throws IOException {
+        return restoreMultiLayerNetwork(file, loadUpdater, false);
+    }
+
+    /**
+     * Load a multi layer network from a file written with {@link #writeModelMappable(Model, File, boolean)}.<br>
+     * The network's flattened parameters are backed directly by a private (copy-on-write) memory mapping of the file,
+     * so nothing is copied at load time and pages are only read when a layer first touches them. Any modification of
+     * the parameters (for example by fitting the network) stays local to this process and never reaches the file.<br>
+     * Files using the standard layout are loaded as usual, with a warning.
+     *
+     * @param file        the file to load from
+     * @param loadUpdater whether to load the updater state or not
+     * @return the loaded multi layer network
+     * @throws IOException
+     */
+    public static MultiLayerNetwork restoreMultiLayerNetworkMapped(@NonNull File file, boolean loadUpdater)
+            throws IOException {
+        return restoreMultiLayerNetwork(file, loadUpdater, true);
+    }
+
+    private static MultiLayerNetwork restoreMultiLayerNetwork(File file, boolean loadUpdater, boolean memoryMap)
+            throws IOException {
         ZipFile zipFile = new ZipFile(file);
 
         boolean gotConfig = false;
@@ -223,8 +371,16 @@ public class ModelSerializer {
         }
 
 
+        ZipEntry coefficientsRaw = zipFile.getEntry(COEFFICIENTS_RAW);
+        if (coefficientsRaw != null) {
+            params = readRawEntry(file, COEFFICIENTS_RAW, memoryMap);
+            gotCoefficients = true;
+        } else if (memoryMap) {
+            log.warn("Model file {} does not use the memory-mappable layout, loading parameters onto the heap", file);
+        }
+
         ZipEntry coefficients = zipFile.getEntry("coefficients.bin");
-        if (coefficients != null ) {
+        if (coefficients != null && !gotCoefficients) {
             if(coefficients.getSize() > 0) {
                 InputStream stream = zipFile.getInputStream(coefficients);
                 DataInputStream dis = new DataInputStream(new BufferedInputStream(stream));
@@ -240,7 +396,10 @@ public class ModelSerializer {
 
         if (loadUpdater) {
             ZipEntry updaterStateEntry = zipFile.getEntry(UPDATER_BIN);
-            if (updaterStateEntry != null) {
+            if (zipFile.getEntry(UPDATER_RAW) != null) {
+                updaterState = readRawEntry(file, UPDATER_RAW, memoryMap);
+                gotUpdaterState = true;
+            } else if (updaterStateEntry != null) {
                 InputStream stream = zipFile.getInputStream(updaterStateEntry);
                 DataInputStream dis = new DataInputStream(new BufferedInputStream(stream));
                 updaterState = Nd4j.read(dis);
@@ -511,6 +670,25 @@ public class ModelSerializer {
      * @throws IOException
      */
     public static ComputationGraph restoreComputationGraph(@NonNull File file, boolean loadUpdater) throws IOException {
+        return restoreComputationGraph(file, loadUpdater, false);
+    }
+
+    /**
+     * Load a computation graph from a file written with {@link #writeModelMappable(Model, File, boolean)}.<br>
+     * See {@link #restoreMultiLayerNetworkMapped(File, boolean)} for details of the memory mapped loading.
+     *
+     * @param file        the file to get the computation graph from
+     * @param loadUpdater whether to load the updater state or not
+     * @return the loaded computation graph
+     * @throws IOException
+     */
+    public static ComputationGraph restoreComputationGraphMapped(@NonNull File file, boolean loadUpdater)
+            throws IOException {
+        return restoreComputationGraph(file, loadUpdater, true);
+    }
+
+    private static ComputationGraph restoreComputationGraph(File file, boolean loadUpdater, boolean memoryMap)
+            throws IOException {
         ZipFile zipFile = new ZipFile(file);
 
         boolean gotConfig = false;
@@ -544,8 +722,16 @@ public class ModelSerializer {
         }
 
 
+        ZipEntry coefficientsRaw = zipFile.getEntry(COEFFICIENTS_RAW);
+        if (coefficientsRaw != null) {
+            params = readRawEntry(file, COEFFICIENTS_RAW, memoryMap);
+            gotCoefficients = true;
+        } else if (memoryMap) {
+            log.warn("Model file {} does not use the memory-mappable layout, loading parameters onto the heap", file);
+        }
+
         ZipEntry coefficients = zipFile.getEntry("coefficients.bin");
-        if (coefficients != null) {
+        if (coefficients != null && !gotCoefficients) {
             if(coefficients.getSize() > 0) {
                 InputStream stream = zipFile.getInputStream(coefficients);
                 DataInputStream dis = new DataInputStream(new BufferedInputStream(stream));
@@ -562,7 +748,10 @@ public class ModelSerializer {
 
         if (loadUpdater) {
             ZipEntry updaterStateEntry = zipFile.getEntry(UPDATER_BIN);
-            if (updaterStateEntry != null) {
+            if (zipFile.getEntry(UPDATER_RAW) != null) {
+                updaterState = readRawEntry(file, UPDATER_RAW, memoryMap);
+                gotUpdaterState = true;
+            } else if (updaterStateEntry != null) {
                 InputStream stream = zipFile.getInputStream(updaterStateEntry);
                 DataInputStream dis = new DataInputStream(new BufferedInputStream(stream));
                 updaterState = Nd4j.read(dis);
@@ -621,6 +810,159 @@ public class ModelSerializer {
                     + "], gotCoefficients: [" + gotCoefficients + "], gotUpdater: [" + gotUpdaterState + "]");
     }
 
+    /**
+     * Write a quantized model to a file. Only the inference state is saved: the configuration, the int8 weights with
+     * their scales, the activation scales and the remaining (full precision) parameters
+     *
+     * @param model the quantized model to write
+     * @param file  the file to write to
+     * @throws IOException
+     */
+    public static void writeQuantizedModel(@NonNull QuantizedModel model, @NonNull File file) throws IOException {
+        try (BufferedOutputStream stream = new BufferedOutputStream(new FileOutputStream(file))) {
+            writeQuantizedModel(model, stream);
+        }
+    }
+
+    /**
+     * Write a quantized model to an output stream. Only the inference state is saved: the configuration, the int8
+     * weights with their scales, the activation scales and the remaining (full precision) parameters
+     *
+     * @param model  the quantized model to write
+     * @param stream the output stream to write to
+     * @throws IOException
+     */
+    public static void writeQuantizedModel(@NonNull QuantizedModel model, @NonNull OutputStream stream)
+            throws IOException {
+        Model network = model.getNetwork();
+        boolean isGraph = network instanceof ComputationGraph;
+        String json = isGraph ? ((ComputationGraph) network).getConfiguration().toJson()
+                : ((MultiLayerNetwork) network).getLayerWiseConfigurations().toJson();
+
+        ZipOutputStream zipfile = new ZipOutputStream(new CloseShieldOutputStream(stream));
+        zipfile.putNextEntry(new ZipEntry("configuration.json"));
+        zipfile.write(json.getBytes());
+
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(zipfile));
+        zipfile.putNextEntry(new ZipEntry(QUANTIZED_WEIGHTS_BIN));
+        try {
+            QuantizedTensor[] weights = model.getQuantizedWeights();
+            float[] inputScales = model.getInputScales();
+            dos.writeInt(QUANTIZED_MAGIC);
+            dos.writeInt(QUANTIZED_VERSION);
+            dos.writeBoolean(isGraph);
+            dos.writeInt(weights.length);
+            for (int i = 0; i < weights.length; i++) {
+                dos.writeFloat(inputScales[i]);
+                dos.writeBoolean(weights[i] != null);
+                if (weights[i] != null) {
+                    weights[i].write(dos);
+                }
+            }
+        } finally {
+            dos.flush();
+        }
+
+        INDArray params = model.unquantizedParams();
+        if (params != null) {
+            zipfile.putNextEntry(new ZipEntry("coefficients.bin"));
+            try {
+                Nd4j.write(params, dos);
+            } finally {
+                dos.flush();
+            }
+        }
+
+        dos.close();
+        zipfile.close();
+    }
+
+    /**
+     * Load a quantized model from a file written with {@link #writeQuantizedModel(QuantizedModel, File)}
+     *
+     * @param file the file to load from
+     * @return the loaded quantized model
+     * @throws IOException
+     */
+    public static QuantizedModel restoreQuantizedModel(@NonNull File file) throws IOException {
+        try (ZipFile zipFile = new ZipFile(file)) {
+            ZipEntry config = zipFile.getEntry("configuration.json");
+            ZipEntry quantized = zipFile.getEntry(QUANTIZED_WEIGHTS_BIN);
+            if (config == null || quantized == null)
+                throw new IllegalStateException("Quantized model wasn't found within file: gotConfig: ["
+                        + (config != null) + "], gotQuantizedWeights: [" + (quantized != null) + "]");
+
+            String json;
+            try (InputStream is = zipFile.getInputStream(config)) {
+                json = IOUtils.toString(is, StandardCharsets.UTF_8);
+            }
+
+            boolean isGraph;
+            QuantizedTensor[] weights;
+            float[] inputScales;
+            try (DataInputStream dis = new DataInputStream(new BufferedInputStream(zipFile.getInputStream(quantized)))) {
+                if (dis.readInt() != QUANTIZED_MAGIC)
+                    throw new IOException("Invalid quantized model file " + file + ": unknown format");
+                int version = dis.readInt();
+                if (version != QUANTIZED_VERSION)
+                    throw new IOException("Invalid quantized model file " + file + ": unsupported version " + version);
+                isGraph = dis.readBoolean();
+                int numLayers = dis.readInt();
+                weights = new QuantizedTensor[numLayers];
+                inputScales = new float[numLayers];
+                for (int i = 0; i < numLayers; i++) {
+                    inputScales[i] = dis.readFloat();
+                    if (dis.readBoolean()) {
+                        weights[i] = QuantizedTensor.read(dis);
+                    }
+                }
+            }
+
+            Model network;
+            if (isGraph) {
+                ComputationGraph cg = new ComputationGraph(ComputationGraphConfiguration.fromJson(json));
+                cg.init();
+                network = cg;
+            } else {
+                MultiLayerNetwork net = new MultiLayerNetwork(MultiLayerConfiguration.fromJson(json));
+                net.init();
+                network = net;
+            }
+            QuantizedModel model = new QuantizedModel(network, weights, inputScales);
+
+            ZipEntry coefficients = zipFile.getEntry("coefficients.bin");
+            if (coefficients != null) {
+                try (DataInputStream dis = new DataInputStream(
+                        new BufferedInputStream(zipFile.getInputStream(coefficients)))) {
+                    model.setUnquantizedParams(Nd4j.read(dis));
+                }
+            }
+            return model;
+        }
+    }
+
+    /**
+     * Load a quantized model from an input stream written with
+     * {@link #writeQuantizedModel(QuantizedModel, OutputStream)}
+     *
+     * @param is the input stream to load from
+     * @return the loaded quantized model
+     * @throws IOException
+     */
+    public static QuantizedModel restoreQuantizedModel(@NonNull InputStream is) throws IOException {
+        checkInputStream(is);
+
+        File tmpFile = null;
+        try {
+            tmpFile = tempFileFromStream(is);
+            return restoreQuantizedModel(tmpFile);
+        } finally {
+            if (tmpFile != null) {
+                tmpFile.delete();
+            }
+        }
+    }
+
     /**
      *
      * @param model
@@ -711,6 +1053,13 @@ public class ModelSerializer {
                     InputStream is = zipFile.getInputStream(entry);
 
                     ZipEntry wEntry = new ZipEntry(entry.getName());
+                    if (entry.getMethod() == ZipEntry.STORED) {
+                        //Keep raw (memory-mappable) entries uncompressed
+                        wEntry.setMethod(ZipEntry.STORED);
+                        wEntry.setSize(entry.getSize());
+                        wEntry.setCompressedSize(entry.getCompressedSize());
+                        wEntry.setCrc(entry.getCrc());
+                    }
                     writeFile.putNextEntry(wEntry);
 
                     IOUtils.copy(is, writeFile);
@@ -858,4 +1207,245 @@ public class ModelSerializer {
             throw e;
         }
     }
+
+    private static void writeRawEntry(ZipOutputStream zipfile, CountingOutputStream counter, String name,
+                    INDArray array) throws IOException {
+        INDArray contiguous = array;
+        if (array.isView() || array.ordering() != 'c' || array.offset() != 0) {
+            contiguous = array.dup('c');
+        }
+        if (!contiguous.isRowVector()) {
+            contiguous = contiguous.reshape('c', 1, contiguous.length());
+        }
+
+        DataBuffer.Type type = contiguous.data().dataType();
+        int elementSize = contiguous.data().getElementSize();
+        int length = contiguous.length();
+        long dataBytes = length * (long) elementSize;
+        int chunkLength = (int) (MAX_MAPPED_CHUNK_BYTES / elementSize);
+
+        //Data offset is relative to the start of the entry, chosen so that the data is aligned within the file
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        long maxEntrySize = RAW_HEADER_LENGTH + RAW_DATA_ALIGNMENT + dataBytes;
+        int zip64ExtraLength = maxEntrySize >= 0xFFFFFFFFL ? 20 : 0;
+        long entryStart = counter.getByteCount() + ZIP_LOCAL_HEADER_LENGTH + nameBytes.length + zip64ExtraLength;
+        long dataStart = entryStart + RAW_HEADER_LENGTH;
+        int padding = (int) ((RAW_DATA_ALIGNMENT - (dataStart % RAW_DATA_ALIGNMENT)) % RAW_DATA_ALIGNMENT);
+        int dataOffset = RAW_HEADER_LENGTH + padding;
+        long entrySize = dataOffset + dataBytes;
+
+        ByteBuffer header = ByteBuffer.allocate(dataOffset).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(RAW_MAGIC);
+        header.putInt(RAW_VERSION);
+        header.putInt(rawTypeCode(type));
+        header.putInt(ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 0 : 1);
+        header.putLong(length);
+        header.putInt(dataOffset);
+        header.putInt(0);
+        header.rewind();
+
+        //STORED entries need their CRC before the entry is started, hence two passes over the data
+        CRC32 crc = new CRC32();
+        crc.update(header.duplicate());
+        for (int i = 0; i < length; i += chunkLength) {
+            crc.update(rawChunk(contiguous, i, Math.min(chunkLength, length - i)));
+        }
+
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(entrySize);
+        entry.setCompressedSize(entrySize);
+        entry.setCrc(crc.getValue());
+        zipfile.putNextEntry(entry);
+
+        if (counter.getByteCount() != entryStart) {
+            throw new IllegalStateException("Unexpected zip local header length for entry " + name + ": expected data at "
+                            + "offset " + entryStart + ", got " + counter.getByteCount());
+        }
+
+        WritableByteChannel channel = Channels.newChannel(zipfile);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        for (int i = 0; i < length; i += chunkLength) {
+            ByteBuffer data = rawChunk(contiguous, i, Math.min(chunkLength, length - i));
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+        zipfile.closeEntry();
+    }
+
+    private static ByteBuffer rawChunk(INDArray rowVector, int start, int length) {
+        INDArray chunk = rowVector;
+        if (start != 0 || length != rowVector.length()) {
+            chunk = rowVector.get(NDArrayIndex.point(0), NDArrayIndex.interval(start, start + length)).dup('c');
+        }
+        Nd4j.getAffinityManager().ensureLocation(chunk, AffinityManager.Location.HOST);
+        ByteBuffer data = chunk.data().asNio().duplicate();
+        data.position(0);
+        data.limit(length * chunk.data().getElementSize());
+        return data;
+    }
+
+    private static INDArray readRawEntry(File file, String name, boolean memoryMap) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            long entryStart = findStoredEntryData(channel, name);
+            if (entryStart < 0) {
+                throw new IllegalStateException("Unable to locate uncompressed entry " + name + " in file " + file
+                                + ": raw entries must be stored uncompressed at the start of the archive");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(RAW_HEADER_LENGTH).order(ByteOrder.BIG_ENDIAN);
+            readFully(channel, header, entryStart);
+            header.flip();
+            if (header.getInt() != RAW_MAGIC) {
+                throw new IllegalStateException("Invalid raw entry " + name + " in file " + file + ": bad magic number");
+            }
+            int version = header.getInt();
+            if (version != RAW_VERSION) {
+                throw new IllegalStateException("Unsupported raw entry version " + version + " for entry " + name);
+            }
+            DataBuffer.Type type = rawTypeOf(header.getInt(), name);
+            ByteOrder order = header.getInt() == 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+            long length = header.getLong();
+            int dataOffset = header.getInt();
+
+            if (type != Nd4j.dataType()) {
+                throw new IllegalStateException("Cannot load raw entry " + name + " with data type " + type
+                                + ": current Nd4j data type is " + Nd4j.dataType());
+            }
+            if (order != ByteOrder.nativeOrder()) {
+                throw new IllegalStateException("Cannot load raw entry " + name + " written with byte order " + order
+                                + " on a platform with native byte order " + ByteOrder.nativeOrder());
+            }
+            if (length > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Cannot load raw entry " + name + ": length " + length
+                                + " exceeds maximum array length");
+            }
+
+            long dataStart = entryStart + dataOffset;
+            int elementSize = Nd4j.sizeOfDataType();
+            long dataBytes = length * elementSize;
+
+            if (dataBytes > MAX_MAPPED_CHUNK_BYTES) {
+                //A single MappedByteBuffer is limited to 2GB, and an array can't be backed by several mappings: map
+                //the data in chunks, and copy each chunk directly into the (off-heap) buffer of the array
+                log.warn("Raw entry {} is {} bytes, exceeding the maximum size of a single memory mapping - copying"
+                                + " in chunks instead", name, dataBytes);
+                INDArray out = Nd4j.createUninitializedDetached(new int[] {1, (int) length}, 'c');
+                Nd4j.getAffinityManager().ensureLocation(out, AffinityManager.Location.HOST);
+                Pointer target = new BytePointer(out.data().addressPointer());
+                for (long start = 0; start < dataBytes; start += MAX_MAPPED_CHUNK_BYTES) {
+                    long n = Math.min(MAX_MAPPED_CHUNK_BYTES, dataBytes - start);
+                    MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + start, n);
+                    Pointer.memcpy(target.position(start), new BytePointer(chunk), n);
+                }
+                Nd4j.getAffinityManager().tagLocation(out, AffinityManager.Location.HOST);
+                return out;
+            }
+
+            INDArray mapped = mapArray(channel, dataStart, (int) length, type);
+            return memoryMap ? mapped : mapped.dup();
+        }
+    }
+
+    private static INDArray mapArray(FileChannel channel, long position, int length, DataBuffer.Type type)
+                    throws IOException {
+        //Private mapping: writes to the array (for example, further training) are copy-on-write, never to the file
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.PRIVATE, position,
+                        length * (long) Nd4j.sizeOfDataType());
+        mapped.order(ByteOrder.nativeOrder());
+        DataBuffer buffer = Nd4j.createBuffer(mapped, type, length);
+        return Nd4j.create(buffer, new int[] {1, length});
+    }
+
+    private static int rawTypeCode(DataBuffer.Type type) {
+        switch (type) {
+            case FLOAT:
+                return RAW_TYPE_FLOAT;
+            case DOUBLE:
+                return RAW_TYPE_DOUBLE;
+            case HALF:
+                return RAW_TYPE_HALF;
+            default:
+                throw new IllegalStateException("Data type " + type + " is not supported by raw entries");
+        }
+    }
+
+    private static DataBuffer.Type rawTypeOf(int code, String name) {
+        switch (code) {
+            case RAW_TYPE_FLOAT:
+                return DataBuffer.Type.FLOAT;
+            case RAW_TYPE_DOUBLE:
+                return DataBuffer.Type.DOUBLE;
+            case RAW_TYPE_HALF:
+                return DataBuffer.Type.HALF;
+            default:
+                throw new IllegalStateException("Invalid raw entry " + name + ": unknown data type code " + code);
+        }
+    }
+
+    /**
+     * Walk the zip local file headers from the start of the archive, returning the offset of the data for the
+     * specified STORED entry, or -1 if the entry cannot be located before the first compressed entry
+     */
+    private static long findStoredEntryData(FileChannel channel, String name) throws IOException {
+        ByteBuffer loc = ByteBuffer.allocate(ZIP_LOCAL_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        long position = 0;
+        while (true) {
+            loc.clear();
+            if (readFully(channel, loc, position) < ZIP_LOCAL_HEADER_LENGTH
+                            || loc.getInt(0) != ZIP_LOCAL_HEADER_SIGNATURE) {
+                return -1;
+            }
+            int flags = loc.getShort(6) & 0xFFFF;
+            int method = loc.getShort(8) & 0xFFFF;
+            long compressedSize = loc.getInt(18) & 0xFFFFFFFFL;
+            int nameLength = loc.getShort(26) & 0xFFFF;
+            int extraLength = loc.getShort(28) & 0xFFFF;
+
+            ByteBuffer nameAndExtra = ByteBuffer.allocate(nameLength + extraLength).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, nameAndExtra, position + ZIP_LOCAL_HEADER_LENGTH);
+            String entryName = new String(nameAndExtra.array(), 0, nameLength, StandardCharsets.UTF_8);
+            long dataStart = position + ZIP_LOCAL_HEADER_LENGTH + nameLength + extraLength;
+
+            if (method != ZipEntry.STORED) {
+                return -1;
+            }
+            if (entryName.equals(name)) {
+                return dataStart;
+            }
+            if ((flags & 0x08) != 0) {
+                //Sizes are in a data descriptor after the data: can't skip to the next header
+                return -1;
+            }
+
+            if (compressedSize == 0xFFFFFFFFL) {
+                //Zip64: sizes are in the extra field (uncompressed size, then compressed size)
+                int p = nameLength;
+                while (p + 4 <= nameLength + extraLength) {
+                    int id = nameAndExtra.getShort(p) & 0xFFFF;
+                    int size = nameAndExtra.getShort(p + 2) & 0xFFFF;
+                    if (id == ZIP64_EXTRA_ID && size >= 16) {
+                        compressedSize = nameAndExtra.getLong(p + 12);
+                        break;
+                    }
+                    p += 4 + size;
+                }
+            }
+            position = dataStart + compressedSize;
+        }
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0)
+                break;
+            total += read;
+        }
+        return total;
+    }
 }
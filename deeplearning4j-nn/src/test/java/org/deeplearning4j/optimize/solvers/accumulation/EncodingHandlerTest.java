@@ -0,0 +1,187 @@
+package org.deeplearning4j.optimize.solvers.accumulation;
+
+import org.deeplearning4j.exception.DL4JInvalidConfigException;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.Int8Codec;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.compression.ThresholdCompression;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EncodingHandlerTest {
+
+    /**
+     * Keeps sent messages, instead of passing them to an accumulator
+     */
+    private static class CollectingHandler extends EncodingHandler {
+        private final List<INDArray> messages = new ArrayList<>();
+
+        private CollectingHandler(double threshold, int bucketSize) {
+            super(threshold, threshold, 0.0, 0, 0, 0, null, bucketSize);
+        }
+
+        @Override
+        protected void sendMessage(INDArray message) {
+            messages.add(message);
+        }
+    }
+
+    @Test
+    public void testBucketedBroadcast() {
+        Nd4j.getRandom().setSeed(12345);
+        int length = 1050;
+        INDArray original = Nd4j.rand(1, length).subi(0.5).muli(4e-3);
+        INDArray residual = original.dup();
+
+        CollectingHandler handler = new CollectingHandler(1e-3, 100);
+        assertTrue(handler.broadcastUpdates(residual));
+
+        //One message per bucket, starting from the end of the updates
+        assertEquals(11, handler.messages.size());
+        assertEquals(1000, handler.messages.get(0).data().getInt(0));
+        assertEquals(50, handler.messages.get(0).data().getInt(1));
+        assertEquals(0, handler.messages.get(10).data().getInt(0));
+        for (INDArray message : handler.messages)
+            assertEquals(BucketEncoding.BUCKET_ENCODING, message.data().getInt(3));
+
+        //Decoded values + residual = original updates
+        INDArray decoded = Nd4j.zeros(1, length);
+        for (INDArray message : handler.messages)
+            BucketEncoding.decode(message, decoded);
+        assertEquals(original, decoded.add(residual));
+        assertTrue(decoded.norm1Number().doubleValue() > 0.0);
+    }
+
+    @Test
+    public void testBucketedMatchesUnbucketed() {
+        Nd4j.getRandom().setSeed(12345);
+        int length = 1000;
+        INDArray original = Nd4j.rand(1, length).subi(0.5).muli(4e-3);
+
+        CollectingHandler bucketed = new CollectingHandler(1e-3, 250);
+        INDArray residualBucketed = original.dup();
+        bucketed.broadcastUpdates(residualBucketed);
+
+        CollectingHandler whole = new CollectingHandler(1e-3, 0);
+        INDArray residualWhole = original.dup();
+        whole.broadcastUpdates(residualWhole);
+        assertEquals(1, whole.messages.size());
+
+        INDArray decodedBucketed = Nd4j.zeros(1, length);
+        for (INDArray message : bucketed.messages)
+            BucketEncoding.decode(message, decodedBucketed);
+        INDArray decodedWhole = Nd4j.zeros(1, length);
+        BucketEncoding.decode(whole.messages.get(0), decodedWhole);
+
+        assertEquals(decodedWhole, decodedBucketed);
+        assertEquals(residualWhole, residualBucketed);
+    }
+
+    @Test
+    public void testBucketedCodec() {
+        Nd4j.getRandom().setSeed(12345);
+        int length = 1050;
+        INDArray original = Nd4j.rand(1, length).subi(0.5).muli(4e-3);
+        INDArray residual = original.dup();
+
+        CollectingHandler handler = new CollectingHandler(1e-3, 100);
+        handler.setGradientCodec(new Int8Codec());
+        assertTrue(handler.broadcastUpdates(residual));
+        assertEquals(11, handler.messages.size());
+
+        //Bucket messages wrap codec messages
+        INDArray decoded = Nd4j.zeros(1, length);
+        for (INDArray message : handler.messages)
+            assertEquals(Int8Codec.INT8_ENCODING, BucketEncoding.decode(message, decoded));
+        assertEquals(original, decoded.add(residual));
+        assertTrue(handler.getCompressionRatio() > 3.0);
+    }
+
+    @Test
+    public void testAdaptiveTargetSparsity() {
+        Nd4j.getRandom().setSeed(12345);
+        int length = 10000;
+        CollectingHandler handler = new CollectingHandler(1e-1, 0);
+        handler.setTargetSparsity(0.01);
+
+        INDArray residual = Nd4j.zeros(1, length);
+        int[] counts = new int[30];
+        for (int i = 0; i < counts.length; i++) {
+            residual.addi(Nd4j.rand(1, length).subi(0.5).muli(1e-2));
+            handler.messages.clear();
+            handler.broadcastUpdates(residual);
+            if (!handler.messages.isEmpty()) {
+                INDArray message = handler.messages.get(0);
+                assertEquals(ThresholdCompression.FLEXIBLE_ENCODING, message.data().getInt(3));
+                counts[i] = message.data().getInt(0);
+            }
+            //Number of encoded values never exceeds the target
+            assertTrue(counts[i] <= 100);
+        }
+
+        //Initial threshold is way too high, but it gets tuned down towards the target
+        assertEquals(0, counts[0]);
+        int lastCounts = 0;
+        for (int i = counts.length - 10; i < counts.length; i++)
+            lastCounts += counts[i];
+        assertTrue("Encoded values: " + lastCounts, lastCounts >= 250);
+
+        assertTrue(handler.getCompressionRatio() > 10.0);
+        assertEquals(residual.norm2Number().doubleValue(), handler.getResidualNorm(), 1e-5);
+        handler.resetStats();
+        assertTrue(Double.isNaN(handler.getCompressionRatio()));
+    }
+
+    @Test
+    public void testAdaptiveEncodingPerSegment() {
+        Nd4j.getRandom().setSeed(12345);
+        int length = 1008;
+        INDArray original = Nd4j.rand(1, length).subi(0.5).muli(4e-3);
+        INDArray residual = original.dup();
+
+        //Tiny first segment: bitmap encoding. Large second segment with 5% target: sparse encoding
+        CollectingHandler handler = new CollectingHandler(1e-3, 0);
+        handler.setTargetSparsity(0.05);
+        handler.setSegmentOffsets(new int[] {0, 8, length});
+        assertTrue(handler.broadcastUpdates(residual));
+
+        assertEquals(2, handler.messages.size());
+        INDArray decoded = Nd4j.zeros(1, length);
+        assertEquals(8, handler.messages.get(0).data().getInt(0));
+        assertEquals(ThresholdCompression.FLEXIBLE_ENCODING,
+                        BucketEncoding.decode(handler.messages.get(0), decoded));
+        assertEquals(0, handler.messages.get(1).data().getInt(0));
+        assertEquals(ThresholdCompression.BITMAP_ENCODING, BucketEncoding.decode(handler.messages.get(1), decoded));
+        assertEquals(original, decoded.add(residual));
+    }
+
+    @Test
+    public void testAdaptiveDenseEncoding() {
+        Nd4j.getRandom().setSeed(12345);
+        int length = 100;
+        INDArray original = Nd4j.rand(1, length).subi(0.5).muli(4e-3);
+        INDArray residual = original.dup();
+
+        //Budget allows to send everything
+        CollectingHandler handler = new CollectingHandler(1e-3, 0);
+        handler.setTargetBytesPerIteration(length * 4);
+        assertTrue(handler.broadcastUpdates(residual));
+
+        assertEquals(1, handler.messages.size());
+        INDArray decoded = Nd4j.zeros(1, length);
+        assertEquals(BucketEncoding.DENSE_ENCODING, BucketEncoding.decode(handler.messages.get(0), decoded));
+        assertEquals(original, decoded.add(residual));
+        assertEquals(0.0, residual.norm2Number().doubleValue(), 1e-6);
+    }
+
+    @Test(expected = DL4JInvalidConfigException.class)
+    public void testSegmentsLengthMismatch() {
+        CollectingHandler handler = new CollectingHandler(1e-3, 0);
+        handler.setSegmentOffsets(new int[] {0, 10, 20});
+        handler.broadcastUpdates(Nd4j.ones(1, 30));
+    }
+}
@@ -0,0 +1,147 @@
+package org.deeplearning4j.optimize.solvers.accumulation;
+
+import org.deeplearning4j.optimize.stepfunctions.NegativeDefaultStepFunction;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class RingAllReduceAccumulatorTest {
+
+    /**
+     * Each worker applies its own update for the given number of rounds, with the given number of consumers per round
+     *
+     * @return Parameters of each worker after training
+     */
+    private static INDArray[] train(final RingAllReduceAccumulator accumulator, final INDArray[][] updates,
+                    final int[] consumersPerRound) throws Exception {
+        final int workers = accumulator.getParties();
+        final int length = updates[0][0].length();
+        final INDArray[] params = new INDArray[workers];
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread[] threads = new Thread[workers];
+        for (int w = 0; w < workers; w++) {
+            final int index = w;
+            params[w] = Nd4j.zeros(1, length);
+            threads[w] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        accumulator.registerWorker(index);
+                        NegativeDefaultStepFunction function = new NegativeDefaultStepFunction();
+                        for (int r = 0; r < consumersPerRound.length; r++) {
+                            if (index < consumersPerRound[r])
+                                accumulator.applyUpdate(function, params[index], updates[r][index]);
+                        }
+                    } catch (Throwable t) {
+                        failure.set(t);
+                    }
+                }
+            });
+            threads[w].start();
+        }
+
+        for (int consumers : consumersPerRound)
+            accumulator.registerConsumers(consumers);
+
+        for (Thread t : threads)
+            t.join(60000);
+        if (failure.get() != null)
+            throw new RuntimeException(failure.get());
+        return params;
+    }
+
+    private static INDArray[][] randomUpdates(int rounds, int workers, int length) {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray[][] updates = new INDArray[rounds][workers];
+        for (int r = 0; r < rounds; r++) {
+            for (int w = 0; w < workers; w++) {
+                updates[r][w] = Nd4j.rand(1, length).subi(0.5);
+            }
+        }
+        return updates;
+    }
+
+    @Test
+    public void testAllReduceAverage() throws Exception {
+        for (int workers : new int[] {2, 3, 4, 7}) {
+            //Bucket size not a multiple of the number of workers, and last bucket smaller than the others
+            RingAllReduceAccumulator accumulator = new RingAllReduceAccumulator(workers, 37, true);
+            INDArray[][] updates = randomUpdates(3, workers, 100);
+            INDArray[] params = train(accumulator, updates, new int[] {workers, workers, workers});
+
+            INDArray expected = Nd4j.zeros(1, 100);
+            for (int r = 0; r < 3; r++) {
+                INDArray sum = Nd4j.zeros(1, 100);
+                for (int w = 0; w < workers; w++)
+                    sum.addi(updates[r][w]);
+                expected.subi(sum.divi(workers));
+            }
+
+            for (int w = 0; w < workers; w++) {
+                assertEquals("Workers: " + workers + ", worker " + w, expected, params[w]);
+            }
+        }
+    }
+
+    @Test
+    public void testAllReduceSum() throws Exception {
+        RingAllReduceAccumulator accumulator = new RingAllReduceAccumulator(4, 1024, false);
+        INDArray[][] updates = randomUpdates(1, 4, 10);
+        INDArray[] params = train(accumulator, updates, new int[] {4});
+
+        INDArray expected = updates[0][0].add(updates[0][1]).addi(updates[0][2]).addi(updates[0][3]).negi();
+        for (INDArray p : params)
+            assertEquals(expected, p);
+    }
+
+    @Test
+    public void testPartialRounds() throws Exception {
+        //Fewer elements than workers: some chunks are empty
+        for (int length : new int[] {3, 50}) {
+            RingAllReduceAccumulator accumulator = new RingAllReduceAccumulator(4, 16, true);
+            int[] consumers = {4, 2, 4, 1, 3};
+            INDArray[][] updates = randomUpdates(consumers.length, 4, length);
+            INDArray[] params = train(accumulator, updates, consumers);
+
+            for (int w = 0; w < 4; w++) {
+                INDArray expected = Nd4j.zeros(1, length);
+                for (int r = 0; r < consumers.length; r++) {
+                    if (w >= consumers[r])
+                        continue;
+                    INDArray sum = Nd4j.zeros(1, length);
+                    for (int i = 0; i < consumers[r]; i++)
+                        sum.addi(updates[r][i]);
+                    expected.subi(sum.divi(consumers[r]));
+                }
+                assertEquals("Length " + length + ", worker " + w, expected, params[w]);
+            }
+        }
+    }
+
+    @Test
+    public void testBufferReallocation() throws Exception {
+        //Each reset starts again from round 0, and the new length makes every worker reallocate its ring buffer
+        RingAllReduceAccumulator accumulator = new RingAllReduceAccumulator(4, 8, true);
+        for (int i = 0; i < 20; i++) {
+            int length = 10 + i * 7;
+            accumulator.reset();
+            INDArray[][] updates = randomUpdates(1, 4, length);
+            INDArray[] params = train(accumulator, updates, new int[] {4});
+
+            INDArray expected = updates[0][0].add(updates[0][1]).addi(updates[0][2]).addi(updates[0][3]).divi(4).negi();
+            for (int w = 0; w < 4; w++)
+                assertEquals("Length " + length + ", worker " + w, expected, params[w]);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnregisteredWorker() {
+        RingAllReduceAccumulator accumulator = new RingAllReduceAccumulator(2);
+        accumulator.applyUpdate(new NegativeDefaultStepFunction(), Nd4j.zeros(1, 10), Nd4j.ones(1, 10));
+    }
+}
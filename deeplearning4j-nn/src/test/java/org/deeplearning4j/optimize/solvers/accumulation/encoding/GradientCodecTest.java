@@ -0,0 +1,106 @@
+package org.deeplearning4j.optimize.solvers.accumulation.encoding;
+
+import org.deeplearning4j.exception.DL4JInvalidConfigException;
+import org.deeplearning4j.optimize.solvers.accumulation.BucketEncoding;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import static org.junit.Assert.*;
+
+public class GradientCodecTest {
+
+    @Test
+    public void testErrorFeedback() {
+        GradientCodec[] codecs = {new ThresholdCodec(1e-3), new TopKCodec(0.01), new SignCodec(), new Int8Codec()};
+        for (GradientCodec codec : codecs) {
+            Nd4j.getRandom().setSeed(12345);
+            INDArray original = Nd4j.rand(1, 1000).subi(0.5).muli(4e-3);
+            INDArray residual = original.dup();
+
+            INDArray message = codec.encode(residual);
+            assertNotNull(message);
+            assertTrue(message.data().length() <= codec.maxEncodedLength(original.length()));
+
+            //Messages of all codecs are decoded the same way. Decoded values + residual = original updates
+            INDArray decoded = Nd4j.zeros(1, 1000);
+            assertEquals(codec.getEncoding(), BucketEncoding.decode(message, decoded));
+            assertEquals(codec.getClass().getSimpleName(), original, decoded.add(residual));
+            assertTrue(decoded.norm1Number().doubleValue() > 0.0);
+        }
+    }
+
+    @Test
+    public void testViews() {
+        //Updates and targets are read and written in place: only the view is modified, at its offset
+        GradientCodec[] codecs = {new TopKCodec(0.1), new SignCodec(), new Int8Codec()};
+        for (GradientCodec codec : codecs) {
+            Nd4j.getRandom().setSeed(12345);
+            INDArray all = Nd4j.rand(1, 300).subi(0.5);
+            INDArray before = all.dup();
+            INDArray residual = all.get(NDArrayIndex.point(0), NDArrayIndex.interval(100, 200));
+
+            INDArray message = codec.encode(residual);
+            INDArray decodedAll = Nd4j.zeros(1, 300);
+            INDArray decoded = decodedAll.get(NDArrayIndex.point(0), NDArrayIndex.interval(100, 200));
+            codec.decode(message, decoded);
+
+            String name = codec.getClass().getSimpleName();
+            assertEquals(name, before.get(NDArrayIndex.point(0), NDArrayIndex.interval(100, 200)),
+                            decoded.add(residual));
+            assertEquals(name, before.get(NDArrayIndex.point(0), NDArrayIndex.interval(0, 100)),
+                            all.get(NDArrayIndex.point(0), NDArrayIndex.interval(0, 100)));
+            assertEquals(name, before.get(NDArrayIndex.point(0), NDArrayIndex.interval(200, 300)),
+                            all.get(NDArrayIndex.point(0), NDArrayIndex.interval(200, 300)));
+            assertEquals(name, 0.0, decodedAll.get(NDArrayIndex.point(0), NDArrayIndex.interval(0, 100))
+                            .norm1Number().doubleValue(), 0.0);
+            assertEquals(name, 0.0, decodedAll.get(NDArrayIndex.point(0), NDArrayIndex.interval(200, 300))
+                            .norm1Number().doubleValue(), 0.0);
+        }
+    }
+
+    @Test
+    public void testTopK() {
+        INDArray updates = Nd4j.create(new double[] {0.1, -0.5, 0.0, 0.3, -0.2, 0.05, 0.0, 0.4, -0.01, 0.02});
+        INDArray message = new TopKCodec(0.3).encode(updates);
+        assertEquals(3, message.data().getInt(1));
+
+        INDArray decoded = Nd4j.zeros(1, 10);
+        BucketEncoding.decode(message, decoded);
+        assertEquals(Nd4j.create(new double[] {0, -0.5, 0, 0.3, 0, 0, 0, 0.4, 0, 0}), decoded);
+        assertEquals(Nd4j.create(new double[] {0.1, 0, 0, 0, -0.2, 0.05, 0, 0, -0.01, 0.02}), updates);
+
+        //Zeros are never sent
+        assertNull(new TopKCodec(0.5).encode(Nd4j.zeros(1, 10)));
+        float[] a = {5, 1, 4, 2, 3};
+        assertEquals(3.0f, TopKCodec.select(a, 2), 0.0f);
+    }
+
+    @Test
+    public void testSignAndInt8() {
+        INDArray updates = Nd4j.create(new double[] {0.4, -0.2, 0.1, -0.1, 0.0, 0.2});
+        INDArray decoded = Nd4j.zeros(1, 6);
+        INDArray message = new SignCodec().encode(updates.dup());
+        assertEquals(4 + 1, message.data().length());
+        BucketEncoding.decode(message, decoded);
+        //Scale is the mean magnitude
+        assertEquals(Nd4j.create(new double[] {1, -1, 1, -1, 1, 1}).muli(1.0 / 6), decoded);
+
+        decoded = Nd4j.zeros(1, 6);
+        INDArray residual = updates.dup();
+        message = new Int8Codec().encode(residual);
+        assertEquals(4 + 2, message.data().length());
+        BucketEncoding.decode(message, decoded);
+        //Rounding error is at most half a quantization step
+        double step = 0.4 / 127;
+        assertEquals(0.0, residual.amaxNumber().doubleValue(), step / 2 + 1e-7);
+        assertEquals(0.4, decoded.getDouble(0), 1e-6);
+        assertEquals(-0.2, decoded.getDouble(1), step / 2 + 1e-7);
+    }
+
+    @Test(expected = DL4JInvalidConfigException.class)
+    public void testReservedEncoding() {
+        GradientCodecs.register(new ThresholdCodec());
+    }
+}
@@ -7,23 +7,27 @@ import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.inference.DynamicBatchScheduler;
 import org.deeplearning4j.parallelism.inference.InferenceMode;
 import org.deeplearning4j.parallelism.inference.InferenceObservable;
+import org.deeplearning4j.parallelism.inference.InferenceRequest;
 import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObservable;
 import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObserver;
 import org.deeplearning4j.parallelism.inference.observers.BatchedInferenceObservable;
+import org.deeplearning4j.parallelism.inference.observers.DynamicBatchedInferenceObservable;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.primitives.Pair;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Observer;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class is simple wrapper for
@@ -39,14 +43,25 @@ public class ParallelInference {
     private int batchLimit;
     private InferenceMode inferenceMode;
     private int queueLimit;
+    private int targetBatchSize;
+    private long maxBatchWaitNanos;
+    private boolean timeSeriesPadding;
+    private int warmupIterations;
 
     // this queue
     private BlockingQueue<InferenceObservable> observables;
 
     private final Object locker = new Object();
+    private final Object updateLocker = new Object();
 
     private InferenceWorker[] zoo;
+    // model replica used by each worker. Replaced as a whole on model update
+    private volatile Model[] replicas;
+    // input shapes of the most recently processed batch, used to build warm-up batches on model update
+    private volatile int[][] lastInputShapes;
     private ObservablesProvider provider;
+    private DynamicBatchScheduler scheduler;
+    private volatile ScheduledExecutorService timeoutService;
 
 
 
@@ -54,6 +69,11 @@ public class ParallelInference {
     public final static int DEFAULT_BATCH_LIMIT = 32;
     public final static InferenceMode DEFAULT_INFERENCE_MODE = InferenceMode.BATCHED;
     public final static int DEFAULT_QUEUE_LIMIT = 64;
+    public final static long DEFAULT_MAX_BATCH_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    public final static int DEFAULT_WARMUP_ITERATIONS = 5;
+
+    // how long idle workers wait for requests before checking for control tasks (i.e. model update)
+    private final static long CONTROL_POLL_MILLIS = 10;
 
 
 
@@ -69,12 +89,13 @@ public class ParallelInference {
         AtomicBoolean assignedRoot = new AtomicBoolean(false);
 
         zoo = new InferenceWorker[workers];
+        replicas = new Model[workers];
         for (int i = 0; i < workers; i++) {
             int cDevice = i % numDevices;
             boolean cRoot = !assignedRoot.get() && cDevice == currentDevice;
             assignedRoot.compareAndSet(false, cRoot);
 
-            zoo[i] = new InferenceWorker(i, model, observables, cRoot);
+            zoo[i] = new InferenceWorker(i, cDevice, model, observables, cRoot);
 
             Nd4j.getAffinityManager().attachThreadToDevice(zoo[i], cDevice);
             zoo[i].setDaemon(true);
@@ -85,6 +106,12 @@ public class ParallelInference {
         if (inferenceMode == InferenceMode.BATCHED) {
             log.info("Initializing ObservablesProvider...");
             provider = new ObservablesProvider(nanos, batchLimit, observables);
+        } else if (inferenceMode == InferenceMode.DYNAMIC) {
+            log.info("Initializing DynamicBatchScheduler...");
+            // every request holds at least 1 example, so this is at most queueLimit full batches of backlog
+            scheduler = new DynamicBatchScheduler(observables, targetBatchSize, maxBatchWaitNanos, timeSeriesPadding,
+                            queueLimit * targetBatchSize);
+            scheduler.start();
         }
     }
 
@@ -92,6 +119,162 @@ public class ParallelInference {
         return zoo[workerIdx].getCounterValue();
     }
 
+    /**
+     * This method replaces the model used for inference, without interrupting request processing.
+     * Warm-up batch is built from the shapes of the most recently processed request.
+     * See {@link #updateModel(Model, INDArray[])}
+     *
+     * @param model new model
+     */
+    public void updateModel(@NonNull Model model) {
+        updateModel(model, null);
+    }
+
+    /**
+     * This method replaces the model used for inference, without interrupting request processing:
+     * - a copy of the new model is created for each worker (on the worker's device)
+     * - each copy is warmed up on the given batch, so JIT compilation, workspace allocation and other lazy
+     *   initialization happen before any request is served by the new model
+     * - then all workers are switched over to the new model at once. Requests already being processed
+     *   complete on the previous model, queued requests are processed by the new model.
+     *
+     * If model replication or warm-up fails, the previous model is kept and an exception is thrown.
+     *
+     * PLEASE NOTE: New model should accept the same inputs as the current model
+     *
+     * @param model       new model
+     * @param warmupInput input used to warm up the new model. If null, a random batch with the shapes of the most
+     *                    recently processed request is used. If no request was processed yet, warm-up is skipped.
+     */
+    public void updateModel(@NonNull final Model model, INDArray[] warmupInput) {
+        if (!(model instanceof MultiLayerNetwork) && !(model instanceof ComputationGraph))
+            throw new IllegalArgumentException("Unsupported model type: " + model.getClass().getName()
+                            + ". Only MultiLayerNetwork and ComputationGraph are supported");
+
+        synchronized (updateLocker) {
+            final INDArray[] warmup = warmupInput != null ? warmupInput : syntheticWarmupBatch();
+            if (warmup == null)
+                log.info("No requests were processed yet, skipping warm-up of the new model");
+
+            long time1 = System.currentTimeMillis();
+
+            // replicas are created and warmed up in parallel, on separate threads attached to the workers' devices
+            final Model[] updated = new Model[zoo.length];
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread[] threads = new Thread[zoo.length];
+            for (int i = 0; i < zoo.length; i++) {
+                final int idx = i;
+                threads[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            updated[idx] = replicate(model, zoo[idx].rootDevice);
+                            if (warmup != null) {
+                                for (int e = 0; e < warmupIterations; e++)
+                                    modelOutput(updated[idx], warmup, null);
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            Nd4j.getWorkspaceManager().destroyAllWorkspacesForCurrentThread();
+                        }
+                    }
+                }, "ParallelInference-Update-" + i);
+                Nd4j.getAffinityManager().attachThreadToDevice(threads[i], zoo[i].deviceId);
+                threads[i].setDaemon(true);
+                threads[i].start();
+            }
+
+            try {
+                for (Thread t : threads)
+                    t.join();
+
+                // workspaces are thread-local: one more warm-up pass on each worker thread sizes them for the new model.
+                // this also guarantees that all workers are done with their initial model replication
+                if (failure.get() == null) {
+                    List<Future<?>> futures = new ArrayList<>(zoo.length);
+                    for (int i = 0; i < zoo.length; i++) {
+                        final Model replica = updated[i];
+                        futures.add(zoo[i].submitControlTask(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (warmup != null)
+                                    modelOutput(replica, warmup, null);
+                            }
+                        }));
+                    }
+
+                    for (Future<?> f : futures)
+                        f.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                failure.compareAndSet(null, e.getCause());
+            }
+
+            if (failure.get() != null)
+                throw new RuntimeException("Model update failed, previous model is still used", failure.get());
+
+            // all replicas are ready: switch workers over
+            this.replicas = updated;
+            this.model = model;
+
+            log.info("Model updated in {} ms", System.currentTimeMillis() - time1);
+        }
+    }
+
+    private INDArray[] syntheticWarmupBatch() {
+        int[][] shapes = lastInputShapes;
+        if (shapes == null)
+            return null;
+
+        INDArray[] batch = new INDArray[shapes.length];
+        for (int i = 0; i < shapes.length; i++)
+            batch[i] = Nd4j.rand(shapes[i]);
+
+        return batch;
+    }
+
+    /**
+     * This method creates model copy for a worker. Worker on root device uses the model itself.
+     */
+    private Model replicate(@NonNull Model model, boolean rootDevice) {
+        if (rootDevice)
+            return model;
+
+        Model replica;
+        if (model instanceof ComputationGraph) {
+            replica = new ComputationGraph(ComputationGraphConfiguration
+                            .fromJson(((ComputationGraph) model).getConfiguration().toJson()));
+        } else if (model instanceof MultiLayerNetwork) {
+            replica = new MultiLayerNetwork(MultiLayerConfiguration
+                            .fromJson(((MultiLayerNetwork) model).getLayerWiseConfigurations().toJson()));
+        } else {
+            throw new IllegalStateException("Unsupported model type: " + model.getClass().getName());
+        }
+        replica.init();
+
+        synchronized (locker) {
+            replica.setParams(model.params().unsafeDuplication(true));
+
+            Nd4j.getExecutioner().commit();
+        }
+
+        return replica;
+    }
+
+    private static INDArray[] modelOutput(Model model, INDArray[] input, INDArray[] inputMasks) {
+        if (model instanceof ComputationGraph) {
+            return ((ComputationGraph) model).output(false, input, inputMasks);
+        } else if (model instanceof MultiLayerNetwork) {
+            INDArray fm = (inputMasks == null ? null : inputMasks[0]);
+            return new INDArray[] {((MultiLayerNetwork) model).output(input[0], false, fm, null)};
+        }
+        throw new IllegalStateException("Unsupported model type: " + model.getClass().getName());
+    }
+
     /**
      *
      * @param input
@@ -155,6 +338,19 @@ public class ParallelInference {
     public INDArray[] output(INDArray[] input, INDArray[] inputMasks){
         // basically, depending on model type we either throw stuff to specific model, or wait for batch
 
+        if (inferenceMode == InferenceMode.DYNAMIC) {
+            try {
+                return scheduler.submit(input, inputMasks).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw new RuntimeException(e.getCause());
+            }
+        }
+
         BasicInferenceObserver observer = new BasicInferenceObserver();
         InferenceObservable observable;
 
@@ -185,12 +381,125 @@ public class ParallelInference {
     }
 
 
+    /**
+     * Generate predictions/output from the network asynchronously.
+     * See {@link #outputAsync(INDArray[], INDArray[], long, TimeUnit)}
+     *
+     * @param input Input to the network
+     * @return future for the output from the network
+     */
+    public CompletableFuture<INDArray[]> outputAsync(INDArray... input) {
+        return outputAsync(input, null);
+    }
+
+    /**
+     * Generate predictions/output from the network asynchronously, optionally using input masks.
+     * See {@link #outputAsync(INDArray[], INDArray[], long, TimeUnit)}
+     *
+     * @param input      Input to the network
+     * @param inputMasks Input masks for the network. May be null.
+     * @return future for the output from the network
+     */
+    public CompletableFuture<INDArray[]> outputAsync(INDArray[] input, INDArray[] inputMasks) {
+        return outputAsync(input, inputMasks, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Generate predictions/output from the network asynchronously, optionally using input masks.<br>
+     * This method never blocks calling thread:
+     * - if queue limit is reached, returned future is completed exceptionally with RejectedExecutionException
+     * - if timeout is positive, and output isn't available within given time, returned future is completed exceptionally with TimeoutException
+     * - requests cancelled (or timed out) before their batch is processed are skipped by workers
+     *
+     * PLEASE NOTE: Returned future is completed by inference worker thread, so any non-trivial processing of output
+     * should be done via *Async methods of CompletableFuture, to avoid stalling workers.
+     * PLEASE NOTE: In SEQUENTIAL and BATCHED modes, async requests aren't merged with other requests.
+     * Use DYNAMIC mode for batching of async requests.
+     *
+     * @param input      Input to the network
+     * @param inputMasks Input masks for the network. May be null.
+     * @param timeout    Request timeout. Zero or negative values mean no timeout.
+     * @param timeUnit   Time unit of timeout
+     * @return future for the output from the network
+     */
+    public CompletableFuture<INDArray[]> outputAsync(@NonNull INDArray[] input, INDArray[] inputMasks, long timeout,
+                    @NonNull TimeUnit timeUnit) {
+        final CompletableFuture<INDArray[]> future;
+        if (inferenceMode == InferenceMode.DYNAMIC) {
+            future = scheduler.submitAsync(input, inputMasks);
+        } else {
+            InferenceRequest request = new InferenceRequest(input, inputMasks);
+            if (!observables.offer(new DynamicBatchedInferenceObservable(Collections.singletonList(request))))
+                request.getFuture().completeExceptionally(
+                                new RejectedExecutionException("Inference queue limit reached: " + queueLimit));
+
+            future = request.getFuture();
+        }
+
+        if (timeout > 0 && !future.isDone()) {
+            final long timeoutMs = timeUnit.toMillis(timeout);
+            final ScheduledFuture<?> timeoutTask = getTimeoutService().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    future.completeExceptionally(new TimeoutException("Inference request timed out after " + timeoutMs + " ms"));
+                }
+            }, timeout, timeUnit);
+
+            future.whenComplete((output, throwable) -> timeoutTask.cancel(false));
+        }
+
+        return future;
+    }
+
+    private ScheduledExecutorService getTimeoutService() {
+        if (timeoutService == null) {
+            synchronized (locker) {
+                if (timeoutService == null) {
+                    timeoutService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "ParallelInference-Timeouts");
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+                }
+            }
+        }
+        return timeoutService;
+    }
+
+    /**
+     * This method stops ParallelInference: DYNAMIC mode scheduler dispatches its pending batches and stops,
+     * then workers are stopped. Requests still queued after that are completed with RejectedExecutionException.
+     */
+    public void shutdown() {
+        if (scheduler != null)
+            scheduler.shutdown();
+
+        for (InferenceWorker worker : zoo)
+            worker.shutdown();
+
+        List<InferenceObservable> pending = new ArrayList<>();
+        observables.drainTo(pending);
+        for (InferenceObservable observable : pending)
+            observable.setOutputException(new RejectedExecutionException("ParallelInference was shut down"));
+
+        if (timeoutService != null)
+            timeoutService.shutdownNow();
+    }
+
+
     public static class Builder {
         private Model model;
         private int workers = DEFAULT_NUM_WORKERS;
         private int batchLimit = DEFAULT_BATCH_LIMIT;
         private InferenceMode inferenceMode = DEFAULT_INFERENCE_MODE;
         private int queueLimit = DEFAULT_QUEUE_LIMIT;
+        private int targetBatchSize = DEFAULT_BATCH_LIMIT;
+        private long maxBatchWaitNanos = DEFAULT_MAX_BATCH_WAIT_NANOS;
+        private boolean timeSeriesPadding = true;
+        private int warmupIterations = DEFAULT_WARMUP_ITERATIONS;
 
         public Builder(@NonNull Model model) {
             this.model = model;
@@ -203,6 +512,8 @@ public class ParallelInference {
          * SEQUENTIAL: Input will be sent to last-used worker unmodified.
          * BATCHED: Multiple inputs will be packed into single batch, and
          * sent to last-used device.
+         * DYNAMIC: Inputs will be bucketed by shape, and each bucket will be sent to
+         * next available worker once it reaches targetBatchSize, or once maxBatchWait expires.
          *
          * @param inferenceMode
          * @return
@@ -264,6 +575,82 @@ public class ParallelInference {
             return this;
         }
 
+        /**
+         * This method defines, how many examples each worker should
+         * ideally receive in one batch.
+         *
+         * PLEASE NOTE: This value has effect only in
+         * DYNAMIC inference mode
+         *
+         * Default value: 32
+         *
+         * @param size
+         * @return
+         */
+        public Builder targetBatchSize(int size) {
+            if (size < 1)
+                throw new IllegalStateException("Target batch size should be positive value");
+
+            this.targetBatchSize = size;
+            return this;
+        }
+
+        /**
+         * This method defines, how long request can wait for its batch to fill up,
+         * before this batch is sent to workers anyway.
+         *
+         * PLEASE NOTE: This value has effect only in
+         * DYNAMIC inference mode
+         *
+         * Default value: 2 milliseconds
+         *
+         * @param time
+         * @param timeUnit
+         * @return
+         */
+        public Builder maxBatchWait(long time, @NonNull TimeUnit timeUnit) {
+            if (time < 0)
+                throw new IllegalStateException("Max batch wait should be non-negative value");
+
+            this.maxBatchWaitNanos = timeUnit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * This method defines, if time series inputs of different lengths can be batched together.
+         * If true, time series lengths are bucketed to the next power of 2, and shorter inputs
+         * are padded and masked. Otherwise, only inputs of exactly the same shape are batched.
+         *
+         * PLEASE NOTE: This value has effect only in
+         * DYNAMIC inference mode
+         *
+         * Default value: true
+         *
+         * @param enabled
+         * @return
+         */
+        public Builder timeSeriesPadding(boolean enabled) {
+            this.timeSeriesPadding = enabled;
+            return this;
+        }
+
+        /**
+         * This method defines, how many forward passes are used to warm up
+         * each copy of the new model in {@link ParallelInference#updateModel(Model)}
+         *
+         * Default value: 5
+         *
+         * @param iterations
+         * @return
+         */
+        public Builder warmupIterations(int iterations) {
+            if (iterations < 0)
+                throw new IllegalStateException("Warm-up iterations should be non-negative value");
+
+            this.warmupIterations = iterations;
+            return this;
+        }
+
         /**
          * This method builds new ParallelInference instance
          *
@@ -276,6 +663,10 @@ public class ParallelInference {
             inference.inferenceMode = this.inferenceMode;
             inference.model = this.model;
             inference.workers = this.workers;
+            inference.targetBatchSize = this.targetBatchSize;
+            inference.maxBatchWaitNanos = this.maxBatchWaitNanos;
+            inference.timeSeriesPadding = this.timeSeriesPadding;
+            inference.warmupIterations = this.warmupIterations;
 
             inference.init();
 
@@ -290,16 +681,21 @@ public class ParallelInference {
      */
     private class InferenceWorker extends Thread implements Runnable {
         private BlockingQueue<InferenceObservable> inputQueue;
+        private BlockingQueue<FutureTask<?>> controlQueue = new LinkedBlockingQueue<>();
         private AtomicBoolean shouldWork = new AtomicBoolean(true);
         private AtomicBoolean isStopped = new AtomicBoolean(false);
         private Model protoModel;
-        private Model replicatedModel;
         private AtomicLong counter = new AtomicLong(0);
+        private int workerId;
+        private int deviceId;
         private boolean rootDevice;
 
-        private InferenceWorker(int id, @NonNull Model model, @NonNull BlockingQueue inputQueue, boolean rootDevice) {
+        private InferenceWorker(int id, int deviceId, @NonNull Model model, @NonNull BlockingQueue inputQueue,
+                        boolean rootDevice) {
             this.inputQueue = inputQueue;
             this.protoModel = model;
+            this.workerId = id;
+            this.deviceId = deviceId;
             this.rootDevice = rootDevice;
 
             this.setDaemon(true);
@@ -311,78 +707,46 @@ public class ParallelInference {
             return counter.get();
         }
 
+        /**
+         * This method schedules given task for execution by this worker, in between inference requests
+         */
+        protected Future<?> submitControlTask(@NonNull Runnable task) {
+            FutureTask<?> future = new FutureTask<>(task, null);
+            controlQueue.add(future);
+            return future;
+        }
+
         @Override
         public void run() {
             try {
                 // model should be replicated & initialized here
-                if (protoModel instanceof ComputationGraph) {
-                    if (!rootDevice) {
-                        this.replicatedModel = new ComputationGraph(ComputationGraphConfiguration
-                                        .fromJson(((ComputationGraph) protoModel).getConfiguration().toJson()));
-                        this.replicatedModel.init();
-
-                        synchronized (locker) {
-                            this.replicatedModel.setParams(protoModel.params().unsafeDuplication(true));
-
-                            Nd4j.getExecutioner().commit();
-                        }
-                    } else {
-                        this.replicatedModel = protoModel;
-                    }
-                } else if (protoModel instanceof MultiLayerNetwork) {
-                    if (!rootDevice) {
-                        this.replicatedModel = new MultiLayerNetwork(MultiLayerConfiguration.fromJson(
-                                        ((MultiLayerNetwork) protoModel).getLayerWiseConfigurations().toJson()));
-                        this.replicatedModel.init();
-
-                        synchronized (locker) {
-                            this.replicatedModel.setParams(protoModel.params().unsafeDuplication(true));
-
-                            Nd4j.getExecutioner().commit();
-                        }
-                    } else {
-                        this.replicatedModel = protoModel;
-                    }
-                }
+                replicas[workerId] = replicate(protoModel, rootDevice);
 
                 while (shouldWork.get()) {
-                    InferenceObservable request = inputQueue.take();
+                    FutureTask<?> task = controlQueue.poll();
+                    if (task != null)
+                        task.run();
+
+                    InferenceObservable request = inputQueue.poll(CONTROL_POLL_MILLIS, TimeUnit.MILLISECONDS);
 
                     if (request != null) {
                         counter.incrementAndGet();
 
-                        // FIXME: get rid of instanceof here, model won't change during runtime anyway
-                        if (replicatedModel instanceof ComputationGraph) {
-                            List<Pair<INDArray[],INDArray[]>> batches = request.getInputBatches();
-                            List<INDArray[]> out = new ArrayList<>(batches.size());
-                            try {
-                                for (Pair<INDArray[],INDArray[]> inBatch : batches) {
-                                    INDArray[] output = ((ComputationGraph) replicatedModel).output(false, inBatch.getFirst(), inBatch.getSecond());
-                                    out.add(output);
-                                }
-                                request.setOutputBatches(out);
-                            } catch (Exception e){
-                                request.setOutputException(e);
-                            }
-                        } else if (replicatedModel instanceof MultiLayerNetwork) {
-                            List<Pair<INDArray[],INDArray[]>> batches = request.getInputBatches();
-                            List<INDArray[]> out = new ArrayList<>(batches.size());
-                            try {
-                                for (Pair<INDArray[],INDArray[]> inBatch : batches) {
-                                    INDArray f = inBatch.getFirst()[0];
-                                    INDArray fm = (inBatch.getSecond() == null ? null : inBatch.getSecond()[0]);
-                                    INDArray output = ((MultiLayerNetwork) replicatedModel).output(f, false, fm, null);
-                                    out.add(new INDArray[]{output});
-                                }
-                                request.setOutputBatches(out);
-                            } catch (Exception e){
-                                request.setOutputException(e);
+                        // in-flight request is completed on this replica, even if model is updated meanwhile
+                        Model replicatedModel = replicas[workerId];
+                        List<Pair<INDArray[],INDArray[]>> batches = request.getInputBatches();
+                        List<INDArray[]> out = new ArrayList<>(batches.size());
+                        try {
+                            for (Pair<INDArray[],INDArray[]> inBatch : batches) {
+                                out.add(modelOutput(replicatedModel, inBatch.getFirst(), inBatch.getSecond()));
                             }
-                        }
-
+                            request.setOutputBatches(out);
 
-                    } else {
-                        // just do nothing, i guess and hope for next round?
+                            if (!batches.isEmpty())
+                                recordInputShapes(batches.get(0).getFirst());
+                        } catch (Exception e){
+                            request.setOutputException(e);
+                        }
                     }
                 }
             } catch (InterruptedException e) {
@@ -394,6 +758,14 @@ public class ParallelInference {
             isStopped.set(true);
         }
 
+        private void recordInputShapes(INDArray[] input) {
+            int[][] shapes = new int[input.length][];
+            for (int i = 0; i < input.length; i++)
+                shapes[i] = input[i].shape();
+
+            lastInputShapes = shapes;
+        }
+
         protected void shutdown() {
             shouldWork.set(false);
             while (!isStopped.get()) {
@@ -22,6 +22,7 @@ import org.deeplearning4j.optimize.listeners.SharedGradient;
 import org.deeplearning4j.optimize.solvers.accumulation.EncodedGradientsAccumulator;
 import org.deeplearning4j.optimize.solvers.accumulation.GradientsAccumulator;
 import org.deeplearning4j.optimize.solvers.accumulation.Registerable;
+import org.deeplearning4j.optimize.solvers.accumulation.RingAllReduceAccumulator;
 import org.deeplearning4j.parallelism.factory.DefaultTrainerContext;
 import org.deeplearning4j.parallelism.factory.SymmetricTrainerContext;
 import org.deeplearning4j.parallelism.factory.TrainerContext;
@@ -71,6 +72,12 @@ public class ParallelWrapper implements AutoCloseable {
          * This option assumes use of GradientsAccumulator with any MessageHandler
          */
         CUSTOM,
+
+        /**
+         * Models within ParallelWrapper instance will apply the same dense update each iteration, reduced with a
+         * bucketed ring all-reduce. See {@link RingAllReduceAccumulator}
+         */
+        RING_ALL_REDUCE,
     }
 
     protected final String uuid = java.util.UUID.randomUUID().toString();
@@ -771,6 +778,7 @@ public class ParallelWrapper implements AutoCloseable {
          *  1) AVERAGING - stands for parameters averaging. Each X epochs weights and updaters state will be averaged across all models
          *  2) SHARED_GRADIENTS - stands for gradients sharing - more details available here: https://deeplearning4j.org/distributed
          *  3) CUSTOM - this method allows you to specify custom gradients accumulator, this giving you better control of configuration params for training.
+         *  4) RING_ALL_REDUCE - stands for dense updates averaging via ring all-reduce. Each worker only communicates with its two neighbours, so per-worker traffic doesn't grow with number of workers
          *
          * @param mode
          * @return
@@ -842,6 +850,17 @@ public class ParallelWrapper implements AutoCloseable {
                                         "Please specify GradientsAccumulator fo encoded gradients mode");
                 }
                     break;
+                case RING_ALL_REDUCE: {
+                    this.trainerContext = new SymmetricTrainerContext();
+                    if (this.accumulator == null) {
+                        log.info("Creating new RingAllReduceAccumulator instance for [{}] workers", workers);
+                        this.accumulator = new RingAllReduceAccumulator(workers);
+                    } else if (!(this.accumulator instanceof RingAllReduceAccumulator)) {
+                        throw new DL4JInvalidConfigException("RING_ALL_REDUCE training mode requires "
+                                        + "RingAllReduceAccumulator, got " + this.accumulator.getClass().getName());
+                    }
+                }
+                    break;
                 default:
                     throw new UnsupportedOperationException("Unknown trainingMode: [" + trainingMode + "]");
             }
@@ -0,0 +1,261 @@
+package org.deeplearning4j.parallelism.inference;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.parallelism.inference.observers.DynamicBatchedInferenceObservable;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class implements DYNAMIC inference batching: incoming requests are bucketed by input shape, and each bucket
+ * is sent to the workers as a single batch once it holds target number of examples, or once its oldest request
+ * has waited for max wait time - whichever comes first. Batch never holds more than target number of examples,
+ * unless a single request is larger than that.
+ *
+ * Time series inputs (rank 3) of different lengths can optionally share bucket: lengths are rounded up to the
+ * next power of 2, and shorter sequences are padded and masked. Output for each request is trimmed back to its own length.
+ */
+@Slf4j
+public class DynamicBatchScheduler extends Thread {
+    // upper bound for idle polling, so shutdown requests are noticed even without incoming requests
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final BlockingQueue<InferenceObservable> targetQueue;
+    private final BlockingQueue<InferenceRequest> requests;
+    private final int targetBatchSize;
+    private final long maxWaitNanos;
+    private final boolean timeSeriesPadding;
+
+    private final Map<String, Bucket> buckets = new LinkedHashMap<>();
+    private final AtomicBoolean shouldWork = new AtomicBoolean(true);
+
+    /**
+     * @param targetQueue       queue consumed by inference workers
+     * @param targetBatchSize   number of examples that triggers batch dispatch
+     * @param maxWaitNanos      max time request can wait for its batch to fill up
+     * @param timeSeriesPadding whether time series of different lengths can be batched together
+     * @param requestsLimit     max number of requests waiting for dispatch
+     */
+    public DynamicBatchScheduler(@NonNull BlockingQueue<InferenceObservable> targetQueue, int targetBatchSize,
+                    long maxWaitNanos, boolean timeSeriesPadding, int requestsLimit) {
+        this.targetQueue = targetQueue;
+        this.requests = new LinkedBlockingQueue<>(requestsLimit);
+        this.targetBatchSize = targetBatchSize;
+        this.maxWaitNanos = maxWaitNanos;
+        this.timeSeriesPadding = timeSeriesPadding;
+
+        this.setDaemon(true);
+        this.setName("DynamicBatchScheduler");
+    }
+
+    /**
+     * This method adds request to the pending requests, and returns future for its output.
+     * If pending requests limit is reached, this method blocks until there's space available.
+     *
+     * @param input      Input arrays
+     * @param inputMasks Input mask arrays. May be null.
+     * @return future that'll be completed with network output for given input
+     */
+    public CompletableFuture<INDArray[]> submit(@NonNull INDArray[] input, INDArray[] inputMasks) {
+        InferenceRequest request = new InferenceRequest(input, inputMasks);
+        boolean queued = false;
+        try {
+            // bounded waits, so a request waiting for space is rejected once scheduler is shut down
+            while (!queued && shouldWork.get()) {
+                queued = requests.offer(request, IDLE_POLL_NANOS, TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        rejectIfShutDown(request, queued);
+        return request.getFuture();
+    }
+
+    /**
+     * This method adds request to the pending requests, and returns future for its output.
+     * This method never blocks: if pending requests limit is reached, returned future is
+     * completed exceptionally with RejectedExecutionException.
+     *
+     * @param input      Input arrays
+     * @param inputMasks Input mask arrays. May be null.
+     * @return future that'll be completed with network output for given input
+     */
+    public CompletableFuture<INDArray[]> submitAsync(@NonNull INDArray[] input, INDArray[] inputMasks) {
+        InferenceRequest request = new InferenceRequest(input, inputMasks);
+        boolean queued = false;
+        if (shouldWork.get()) {
+            queued = requests.offer(request);
+            if (!queued)
+                request.getFuture().completeExceptionally(
+                                new RejectedExecutionException("Pending inference requests limit reached"));
+        }
+        rejectIfShutDown(request, queued);
+
+        return request.getFuture();
+    }
+
+    /**
+     * Queued request might have been added after shutdown() drained pending requests: nobody would ever take it from
+     * the queue then. Shutdown flag is set before the drain, so either the drain takes the request, or it's still in
+     * the queue and it's removed here.
+     */
+    private void rejectIfShutDown(InferenceRequest request, boolean queued) {
+        if (shouldWork.get() || request.getFuture().isDone())
+            return;
+
+        if (!queued || requests.remove(request))
+            request.getFuture().completeExceptionally(new RejectedExecutionException("Scheduler was shut down"));
+    }
+
+    @Override
+    public void run() {
+        List<InferenceRequest> drained = new ArrayList<>();
+        try {
+            while (shouldWork.get()) {
+                InferenceRequest request = requests.poll(nanosToNextDeadline(), TimeUnit.NANOSECONDS);
+                if (request != null) {
+                    drained.add(request);
+                    requests.drainTo(drained);
+                    for (InferenceRequest r : drained) {
+                        enqueue(r);
+                    }
+                    drained.clear();
+                }
+
+                dispatchExpired();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long nanosToNextDeadline() {
+        long now = System.nanoTime();
+        long wait = IDLE_POLL_NANOS;
+        for (Bucket bucket : buckets.values()) {
+            wait = Math.min(wait, bucket.oldest + maxWaitNanos - now);
+        }
+        return Math.max(wait, 0);
+    }
+
+    private void enqueue(InferenceRequest request) throws InterruptedException {
+        if (request.getFuture().isDone())
+            return;
+
+        String key = bucketKey(request);
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new Bucket(request.getEnqueueTime());
+            buckets.put(key, bucket);
+        }
+
+        // bucket never grows past targetBatchSize: if request doesn't fit, bucket is sent as is.
+        // request larger than targetBatchSize on its own is still sent as a single batch
+        if (!bucket.requests.isEmpty() && bucket.numExamples + request.getNumExamples() > targetBatchSize) {
+            dispatch(bucket);
+            bucket = new Bucket(request.getEnqueueTime());
+            buckets.put(key, bucket);
+        }
+
+        bucket.requests.add(request);
+        bucket.numExamples += request.getNumExamples();
+
+        if (bucket.numExamples >= targetBatchSize) {
+            buckets.remove(key);
+            dispatch(bucket);
+        }
+    }
+
+    private void dispatchExpired() throws InterruptedException {
+        long now = System.nanoTime();
+        Iterator<Bucket> iterator = buckets.values().iterator();
+        while (iterator.hasNext()) {
+            Bucket bucket = iterator.next();
+            if (now - bucket.oldest >= maxWaitNanos) {
+                iterator.remove();
+                dispatch(bucket);
+            }
+        }
+    }
+
+    private void dispatch(Bucket bucket) throws InterruptedException {
+        // this call blocks if workers are saturated, so requests pile up here instead of in workers queue
+        targetQueue.put(new DynamicBatchedInferenceObservable(bucket.requests));
+    }
+
+    protected String bucketKey(InferenceRequest request) {
+        StringBuilder builder = new StringBuilder();
+        INDArray[] input = request.getInput();
+        INDArray[] masks = request.getInputMasks();
+        for (int i = 0; i < input.length; i++) {
+            builder.append(i).append(':');
+            // time dimension is 2 for time series, and 1 for their masks
+            appendShape(builder, input[i].shape(), input[i].rank() == 3 ? 2 : -1);
+            // requests with and without masks (or with masks of different shapes) don't share a batch
+            INDArray mask = (masks != null && i < masks.length ? masks[i] : null);
+            if (mask != null) {
+                builder.append("m");
+                appendShape(builder, mask.shape(), input[i].rank() == 3 ? 1 : -1);
+            }
+            builder.append(';');
+        }
+        return builder.toString();
+    }
+
+    private void appendShape(StringBuilder builder, int[] shape, int timeDimension) {
+        // dimension 0 is minibatch, so it's ignored
+        for (int d = 1; d < shape.length; d++) {
+            int size = shape[d];
+            if (timeSeriesPadding && d == timeDimension)
+                size = nextPowerOfTwo(size);
+
+            builder.append(size).append(',');
+        }
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+
+    /**
+     * This method stops scheduler. Requests pending in buckets are dispatched before this method returns,
+     * new requests are rejected afterwards.
+     */
+    public void shutdown() {
+        shouldWork.set(false);
+        try {
+            this.join();
+
+            List<InferenceRequest> pending = new ArrayList<>();
+            requests.drainTo(pending);
+            for (InferenceRequest request : pending) {
+                enqueue(request);
+            }
+            for (Bucket bucket : buckets.values()) {
+                dispatch(bucket);
+            }
+            buckets.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Bucket {
+        private final List<InferenceRequest> requests = new ArrayList<>();
+        private final long oldest;
+        private int numExamples;
+
+        private Bucket(long oldest) {
+            this.oldest = oldest;
+        }
+    }
+}
@@ -6,4 +6,5 @@ package org.deeplearning4j.parallelism.inference;
 public enum InferenceMode {
     SEQUENTIAL, // input will be passed into the model as is
     BATCHED, // input will be included into the batch
+    DYNAMIC, // input will be bucketed by shape, and batched up to target batch size or max wait time, whichever comes first
 }
@@ -0,0 +1,31 @@
+package org.deeplearning4j.parallelism.inference;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * This class holds single inference request: input arrays, optional input masks, and the future
+ * that will receive output of the network for this input
+ */
+@Getter
+public class InferenceRequest {
+    private final INDArray[] input;
+    private final INDArray[] inputMasks;
+    private final CompletableFuture<INDArray[]> future = new CompletableFuture<>();
+    private final long enqueueTime = System.nanoTime();
+
+    public InferenceRequest(@NonNull INDArray[] input, INDArray[] inputMasks) {
+        this.input = input;
+        this.inputMasks = inputMasks;
+    }
+
+    /**
+     * @return number of examples in this request, i.e. size of dimension 0 of the input arrays
+     */
+    public int getNumExamples() {
+        return input[0].size(0);
+    }
+}
@@ -0,0 +1,160 @@
+package org.deeplearning4j.parallelism.inference.observers;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.parallelism.inference.InferenceObservable;
+import org.deeplearning4j.parallelism.inference.InferenceRequest;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSetUtil;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.primitives.Pair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Observable;
+
+/**
+ * This class holds a batch of requests formed by DynamicBatchScheduler (or a single asynchronous request),
+ * and implements DYNAMIC inference: requests are merged into single batch (with time series padded + masked
+ * to the longest one, if required), and output is split back into each request's future.
+ */
+@Slf4j
+public class DynamicBatchedInferenceObservable extends Observable implements InferenceObservable {
+    private final List<InferenceRequest> requests;
+    private int mergedTimeSeriesLength = -1;
+    private INDArray[] output;
+    private Exception exception;
+
+    public DynamicBatchedInferenceObservable(@NonNull List<InferenceRequest> requests) {
+        this.requests = new ArrayList<>(requests);
+    }
+
+    @Override
+    public List<Pair<INDArray[], INDArray[]>> getInputBatches() {
+        // requests cancelled while waiting in queue aren't worth computing
+        List<InferenceRequest> active = new ArrayList<>(requests.size());
+        for (InferenceRequest request : requests) {
+            if (!request.getFuture().isDone())
+                active.add(request);
+        }
+        requests.retainAll(active);
+
+        if (requests.isEmpty())
+            return Collections.emptyList();
+
+        Pair<INDArray[], INDArray[]> merged;
+        if (requests.size() == 1) {
+            merged = new Pair<>(requests.get(0).getInput(), requests.get(0).getInputMasks());
+        } else {
+            INDArray[][] featuresToMerge = new INDArray[requests.size()][0];
+            INDArray[][] fMasksToMerge = null;
+            for (int i = 0; i < requests.size(); i++) {
+                featuresToMerge[i] = requests.get(i).getInput();
+
+                if (requests.get(i).getInputMasks() != null) {
+                    if (fMasksToMerge == null)
+                        fMasksToMerge = new INDArray[requests.size()][];
+                    fMasksToMerge[i] = requests.get(i).getInputMasks();
+                }
+            }
+
+            // time series of different lengths are padded to the longest one, with masks covering the padding
+            merged = DataSetUtil.mergeFeatures(featuresToMerge, fMasksToMerge);
+        }
+
+        INDArray first = merged.getFirst()[0];
+        mergedTimeSeriesLength = first.rank() == 3 ? first.size(2) : -1;
+
+        return Collections.singletonList(merged);
+    }
+
+    @Override
+    public void addInput(@NonNull INDArray... input) {
+        addInput(input, null);
+    }
+
+    @Override
+    public void addInput(@NonNull INDArray[] input, INDArray[] inputMasks) {
+        requests.add(new InferenceRequest(input, inputMasks));
+    }
+
+    @Override
+    public void setOutputBatches(@NonNull List<INDArray[]> output) {
+        if (requests.isEmpty())
+            return;
+
+        if (output.size() != 1)
+            throw new IllegalArgumentException("Expected size 1 output: got size " + output.size());
+
+        INDArray[] batchOutput = output.get(0);
+        this.output = batchOutput;
+        int examplesSoFar = 0;
+        for (InferenceRequest request : requests) {
+            int numExamples = request.getNumExamples();
+            INDArray[] split = new INDArray[batchOutput.length];
+            for (int i = 0; i < batchOutput.length; i++) {
+                split[i] = splitExamples(batchOutput[i], examplesSoFar, numExamples, request);
+            }
+            examplesSoFar += numExamples;
+
+            request.getFuture().complete(split);
+        }
+
+        this.setChanged();
+        notifyObservers();
+    }
+
+    private INDArray splitExamples(INDArray netOutput, int firstExample, int numExamples, InferenceRequest request) {
+        INDArray input = request.getInput()[0];
+        boolean padded = netOutput.rank() == 3 && input.rank() == 3 && netOutput.size(2) == mergedTimeSeriesLength
+                        && input.size(2) < mergedTimeSeriesLength;
+
+        if (requests.size() == 1 && !padded)
+            return netOutput;
+
+        INDArrayIndex[] indices = new INDArrayIndex[netOutput.rank()];
+        for (int i = 1; i < indices.length; i++) {
+            indices[i] = NDArrayIndex.all();
+        }
+        indices[0] = NDArrayIndex.interval(firstExample, firstExample + numExamples);
+
+        // strip padding: request gets output of the same length as its input
+        if (padded)
+            indices[2] = NDArrayIndex.interval(0, input.size(2));
+
+        return netOutput.get(indices);
+    }
+
+    @Override
+    public void setOutputException(Exception e) {
+        this.exception = e;
+        for (InferenceRequest request : requests) {
+            request.getFuture().completeExceptionally(e);
+        }
+
+        this.setChanged();
+        notifyObservers();
+    }
+
+    /**
+     * This method returns network output for the whole merged batch, as returned by {@link #getInputBatches()},
+     * or null if output isn't available yet. Output of individual requests is delivered via their futures.
+     */
+    @Override
+    public INDArray[] getOutput() {
+        if (exception != null) {
+            if (exception instanceof RuntimeException)
+                throw (RuntimeException) exception;
+
+            throw new RuntimeException("Exception encountered while getting output: " + exception.getMessage(),
+                            exception);
+        }
+        return output;
+    }
+
+    public int getNumRequests() {
+        return requests.size();
+    }
+}
@@ -8,6 +8,7 @@ import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.optimize.listeners.SharedGradient;
 import org.deeplearning4j.optimize.solvers.accumulation.GradientsAccumulator;
+import org.deeplearning4j.optimize.solvers.accumulation.RingAllReduceAccumulator;
 import org.deeplearning4j.parallelism.ParallelWrapper;
 
 /**
@@ -61,6 +62,10 @@ public class SymmetricTrainer extends DefaultTrainer implements CommunicativeTra
             ((MultiLayerNetwork) replicatedModel).setGradientsAccumulator(accumulator);
         }
 
+        // ring position has to match the order in which ParallelWrapper feeds the trainers
+        if (accumulator instanceof RingAllReduceAccumulator)
+            ((RingAllReduceAccumulator) accumulator).registerWorker(threadId);
+
         // need to attach this device id to accumulator's workspaces
         accumulator.touch();
     }
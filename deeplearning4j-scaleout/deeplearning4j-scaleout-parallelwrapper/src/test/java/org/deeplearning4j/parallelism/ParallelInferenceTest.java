@@ -14,6 +14,7 @@ import org.nd4j.linalg.io.ClassPathResource;
 import org.deeplearning4j.datasets.iterator.impl.MnistDataSetIterator;
 import org.deeplearning4j.eval.Evaluation;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.inference.DynamicBatchScheduler;
 import org.deeplearning4j.parallelism.inference.InferenceMode;
 import org.deeplearning4j.parallelism.inference.InferenceObservable;
 import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObserver;
@@ -31,8 +32,13 @@ import org.nd4j.linalg.primitives.Pair;
 import java.io.File;
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -424,6 +430,228 @@ public class ParallelInferenceTest {
 
 
 
+    @Test(timeout = 30000L)
+    public void testDynamicBatchingMaxWait() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+
+        int nIn = 10;
+
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .activation(Activation.TANH)
+                .seed(12345)
+                .list()
+                .layer(new LSTM.Builder().nIn(nIn).nOut(5).build())
+                .layer(new RnnOutputLayer.Builder().nIn(5).nOut(5).build())
+                .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        //Target batch size is never reached here: every batch has to be released by the max wait deadline
+        final ParallelInference inf =
+                new ParallelInference.Builder(net)
+                        .inferenceMode(InferenceMode.DYNAMIC)
+                        .targetBatchSize(10000)
+                        .maxBatchWait(5, TimeUnit.MILLISECONDS)
+                        .timeSeriesPadding(true)
+                        .workers(2).build();
+
+        INDArray single = Nd4j.rand(new int[]{1, nIn, 7});
+        assertEquals(net.output(single), inf.output(single));
+
+        List<INDArray> arrs = new ArrayList<>();
+        List<INDArray> exp = new ArrayList<>();
+        Random r = new Random(12345);
+        for( int i=0; i<100; i++ ){
+            INDArray in = Nd4j.rand(new int[]{r.nextInt(3) + 1, nIn, r.nextInt(20) + 1});
+            arrs.add(in);
+            exp.add(net.output(in));
+        }
+        testParallelInference(inf, arrs, exp);
+    }
+
+    @Test(timeout = 30000L)
+    public void testDynamicBatchSizeCap() throws Exception {
+        LinkedBlockingQueue<InferenceObservable> queue = new LinkedBlockingQueue<>();
+        DynamicBatchScheduler scheduler =
+                new DynamicBatchScheduler(queue, 4, TimeUnit.SECONDS.toNanos(10), false, 100);
+
+        //Scheduler thread isn't started: all pending requests are bucketed on shutdown
+        for( int i=0; i<5; i++ ){
+            scheduler.submitAsync(new INDArray[]{Nd4j.rand(3, 10)}, null);
+        }
+        scheduler.shutdown();
+
+        //3 + 3 examples would exceed target batch size of 4, so every request goes in its own batch
+        assertEquals(5, queue.size());
+        for (InferenceObservable observable : queue) {
+            assertEquals(3, observable.getInputBatches().get(0).getFirst()[0].size(0));
+        }
+
+        //Single request larger than target batch size isn't split
+        queue.clear();
+        scheduler = new DynamicBatchScheduler(queue, 4, TimeUnit.SECONDS.toNanos(10), false, 100);
+        scheduler.submitAsync(new INDArray[]{Nd4j.rand(6, 10)}, null);
+        scheduler.shutdown();
+        assertEquals(1, queue.size());
+        assertEquals(6, queue.peek().getInputBatches().get(0).getFirst()[0].size(0));
+
+        assertTrue(scheduler.submitAsync(new INDArray[]{Nd4j.rand(1, 10)}, null).isCompletedExceptionally());
+    }
+
+    @Test(timeout = 30000L)
+    public void testDynamicBatchMaskBuckets() throws Exception {
+        LinkedBlockingQueue<InferenceObservable> queue = new LinkedBlockingQueue<>();
+        DynamicBatchScheduler scheduler =
+                new DynamicBatchScheduler(queue, 100, TimeUnit.SECONDS.toNanos(10), false, 100);
+
+        //Same input shape: requests without mask, with mask, and with mask again
+        scheduler.submitAsync(new INDArray[]{Nd4j.rand(new int[]{2, 3, 5})}, null);
+        scheduler.submitAsync(new INDArray[]{Nd4j.rand(new int[]{2, 3, 5})}, new INDArray[]{Nd4j.ones(2, 5)});
+        scheduler.submitAsync(new INDArray[]{Nd4j.rand(new int[]{1, 3, 5})}, new INDArray[]{Nd4j.ones(1, 5)});
+        scheduler.shutdown();
+
+        assertEquals(2, queue.size());
+        int[] sizes = new int[2];
+        int i = 0;
+        for (InferenceObservable observable : queue) {
+            sizes[i++] = observable.getInputBatches().get(0).getFirst()[0].size(0);
+        }
+        assertArrayEquals(new int[]{2, 3}, sizes);
+    }
+
+    @Test(timeout = 30000L)
+    public void testDynamicBatchingSubmitDuringShutdown() throws Exception {
+        LinkedBlockingQueue<InferenceObservable> queue = new LinkedBlockingQueue<>();
+        final DynamicBatchScheduler scheduler =
+                new DynamicBatchScheduler(queue, 100, TimeUnit.SECONDS.toNanos(10), false, 1);
+
+        //Scheduler thread isn't started: pending requests limit is reached, so next submit() waits for space
+        CompletableFuture<INDArray[]> first = scheduler.submitAsync(new INDArray[]{Nd4j.rand(1, 10)}, null);
+        final AtomicReference<CompletableFuture<INDArray[]>> second = new AtomicReference<>();
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                second.set(scheduler.submit(new INDArray[]{Nd4j.rand(1, 10)}, null));
+            }
+        });
+        t.start();
+        Thread.sleep(200);
+
+        //Waiting request either gets into the drained requests, or is rejected - it's never left hanging
+        scheduler.shutdown();
+        t.join();
+        assertFalse(first.isDone());
+        assertEquals(1, queue.size());
+        assertTrue(second.get().isCompletedExceptionally());
+        try {
+            second.get().get();
+            fail("Expected exception");
+        } catch (ExecutionException e){
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test(timeout = 60000L)
+    public void testDynamicBatchingShutdown() throws Exception {
+        int nIn = 10;
+
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .activation(Activation.TANH)
+                .seed(12345)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(nIn).nOut(5).build())
+                .layer(new OutputLayer.Builder().nIn(5).nOut(5).build())
+                .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        //Neither target batch size nor max wait is reached before shutdown
+        final ParallelInference inf =
+                new ParallelInference.Builder(net)
+                        .inferenceMode(InferenceMode.DYNAMIC)
+                        .targetBatchSize(10000)
+                        .maxBatchWait(1, TimeUnit.HOURS)
+                        .workers(2).build();
+
+        List<INDArray> exp = new ArrayList<>();
+        List<CompletableFuture<INDArray[]>> futures = new ArrayList<>();
+        for( int i=0; i<10; i++ ){
+            INDArray in = Nd4j.rand(i % 3 + 1, nIn);
+            exp.add(net.output(in));
+            futures.add(inf.outputAsync(in));
+        }
+
+        inf.shutdown();
+
+        //Every request is either processed, or failed - none is left hanging
+        for( int i=0; i<futures.size(); i++ ){
+            assertTrue(futures.get(i).isDone());
+            if (!futures.get(i).isCompletedExceptionally())
+                assertEquals(exp.get(i), futures.get(i).get()[0]);
+        }
+
+        try {
+            inf.outputAsync(Nd4j.rand(1, nIn)).get();
+            fail("Expected exception");
+        } catch (ExecutionException e){
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test(timeout = 60000L)
+    public void testOutputAsync() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+
+        int nIn = 10;
+
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .activation(Activation.TANH)
+                .seed(12345)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(nIn).nOut(5).build())
+                .layer(new OutputLayer.Builder().nIn(5).nOut(5).build())
+                .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        for( InferenceMode m : InferenceMode.values()) {
+            final ParallelInference inf =
+                    new ParallelInference.Builder(net)
+                            .inferenceMode(m)
+                            .batchLimit(20)
+                            .queueLimit(256)
+                            .workers(2).build();
+
+            //Cancelled requests must not affect other requests
+            CompletableFuture<INDArray[]> cancelled = inf.outputAsync(Nd4j.rand(1, nIn));
+            cancelled.cancel(true);
+
+            List<INDArray> exp = new ArrayList<>();
+            List<CompletableFuture<INDArray[]>> futures = new ArrayList<>();
+            for( int i=0; i<100; i++ ){
+                INDArray in = Nd4j.rand(i % 3 + 1, nIn);
+                exp.add(net.output(in));
+                futures.add(inf.outputAsync(new INDArray[]{in}, null, 30, TimeUnit.SECONDS));
+            }
+
+            for( int i=0; i<futures.size(); i++ ){
+                INDArray[] out = futures.get(i).get();
+                assertEquals(1, out.length);
+                assertEquals(exp.get(i), out[0]);
+            }
+
+            try {
+                inf.outputAsync(Nd4j.ones(1, 5)).get();
+                fail("Expected exception");
+            } catch (ExecutionException e){
+                assertTrue(e.getCause() instanceof DL4JInvalidInputException);
+            }
+        }
+    }
+
     @Test(timeout = 30000L)
     public void testParallelInferenceVariableSizeCNN() throws Exception {
         //Variable size input for CNN model - for example, YOLO models
@@ -581,6 +809,80 @@ public class ParallelInferenceTest {
         }
     }
 
+    @Test(timeout = 120000L)
+    public void testUpdateModel() throws Exception {
+        int nIn = 10;
+
+        MultiLayerNetwork[] nets = new MultiLayerNetwork[2];
+        for (int i = 0; i < nets.length; i++) {
+            MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                    .activation(Activation.TANH)
+                    .seed(12345 + i)
+                    .list()
+                    .layer(new DenseLayer.Builder().nIn(nIn).nOut(5).build())
+                    .layer(new OutputLayer.Builder().nIn(5).nOut(5).build())
+                    .build();
+            nets[i] = new MultiLayerNetwork(conf);
+            nets[i].init();
+        }
+
+        final INDArray in = Nd4j.rand(3, nIn);
+        final INDArray exp0 = nets[0].output(in);
+        final INDArray exp1 = nets[1].output(in);
+        assertNotEquals(exp0, exp1);
+
+        for (InferenceMode m : InferenceMode.values()) {
+            for (int w : new int[]{1, 2}) {
+                final ParallelInference inf =
+                        new ParallelInference.Builder(nets[0])
+                                .inferenceMode(m)
+                                .batchLimit(20)
+                                .queueLimit(64)
+                                .warmupIterations(2)
+                                .workers(w).build();
+
+                assertEquals(exp0, inf.output(in));
+
+                //Keep requests coming while the model is updated: none of them should fail
+                final AtomicInteger failedCount = new AtomicInteger(0);
+                final AtomicInteger stop = new AtomicInteger(0);
+                Thread client = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        while (stop.get() == 0) {
+                            try {
+                                INDArray out = inf.output(in);
+                                //Each request is processed by either the previous or the new model
+                                if (!exp0.equals(out) && !exp1.equals(out))
+                                    failedCount.incrementAndGet();
+                            } catch (Exception e) {
+                                log.error("", e);
+                                failedCount.incrementAndGet();
+                            }
+                        }
+                    }
+                });
+                client.start();
+
+                inf.updateModel(nets[1]);
+                assertEquals(exp1, inf.output(in));
+
+                stop.set(1);
+                client.join();
+                assertEquals(0, failedCount.get());
+
+                //Invalid warm-up input: update fails, previous model is still used
+                try {
+                    inf.updateModel(nets[0], new INDArray[]{Nd4j.rand(3, nIn + 1)});
+                    fail("Expected exception");
+                } catch (RuntimeException e) {
+                    //OK
+                }
+                assertEquals(exp1, inf.output(in));
+            }
+        }
+    }
+
     @Test(timeout = 60000)
     public void testInputMasking() throws Exception {
         Nd4j.getRandom().setSeed(12345);
@@ -3,6 +3,7 @@ package org.deeplearning4j.spark.parameterserver.conf;
 import lombok.*;
 import org.deeplearning4j.nn.conf.WorkspaceMode;
 import org.deeplearning4j.optimize.solvers.accumulation.MessageHandler;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.GradientCodec;
 import org.nd4j.parameterserver.distributed.conf.VoidConfiguration;
 
 import java.io.Serializable;
@@ -42,6 +43,28 @@ public class SharedTrainingConfiguration implements Serializable {
     @Builder.Default protected double stepTrigger = 0.0;
     @Builder.Default protected int stepDelay = 3;
     @Builder.Default protected int shakeFrequency = 0;
+
+    /**
+     * If > 0, updates are encoded and sent in buckets of this many elements, starting from the output layers, so
+     * network transfers overlap with training. 0 disables bucketing
+     */
+    @Builder.Default protected int bucketSize = 0;
+
+    /**
+     * If > 0, adaptive encoding is used: each layer has its own threshold, tuned to send this fraction of its updates
+     */
+    @Builder.Default protected double targetSparsity = 0.0;
+
+    /**
+     * If > 0, adaptive encoding is used, with thresholds tuned to send this many bytes per iteration. Takes precedence
+     * over targetSparsity
+     */
+    @Builder.Default protected long targetBytesPerIteration = 0L;
+
+    /**
+     * If defined, updates are encoded with this codec instead of threshold encoding
+     */
+    protected GradientCodec gradientCodec;
     protected String messageHandlerClass;
 
 
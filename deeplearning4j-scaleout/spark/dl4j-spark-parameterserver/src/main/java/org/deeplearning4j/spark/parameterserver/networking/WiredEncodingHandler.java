@@ -6,8 +6,12 @@ import org.deeplearning4j.spark.parameterserver.networking.messages.SilentUpdate
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.util.AtomicThrowable;
 import org.nd4j.parameterserver.distributed.VoidParameterServer;
 
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -18,8 +22,15 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 @Slf4j
 public class WiredEncodingHandler extends EncodingHandler {
+    protected static final int OUTGOING_QUEUE_SIZE = 256;
+
     protected AtomicLong updatesCounter = new AtomicLong(0);
 
+    // in bucketed mode messages are sent over the wire by a background thread, so training isn't blocked by transfers
+    protected transient BlockingQueue<SilentUpdatesMessage> outgoing;
+    protected transient Thread sender;
+    protected final AtomicThrowable throwable = new AtomicThrowable();
+
     /**
      * This method builds new WiredEncodingHandler instance with initial encoding of 1e-3
      *
@@ -78,6 +89,24 @@ public class WiredEncodingHandler extends EncodingHandler {
         super(threshold, minThreshold, thresholdStep, stepTrigger, stepDelay, shakeFrequency, boundary);
     }
 
+    /**
+     * This method builds new WiredEncodingHandler instance
+     *
+     * @param threshold Initial encoding threshold
+     * @param minThreshold Minimal encoding threshold (for threshold decay)
+     * @param thresholdStep Decay step for threshold decay
+     * @param stepTrigger Sparse/Dense ratio that will trigger decay step. In range 0..100
+     * @param stepDelay Minimal number of iterations between decay steps
+     * @param shakeFrequency How ofter we'll be sending dense updates with lower threshold
+     * @param boundary
+     * @param bucketSize If > 0, updates are encoded in buckets of this many elements, starting from the output layers,
+     *                   and each bucket is sent in background as soon as it's encoded. 0 to disable bucketing
+     */
+    public WiredEncodingHandler(double threshold, double minThreshold, double thresholdStep, double stepTrigger,
+                    int stepDelay, int shakeFrequency, Double boundary, int bucketSize) {
+        super(threshold, minThreshold, thresholdStep, stepTrigger, stepDelay, shakeFrequency, boundary, bucketSize);
+    }
+
     /**
      * This method sends given message to all registered recipients
      *
@@ -93,12 +122,65 @@ public class WiredEncodingHandler extends EncodingHandler {
         try (MemoryWorkspace wsO = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
             long updateId = updatesCounter.getAndIncrement();
 
-            VoidParameterServer.getInstance().execDistributedImmediately(
-                            new SilentUpdatesMessage(message.unsafeDuplication(), updateId));
+            SilentUpdatesMessage updatesMessage = new SilentUpdatesMessage(message.unsafeDuplication(), updateId);
+            if (isSegmented())
+                enqueue(updatesMessage);
+            else
+                VoidParameterServer.getInstance().execDistributedImmediately(updatesMessage);
         }
 
 
         // heere we update local queue
         super.sendMessage(message);
     }
+
+    /**
+     * This method puts given message to the outgoing queue, blocking if too many messages are still waiting to be
+     * sent
+     *
+     * @param message
+     */
+    protected void enqueue(SilentUpdatesMessage message) {
+        if (throwable.isTriggered())
+            throw new RuntimeException("Failed to send updates", throwable.get());
+
+        synchronized (this) {
+            if (sender == null) {
+                outgoing = new LinkedBlockingQueue<>(OUTGOING_QUEUE_SIZE);
+                sender = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        sendLoop();
+                    }
+                });
+                sender.setName("WiredEncodingHandler sender");
+                sender.setDaemon(true);
+                sender.start();
+            }
+        }
+
+        try {
+            while (!outgoing.offer(message, 10, TimeUnit.MILLISECONDS)) {
+                if (throwable.isTriggered())
+                    throw new RuntimeException("Failed to send updates", throwable.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected void sendLoop() {
+        try {
+            while (true) {
+                SilentUpdatesMessage message = outgoing.take();
+                VoidParameterServer.getInstance().execDistributedImmediately(message);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Failed to send updates", e);
+            throwable.setIfFirst(e);
+        }
+    }
 }
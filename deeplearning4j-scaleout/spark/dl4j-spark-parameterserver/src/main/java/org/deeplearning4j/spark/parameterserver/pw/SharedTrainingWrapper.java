@@ -3,12 +3,13 @@ package org.deeplearning4j.spark.parameterserver.pw;
 import lombok.extern.slf4j.Slf4j;
 import org.bytedeco.javacpp.Loader;
 import org.deeplearning4j.exception.DL4JInvalidConfigException;
+import org.deeplearning4j.nn.api.Layer;
 import org.deeplearning4j.nn.api.Model;
 import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.graph.vertex.GraphVertex;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.optimize.listeners.SleepyTrainingListener;
 import org.deeplearning4j.optimize.solvers.accumulation.EncodedGradientsAccumulator;
-import org.deeplearning4j.optimize.solvers.accumulation.MessageHandler;
 import org.deeplearning4j.parallelism.ParallelWrapper;
 import org.deeplearning4j.spark.parameterserver.conf.SharedTrainingConfiguration;
 import org.deeplearning4j.spark.parameterserver.iterators.VirtualDataSetIterator;
@@ -62,6 +63,7 @@ public class SharedTrainingWrapper {
     protected Model originalModel;
 
     protected SilentTrainingDriver driver;
+    protected WiredEncodingHandler encodingHandler;
 
     protected SharedTrainingWrapper() {
         init();
@@ -168,10 +170,21 @@ public class SharedTrainingWrapper {
                 if (model == null)
                     throw new DL4JInvalidConfigException("No model was defined for training");
 
-                MessageHandler handler = new WiredEncodingHandler(trainingConfiguration.getThreshold(),
+                WiredEncodingHandler handler = new WiredEncodingHandler(trainingConfiguration.getThreshold(),
                                 trainingConfiguration.getMinThreshold(), trainingConfiguration.getThresholdStep(),
                                 trainingConfiguration.getStepTrigger(), trainingConfiguration.getStepDelay(),
-                                trainingConfiguration.getShakeFrequency());
+                                trainingConfiguration.getShakeFrequency(), null,
+                                trainingConfiguration.getBucketSize());
+
+                // adaptive encoding tunes threshold for each layer separately
+                if (trainingConfiguration.getTargetSparsity() > 0.0
+                                || trainingConfiguration.getTargetBytesPerIteration() > 0) {
+                    handler.setTargetSparsity(trainingConfiguration.getTargetSparsity());
+                    handler.setTargetBytesPerIteration(trainingConfiguration.getTargetBytesPerIteration());
+                    handler.setSegmentOffsets(layerSegments(model, trainingConfiguration.getBucketSize()));
+                }
+
+                handler.setGradientCodec(trainingConfiguration.getGradientCodec());
 
                 // this accumulator will provide sharing gradients over network, via WiredEncodedHandler. But we create it only once
                 if (accumulator == null) {
@@ -185,8 +198,15 @@ public class SharedTrainingWrapper {
 
                     int queueSize = numWorkers * 2;
 
+                    // with bucketing or per-layer encoding, each update is split into multiple messages
+                    int[] segments = handler.segments(model.numParams());
+                    if (segments != null)
+                        queueSize *= segments.length - 1;
+
                     int bufferSize = trainingConfiguration.getBufferSize() > 0 ? trainingConfiguration.getBufferSize()
-                                    : EncodedGradientsAccumulator.getOptimalBufferSize(model, numWorkers, 2);
+                                    : EncodedGradientsAccumulator.getOptimalBufferSize(
+                                                    trainingConfiguration.getGradientCodec(), model.numParams(),
+                                                    numWorkers, 2);
 
                     accumulator = new EncodedGradientsAccumulator.Builder(numWorkers).messageHandler(handler)
                                     .encodingThreshold(trainingConfiguration.getThreshold())
@@ -210,6 +230,7 @@ public class SharedTrainingWrapper {
                         // TODO: tbd: let's allow one of executor nodes to be silent worker maybe? or this going to be too expensive?
                     }
 
+                    encodingHandler = handler;
                     driver = new SilentTrainingDriver(accumulator);
                     VoidParameterServer.getInstance().init(voidConfiguration, transport, driver);
 
@@ -324,6 +345,14 @@ public class SharedTrainingWrapper {
             // current TrainingDriver won't be receiving any updates beyond this point
             driver.bypassMode(true);
 
+            if (encodingHandler != null && encodingHandler.isAdaptive()) {
+                log.info("Updates encoding: {} messages, compression ratio: {}, residual norm: {}",
+                                encodingHandler.getMessagesCount(),
+                                String.format("%.2f", encodingHandler.getCompressionRatio()),
+                                String.format("%.5f", encodingHandler.getResidualNorm()));
+                encodingHandler.resetStats();
+            }
+
 
             isFirst.set(false);
 
@@ -358,6 +387,56 @@ public class SharedTrainingWrapper {
         }
     }
 
+    /**
+     * This method returns offsets of the parameters of each layer in the flattened parameters of the given model,
+     * followed by the number of parameters. Layers without parameters are skipped, and layers with more than
+     * bucketSize parameters are split into buckets
+     *
+     * @param model      MultiLayerNetwork or ComputationGraph
+     * @param bucketSize Max segment size, 0 for no limit
+     * @return Segment offsets, or null if the model has no parameters
+     */
+    protected static int[] layerSegments(Model model, int bucketSize) {
+        List<Integer> numParams = new ArrayList<>();
+        if (model instanceof ComputationGraph) {
+            ComputationGraph graph = (ComputationGraph) model;
+            // parameters are flattened in topological order
+            for (int idx : graph.topologicalSortOrder()) {
+                GraphVertex vertex = graph.getVertices()[idx];
+                if (vertex.hasLayer())
+                    numParams.add(vertex.getLayer().numParams());
+            }
+        } else if (model instanceof MultiLayerNetwork) {
+            for (Layer layer : ((MultiLayerNetwork) model).getLayers())
+                numParams.add(layer.numParams());
+        } else {
+            throw new DL4JInvalidConfigException("Unsupported model type: " + model.getClass().getSimpleName());
+        }
+
+        List<Integer> offsets = new ArrayList<>();
+        offsets.add(0);
+        int position = 0;
+        for (int n : numParams) {
+            if (n == 0)
+                continue;
+            int end = position + n;
+            if (bucketSize > 0) {
+                for (int o = position + bucketSize; o < end; o += bucketSize)
+                    offsets.add(o);
+            }
+            offsets.add(end);
+            position = end;
+        }
+
+        if (offsets.size() < 2)
+            return null;
+
+        int[] result = new int[offsets.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = offsets.get(i);
+        return result;
+    }
+
     public void passDataSet(DataSet dataSet) {
         // we're going to save this dataset into VirtualDataSetIterator
     }
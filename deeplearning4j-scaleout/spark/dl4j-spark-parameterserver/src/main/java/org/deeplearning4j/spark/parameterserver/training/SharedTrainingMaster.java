@@ -14,6 +14,7 @@ import org.deeplearning4j.api.storage.StatsStorageRouter;
 import org.deeplearning4j.api.storage.StorageMetaData;
 import org.deeplearning4j.exception.DL4JInvalidConfigException;
 import org.deeplearning4j.optimize.api.IterationListener;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.*;
 import org.deeplearning4j.spark.api.*;
 import org.deeplearning4j.spark.api.stats.SparkTrainingStats;
 import org.deeplearning4j.spark.api.worker.NetBroadcastTuple;
@@ -75,6 +76,10 @@ public class SharedTrainingMaster extends BaseTrainingMaster<SharedTrainingResul
     protected double stepTrigger = 0.05;
     protected int stepDelay = 50;
     protected int shakeFrequency;
+    protected int bucketSize = 0;
+    protected double targetSparsity = 0.0;
+    protected long targetBytesPerIteration = 0L;
+    protected GradientCodec gradientCodec;
 
     protected Repartition repartition;
     protected RepartitionStrategy repartitionStrategy;
@@ -108,6 +113,8 @@ public class SharedTrainingMaster extends BaseTrainingMaster<SharedTrainingResul
         this.stepTrigger = stepTrigger;
         this.stepDelay = stepDelay;
         this.rddTrainingApproach = rddTrainingApproach;
+        //Export format is chosen by BaseTrainingMaster
+        super.rddTrainingApproach = rddTrainingApproach;
         this.repartitionStrategy = repartitionStrategy;
         this.repartition = repartition;
         this.storageLevel = storageLevel;
@@ -205,7 +212,9 @@ public class SharedTrainingMaster extends BaseTrainingMaster<SharedTrainingResul
         SharedTrainingConfiguration configuration = SharedTrainingConfiguration.builder().threshold(threshold)
                         .minThreshold(minThreshold).shakeFrequency(shakeFrequency).thresholdStep(thresholdStep)
                         .stepTrigger(stepTrigger).stepDelay(stepDelay).voidConfiguration(voidConfiguration)
-                        .debugLongerIterations(debugLongerIterations).numberOfWorkersPerNode(numWorkersPerNode).build();
+                        .debugLongerIterations(debugLongerIterations).numberOfWorkersPerNode(numWorkersPerNode)
+                        .bucketSize(bucketSize).targetSparsity(targetSparsity)
+                        .targetBytesPerIteration(targetBytesPerIteration).gradientCodec(gradientCodec).build();
 
         if (collectTrainingStats)
             stats.logBroadcastStart();
@@ -232,7 +241,9 @@ public class SharedTrainingMaster extends BaseTrainingMaster<SharedTrainingResul
         SharedTrainingConfiguration configuration = SharedTrainingConfiguration.builder().threshold(threshold)
                         .minThreshold(minThreshold).shakeFrequency(shakeFrequency).thresholdStep(thresholdStep)
                         .voidConfiguration(voidConfiguration).debugLongerIterations(debugLongerIterations)
-                        .numberOfWorkersPerNode(numWorkersPerNode).build();
+                        .numberOfWorkersPerNode(numWorkersPerNode).bucketSize(bucketSize)
+                        .targetSparsity(targetSparsity).targetBytesPerIteration(targetBytesPerIteration)
+                        .gradientCodec(gradientCodec).build();
 
         if (collectTrainingStats)
             stats.logBroadcastStart();
@@ -507,7 +518,8 @@ public class SharedTrainingMaster extends BaseTrainingMaster<SharedTrainingResul
         // at this moment we have coordinator server up (master works as coordinator)
         if (rddTrainingApproach == RDDTrainingApproach.Direct) {
             executeTrainingDirect(network, trainingData);
-        } else if (rddTrainingApproach == RDDTrainingApproach.Export) {
+        } else if (rddTrainingApproach == RDDTrainingApproach.Export
+                        || rddTrainingApproach == RDDTrainingApproach.ExportPacked) {
             //Export data if required (or, use cached export)
             JavaRDD<String> paths = exportIfRequired(network.getSparkContext(), trainingData);
             executeTrainingPathsHelper(network, paths, batchSizePerWorker);
@@ -537,7 +549,8 @@ public class SharedTrainingMaster extends BaseTrainingMaster<SharedTrainingResul
         // at this moment we have coordinator server up (master works as coordinator)
         if (rddTrainingApproach == RDDTrainingApproach.Direct) {
             executeTrainingDirect(graph, trainingData);
-        } else if (rddTrainingApproach == RDDTrainingApproach.Export) {
+        } else if (rddTrainingApproach == RDDTrainingApproach.Export
+                        || rddTrainingApproach == RDDTrainingApproach.ExportPacked) {
             //Export data if required (or, use cached export)
             JavaRDD<String> paths = exportIfRequired(graph.getSparkContext(), trainingData);
             executeTrainingPathsHelper(graph, paths, batchSizePerWorker);
@@ -574,7 +587,8 @@ public class SharedTrainingMaster extends BaseTrainingMaster<SharedTrainingResul
         // at this moment we have coordinator server up (master works as coordinator)
         if (rddTrainingApproach == RDDTrainingApproach.Direct) {
             executeTrainingDirectMDS(graph, trainingData);
-        } else if (rddTrainingApproach == RDDTrainingApproach.Export) {
+        } else if (rddTrainingApproach == RDDTrainingApproach.Export
+                        || rddTrainingApproach == RDDTrainingApproach.ExportPacked) {
             //Export data if required (or, use cached export)
             JavaRDD<String> paths = exportIfRequiredMDS(graph.getSparkContext(), trainingData);
             executeTrainingPathsMDSHelper(graph, paths, batchSizePerWorker);
@@ -931,6 +945,10 @@ public class SharedTrainingMaster extends BaseTrainingMaster<SharedTrainingResul
         protected double stepTrigger = 0.05;
         protected int stepDelay = 50;
         protected int shakeFrequency = 0;
+        protected int bucketSize = 0;
+        protected double targetSparsity = 0.0;
+        protected long targetBytesPerIteration = 0L;
+        protected GradientCodec gradientCodec;
         protected Repartition repartition = Repartition.Always;
         protected RepartitionStrategy repartitionStrategy = RepartitionStrategy.Balanced;
         protected StorageLevel storageLevel = StorageLevel.MEMORY_ONLY_SER();
@@ -1155,6 +1173,73 @@ public class SharedTrainingMaster extends BaseTrainingMaster<SharedTrainingResul
             return this;
         }
 
+        /**
+         * This method enables bucketed updates sharing: instead of encoding and sending the whole update once per
+         * iteration, updates are encoded in buckets of the given number of elements, starting from the output layers,
+         * and each bucket is sent in background as soon as it's encoded. This way network transfers overlap with
+         * training, instead of adding up with it.
+         *
+         * Default value: 0 (disabled)
+         * @param bucketSize number of parameters per bucket, 0 to disable bucketing
+         * @return
+         */
+        public Builder bucketSize(int bucketSize) {
+            if (bucketSize < 0)
+                throw new DL4JInvalidConfigException("bucketSize should be non-negative value");
+
+            this.bucketSize = bucketSize;
+            return this;
+        }
+
+        /**
+         * This method enables adaptive updates encoding: instead of a single threshold tuned with updatesThreshold,
+         * minUpdatesThreshold, thresholdStep, stepTrigger, stepDelay and shakeFrequency, each layer gets its own
+         * threshold, adjusted after each iteration so that the given fraction of its updates is sent. Threshold, bitmap
+         * or dense encoding is picked for each message. Updates threshold is only used as initial value.
+         *
+         * Default value: 0 (disabled)
+         * @param targetSparsity fraction of updates values to send per iteration, i.e. 1e-3. 0 to disable
+         * @return
+         */
+        public Builder targetSparsity(double targetSparsity) {
+            if (targetSparsity < 0.0 || targetSparsity > 1.0)
+                throw new DL4JInvalidConfigException("targetSparsity should be in range 0..1");
+
+            this.targetSparsity = targetSparsity;
+            return this;
+        }
+
+        /**
+         * This method enables adaptive updates encoding with a network budget: same as targetSparsity, but the number
+         * of values sent per iteration is derived from the given number of bytes, split between layers
+         * proportionally to their number of parameters. Takes precedence over targetSparsity.
+         *
+         * Default value: 0 (disabled)
+         * @param bytesPerIteration bytes sent by each worker per iteration, 0 to disable
+         * @return
+         */
+        public Builder targetBytesPerIteration(long bytesPerIteration) {
+            if (bytesPerIteration < 0)
+                throw new DL4JInvalidConfigException("targetBytesPerIteration should be non-negative value");
+
+            this.targetBytesPerIteration = bytesPerIteration;
+            return this;
+        }
+
+        /**
+         * This method allows to specify the codec updates are encoded with, instead of threshold encoding: i.e.
+         * {@link TopKCodec}, {@link SignCodec}, {@link Int8Codec}, or a custom {@link GradientCodec}. Bucketing
+         * still applies, while threshold and adaptive encoding settings are ignored.
+         *
+         * Default value: null (threshold encoding)
+         * @param codec codec to encode updates with
+         * @return
+         */
+        public Builder gradientCodec(GradientCodec codec) {
+            this.gradientCodec = codec;
+            return this;
+        }
+
         /**
          * Batch size value,  used for repartition purposes
          *
@@ -1217,6 +1302,10 @@ public class SharedTrainingMaster extends BaseTrainingMaster<SharedTrainingResul
                             numWorkersPerNode);
             if (transport != null)
                 master.transport = this.transport;
+            master.bucketSize = this.bucketSize;
+            master.targetSparsity = this.targetSparsity;
+            master.targetBytesPerIteration = this.targetBytesPerIteration;
+            master.gradientCodec = this.gradientCodec;
 
             return master;
         }
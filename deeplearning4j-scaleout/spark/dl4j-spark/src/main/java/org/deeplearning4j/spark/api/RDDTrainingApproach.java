@@ -22,9 +22,13 @@ package org.deeplearning4j.spark.api;
  * <b>Export</b>: first export the RDD to disk (temporary directory) and train from that.
  * <b>Direct</b>: aka 'legacy mode': train directly from the RDD. This has higher memory requirements and lower performance
  *  compared to the Export approach. It does not export the data to disk first, hence uses less space.
+ * <b>ExportPacked</b>: same as Export, but many minibatches are packed in each exported file, as raw (optionally LZ4
+ *  compressed) arrays: fewer files, and workers memory map local files instead of deserializing each minibatch.
+ *  See {@link org.deeplearning4j.spark.data.PackedDataSetFile}. Only used for {@code RDD<DataSet>}: MultiDataSets are
+ *  exported as with Export.
  *
  * @author Alex Black
  */
 public enum RDDTrainingApproach {
-    Export, Direct
+    Export, Direct, ExportPacked
 }
@@ -22,21 +22,26 @@ public class CommonSparkTrainingStats implements SparkTrainingStats {
     public static final String FILENAME_GET_INITIAL_MODEL_STATS = "workerFlatMapGetInitialModelTimeMs.txt";
     public static final String FILENAME_DATASET_GET_TIME_STATS = "workerFlatMapDataSetGetTimesMs.txt";
     public static final String FILENAME_PROCESS_MINIBATCH_TIME_STATS = "workerFlatMapProcessMiniBatchTimesMs.txt";
+    public static final String FILENAME_ITERATOR_WAIT_TIME_STATS = "workerFlatMapIteratorWaitTimesMs.txt";
 
     public static final String WORKER_FLAT_MAP_TOTAL_TIME_MS = "WorkerFlatMapTotalTimeMs";
     public static final String WORKER_FLAT_MAP_GET_INITIAL_MODEL_TIME_MS = "WorkerFlatMapGetInitialModelTimeMs";
     public static final String WORKER_FLAT_MAP_DATA_SET_GET_TIMES_MS = "WorkerFlatMapDataSetGetTimesMs";
     public static final String WORKER_FLAT_MAP_PROCESS_MINI_BATCH_TIMES_MS = "WorkerFlatMapProcessMiniBatchTimesMs";
+    public static final String WORKER_FLAT_MAP_ITERATOR_WAIT_TIMES_MS = "WorkerFlatMapIteratorWaitTimesMs";
     private static Set<String> columnNames =
                     Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(WORKER_FLAT_MAP_TOTAL_TIME_MS,
                                     WORKER_FLAT_MAP_GET_INITIAL_MODEL_TIME_MS, WORKER_FLAT_MAP_DATA_SET_GET_TIMES_MS,
-                                    WORKER_FLAT_MAP_PROCESS_MINI_BATCH_TIMES_MS)));
+                                    WORKER_FLAT_MAP_PROCESS_MINI_BATCH_TIMES_MS,
+                                    WORKER_FLAT_MAP_ITERATOR_WAIT_TIMES_MS)));
 
     private SparkTrainingStats trainingWorkerSpecificStats;
     private List<EventStats> workerFlatMapTotalTimeMs;
     private List<EventStats> workerFlatMapGetInitialModelTimeMs;
     private List<EventStats> workerFlatMapDataSetGetTimesMs;
     private List<EventStats> workerFlatMapProcessMiniBatchTimesMs;
+    //Minibatches the worker had to wait for: data iterator (and prefetching, if any) slower than training
+    private List<EventStats> workerFlatMapIteratorWaitTimesMs;
 
 
 
@@ -50,6 +55,7 @@ public class CommonSparkTrainingStats implements SparkTrainingStats {
         this.workerFlatMapGetInitialModelTimeMs = builder.workerFlatMapGetInitialModelTimeMs;
         this.workerFlatMapDataSetGetTimesMs = builder.workerFlatMapDataSetGetTimesMs;
         this.workerFlatMapProcessMiniBatchTimesMs = builder.workerFlatMapProcessMiniBatchTimesMs;
+        this.workerFlatMapIteratorWaitTimesMs = builder.workerFlatMapIteratorWaitTimesMs;
     }
 
 
@@ -73,6 +79,8 @@ public class CommonSparkTrainingStats implements SparkTrainingStats {
                 return workerFlatMapDataSetGetTimesMs;
             case WORKER_FLAT_MAP_PROCESS_MINI_BATCH_TIMES_MS:
                 return workerFlatMapProcessMiniBatchTimesMs;
+            case WORKER_FLAT_MAP_ITERATOR_WAIT_TIMES_MS:
+                return workerFlatMapIteratorWaitTimesMs;
             default:
                 if (trainingWorkerSpecificStats != null)
                     return trainingWorkerSpecificStats.getValue(key);
@@ -91,6 +99,8 @@ public class CommonSparkTrainingStats implements SparkTrainingStats {
                 return "GetDataSet";
             case WORKER_FLAT_MAP_PROCESS_MINI_BATCH_TIMES_MS:
                 return "ProcessBatch";
+            case WORKER_FLAT_MAP_ITERATOR_WAIT_TIMES_MS:
+                return "IteratorWait";
             default:
                 if (trainingWorkerSpecificStats != null)
                     return trainingWorkerSpecificStats.getShortNameForKey(key);
@@ -106,6 +116,7 @@ public class CommonSparkTrainingStats implements SparkTrainingStats {
             case WORKER_FLAT_MAP_PROCESS_MINI_BATCH_TIMES_MS:
                 return false; //Covered by worker stats generally
             case WORKER_FLAT_MAP_DATA_SET_GET_TIMES_MS:
+            case WORKER_FLAT_MAP_ITERATOR_WAIT_TIMES_MS:
                 return true;
             default:
                 if (trainingWorkerSpecificStats != null)
@@ -126,6 +137,7 @@ public class CommonSparkTrainingStats implements SparkTrainingStats {
         workerFlatMapGetInitialModelTimeMs.addAll(o.workerFlatMapGetInitialModelTimeMs);
         workerFlatMapDataSetGetTimesMs.addAll(o.workerFlatMapDataSetGetTimesMs);
         workerFlatMapProcessMiniBatchTimesMs.addAll(o.workerFlatMapProcessMiniBatchTimesMs);
+        workerFlatMapIteratorWaitTimesMs.addAll(o.workerFlatMapIteratorWaitTimesMs);
 
         if (trainingWorkerSpecificStats != null)
             trainingWorkerSpecificStats.addOtherTrainingStats(o.trainingWorkerSpecificStats);
@@ -168,6 +180,12 @@ public class CommonSparkTrainingStats implements SparkTrainingStats {
         else
             sb.append(StatsUtils.getDurationAsString(workerFlatMapProcessMiniBatchTimesMs, ",")).append("\n");
 
+        sb.append(String.format(f, WORKER_FLAT_MAP_ITERATOR_WAIT_TIMES_MS));
+        if (workerFlatMapIteratorWaitTimesMs == null)
+            sb.append("-\n");
+        else
+            sb.append(StatsUtils.getDurationAsString(workerFlatMapIteratorWaitTimesMs, ",")).append("\n");
+
         if (trainingWorkerSpecificStats != null)
             sb.append(trainingWorkerSpecificStats.statsAsString()).append("\n");
 
@@ -195,6 +213,10 @@ public class CommonSparkTrainingStats implements SparkTrainingStats {
         String processMiniBatchStatsPath = FilenameUtils.concat(outputPath, FILENAME_PROCESS_MINIBATCH_TIME_STATS);
         StatsUtils.exportStats(workerFlatMapProcessMiniBatchTimesMs, processMiniBatchStatsPath, d, sc);
 
+        //Iterator wait time stats:
+        String iteratorWaitStatsPath = FilenameUtils.concat(outputPath, FILENAME_ITERATOR_WAIT_TIME_STATS);
+        StatsUtils.exportStats(workerFlatMapIteratorWaitTimesMs, iteratorWaitStatsPath, d, sc);
+
         if (trainingWorkerSpecificStats != null)
             trainingWorkerSpecificStats.exportStatFiles(outputPath, sc);
     }
@@ -205,6 +227,7 @@ public class CommonSparkTrainingStats implements SparkTrainingStats {
         private List<EventStats> workerFlatMapGetInitialModelTimeMs;
         private List<EventStats> workerFlatMapDataSetGetTimesMs;
         private List<EventStats> workerFlatMapProcessMiniBatchTimesMs;
+        private List<EventStats> workerFlatMapIteratorWaitTimesMs;
 
         public Builder trainingMasterSpecificStats(SparkTrainingStats trainingMasterSpecificStats) {
             this.trainingMasterSpecificStats = trainingMasterSpecificStats;
@@ -231,6 +254,11 @@ public class CommonSparkTrainingStats implements SparkTrainingStats {
             return this;
         }
 
+        public Builder workerFlatMapIteratorWaitTimesMs(List<EventStats> workerFlatMapIteratorWaitTimesMs) {
+            this.workerFlatMapIteratorWaitTimesMs = workerFlatMapIteratorWaitTimesMs;
+            return this;
+        }
+
         public CommonSparkTrainingStats build() {
             return new CommonSparkTrainingStats(this);
         }
@@ -26,6 +26,7 @@ public class StatsCalculationHelper {
     private int totalExampleCount;
     private List<EventStats> dataSetGetTimes = new ArrayList<>();
     private List<EventStats> processMiniBatchTimes = new ArrayList<>();
+    private List<EventStats> iteratorWaitTimes = new ArrayList<>();
 
     private TimeSource timeSource = TimeSourceProvider.getInstance();
 
@@ -53,6 +54,9 @@ public class StatsCalculationHelper {
         long now = timeSource.currentTimeMillis();
         long duration = now - lastDataSetBefore;
         dataSetGetTimes.add(new BaseEventStats(lastDataSetBefore, duration));
+        //Minibatch not ready when requested: the worker waited for the data iterator
+        if (duration > 0)
+            iteratorWaitTimes.add(new BaseEventStats(lastDataSetBefore, duration));
         totalExampleCount += numExamples;
     }
 
@@ -76,6 +80,7 @@ public class StatsCalculationHelper {
         return new CommonSparkTrainingStats.Builder().trainingMasterSpecificStats(masterSpecificStats)
                         .workerFlatMapTotalTimeMs(totalTime).workerFlatMapGetInitialModelTimeMs(initTime)
                         .workerFlatMapDataSetGetTimesMs(dataSetGetTimes)
-                        .workerFlatMapProcessMiniBatchTimesMs(processMiniBatchTimes).build();
+                        .workerFlatMapProcessMiniBatchTimesMs(processMiniBatchTimes)
+                        .workerFlatMapIteratorWaitTimesMs(iteratorWaitTimes).build();
     }
 }
@@ -5,12 +5,16 @@ import org.datavec.spark.transform.BaseFlatMapFunctionAdaptee;
 import org.deeplearning4j.spark.api.TrainingResult;
 import org.deeplearning4j.spark.api.TrainingWorker;
 import org.deeplearning4j.spark.api.WorkerConfiguration;
+import org.deeplearning4j.spark.data.ExecutorDataCache;
+import org.deeplearning4j.spark.iterator.CrossSplitPrefetcher;
 import org.deeplearning4j.spark.iterator.PathSparkDataSetIterator;
 import org.nd4j.linalg.dataset.DataSet;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * A FlatMapFunction for executing training on serialized DataSet objects, that can be loaded from a path (local or HDFS)
@@ -23,7 +27,28 @@ public class ExecuteWorkerPathFlatMap<R extends TrainingResult>
                 extends BaseFlatMapFunctionAdaptee<Iterator<String>, R> {
 
     public ExecuteWorkerPathFlatMap(TrainingWorker<R> worker) {
-        super(new ExecuteWorkerPathFlatMapAdapter<>(worker));
+        this(worker, 0);
+    }
+
+    /**
+     * @param worker        Worker to execute
+     * @param cacheMaxBytes If positive: files are read through the {@link ExecutorDataCache} of the executor, with
+     *                      this maximum size in bytes
+     */
+    public ExecuteWorkerPathFlatMap(TrainingWorker<R> worker, long cacheMaxBytes) {
+        this(worker, cacheMaxBytes, null);
+    }
+
+    /**
+     * @param worker        Worker to execute
+     * @param cacheMaxBytes If positive: files are read through the {@link ExecutorDataCache} of the executor, with
+     *                      this maximum size in bytes
+     * @param prefetchPlan  If non-null: use the objects prefetched for this split, and prefetch the next split
+     *                      (see {@link CrossSplitPrefetcher})
+     */
+    public ExecuteWorkerPathFlatMap(TrainingWorker<R> worker, long cacheMaxBytes,
+                    CrossSplitPrefetcher.Plan prefetchPlan) {
+        super(new ExecuteWorkerPathFlatMapAdapter<>(worker, cacheMaxBytes, prefetchPlan));
     }
 }
 
@@ -38,8 +63,13 @@ public class ExecuteWorkerPathFlatMap<R extends TrainingResult>
 class ExecuteWorkerPathFlatMapAdapter<R extends TrainingResult> implements FlatMapFunctionAdapter<Iterator<String>, R> {
     private final FlatMapFunctionAdapter<Iterator<DataSet>, R> workerFlatMap;
     private final int maxDataSetObjects;
+    private final long cacheMaxBytes;
+    private final CrossSplitPrefetcher.Plan prefetchPlan;
 
-    public ExecuteWorkerPathFlatMapAdapter(TrainingWorker<R> worker) {
+    public ExecuteWorkerPathFlatMapAdapter(TrainingWorker<R> worker, long cacheMaxBytes,
+                    CrossSplitPrefetcher.Plan prefetchPlan) {
+        this.cacheMaxBytes = cacheMaxBytes;
+        this.prefetchPlan = prefetchPlan;
         this.workerFlatMap = new ExecuteWorkerFlatMapAdapter<>(worker);
 
         //How many dataset objects of size 'dataSetObjectNumExamples' should we load?
@@ -68,6 +98,13 @@ class ExecuteWorkerPathFlatMapAdapter<R extends TrainingResult> implements FlatM
             list.add(iter.next());
         }
 
-        return workerFlatMap.call(new PathSparkDataSetIterator(list.iterator()));
+        ExecutorDataCache cache = (cacheMaxBytes > 0 ? ExecutorDataCache.getInstance(cacheMaxBytes) : null);
+        Iterator<String> paths = list.iterator();
+        Map<String, Future<Object>> prefetched = null;
+        if (prefetchPlan != null) {
+            prefetched = CrossSplitPrefetcher.getInstance().getPrefetched(prefetchPlan.getSplitId());
+            paths = CrossSplitPrefetcher.prefetchNextOnLast(paths, prefetchPlan, false, cache);
+        }
+        return workerFlatMap.call(new PathSparkDataSetIterator(paths, cache, prefetched));
     }
 }
@@ -5,12 +5,16 @@ import org.datavec.spark.transform.BaseFlatMapFunctionAdaptee;
 import org.deeplearning4j.spark.api.TrainingResult;
 import org.deeplearning4j.spark.api.TrainingWorker;
 import org.deeplearning4j.spark.api.WorkerConfiguration;
+import org.deeplearning4j.spark.data.ExecutorDataCache;
+import org.deeplearning4j.spark.iterator.CrossSplitPrefetcher;
 import org.deeplearning4j.spark.iterator.PathSparkMultiDataSetIterator;
 import org.nd4j.linalg.dataset.api.MultiDataSet;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * A FlatMapFunction for executing training on serialized DataSet objects, that can be loaded from a path (local or HDFS)
@@ -23,7 +27,28 @@ public class ExecuteWorkerPathMDSFlatMap<R extends TrainingResult>
                 extends BaseFlatMapFunctionAdaptee<Iterator<String>, R> {
 
     public ExecuteWorkerPathMDSFlatMap(TrainingWorker<R> worker) {
-        super(new ExecuteWorkerPathMDSFlatMapAdapter<>(worker));
+        this(worker, 0);
+    }
+
+    /**
+     * @param worker        Worker to execute
+     * @param cacheMaxBytes If positive: files are read through the {@link ExecutorDataCache} of the executor, with
+     *                      this maximum size in bytes
+     */
+    public ExecuteWorkerPathMDSFlatMap(TrainingWorker<R> worker, long cacheMaxBytes) {
+        this(worker, cacheMaxBytes, null);
+    }
+
+    /**
+     * @param worker        Worker to execute
+     * @param cacheMaxBytes If positive: files are read through the {@link ExecutorDataCache} of the executor, with
+     *                      this maximum size in bytes
+     * @param prefetchPlan  If non-null: use the objects prefetched for this split, and prefetch the next split
+     *                      (see {@link CrossSplitPrefetcher})
+     */
+    public ExecuteWorkerPathMDSFlatMap(TrainingWorker<R> worker, long cacheMaxBytes,
+                    CrossSplitPrefetcher.Plan prefetchPlan) {
+        super(new ExecuteWorkerPathMDSFlatMapAdapter<>(worker, cacheMaxBytes, prefetchPlan));
     }
 }
 
@@ -39,8 +64,13 @@ class ExecuteWorkerPathMDSFlatMapAdapter<R extends TrainingResult>
                 implements FlatMapFunctionAdapter<Iterator<String>, R> {
     private final FlatMapFunctionAdapter<Iterator<MultiDataSet>, R> workerFlatMap;
     private final int maxDataSetObjects;
+    private final long cacheMaxBytes;
+    private final CrossSplitPrefetcher.Plan prefetchPlan;
 
-    public ExecuteWorkerPathMDSFlatMapAdapter(TrainingWorker<R> worker) {
+    public ExecuteWorkerPathMDSFlatMapAdapter(TrainingWorker<R> worker, long cacheMaxBytes,
+                    CrossSplitPrefetcher.Plan prefetchPlan) {
+        this.cacheMaxBytes = cacheMaxBytes;
+        this.prefetchPlan = prefetchPlan;
         this.workerFlatMap = new ExecuteWorkerMultiDataSetFlatMapAdapter<>(worker);
 
         //How many dataset objects of size 'dataSetObjectNumExamples' should we load?
@@ -69,6 +99,13 @@ class ExecuteWorkerPathMDSFlatMapAdapter<R extends TrainingResult>
             list.add(iter.next());
         }
 
-        return workerFlatMap.call(new PathSparkMultiDataSetIterator(list.iterator()));
+        ExecutorDataCache cache = (cacheMaxBytes > 0 ? ExecutorDataCache.getInstance(cacheMaxBytes) : null);
+        Iterator<String> paths = list.iterator();
+        Map<String, Future<Object>> prefetched = null;
+        if (prefetchPlan != null) {
+            prefetched = CrossSplitPrefetcher.getInstance().getPrefetched(prefetchPlan.getSplitId());
+            paths = CrossSplitPrefetcher.prefetchNextOnLast(paths, prefetchPlan, true, cache);
+        }
+        return workerFlatMap.call(new PathSparkMultiDataSetIterator(paths, cache, prefetched));
     }
 }
@@ -26,6 +26,7 @@ import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.primitives.Pair;
 
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.*;
 
 /**
@@ -43,10 +44,10 @@ import java.util.*;
  */
 public class BatchAndExportDataSetsFunction implements Function2<Integer, Iterator<DataSet>, Iterator<String>> {
 
-    private static final Configuration conf = new Configuration();
+    protected static final Configuration conf = new Configuration();
     private final int minibatchSize;
-    private final String exportBaseDirectory;
-    private final String jvmuid;
+    protected final String exportBaseDirectory;
+    protected final String jvmuid;
 
     /**
      * @param minibatchSize       Minibatch size to combine examples to (if necessary)
@@ -131,12 +132,10 @@ public class BatchAndExportDataSetsFunction implements Function2<Integer, Iterat
         return new Pair<>(countAfter, exportPaths);
     }
 
-    private String export(DataSet dataSet, int partitionIdx, int outputCount) throws Exception {
+    protected String export(DataSet dataSet, int partitionIdx, int outputCount) throws Exception {
         String filename = "dataset_" + partitionIdx + jvmuid + "_" + outputCount + ".bin";
 
-        URI uri = new URI(exportBaseDirectory
-                        + (exportBaseDirectory.endsWith("/") || exportBaseDirectory.endsWith("\\") ? "" : "/")
-                        + filename);
+        URI uri = exportUri(filename);
         FileSystem file = FileSystem.get(uri, conf);
         try (FSDataOutputStream out = file.create(new Path(uri))) {
             dataSet.save(out);
@@ -144,4 +143,10 @@ public class BatchAndExportDataSetsFunction implements Function2<Integer, Iterat
 
         return uri.getPath();
     }
+
+    protected URI exportUri(String filename) throws URISyntaxException {
+        return new URI(exportBaseDirectory
+                        + (exportBaseDirectory.endsWith("/") || exportBaseDirectory.endsWith("\\") ? "" : "/")
+                        + filename);
+    }
 }
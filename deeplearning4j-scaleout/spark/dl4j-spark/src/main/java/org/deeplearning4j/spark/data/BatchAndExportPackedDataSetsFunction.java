@@ -0,0 +1,82 @@
+package org.deeplearning4j.spark.data;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.nd4j.linalg.dataset.DataSet;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Same as {@link BatchAndExportDataSetsFunction}, but minibatches are exported as {@link PackedDataSetFile}s of up to
+ * batchesPerFile minibatches each, instead of one file per minibatch. Returned paths are "file.pack#index" paths,
+ * one per minibatch.
+ * <p>
+ * Naming convention for exported files:
+ * "dataset_" + partitionIdx + JVM_UID + "_" + fileIdx + ".pack"
+ */
+public class BatchAndExportPackedDataSetsFunction extends BatchAndExportDataSetsFunction {
+
+    private final int batchesPerFile;
+    private final boolean compress;
+
+    private transient List<DataSet> pending;
+    private transient String pendingFile;
+
+    /**
+     * @param minibatchSize       Minibatch size to combine examples to (if necessary)
+     * @param exportBaseDirectory Base directory for exporting
+     * @param batchesPerFile      Max number of minibatches in each file
+     * @param compress            If true: LZ4 compression of the exported arrays
+     */
+    public BatchAndExportPackedDataSetsFunction(int minibatchSize, String exportBaseDirectory, int batchesPerFile,
+                    boolean compress) {
+        super(minibatchSize, exportBaseDirectory);
+        if (batchesPerFile < 1)
+            throw new IllegalArgumentException(
+                            "Number of minibatches per file must be positive, got " + batchesPerFile);
+        this.batchesPerFile = batchesPerFile;
+        this.compress = compress;
+    }
+
+    @Override
+    public Iterator<String> call(Integer partitionIdx, Iterator<DataSet> iterator) throws Exception {
+        pending = new ArrayList<>(batchesPerFile);
+        pendingFile = null;
+        Iterator<String> paths = super.call(partitionIdx, iterator);
+        writePending();
+        return paths;
+    }
+
+    @Override
+    protected String export(DataSet dataSet, int partitionIdx, int outputCount) throws Exception {
+        if (pendingFile == null) {
+            String filename = "dataset_" + partitionIdx + jvmuid + "_" + (outputCount / batchesPerFile)
+                            + PackedDataSetFile.EXTENSION;
+            pendingFile = exportUri(filename).toString();
+        }
+
+        //Minibatches are written once the file is full: path of the minibatch, as the file will contain it
+        String path = PackedDataSetFile.toPath(new URI(pendingFile).getPath(), pending.size());
+        pending.add(dataSet);
+        if (pending.size() == batchesPerFile)
+            writePending();
+        return path;
+    }
+
+    private void writePending() throws Exception {
+        if (pending.isEmpty())
+            return;
+
+        URI uri = new URI(pendingFile);
+        FileSystem file = FileSystem.get(uri, conf);
+        try (FSDataOutputStream out = file.create(new Path(uri))) {
+            PackedDataSetFile.write(pending, out, compress);
+        }
+        pending.clear();
+        pendingFile = null;
+    }
+}
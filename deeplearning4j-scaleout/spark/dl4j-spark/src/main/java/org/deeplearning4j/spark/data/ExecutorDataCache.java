@@ -0,0 +1,274 @@
+package org.deeplearning4j.spark.data;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An executor-local disk cache for exported DataSet files (local or on HDFS, etc), keyed by path.<br>
+ * When the same exported data is used for multiple epochs, each executor copies the files it is given to its local
+ * disk only once; later epochs read the local copy (memory mapped, for {@link PackedDataSetFile}s). The total size of
+ * the cached files is capped: least recently used files are evicted (and deleted) first.<br>
+ * There is one cache per JVM, see {@link #getInstance(long)}. Cached files are stored in a temporary directory, which
+ * is deleted when the JVM exits.<br>
+ * Files are accessed through {@link #acquire(String)}: the returned {@link CachedFile} pins the local copy, which is
+ * not evicted until the handle is closed - so readers must close it once they are done reading (or mapping) the file.
+ * <p>
+ * Note that cached files are expected to be immutable: files changed after they have been cached are not reloaded.
+ */
+@Slf4j
+public class ExecutorDataCache {
+
+    private static ExecutorDataCache instance;
+
+    private final File directory;
+    private final Configuration conf = new Configuration();
+    //Access ordered: iteration order is least recently used first
+    private final LinkedHashMap<String, Entry> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxBytes;
+    private long sizeBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param directory Directory to store the cached files in
+     * @param maxBytes  Maximum total size of the cached files, in bytes
+     */
+    public ExecutorDataCache(@NonNull File directory, long maxBytes) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("Maximum cache size must be positive, got " + maxBytes);
+        if (!directory.exists() && !directory.mkdirs())
+            throw new IllegalStateException("Could not create cache directory " + directory.getAbsolutePath());
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the cache of this JVM, creating it if necessary. If the cache already exists with a different maximum
+     * size, the new maximum size is used.
+     *
+     * @param maxBytes Maximum total size of the cached files, in bytes
+     */
+    public static synchronized ExecutorDataCache getInstance(long maxBytes) {
+        if (instance == null) {
+            final File dir = new File(System.getProperty("java.io.tmpdir"), "dl4j_data_cache_" + UUID.randomUUID());
+            instance = new ExecutorDataCache(dir, maxBytes);
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    FileUtils.deleteQuietly(dir);
+                }
+            }));
+        } else {
+            instance.setMaxBytes(maxBytes);
+        }
+        return instance;
+    }
+
+    /**
+     * Get the local copy of the given file, copying it to the cache if it isn't already cached. The copy is pinned:
+     * it is not evicted until the returned handle is closed.
+     *
+     * @param path Path of the file (for example, on HDFS)
+     * @return Handle of the local copy
+     */
+    public CachedFile acquire(@NonNull String path) throws IOException {
+        synchronized (this) {
+            Entry cached = files.get(path);
+            if (cached != null) {
+                hits.incrementAndGet();
+                cached.pins++;
+                return new CachedFile(path, cached);
+            }
+        }
+        misses.incrementAndGet();
+
+        //Copy outside of the lock, so multiple tasks of the executor can copy files at the same time.
+        //Temporary name then rename, so a partially copied file is never visible
+        String name = Integer.toHexString(path.hashCode()) + "_" + new Path(path).getName();
+        File tmp = new File(directory, UUID.randomUUID() + ".tmp");
+        File dest = new File(directory, UUID.randomUUID() + "_" + name);
+        try {
+            FileSystem fileSystem = FileSystem.get(new URI(path), conf);
+            //Raw local file system: no checksum files for the copies
+            fileSystem.copyToLocalFile(false, new Path(path), new Path(tmp.toURI()), true);
+        } catch (Exception e) {
+            FileUtils.deleteQuietly(tmp);
+            throw new IOException("Error copying file " + path + " to the executor data cache", e);
+        }
+        if (!tmp.renameTo(dest)) {
+            FileUtils.deleteQuietly(tmp);
+            throw new IOException("Could not rename cached copy of " + path + " to " + dest.getAbsolutePath());
+        }
+
+        synchronized (this) {
+            Entry cached = files.get(path);
+            if (cached != null) {
+                //Copied by another task in the meantime
+                FileUtils.deleteQuietly(dest);
+            } else {
+                cached = new Entry(dest);
+                files.put(path, cached);
+                sizeBytes += cached.length;
+            }
+            cached.pins++;
+            evict();
+            return new CachedFile(path, cached);
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        if (--entry.pins == 0) {
+            if (entry.evicted) {
+                FileUtils.deleteQuietly(entry.file);
+            } else {
+                evict();
+            }
+        }
+    }
+
+    /**
+     * Set the maximum total size of the cached files, evicting files if the cache is larger than that
+     *
+     * @param maxBytes Maximum total size of the cached files, in bytes
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("Maximum cache size must be positive, got " + maxBytes);
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return Total size of the cached files, in bytes
+     */
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * @return Number of cached files
+     */
+    public synchronized int size() {
+        return files.size();
+    }
+
+    public synchronized boolean contains(String path) {
+        return files.containsKey(path);
+    }
+
+    /**
+     * @return Number of {@link #acquire(String)} calls for which the file was already cached
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of {@link #acquire(String)} calls for which the file had to be copied
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Remove all files from the cache. Pinned files are deleted once their last handle is closed
+     */
+    public synchronized void clear() {
+        for (Entry e : files.values())
+            remove(e);
+        files.clear();
+        sizeBytes = 0;
+    }
+
+    //Evict least recently used files until the cache fits. Pinned files (including the file just added) are never
+    //evicted: the cache may be temporarily larger than its maximum size while they are in use
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iter = files.entrySet().iterator();
+        while (sizeBytes > maxBytes && iter.hasNext()) {
+            Map.Entry<String, Entry> e = iter.next();
+            if (e.getValue().pins > 0)
+                continue;
+            sizeBytes -= e.getValue().length;
+            remove(e.getValue());
+            iter.remove();
+            log.debug("Evicted {} from executor data cache", e.getKey());
+        }
+    }
+
+    private void remove(Entry entry) {
+        entry.evicted = true;
+        if (entry.pins == 0)
+            FileUtils.deleteQuietly(entry.file);
+    }
+
+    private static class Entry {
+        private final File file;
+        private final long length;
+        private int pins;
+        private boolean evicted;
+
+        private Entry(File file) {
+            this.file = file;
+            this.length = file.length();
+        }
+    }
+
+    /**
+     * A pinned local copy of a cached file. The copy is not evicted (or deleted) until this handle is closed
+     */
+    public class CachedFile implements Closeable {
+        private final String path;
+        private final Entry entry;
+        private boolean closed;
+
+        private CachedFile(String path, Entry entry) {
+            this.path = path;
+            this.entry = entry;
+        }
+
+        /**
+         * @return Path of the cached file, as passed to {@link ExecutorDataCache#acquire(String)}
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return Absolute path of the local copy
+         */
+        public String getLocalPath() {
+            return entry.file.getAbsolutePath();
+        }
+
+        /**
+         * Unpin the local copy. Calling this method more than once has no effect
+         */
+        @Override
+        public void close() {
+            synchronized (ExecutorDataCache.this) {
+                if (closed)
+                    return;
+                closed = true;
+            }
+            release(entry);
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package org.deeplearning4j.spark.data;
+
+import lombok.NonNull;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.bytedeco.javacpp.DoublePointer;
+import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.javacpp.Pointer;
+import org.bytedeco.javacpp.ShortPointer;
+import org.bytedeco.javacpp.indexer.DoubleIndexer;
+import org.bytedeco.javacpp.indexer.FloatIndexer;
+import org.bytedeco.javacpp.indexer.HalfIndexer;
+import org.bytedeco.javacpp.indexer.Indexer;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.concurrency.AffinityManager;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Packed DataSet file: many minibatches in a single file, used by the
+ * {@link org.deeplearning4j.spark.api.RDDTrainingApproach#ExportPacked} export format to avoid the overhead of many
+ * small files (for example, on HDFS) and of DataSet deserialization.<br>
+ * Layout of the file:
+ * <ul>
+ * <li>Header (32 bytes): magic number, version, data type code, byte order, number of minibatches, flags, index
+ * length</li>
+ * <li>Index: for each minibatch, for each of features, labels, features mask and labels mask: rank (-1 if absent),
+ * shape, offset of the data in the file, and stored length in bytes</li>
+ * <li>Data: raw 'c' order buffers in the native byte order, each one aligned to 64 bytes. If LZ4 compression is
+ * enabled, buffers are LZ4 blocks, except those that don't get smaller once compressed</li>
+ * </ul>
+ * Minibatches are referenced by path strings of the form "file.pack#index". Local files are memory mapped, and
+ * uncompressed arrays are views of the mapping: reading a minibatch doesn't copy its data. Other file systems use
+ * positioned reads of the requested minibatch only.
+ */
+public class PackedDataSetFile implements Closeable {
+    public static final String EXTENSION = ".pack";
+    public static final char INDEX_SEPARATOR = '#';
+    public static final int DEFAULT_BATCHES_PER_FILE = 64;
+
+    private static final int MAGIC = 0x444C3450; //"DL4P"
+    //Version 2: data type stored as a fixed code, instead of the ordinal of DataBuffer.Type
+    private static final int VERSION = 2;
+    private static final int HEADER_LENGTH = 32;
+    private static final int DATA_ALIGNMENT = 64;
+    private static final int FLAG_LZ4 = 1;
+    private static final int ARRAYS_PER_BATCH = 4;
+    //Data type codes stored in the header. Never change existing values
+    private static final int TYPE_FLOAT = 1;
+    private static final int TYPE_DOUBLE = 2;
+    private static final int TYPE_HALF = 3;
+
+    private final String path;
+    private final FileChannel channel;
+    private final FSDataInputStream stream;
+    private final DataBuffer.Type type;
+    private final boolean compressed;
+    private final int[][][] shapes;
+    private final long[][] offsets;
+    private final int[][] storedBytes;
+
+    private PackedDataSetFile(String path, FileChannel channel, FSDataInputStream stream) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.stream = stream;
+
+        ByteBuffer header = read(0, HEADER_LENGTH, false);
+        if (header.getInt() != MAGIC)
+            throw new IllegalStateException("Invalid packed DataSet file " + path + ": bad magic number");
+        int version = header.getInt();
+        if (version != VERSION)
+            throw new IllegalStateException("Unsupported packed DataSet file version " + version + " for file " + path);
+        type = typeOf(header.getInt());
+        ByteOrder order = header.getInt() == 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        int numBatches = header.getInt();
+        compressed = (header.getInt() & FLAG_LZ4) != 0;
+        long indexLength = header.getLong();
+
+        if (type != Nd4j.dataType()) {
+            throw new IllegalStateException("Cannot load packed DataSet file " + path + " with data type " + type
+                            + ": current Nd4j data type is " + Nd4j.dataType());
+        }
+        if (order != ByteOrder.nativeOrder()) {
+            throw new IllegalStateException("Cannot load packed DataSet file " + path + " written with byte order "
+                            + order + " on a platform with native byte order " + ByteOrder.nativeOrder());
+        }
+
+        shapes = new int[numBatches][ARRAYS_PER_BATCH][];
+        offsets = new long[numBatches][ARRAYS_PER_BATCH];
+        storedBytes = new int[numBatches][ARRAYS_PER_BATCH];
+        ByteBuffer index = read(HEADER_LENGTH, (int) indexLength, false);
+        for (int i = 0; i < numBatches; i++) {
+            for (int j = 0; j < ARRAYS_PER_BATCH; j++) {
+                int rank = index.getInt();
+                if (rank < 0)
+                    continue;
+                int[] shape = new int[rank];
+                for (int k = 0; k < rank; k++)
+                    shape[k] = index.getInt();
+                shapes[i][j] = shape;
+                offsets[i][j] = index.getLong();
+                storedBytes[i][j] = index.getInt();
+            }
+        }
+    }
+
+    /**
+     * Open a packed DataSet file. Local files are memory mapped
+     *
+     * @param fileSystem File system of the file
+     * @param file       Path of the file, without minibatch index
+     */
+    public static PackedDataSetFile open(@NonNull FileSystem fileSystem, @NonNull String file) throws IOException {
+        Path p = new Path(file);
+        if ("file".equals(fileSystem.getUri().getScheme())) {
+            File f = new File(fileSystem.makeQualified(p).toUri().getPath());
+            FileChannel channel = new RandomAccessFile(f, "r").getChannel();
+            try {
+                return new PackedDataSetFile(file, channel, null);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        return new PackedDataSetFile(file, null, fileSystem.open(p));
+    }
+
+    /**
+     * @return True if the path is a reference to a minibatch of a packed DataSet file, i.e. "file.pack#index"
+     */
+    public static boolean isPackedPath(String path) {
+        int idx = path.lastIndexOf(INDEX_SEPARATOR);
+        return idx > 0 && path.substring(0, idx).endsWith(EXTENSION);
+    }
+
+    public static String toPath(String file, int batchIndex) {
+        return file + INDEX_SEPARATOR + batchIndex;
+    }
+
+    /**
+     * @return Packed DataSet file of a "file.pack#index" path
+     */
+    public static String fileOf(String packedPath) {
+        return packedPath.substring(0, packedPath.lastIndexOf(INDEX_SEPARATOR));
+    }
+
+    /**
+     * @return Minibatch index of a "file.pack#index" path
+     */
+    public static int batchIndexOf(String packedPath) {
+        return Integer.parseInt(packedPath.substring(packedPath.lastIndexOf(INDEX_SEPARATOR) + 1));
+    }
+
+    /**
+     * @return Number of minibatches in the file
+     */
+    public int numBatches() {
+        return shapes.length;
+    }
+
+    /**
+     * Get a minibatch. Uncompressed arrays of memory mapped files are views of the mapping (private mapping: in place
+     * modifications, such as normalization, are never written to the file)
+     *
+     * @param batchIndex Index of the minibatch in the file
+     */
+    public DataSet get(int batchIndex) throws IOException {
+        if (batchIndex < 0 || batchIndex >= shapes.length) {
+            throw new IllegalArgumentException("Invalid minibatch index " + batchIndex + " for packed DataSet file "
+                            + path + " with " + shapes.length + " minibatches");
+        }
+
+        //All arrays of a minibatch are contiguous: one read (or mapping) for all of them
+        long start = -1;
+        long end = -1;
+        for (int j = 0; j < ARRAYS_PER_BATCH; j++) {
+            if (shapes[batchIndex][j] == null)
+                continue;
+            if (start < 0)
+                start = offsets[batchIndex][j];
+            end = offsets[batchIndex][j] + storedBytes[batchIndex][j];
+        }
+        if (start < 0)
+            return new DataSet();
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Minibatch " + batchIndex + " of packed DataSet file " + path + " is "
+                            + (end - start) + " bytes, exceeding the maximum size of a single read");
+        }
+
+        ByteBuffer region = read(start, (int) (end - start), true);
+        INDArray[] arrays = new INDArray[ARRAYS_PER_BATCH];
+        for (int j = 0; j < ARRAYS_PER_BATCH; j++) {
+            int[] shape = shapes[batchIndex][j];
+            if (shape == null)
+                continue;
+            ByteBuffer data = region.duplicate();
+            data.position((int) (offsets[batchIndex][j] - start));
+            data.limit(data.position() + storedBytes[batchIndex][j]);
+            arrays[j] = toArray(data.slice().order(ByteOrder.nativeOrder()), shape);
+        }
+        return new DataSet(arrays[0], arrays[1], arrays[2], arrays[3]);
+    }
+
+    private INDArray toArray(ByteBuffer data, int[] shape) {
+        long length = 1;
+        for (int s : shape) {
+            if (s < 0)
+                throw new IllegalStateException("Invalid array shape " + Arrays.toString(shape) + " in packed DataSet"
+                                + " file " + path);
+            length *= s;
+            //Also catches overflow: each factor is at most Integer.MAX_VALUE
+            if (length > Integer.MAX_VALUE)
+                break;
+        }
+        long rawBytes = length * Nd4j.sizeOfDataType();
+        if (length > Integer.MAX_VALUE || rawBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Array of shape " + Arrays.toString(shape) + " in packed DataSet file "
+                            + path + " exceeds the maximum size of a single buffer");
+        }
+
+        if (compressed && data.remaining() < rawBytes) {
+            ByteBuffer decompressed = ByteBuffer.allocateDirect((int) rawBytes).order(ByteOrder.nativeOrder());
+            LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+            decompressor.decompress(data, data.position(), decompressed, 0, (int) rawBytes);
+            data = decompressed;
+        } else if (data.remaining() < rawBytes) {
+            throw new IllegalStateException("Truncated array of shape " + Arrays.toString(shape)
+                            + " in packed DataSet file " + path + ": " + data.remaining() + " bytes, expected "
+                            + rawBytes);
+        }
+
+        return Nd4j.create(wrap(data, (int) length), shape);
+    }
+
+    /*
+     * Data buffer over the given (mapped or direct) region, without copy. A pointer created from a NIO buffer holds a
+     * reference to it until the pointer is garbage collected, so the mapping stays valid for as long as the array
+     * is used, after the file is closed
+     */
+    private DataBuffer wrap(ByteBuffer data, int length) {
+        Pointer pointer;
+        Indexer indexer;
+        switch (type) {
+            case FLOAT:
+                FloatPointer floatPointer = new FloatPointer(data.asFloatBuffer());
+                pointer = floatPointer;
+                indexer = FloatIndexer.create(floatPointer);
+                break;
+            case DOUBLE:
+                DoublePointer doublePointer = new DoublePointer(data.asDoubleBuffer());
+                pointer = doublePointer;
+                indexer = DoubleIndexer.create(doublePointer);
+                break;
+            case HALF:
+                ShortPointer halfPointer = new ShortPointer(data.asShortBuffer());
+                pointer = halfPointer;
+                indexer = HalfIndexer.create(halfPointer);
+                break;
+            default:
+                throw new IllegalStateException("Data type " + type + " is not supported by packed DataSet files");
+        }
+        return Nd4j.createBuffer(pointer, type, length, indexer);
+    }
+
+    private static int typeCode(DataBuffer.Type type) {
+        switch (type) {
+            case FLOAT:
+                return TYPE_FLOAT;
+            case DOUBLE:
+                return TYPE_DOUBLE;
+            case HALF:
+                return TYPE_HALF;
+            default:
+                throw new IllegalStateException("Data type " + type + " is not supported by packed DataSet files");
+        }
+    }
+
+    private DataBuffer.Type typeOf(int code) {
+        switch (code) {
+            case TYPE_FLOAT:
+                return DataBuffer.Type.FLOAT;
+            case TYPE_DOUBLE:
+                return DataBuffer.Type.DOUBLE;
+            case TYPE_HALF:
+                return DataBuffer.Type.HALF;
+            default:
+                throw new IllegalStateException("Invalid packed DataSet file " + path + ": unknown data type code "
+                                + code);
+        }
+    }
+
+    private ByteBuffer read(long position, int length, boolean direct) throws IOException {
+        if (channel != null) {
+            if (direct) {
+                //Private mapping: writes to the arrays are copy-on-write, never to the file
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.PRIVATE, position, length);
+                return mapped.order(ByteOrder.nativeOrder());
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            int total = 0;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + total);
+                if (read < 0)
+                    throw new IOException("Unexpected end of packed DataSet file " + path);
+                total += read;
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        byte[] bytes = new byte[length];
+        stream.readFully(position, bytes, 0, length);
+        if (!direct)
+            return ByteBuffer.wrap(bytes);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length).order(ByteOrder.nativeOrder());
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        //Arrays already returned stay valid: mappings are independent of the channel, and referenced by the arrays
+        if (channel != null)
+            channel.close();
+        if (stream != null)
+            stream.close();
+    }
+
+    /**
+     * Write the given minibatches as a packed DataSet file
+     *
+     * @param batches  Minibatches to write
+     * @param out      Output stream. Not closed by this method
+     * @param compress If true: LZ4 compression of the arrays
+     * @return Number of bytes written
+     */
+    public static long write(@NonNull List<DataSet> batches, @NonNull OutputStream out, boolean compress)
+                    throws IOException {
+        int numBatches = batches.size();
+        ByteBuffer[][] data = new ByteBuffer[numBatches][ARRAYS_PER_BATCH];
+        int[][][] shapes = new int[numBatches][ARRAYS_PER_BATCH][];
+        LZ4Compressor compressor = compress ? LZ4Factory.fastestInstance().fastCompressor() : null;
+
+        long indexLength = 0;
+        for (int i = 0; i < numBatches; i++) {
+            DataSet ds = batches.get(i);
+            INDArray[] arrays = {ds.getFeatures(), ds.getLabels(), ds.getFeaturesMaskArray(), ds.getLabelsMaskArray()};
+            for (int j = 0; j < ARRAYS_PER_BATCH; j++) {
+                indexLength += 4;
+                if (arrays[j] == null)
+                    continue;
+                shapes[i][j] = arrays[j].shape();
+                data[i][j] = rawData(arrays[j], compressor);
+                indexLength += 4 * shapes[i][j].length + 12;
+            }
+        }
+
+        //Data offsets, aligned within the file
+        long[][] offsets = new long[numBatches][ARRAYS_PER_BATCH];
+        long position = HEADER_LENGTH + indexLength;
+        for (int i = 0; i < numBatches; i++) {
+            for (int j = 0; j < ARRAYS_PER_BATCH; j++) {
+                if (data[i][j] == null)
+                    continue;
+                position += (DATA_ALIGNMENT - (position % DATA_ALIGNMENT)) % DATA_ALIGNMENT;
+                offsets[i][j] = position;
+                position += data[i][j].remaining();
+            }
+        }
+
+        ByteBuffer header = ByteBuffer.allocate((int) (HEADER_LENGTH + indexLength)).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(typeCode(Nd4j.dataType()));
+        header.putInt(ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 0 : 1);
+        header.putInt(numBatches);
+        header.putInt(compress ? FLAG_LZ4 : 0);
+        header.putLong(indexLength);
+        for (int i = 0; i < numBatches; i++) {
+            for (int j = 0; j < ARRAYS_PER_BATCH; j++) {
+                if (shapes[i][j] == null) {
+                    header.putInt(-1);
+                    continue;
+                }
+                header.putInt(shapes[i][j].length);
+                for (int s : shapes[i][j])
+                    header.putInt(s);
+                header.putLong(offsets[i][j]);
+                header.putInt(data[i][j].remaining());
+            }
+        }
+        header.flip();
+
+        WritableByteChannel channel = Channels.newChannel(out);
+        long written = writeFully(channel, header);
+        for (int i = 0; i < numBatches; i++) {
+            for (int j = 0; j < ARRAYS_PER_BATCH; j++) {
+                if (data[i][j] == null)
+                    continue;
+                int padding = (int) (offsets[i][j] - written);
+                if (padding > 0)
+                    written += writeFully(channel, ByteBuffer.allocate(padding));
+                written += writeFully(channel, data[i][j]);
+            }
+        }
+        return written;
+    }
+
+    private static ByteBuffer rawData(INDArray array, LZ4Compressor compressor) {
+        INDArray contiguous = array;
+        if (array.isView() || array.ordering() != 'c' || array.offset() != 0)
+            contiguous = array.dup('c');
+        Nd4j.getAffinityManager().ensureLocation(contiguous, AffinityManager.Location.HOST);
+
+        long rawBytes = (long) contiguous.length() * contiguous.data().getElementSize();
+        if (rawBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Cannot write array of shape " + Arrays.toString(array.shape())
+                            + " to a packed DataSet file: exceeds the maximum size of a single buffer");
+        }
+        ByteBuffer raw = contiguous.data().asNio().duplicate();
+        raw.position(0);
+        raw.limit((int) rawBytes);
+        if (compressor == null)
+            return raw;
+
+        //Keep the raw data if compression doesn't help: raw arrays don't need to be copied when read
+        ByteBuffer out = ByteBuffer.allocate(compressor.maxCompressedLength((int) rawBytes));
+        int compressedBytes = compressor.compress(raw, 0, (int) rawBytes, out, 0, out.capacity());
+        if (compressedBytes >= rawBytes)
+            return raw;
+        out.limit(compressedBytes);
+        return out;
+    }
+
+    private static long writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        long count = buffer.remaining();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        return count;
+    }
+}
@@ -0,0 +1,79 @@
+package org.deeplearning4j.spark.impl.common.repartition;
+
+import org.apache.spark.Partitioner;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.Function;
+
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A custom partitioner for RDDs of paths (keyed by path), that assigns each path to a partition deterministically: the
+ * same set of paths is always partitioned the same way, independently of the order or partitioning of the original
+ * RDD. Partitions are balanced: partition sizes differ by at most 1.<br>
+ * Used with the executor data cache: once a RDD partitioned this way is persisted, Spark schedules the tasks of each
+ * partition on the executor that holds the partition, so each executor is given the same paths every epoch (and
+ * already has them in its cache). If a partition has to be recomputed, its paths stay the same.
+ * Paths unknown to the partitioner are partitioned by hash.
+ */
+public class StablePathPartitioner extends Partitioner {
+    private final int numPartitions;
+    private final Map<String, Integer> partitions;
+
+    /**
+     * @param paths         Paths to partition
+     * @param numPartitions Number of partitions
+     */
+    public StablePathPartitioner(Collection<String> paths, int numPartitions) {
+        checkArgument(numPartitions > 0, "Number of partitions must be positive, got %s", numPartitions);
+        this.numPartitions = numPartitions;
+
+        //Sort by hash: paths from the same export directory (that usually only differ by a counter) are spread out
+        List<String> sorted = new ArrayList<>(new HashSet<>(paths));
+        Collections.sort(sorted, new Comparator<String>() {
+            @Override
+            public int compare(String o1, String o2) {
+                int c = Integer.compare(o1.hashCode(), o2.hashCode());
+                return c != 0 ? c : o1.compareTo(o2);
+            }
+        });
+        this.partitions = new HashMap<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            partitions.put(sorted.get(i), i % numPartitions);
+        }
+    }
+
+    /**
+     * Partition the given paths with a {@link StablePathPartitioner}. Note that the paths are collected to the driver.
+     *
+     * @param paths         Paths to repartition
+     * @param numPartitions Number of partitions
+     * @return Repartitioned paths
+     */
+    public static JavaRDD<String> repartition(JavaRDD<String> paths, int numPartitions) {
+        StablePathPartitioner partitioner = new StablePathPartitioner(paths.collect(), numPartitions);
+        return paths.keyBy(new PathKeyFunction()).partitionBy(partitioner).values();
+    }
+
+    @Override
+    public int numPartitions() {
+        return numPartitions;
+    }
+
+    @Override
+    public int getPartition(Object key) {
+        Integer partition = partitions.get(key);
+        if (partition != null)
+            return partition;
+        int mod = key.hashCode() % numPartitions;
+        return mod < 0 ? mod + numPartitions : mod;
+    }
+
+    private static class PathKeyFunction implements Function<String, String> {
+        @Override
+        public String call(String path) {
+            return path;
+        }
+    }
+}
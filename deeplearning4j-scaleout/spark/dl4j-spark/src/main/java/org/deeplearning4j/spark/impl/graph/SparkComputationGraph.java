@@ -38,6 +38,9 @@ import org.deeplearning4j.spark.impl.graph.dataset.DataSetToMultiDataSetFn;
 import org.deeplearning4j.spark.impl.graph.dataset.PairDataSetToMultiDataSetFn;
 import org.deeplearning4j.spark.impl.graph.evaluation.IEvaluateMDSFlatMapFunction;
 import org.deeplearning4j.spark.impl.graph.scoring.*;
+import org.deeplearning4j.spark.impl.inference.BatchedInferenceFunction;
+import org.deeplearning4j.spark.impl.inference.InferenceModel;
+import org.deeplearning4j.spark.impl.inference.KeyedOutputBatch;
 import org.deeplearning4j.spark.impl.multilayer.evaluation.IEvaluateAggregateFunction;
 import org.deeplearning4j.spark.impl.multilayer.evaluation.IEvaluateFlatMapFunction;
 import org.deeplearning4j.spark.util.SparkUtils;
@@ -71,6 +74,7 @@ public class SparkComputationGraph extends SparkListenable {
     private transient JavaSparkContext sc;
     private ComputationGraphConfiguration conf;
     private ComputationGraph network;
+    private transient InferenceModel inferenceModel;
     private double lastScore;
 
     private transient AtomicInteger iterationsCount = new AtomicInteger(0);
@@ -476,6 +480,34 @@ public class SparkComputationGraph extends SparkListenable {
                         sc.broadcast(conf.toJson()), batchSize));
     }
 
+    /**
+     * As per {@link #outputBatchedWithKey(JavaPairRDD, int, int)}, with 1 inference thread per executor
+     */
+    public <K> JavaRDD<KeyedOutputBatch<K>> outputBatchedWithKey(JavaPairRDD<K, INDArray[]> featuresData,
+                    int batchSize) {
+        return outputBatchedWithKey(featuresData, batchSize, 1);
+    }
+
+    /**
+     * Get the network output for the specified data, with the given keys. Unlike
+     * {@link #feedForwardWithKey(JavaPairRDD, int)}, the network is deserialized once per executor (and kept for later
+     * calls, as long as the network isn't modified), the examples of all tasks of an executor are batched together,
+     * and the output is returned in batches (one array per network output per batch, instead of one per key).
+     *
+     * @param featuresData       Features data to feed through the network
+     * @param batchSize          Max number of examples in each forward pass
+     * @param workersPerExecutor Number of inference threads (each with a copy of the network) per executor
+     * @param <K>                Type of data for key - may be anything
+     * @return Network output given the input, in batches of keys
+     */
+    public <K> JavaRDD<KeyedOutputBatch<K>> outputBatchedWithKey(JavaPairRDD<K, INDArray[]> featuresData,
+                    int batchSize, int workersPerExecutor) {
+        if (inferenceModel == null || !inferenceModel.isCurrent(network))
+            inferenceModel = InferenceModel.of(sc, network);
+        return featuresData.mapPartitions(
+                        new BatchedInferenceFunction<K>(inferenceModel, batchSize, workersPerExecutor));
+    }
+
     private void update(int mr, long mg) {
         Environment env = EnvironmentUtils.buildEnvironment();
         env.setNumCores(mr);
@@ -0,0 +1,157 @@
+package org.deeplearning4j.spark.impl.inference;
+
+import org.apache.spark.TaskContext;
+import org.apache.spark.util.TaskCompletionListener;
+import org.datavec.spark.functions.FlatMapFunctionAdapter;
+import org.datavec.spark.transform.BaseFlatMapFunctionAdaptee;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Function to get the network output for keyed examples, using the executor-cached network of
+ * {@link ExecutorInference}. The examples of each partition are grouped in batches (of examples with the same shape,
+ * apart from dimension 0), and the output is returned as one {@link KeyedOutputBatch} per batch.<br>
+ * Batches are computed and returned one at a time, as the output iterator is consumed: the partition is never
+ * materialized in memory. The executor inference is released when the task completes (or, outside of a task, once
+ * the output iterator is exhausted).
+ *
+ * @param <K> Type of key, associated with each example
+ */
+public class BatchedInferenceFunction<K>
+                extends BaseFlatMapFunctionAdaptee<Iterator<Tuple2<K, INDArray[]>>, KeyedOutputBatch<K>> {
+
+    /**
+     * @param model      Model to use
+     * @param batchSize  Max number of examples in each batch
+     * @param numWorkers Number of inference threads per executor
+     */
+    public BatchedInferenceFunction(InferenceModel model, int batchSize, int numWorkers) {
+        super(new BatchedInferenceFunctionAdapter<K>(model, batchSize, numWorkers));
+    }
+}
+
+
+class BatchedInferenceFunctionAdapter<K>
+                implements FlatMapFunctionAdapter<Iterator<Tuple2<K, INDArray[]>>, KeyedOutputBatch<K>> {
+
+    private final InferenceModel model;
+    private final int batchSize;
+    private final int numWorkers;
+
+    BatchedInferenceFunctionAdapter(InferenceModel model, int batchSize, int numWorkers) {
+        this.model = model;
+        this.batchSize = batchSize;
+        this.numWorkers = numWorkers;
+    }
+
+    @Override
+    public Iterable<KeyedOutputBatch<K>> call(final Iterator<Tuple2<K, INDArray[]>> iterator) throws Exception {
+        final ExecutorInference inference = ExecutorInference.getInstance(model, batchSize, numWorkers);
+        final BatchIterator batches = new BatchIterator(iterator, inference);
+        TaskContext context = TaskContext.get();
+        if (context != null) {
+            //Also if the output is not fully consumed
+            context.addTaskCompletionListener(new TaskCompletionListener() {
+                @Override
+                public void onTaskCompletion(TaskContext context) {
+                    batches.release();
+                }
+            });
+        }
+        return new Iterable<KeyedOutputBatch<K>>() {
+            @Override
+            public Iterator<KeyedOutputBatch<K>> iterator() {
+                return batches;
+            }
+        };
+    }
+
+    private class BatchIterator implements Iterator<KeyedOutputBatch<K>> {
+        private final Iterator<Tuple2<K, INDArray[]>> iterator;
+        private final ExecutorInference inference;
+        //First example of the next batch, that could not be added to the previous batch
+        private Tuple2<K, INDArray[]> next;
+        private boolean released;
+
+        private BatchIterator(Iterator<Tuple2<K, INDArray[]>> iterator, ExecutorInference inference) {
+            this.iterator = iterator;
+            this.inference = inference;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = next != null || iterator.hasNext();
+            if (!hasNext)
+                release();
+            return hasNext;
+        }
+
+        private synchronized void release() {
+            if (!released) {
+                released = true;
+                inference.release();
+            }
+        }
+
+        @Override
+        public KeyedOutputBatch<K> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            List<K> keys = new ArrayList<>(batchSize);
+            List<INDArray[]> features = new ArrayList<>(batchSize);
+            int[] counts = new int[batchSize];
+            int numExamples = 0;
+            INDArray[] first = null;
+            while (numExamples < batchSize && (next != null || iterator.hasNext())) {
+                Tuple2<K, INDArray[]> t2 = (next != null ? next : iterator.next());
+                next = null;
+                if (first == null) {
+                    first = t2._2();
+                } else if (!ExecutorInference.sameShape(first, t2._2())) {
+                    next = t2;
+                    break;
+                }
+                if (keys.size() == counts.length)
+                    counts = Arrays.copyOf(counts, 2 * counts.length);
+                counts[keys.size()] = t2._2()[0].size(0);
+                numExamples += counts[keys.size()];
+                keys.add(t2._1());
+                features.add(t2._2());
+            }
+
+            INDArray[] input = new INDArray[first.length];
+            for (int i = 0; i < input.length; i++) {
+                if (features.size() == 1) {
+                    input[i] = first[i];
+                } else {
+                    INDArray[] toMerge = new INDArray[features.size()];
+                    for (int j = 0; j < toMerge.length; j++)
+                        toMerge[j] = features.get(j)[i];
+                    input[i] = Nd4j.concat(0, toMerge);
+                }
+            }
+
+            INDArray[] output;
+            try {
+                output = inference.output(input);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for network output", e);
+            }
+            return new KeyedOutputBatch<>(keys, Arrays.copyOf(counts, keys.size()), output);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
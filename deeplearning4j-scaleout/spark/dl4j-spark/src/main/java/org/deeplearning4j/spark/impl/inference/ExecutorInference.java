@@ -0,0 +1,284 @@
+package org.deeplearning4j.spark.impl.inference;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Executor-side inference for a {@link InferenceModel}: the network is deserialized once per executor JVM, and kept
+ * across tasks and jobs (for the last {@link #MAX_CACHED_MODELS} networks used).<br>
+ * Instances are reference counted: {@link #getInstance(InferenceModel, int, int)} must be matched by a call to
+ * {@link #release()} once the caller no longer uses the instance. Instances in use are never evicted from the cache;
+ * an evicted instance (or one shut down otherwise) fails its pending requests instead of leaving them waiting.<br>
+ * Inference is batched the same way as in ParallelInference's batched mode: requests of all the tasks running on the
+ * executor are queued, and each worker thread (with its own copy of the network) merges the requests waiting in the
+ * queue, up to the batch size, into a single forward pass.
+ */
+@Slf4j
+public class ExecutorInference {
+
+    public static final int MAX_CACHED_MODELS = 2;
+
+    //Model id -> executor inference, least recently used first
+    private static final LinkedHashMap<String, ExecutorInference> instances = new LinkedHashMap<>(4, 0.75f, true);
+
+    private final String modelId;
+    private final int batchSize;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+    //Number of callers using the instance. Guarded by the instances lock
+    private int users;
+    private volatile boolean shutdown;
+
+    private ExecutorInference(InferenceModel model, int batchSize, int numWorkers) {
+        this.modelId = model.getModelId();
+        this.batchSize = batchSize;
+        Model network = model.createNetwork();
+        for (int i = 0; i < numWorkers; i++) {
+            Thread t = new Thread(new Worker(i == 0 ? network : cloneNetwork(network)),
+                            "ExecutorInference-" + modelId + "-" + i);
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+    }
+
+    /**
+     * Get the executor inference for the given model, creating it if necessary. Batch size and number of workers are
+     * those of the first call for the model. Call {@link #release()} once done with the instance
+     *
+     * @param model      Model to use
+     * @param batchSize  Max number of examples in each forward pass
+     * @param numWorkers Number of worker threads (each with its own copy of the network)
+     */
+    public static ExecutorInference getInstance(InferenceModel model, int batchSize, int numWorkers) {
+        if (batchSize < 1 || numWorkers < 1)
+            throw new IllegalArgumentException("Batch size and number of workers must be positive, got " + batchSize
+                            + " and " + numWorkers);
+        //Under the lock: concurrent tasks of the executor wait for the network to be deserialized once
+        synchronized (instances) {
+            ExecutorInference inference = instances.get(model.getModelId());
+            if (inference == null) {
+                inference = new ExecutorInference(model, batchSize, numWorkers);
+                instances.put(model.getModelId(), inference);
+            }
+            inference.users++;
+            evictUnused();
+            return inference;
+        }
+    }
+
+    /**
+     * Release an instance obtained from {@link #getInstance(InferenceModel, int, int)}. The instance is shut down once
+     * it is neither used nor among the last {@link #MAX_CACHED_MODELS} models used
+     */
+    public void release() {
+        synchronized (instances) {
+            if (users <= 0)
+                throw new IllegalStateException("Executor inference for model " + modelId + " is not in use");
+            users--;
+            evictUnused();
+        }
+    }
+
+    //Least recently used first. The cache can temporarily hold more models, while they are all in use
+    private static void evictUnused() {
+        Iterator<ExecutorInference> iter = instances.values().iterator();
+        while (instances.size() > MAX_CACHED_MODELS && iter.hasNext()) {
+            ExecutorInference inference = iter.next();
+            if (inference.users == 0) {
+                iter.remove();
+                inference.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Get the network output for the given inputs, batched with the other requests of the executor. Blocks until the
+     * output is available.
+     *
+     * @param input Network inputs (one for a MultiLayerNetwork). Same size along dimension 0
+     * @return Network outputs (one for a MultiLayerNetwork)
+     */
+    public INDArray[] output(INDArray... input) throws InterruptedException {
+        if (shutdown)
+            throw new IllegalStateException("Executor inference for model " + modelId + " was shut down");
+        Request request = new Request(input);
+        queue.put(request);
+        //Shut down while queuing: the workers may be gone already
+        if (shutdown)
+            failQueued();
+        request.latch.await();
+        if (request.error != null)
+            throw new RuntimeException("Error during inference with model " + modelId, request.error);
+        return request.output;
+    }
+
+    private void shutdown() {
+        shutdown = true;
+        for (Thread t : workers)
+            t.interrupt();
+        failQueued();
+    }
+
+    private void failQueued() {
+        List<Request> queued = new ArrayList<>();
+        queue.drainTo(queued);
+        for (Request r : queued)
+            r.fail(shutdownError());
+    }
+
+    private Throwable shutdownError() {
+        return new IllegalStateException("Executor inference for model " + modelId + " was shut down");
+    }
+
+    private static Model cloneNetwork(Model network) {
+        if (network instanceof ComputationGraph)
+            return ((ComputationGraph) network).clone();
+        return ((MultiLayerNetwork) network).clone();
+    }
+
+    private static class Request {
+        private final INDArray[] input;
+        private final int numExamples;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private INDArray[] output;
+        private Throwable error;
+
+        private Request(INDArray[] input) {
+            this.input = input;
+            this.numExamples = input[0].size(0);
+        }
+
+        //Requests can be merged if their inputs only differ along dimension 0
+        private boolean canMerge(Request other) {
+            return sameShape(input, other.input);
+        }
+
+        private void fail(Throwable t) {
+            error = t;
+            latch.countDown();
+        }
+    }
+
+    private class Worker implements Runnable {
+        private final Model network;
+        //Request taken from the queue that could not be merged into the last batch
+        private Request carry;
+
+        private Worker(Model network) {
+            this.network = network;
+        }
+
+        @Override
+        public void run() {
+            while (!shutdown && !Thread.currentThread().isInterrupted()) {
+                List<Request> batch = new ArrayList<>();
+                try {
+                    Request first = (carry != null ? carry : queue.take());
+                    carry = null;
+                    batch.add(first);
+                    int numExamples = first.numExamples;
+                    //Merge the requests already waiting, without waiting for more
+                    while (numExamples < batchSize) {
+                        Request next = queue.poll();
+                        if (next == null)
+                            break;
+                        if (!first.canMerge(next) || numExamples + next.numExamples > batchSize) {
+                            carry = next;
+                            break;
+                        }
+                        batch.add(next);
+                        numExamples += next.numExamples;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                try {
+                    process(batch);
+                } catch (Throwable t) {
+                    for (Request r : batch)
+                        r.fail(t);
+                }
+            }
+
+            //Taken from the queue, but not processed
+            if (carry != null) {
+                carry.fail(shutdownError());
+                carry = null;
+            }
+        }
+
+        private void process(List<Request> batch) {
+            int numInputs = batch.get(0).input.length;
+            INDArray[] input = new INDArray[numInputs];
+            for (int i = 0; i < numInputs; i++) {
+                if (batch.size() == 1) {
+                    input[i] = batch.get(0).input[i];
+                } else {
+                    INDArray[] toMerge = new INDArray[batch.size()];
+                    for (int j = 0; j < toMerge.length; j++)
+                        toMerge[j] = batch.get(j).input[i];
+                    input[i] = Nd4j.concat(0, toMerge);
+                }
+            }
+
+            INDArray[] output;
+            if (network instanceof ComputationGraph)
+                output = ((ComputationGraph) network).output(false, input);
+            else
+                output = new INDArray[] {((MultiLayerNetwork) network).output(input[0], false)};
+
+            int start = 0;
+            for (Request r : batch) {
+                if (batch.size() == 1) {
+                    r.output = output;
+                } else {
+                    r.output = new INDArray[output.length];
+                    for (int i = 0; i < output.length; i++)
+                        r.output[i] = rows(output[i], start, start + r.numExamples);
+                }
+                start += r.numExamples;
+                r.latch.countDown();
+            }
+        }
+    }
+
+    //Same number of inputs, with the same shapes apart from dimension 0
+    static boolean sameShape(INDArray[] a, INDArray[] b) {
+        if (a.length != b.length)
+            return false;
+        for (int i = 0; i < a.length; i++) {
+            int[] s1 = a[i].shape();
+            int[] s2 = b[i].shape();
+            if (s1.length != s2.length)
+                return false;
+            for (int j = 1; j < s1.length; j++) {
+                if (s1[j] != s2[j])
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    //Copy of the given examples (rows along dimension 0) of the array
+    static INDArray rows(INDArray from, int start, int end) {
+        INDArrayIndex[] indexes = new INDArrayIndex[from.rank()];
+        indexes[0] = NDArrayIndex.interval(start, end);
+        for (int i = 1; i < indexes.length; i++)
+            indexes[i] = NDArrayIndex.all();
+        return from.get(indexes).dup();
+    }
+}
@@ -0,0 +1,90 @@
+package org.deeplearning4j.spark.impl.inference;
+
+import lombok.Getter;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * A network used for distributed inference: configuration and parameters are broadcast once, with a unique id that
+ * executors use to keep the deserialized network across jobs (see {@link ExecutorInference}).<br>
+ * On the driver, {@link #isCurrent(Model)} checks whether the broadcast network is still up to date: it is not once
+ * the network has been trained, or its parameters have been modified.
+ */
+@Getter
+public class InferenceModel implements Serializable {
+
+    private final String modelId;
+    private final boolean graph;
+    private final Broadcast<String> jsonConfig;
+    private final Broadcast<INDArray> params;
+
+    //Driver side only: the network that was broadcast, and its state at that time
+    private final transient Model network;
+    private final transient int iterationCount;
+    private final transient double paramsSum;
+
+    private InferenceModel(JavaSparkContext sc, Model network, String jsonConfig) {
+        this.modelId = UUID.randomUUID().toString();
+        this.graph = network instanceof ComputationGraph;
+        this.jsonConfig = sc.broadcast(jsonConfig);
+        this.params = sc.broadcast(network.params());
+        this.network = network;
+        this.iterationCount = iterationCount(network);
+        this.paramsSum = network.params().sumNumber().doubleValue();
+    }
+
+    public static InferenceModel of(JavaSparkContext sc, MultiLayerNetwork network) {
+        return new InferenceModel(sc, network, network.getLayerWiseConfigurations().toJson());
+    }
+
+    public static InferenceModel of(JavaSparkContext sc, ComputationGraph network) {
+        return new InferenceModel(sc, network, network.getConfiguration().toJson());
+    }
+
+    /**
+     * @param network Network to check (on the driver)
+     * @return True if the broadcast network is the given network, in its current state
+     */
+    public boolean isCurrent(Model network) {
+        return this.network == network && iterationCount == iterationCount(network)
+                        && paramsSum == network.params().sumNumber().doubleValue();
+    }
+
+    /**
+     * Create the network from the broadcast configuration and parameters
+     */
+    public Model createNetwork() {
+        INDArray val = params.value().unsafeDuplication();
+        Model network;
+        if (graph) {
+            ComputationGraph cg = new ComputationGraph(ComputationGraphConfiguration.fromJson(jsonConfig.getValue()));
+            cg.init();
+            network = cg;
+        } else {
+            MultiLayerNetwork net =
+                            new MultiLayerNetwork(MultiLayerConfiguration.fromJson(jsonConfig.getValue()));
+            net.init();
+            network = net;
+        }
+        if (val.length() != network.numParams())
+            throw new IllegalStateException(
+                            "Network did not have same number of parameters as the broadcasted set parameters");
+        network.setParams(val);
+        return network;
+    }
+
+    private static int iterationCount(Model network) {
+        if (network instanceof ComputationGraph)
+            return ((ComputationGraph) network).getConfiguration().getIterationCount();
+        return ((MultiLayerNetwork) network).getLayerWiseConfigurations().getIterationCount();
+    }
+}
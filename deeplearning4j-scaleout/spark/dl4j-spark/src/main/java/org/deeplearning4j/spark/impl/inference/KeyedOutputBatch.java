@@ -0,0 +1,63 @@
+package org.deeplearning4j.spark.impl.inference;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Network outputs for a batch of keyed examples, in columnar form: one output array per network output for the whole
+ * batch (examples along dimension 0, in key order), instead of one set of arrays per key.<br>
+ * Key i corresponds to examples [offset(i), offset(i) + exampleCounts[i]) of each output array (usually, one example
+ * per key).
+ *
+ * @param <K> Type of key
+ */
+@AllArgsConstructor
+@Data
+public class KeyedOutputBatch<K> implements Serializable {
+    private final List<K> keys;
+    private final int[] exampleCounts;
+    private final INDArray[] outputs;
+
+    /**
+     * @return Number of keys in the batch
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * @return Total number of examples in the batch
+     */
+    public int numExamples() {
+        int sum = 0;
+        for (int c : exampleCounts)
+            sum += c;
+        return sum;
+    }
+
+    /**
+     * @param keyIdx Index of the key in the batch
+     * @return Index of the first example of the key, along dimension 0 of the output arrays
+     */
+    public int offset(int keyIdx) {
+        int offset = 0;
+        for (int i = 0; i < keyIdx; i++)
+            offset += exampleCounts[i];
+        return offset;
+    }
+
+    /**
+     * Get the output of the given key (copied out of the batch output)
+     *
+     * @param keyIdx    Index of the key in the batch
+     * @param outputIdx Index of the network output (0 for a MultiLayerNetwork)
+     */
+    public INDArray getOutput(int keyIdx, int outputIdx) {
+        int start = offset(keyIdx);
+        return ExecutorInference.rows(outputs[outputIdx], start, start + exampleCounts[keyIdx]);
+    }
+}
@@ -36,6 +36,10 @@ import org.deeplearning4j.spark.api.TrainingMaster;
 import org.deeplearning4j.spark.api.stats.SparkTrainingStats;
 import org.deeplearning4j.spark.impl.SparkListenable;
 import org.deeplearning4j.spark.impl.common.reduce.IntDoubleReduceFunction;
+import org.deeplearning4j.spark.impl.graph.scoring.PairToArrayPair;
+import org.deeplearning4j.spark.impl.inference.BatchedInferenceFunction;
+import org.deeplearning4j.spark.impl.inference.InferenceModel;
+import org.deeplearning4j.spark.impl.inference.KeyedOutputBatch;
 import org.deeplearning4j.spark.impl.multilayer.evaluation.IEvaluateAggregateFunction;
 import org.deeplearning4j.spark.impl.multilayer.evaluation.IEvaluateFlatMapFunction;
 import org.deeplearning4j.spark.impl.multilayer.evaluation.IEvaluationReduceFunction;
@@ -75,6 +79,7 @@ public class SparkDl4jMultiLayer extends SparkListenable {
     private MultiLayerConfiguration conf;
     private MultiLayerNetwork network;
     private double lastScore;
+    private transient InferenceModel inferenceModel;
 
     /**
      * Instantiate a multi layer spark instance
@@ -438,6 +443,34 @@ public class SparkDl4jMultiLayer extends SparkListenable {
                         sc.broadcast(conf.toJson()), batchSize));
     }
 
+    /**
+     * As per {@link #outputBatchedWithKey(JavaPairRDD, int, int)}, with 1 inference thread per executor
+     */
+    public <K> JavaRDD<KeyedOutputBatch<K>> outputBatchedWithKey(JavaPairRDD<K, INDArray> featuresData,
+                    int batchSize) {
+        return outputBatchedWithKey(featuresData, batchSize, 1);
+    }
+
+    /**
+     * Get the network output for the specified data, with the given keys. Unlike
+     * {@link #feedForwardWithKey(JavaPairRDD, int)}, the network is deserialized once per executor (and kept for later
+     * calls, as long as the network isn't modified), the examples of all tasks of an executor are batched together,
+     * and the output is returned in batches (one output array per batch instead of one per key).
+     *
+     * @param featuresData       Features data to feed through the network
+     * @param batchSize          Max number of examples in each forward pass
+     * @param workersPerExecutor Number of inference threads (each with a copy of the network) per executor
+     * @param <K>                Type of data for key - may be anything
+     * @return Network output given the input, in batches of keys
+     */
+    public <K> JavaRDD<KeyedOutputBatch<K>> outputBatchedWithKey(JavaPairRDD<K, INDArray> featuresData, int batchSize,
+                    int workersPerExecutor) {
+        if (inferenceModel == null || !inferenceModel.isCurrent(network))
+            inferenceModel = InferenceModel.of(sc, network);
+        return featuresData.mapToPair(new PairToArrayPair<K>()).mapPartitions(
+                        new BatchedInferenceFunction<K>(inferenceModel, batchSize, workersPerExecutor));
+    }
+
     /**
      * {@code RDD<DataSet>} overload of {@link #evaluate(JavaRDD)}
      */
@@ -13,6 +13,8 @@ import org.deeplearning4j.optimize.api.IterationListener;
 import org.deeplearning4j.spark.api.*;
 import org.deeplearning4j.spark.data.BatchAndExportDataSetsFunction;
 import org.deeplearning4j.spark.data.BatchAndExportMultiDataSetsFunction;
+import org.deeplearning4j.spark.data.BatchAndExportPackedDataSetsFunction;
+import org.deeplearning4j.spark.data.PackedDataSetFile;
 import org.deeplearning4j.spark.impl.paramavg.stats.ParameterAveragingTrainingMasterStats;
 import org.deeplearning4j.spark.impl.paramavg.util.ExportSupport;
 import org.deeplearning4j.spark.util.serde.StorageLevelDeserializer;
@@ -51,6 +53,8 @@ public abstract class BaseTrainingMaster<R extends TrainingResult, W extends Tra
 
     protected int lastExportedRDDId = Integer.MIN_VALUE;
     protected String lastRDDExportPath;
+    //Paths of the last exported RDD: the same RDD is reused for each epoch
+    protected transient JavaRDD<String> lastExportPaths;
     protected int batchSizePerWorker;
     protected String exportDirectory = null;
     protected Random rng;
@@ -72,6 +76,7 @@ public abstract class BaseTrainingMaster<R extends TrainingResult, W extends Tra
     @JsonDeserialize(using = StorageLevelDeserializer.class)
     protected StorageLevel storageLevelStreams = StorageLevel.MEMORY_ONLY();
     protected RDDTrainingApproach rddTrainingApproach = RDDTrainingApproach.Export;
+    protected boolean exportCompression = false;
 
     protected BaseTrainingMaster() {
 
@@ -136,7 +141,9 @@ public abstract class BaseTrainingMaster<R extends TrainingResult, W extends Tra
         if (collectTrainingStats)
             stats.logExportEnd();
 
-        return sc.textFile(baseDir + "paths/");
+        if (lastExportPaths == null)
+            lastExportPaths = sc.textFile(baseDir + "paths/");
+        return lastExportPaths;
     }
 
     protected JavaRDD<String> exportIfRequiredMDS(JavaSparkContext sc, JavaRDD<MultiDataSet> trainingData) {
@@ -170,7 +177,9 @@ public abstract class BaseTrainingMaster<R extends TrainingResult, W extends Tra
         if (collectTrainingStats)
             stats.logExportEnd();
 
-        return sc.textFile(baseDir + "paths/");
+        if (lastExportPaths == null)
+            lastExportPaths = sc.textFile(baseDir + "paths/");
+        return lastExportPaths;
     }
 
     protected String export(JavaRDD<DataSet> trainingData) {
@@ -179,13 +188,20 @@ public abstract class BaseTrainingMaster<R extends TrainingResult, W extends Tra
         String pathsDir = baseDir + "paths/";
 
         log.info("Initiating RDD<DataSet> export at {}", baseDir);
-        JavaRDD<String> paths = trainingData
-                        .mapPartitionsWithIndex(new BatchAndExportDataSetsFunction(batchSizePerWorker, dataDir), true);
+        BatchAndExportDataSetsFunction exportFunction;
+        if (rddTrainingApproach == RDDTrainingApproach.ExportPacked) {
+            exportFunction = new BatchAndExportPackedDataSetsFunction(batchSizePerWorker, dataDir,
+                            PackedDataSetFile.DEFAULT_BATCHES_PER_FILE, exportCompression);
+        } else {
+            exportFunction = new BatchAndExportDataSetsFunction(batchSizePerWorker, dataDir);
+        }
+        JavaRDD<String> paths = trainingData.mapPartitionsWithIndex(exportFunction, true);
         paths.saveAsTextFile(pathsDir);
         log.info("RDD<DataSet> export complete at {}", baseDir);
 
         lastExportedRDDId = trainingData.id();
         lastRDDExportPath = baseDir;
+        lastExportPaths = null;
         return baseDir;
     }
 
@@ -202,6 +218,7 @@ public abstract class BaseTrainingMaster<R extends TrainingResult, W extends Tra
 
         lastExportedRDDId = trainingData.id();
         lastRDDExportPath = baseDir;
+        lastExportPaths = null;
         return baseDir;
     }
 
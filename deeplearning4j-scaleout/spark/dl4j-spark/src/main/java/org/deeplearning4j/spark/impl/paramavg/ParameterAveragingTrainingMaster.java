@@ -1,11 +1,14 @@
 package org.deeplearning4j.spark.impl.paramavg;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaRDDLike;
+import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.broadcast.Broadcast;
 import org.apache.spark.input.PortableDataStream;
@@ -23,13 +26,21 @@ import org.deeplearning4j.spark.api.*;
 import org.deeplearning4j.spark.api.stats.SparkTrainingStats;
 import org.deeplearning4j.spark.api.worker.*;
 import org.deeplearning4j.spark.impl.graph.SparkComputationGraph;
+import org.deeplearning4j.spark.impl.common.repartition.StablePathPartitioner;
 import org.deeplearning4j.spark.impl.graph.dataset.DataSetToMultiDataSetFn;
 import org.deeplearning4j.spark.impl.listeners.VanillaStatsStorageRouterProvider;
 import org.deeplearning4j.spark.impl.multilayer.SparkDl4jMultiLayer;
 import org.deeplearning4j.spark.impl.paramavg.aggregator.ParameterAveragingAggregationTuple;
 import org.deeplearning4j.spark.impl.paramavg.aggregator.ParameterAveragingElementAddFunction;
 import org.deeplearning4j.spark.impl.paramavg.aggregator.ParameterAveragingElementCombineFunction;
+import org.deeplearning4j.spark.impl.paramavg.delta.DeltaAggregationFlatMap;
+import org.deeplearning4j.spark.impl.paramavg.delta.DeltaBroadcastChain;
+import org.deeplearning4j.spark.impl.paramavg.delta.DeltaBroadcastTuple;
+import org.deeplearning4j.spark.impl.paramavg.delta.QuantizedDelta;
 import org.deeplearning4j.spark.impl.paramavg.stats.ParameterAveragingTrainingMasterStats;
+import org.deeplearning4j.spark.impl.paramavg.stats.ParameterAveragingTrainingWorkerStats;
+import org.deeplearning4j.spark.iterator.CrossSplitPrefetcher;
+import org.deeplearning4j.spark.stats.EventStats;
 import org.deeplearning4j.spark.util.SparkUtils;
 import org.deeplearning4j.util.UIDProvider;
 import org.nd4j.linalg.api.ndarray.INDArray;
@@ -42,6 +53,7 @@ import org.nd4j.shade.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -55,9 +67,17 @@ import static com.google.common.base.Preconditions.checkArgument;
  */
 @Data
 @JsonIgnoreProperties({"stats", "listeners", "iterationCount", "rng", "lastExportedRDDId", "lastRDDExportPath",
-                "trainingMasterUID"})
+                "trainingMasterUID", "deltaVersion", "deltaChecksum", "pendingParamsDelta", "pendingUpdaterDelta",
+                "deltaBase", "deltaBaseVersion", "deltaChain", "deltaChainBytes",
+                "parametersVersion", "parameterUpdateTimes", "lastBroadcastParams", "lastBroadcastUpdaterState",
+                "pendingSplits", "aggregationExecutor", "lastExportPaths", "stableSplits", "stableSplitsRddId",
+                "splitCount"})
 @EqualsAndHashCode(exclude = {"stats", "listeners", "iterationCount", "rng", "lastExportedRDDId", "lastRDDExportPath",
-                "trainingMasterUID"})
+                "trainingMasterUID", "deltaVersion", "deltaChecksum", "pendingParamsDelta", "pendingUpdaterDelta",
+                "deltaBase", "deltaBaseVersion", "deltaChain", "deltaChainBytes",
+                "parametersVersion", "parameterUpdateTimes", "lastBroadcastParams", "lastBroadcastUpdaterState",
+                "pendingSplits", "aggregationExecutor", "lastExportPaths", "stableSplits", "stableSplitsRddId",
+                "splitCount"})
 @Slf4j
 public class ParameterAveragingTrainingMaster
                 extends BaseTrainingMaster<ParameterAveragingTrainingResult, ParameterAveragingTrainingWorker>
@@ -74,6 +94,39 @@ public class ParameterAveragingTrainingMaster
     protected int aggregationDepth;
     protected int prefetchNumBatches;
     protected int iterationCount = 0;
+    protected boolean deltaAggregation = false;
+    protected int deltaBlockSize = QuantizedDelta.DEFAULT_BLOCK_SIZE;
+
+    //Delta mode state: version of the parameters known to the executors, the delta leading to it (not broadcast yet),
+    // the last full network broadcast (version deltaBaseVersion), and the delta broadcasts since then
+    protected long deltaVersion = 0;
+    protected double deltaChecksum = Double.NaN;
+    protected QuantizedDelta pendingParamsDelta;
+    protected QuantizedDelta pendingUpdaterDelta;
+    protected Broadcast<NetBroadcastTuple> deltaBase;
+    protected long deltaBaseVersion;
+    protected List<Broadcast<DeltaBroadcastTuple>> deltaChain;
+    protected long deltaChainBytes;
+
+    protected int maxStaleness = 0;
+    //Number of parameter updates applied on the driver, used to compute the staleness of the workers results
+    protected long parametersVersion = 0;
+    //Stale synchronous mode: driver time at which each parameter version was applied, used for per worker staleness
+    protected NavigableMap<Long, Long> parameterUpdateTimes;
+    //Stale synchronous mode state: snapshot broadcast for the current split, and splits aggregated in the background
+    protected INDArray lastBroadcastParams;
+    protected INDArray lastBroadcastUpdaterState;
+    protected Deque<PendingSplit> pendingSplits;
+    protected ExecutorService aggregationExecutor;
+
+    protected long executorCacheBytes = 0;
+    //Executor data cache mode: splits of the training paths RDD (with id stableSplitsRddId), reused every epoch
+    protected JavaRDD<String>[] stableSplits;
+    protected int stableSplitsRddId = Integer.MIN_VALUE;
+
+    protected boolean prefetchAcrossSplits = false;
+    //Cross split prefetch state: number of splits planned
+    protected long splitCount = 0;
 
     protected Collection<TrainingHook> trainingHookList;
 
@@ -99,8 +152,14 @@ public class ParameterAveragingTrainingMaster
         this.storageLevel = builder.storageLevel;
         this.storageLevelStreams = builder.storageLevelStreams;
         this.rddTrainingApproach = builder.rddTrainingApproach;
+        this.exportCompression = builder.exportCompression;
         this.exportDirectory = builder.exportDirectory;
         this.trainingHookList = builder.trainingHooks;
+        this.deltaAggregation = builder.deltaAggregation;
+        this.deltaBlockSize = builder.deltaBlockSize;
+        this.maxStaleness = builder.maxStaleness;
+        this.executorCacheBytes = builder.executorCacheBytes;
+        this.prefetchAcrossSplits = builder.prefetchAcrossSplits;
 
         if (builder.rngSeed == null) {
             this.rng = new Random();
@@ -251,36 +310,163 @@ public class ParameterAveragingTrainingMaster
 
     @Override
     public ParameterAveragingTrainingWorker getWorkerInstance(SparkDl4jMultiLayer network) {
-        NetBroadcastTuple tuple = new NetBroadcastTuple(network.getNetwork().getLayerWiseConfigurations(),
-                        network.getNetwork().params(), network.getNetwork().getUpdater().getStateViewArray());
+        MultiLayerNetwork net = network.getNetwork();
+        MultiLayerConfiguration conf = net.getLayerWiseConfigurations();
 
         if (collectTrainingStats)
             stats.logBroadcastStart();
-        Broadcast<NetBroadcastTuple> broadcast = network.getSparkContext().broadcast(tuple);
+        Broadcast<NetBroadcastTuple> broadcast;
+        DeltaBroadcastChain deltaBroadcast = null;
+        if (deltaAggregation) {
+            deltaBroadcast = broadcastDelta(network.getSparkContext(), conf, null, net.params(),
+                            net.getUpdater().getStateViewArray(), conf.getIterationCount(), conf.getEpochCount());
+            broadcast = deltaBase;
+        } else {
+            NetBroadcastTuple tuple = new NetBroadcastTuple(conf, broadcastParams(net.params()),
+                            broadcastUpdaterState(net.getUpdater().getStateViewArray()));
+            broadcast = network.getSparkContext().broadcast(tuple);
+        }
         if (collectTrainingStats)
             stats.logBroadcastEnd();
 
         WorkerConfiguration configuration = new WorkerConfiguration(false, rddDataSetNumExamples, batchSizePerWorker,
                         averagingFrequency, prefetchNumBatches, collectTrainingStats);
-        return new ParameterAveragingTrainingWorker(broadcast, saveUpdater, configuration, trainingHookList, listeners,
-                        getRouterProvider());
+        return new ParameterAveragingTrainingWorker(broadcast, deltaBroadcast, trainingMasterUID, saveUpdater,
+                        configuration, trainingHookList, listeners, getRouterProvider());
     }
 
     @Override
     public ParameterAveragingTrainingWorker getWorkerInstance(SparkComputationGraph graph) {
-        NetBroadcastTuple tuple = new NetBroadcastTuple(graph.getNetwork().getConfiguration(),
-                        graph.getNetwork().params(), graph.getNetwork().getUpdater().getStateViewArray());
+        ComputationGraph net = graph.getNetwork();
+        ComputationGraphConfiguration conf = net.getConfiguration();
 
         if (collectTrainingStats)
             stats.logBroadcastStart();
-        Broadcast<NetBroadcastTuple> broadcast = graph.getSparkContext().broadcast(tuple);
+        Broadcast<NetBroadcastTuple> broadcast;
+        DeltaBroadcastChain deltaBroadcast = null;
+        if (deltaAggregation) {
+            deltaBroadcast = broadcastDelta(graph.getSparkContext(), null, conf, net.params(),
+                            net.getUpdater().getStateViewArray(), conf.getIterationCount(), conf.getEpochCount());
+            broadcast = deltaBase;
+        } else {
+            NetBroadcastTuple tuple = new NetBroadcastTuple(conf, broadcastParams(net.params()),
+                            broadcastUpdaterState(net.getUpdater().getStateViewArray()));
+            broadcast = graph.getSparkContext().broadcast(tuple);
+        }
         if (collectTrainingStats)
             stats.logBroadcastEnd();
 
         WorkerConfiguration configuration = new WorkerConfiguration(true, rddDataSetNumExamples, batchSizePerWorker,
                         averagingFrequency, prefetchNumBatches, collectTrainingStats);
-        return new ParameterAveragingTrainingWorker(broadcast, saveUpdater, configuration, trainingHookList, listeners,
-                        getRouterProvider());
+        return new ParameterAveragingTrainingWorker(broadcast, deltaBroadcast, trainingMasterUID, saveUpdater,
+                        configuration, trainingHookList, listeners, getRouterProvider());
+    }
+
+    /**
+     * In stale synchronous mode, the driver parameters are updated while workers of the previous splits are still
+     * running (and, in local mode, the broadcast value is the array itself): broadcast a snapshot instead, which is
+     * also kept as base to apply the results of this split
+     */
+    protected INDArray broadcastParams(INDArray params) {
+        if (maxStaleness == 0)
+            return params;
+        lastBroadcastParams = params.dup();
+        return lastBroadcastParams;
+    }
+
+    protected INDArray broadcastUpdaterState(INDArray updaterState) {
+        if (maxStaleness == 0 || updaterState == null)
+            return updaterState;
+        lastBroadcastUpdaterState = updaterState.dup();
+        return lastBroadcastUpdaterState;
+    }
+
+    /**
+     * Delta mode: broadcast the averaged delta of the last round, and add it to the deltas since the last full network
+     * broadcast. Executors that have the parameters of a previous round cached only fetch the deltas after it, not the
+     * full network broadcast. The full network is only broadcast again when the parameters were modified other than
+     * by the deltas, or when the deltas since the last full broadcast get larger than the network itself.
+     */
+    protected DeltaBroadcastChain broadcastDelta(JavaSparkContext sc, MultiLayerConfiguration configuration,
+                    ComputationGraphConfiguration graphConfiguration, INDArray params, INDArray updaterState,
+                    int iterationCount, int epochCount) {
+        //Parameters were modified since the last round (or there's no last round): executors need the full network
+        double checksum = params.norm2Number().doubleValue();
+        boolean full = deltaBase == null || checksum != deltaChecksum;
+        if (!full && pendingParamsDelta != null) {
+            DeltaBroadcastTuple delta = new DeltaBroadcastTuple(deltaVersion, pendingParamsDelta, pendingUpdaterDelta);
+            long fullBytes = (params.length() + (updaterState == null ? 0 : updaterState.length()))
+                            * (long) params.data().getElementSize();
+            if (deltaVersion != deltaBaseVersion + deltaChain.size() + 1
+                            || deltaChainBytes + delta.sizeInBytes() > fullBytes) {
+                full = true;
+            } else {
+                log.debug("Broadcasting parameters delta: {} bytes", delta.sizeInBytes());
+                deltaChain.add(sc.broadcast(delta));
+                deltaChainBytes += delta.sizeInBytes();
+            }
+        }
+        pendingParamsDelta = null;
+        pendingUpdaterDelta = null;
+
+        if (full) {
+            //The broadcast is reused for the next rounds, while the network parameters change: broadcast a snapshot
+            deltaVersion++;
+            deltaBase = sc.broadcast(new NetBroadcastTuple(configuration, graphConfiguration, params.dup(),
+                            updaterState == null ? null : updaterState.dup()));
+            deltaBaseVersion = deltaVersion;
+            deltaChain = new ArrayList<>();
+            deltaChainBytes = 0;
+            deltaChecksum = checksum;
+        }
+        return new DeltaBroadcastChain(deltaBaseVersion, new ArrayList<>(deltaChain), iterationCount, epochCount);
+    }
+
+    /**
+     * Delta mode: apply the averaged deltas to the network, exactly as executors will apply the broadcast delta. The
+     * delta is broadcast at the start of the next round, see {@link #broadcastDelta}
+     */
+    protected void applyDelta(INDArray paramsDelta, INDArray updaterStateDelta, INDArray params,
+                    INDArray updaterState) {
+        pendingParamsDelta = QuantizedDelta.quantize(paramsDelta, deltaBlockSize);
+        params.addi(pendingParamsDelta.toArray());
+
+        pendingUpdaterDelta = null;
+        if (updaterStateDelta != null && updaterState != null) {
+            pendingUpdaterDelta = QuantizedDelta.quantize(updaterStateDelta, deltaBlockSize);
+            updaterState.addi(pendingUpdaterDelta.toArray());
+        }
+
+        deltaVersion++;
+        deltaChecksum = params.norm2Number().doubleValue();
+    }
+
+    /**
+     * Delta mode: two level aggregation of the workers deltas. Results are cached where they are computed, then
+     * coalesced: coalescing cached partitions groups them by executor, so the first level sums all deltas of an
+     * executor locally, and only one quantized delta per executor goes through the cluster-wide aggregation tree.
+     * Results are cached with spill to disk: a partition evicted from memory would otherwise be recomputed, i.e.
+     * trained again, and its delta applied on top of the one already computed
+     */
+    protected ParameterAveragingAggregationTuple aggregateDeltas(JavaRDD<ParameterAveragingTrainingResult> results) {
+        int nPartitions = results.partitions().size();
+        if (nPartitions == 0)
+            return ParameterAveragingAggregationTuple.builder().build();
+
+        results.persist(StorageLevel.MEMORY_AND_DISK_SER());
+        try {
+            //Training is executed here
+            results.count();
+
+            //Executor memory status includes the driver, except in local mode
+            int numExecutors = Math.max(1, results.context().getExecutorMemoryStatus().size() - 1);
+            ParameterAveragingAggregationTuple tuple = results.coalesce(Math.min(numExecutors, nPartitions))
+                            .mapPartitions(new DeltaAggregationFlatMap(deltaBlockSize))
+                            .treeReduce(new ParameterAveragingElementCombineFunction(), aggregationDepth);
+            return DeltaAggregationFlatMap.decompress(tuple);
+        } finally {
+            results.unpersist(false);
+        }
     }
 
     protected int numObjectsEachWorker(int numExamplesEachRddObject) {
@@ -354,6 +540,40 @@ public class ParameterAveragingTrainingMaster
         return splits;
     }
 
+    /**
+     * Split the training data paths. With the executor data cache, the splits (and the partitioning of each split)
+     * are computed once, persisted and reused, in a random order, while training on the same paths RDD: each executor
+     * is then given the same paths - already in its cache - every epoch
+     */
+    protected JavaRDD<String>[] getPathSplits(JavaRDD<String> trainingDataPaths, int totalDataSetObjectCount,
+                    int examplesPerDataSetObject) {
+        if (executorCacheBytes <= 0)
+            return getSplitRDDs(trainingDataPaths, totalDataSetObjectCount, examplesPerDataSetObject);
+
+        if (stableSplits == null || stableSplitsRddId != trainingDataPaths.id()) {
+            if (stableSplits != null) {
+                for (JavaRDD<String> split : stableSplits)
+                    split.unpersist();
+            }
+            JavaRDD<String>[] splits =
+                            getSplitRDDs(trainingDataPaths, totalDataSetObjectCount, examplesPerDataSetObject);
+            if (collectTrainingStats)
+                stats.logRepartitionStart();
+            for (int i = 0; i < splits.length; i++) {
+                splits[i] = StablePathPartitioner.repartition(splits[i], numWorkers)
+                                .persist(StorageLevel.MEMORY_ONLY());
+            }
+            if (collectTrainingStats)
+                stats.logRepartitionEnd();
+            stableSplits = splits;
+            stableSplitsRddId = trainingDataPaths.id();
+        }
+
+        JavaRDD<String>[] splits = stableSplits.clone();
+        Collections.shuffle(Arrays.asList(splits), rng);
+        return splits;
+    }
+
     protected void executeTrainingDirect(SparkDl4jMultiLayer network, JavaRDD<DataSet> trainingData) {
         if (collectTrainingStats)
             stats.logFitStart();
@@ -425,11 +645,13 @@ public class ParameterAveragingTrainingMaster
 
         long totalDataSetObjectCount = getTotalDataSetObjectCount(trainingDataPaths);
         JavaRDD<String>[] splits =
-                        getSplitRDDs(trainingDataPaths, (int) totalDataSetObjectCount, dataSetObjectsNumExamples);
+                        getPathSplits(trainingDataPaths, (int) totalDataSetObjectCount, dataSetObjectsNumExamples);
 
-        int splitNum = 1;
-        for (JavaRDD<String> split : splits) {
-            doIterationPaths(network, null, split, splitNum++, splits.length, dataSetObjectsNumExamples);
+        CrossSplitPrefetcher.Plan[] plans =
+                        planPrefetch(network.getSparkContext(), splits, dataSetObjectsNumExamples);
+        for (int i = 0; i < splits.length; i++) {
+            doIterationPaths(network, null, splits[i], plans == null ? null : plans[i], i + 1, splits.length,
+                            dataSetObjectsNumExamples);
         }
 
         if (collectTrainingStats)
@@ -556,11 +778,12 @@ public class ParameterAveragingTrainingMaster
             trainingDataPaths.persist(storageLevelStreams);
         long totalDataSetObjectCount = getTotalDataSetObjectCount(trainingDataPaths);
         JavaRDD<String>[] splits =
-                        getSplitRDDs(trainingDataPaths, (int) totalDataSetObjectCount, rddDataSetNumExamples);
+                        getPathSplits(trainingDataPaths, (int) totalDataSetObjectCount, rddDataSetNumExamples);
 
-        int splitNum = 1;
-        for (JavaRDD<String> split : splits) {
-            doIterationPaths(null, network, split, splitNum++, splits.length, rddDataSetNumExamples);
+        CrossSplitPrefetcher.Plan[] plans = planPrefetch(network.getSparkContext(), splits, rddDataSetNumExamples);
+        for (int i = 0; i < splits.length; i++) {
+            doIterationPaths(null, network, splits[i], plans == null ? null : plans[i], i + 1, splits.length,
+                            rddDataSetNumExamples);
         }
 
         if (collectTrainingStats)
@@ -584,12 +807,14 @@ public class ParameterAveragingTrainingMaster
 
         long totalDataSetObjectCount = getTotalDataSetObjectCount(trainingMultiDataPaths);
 
-        JavaRDD<String>[] splits =
-                        getSplitRDDs(trainingMultiDataPaths, (int) totalDataSetObjectCount, dataSetObjectsNumExamples);
+        JavaRDD<String>[] splits = getPathSplits(trainingMultiDataPaths, (int) totalDataSetObjectCount,
+                        dataSetObjectsNumExamples);
 
-        int splitNum = 1;
-        for (JavaRDD<String> split : splits) {
-            doIterationPathsMDS(network, split, splitNum++, splits.length, dataSetObjectsNumExamples);
+        CrossSplitPrefetcher.Plan[] plans =
+                        planPrefetch(network.getSparkContext(), splits, dataSetObjectsNumExamples);
+        for (int i = 0; i < splits.length; i++) {
+            doIterationPathsMDS(network, splits[i], plans == null ? null : plans[i], i + 1, splits.length,
+                            dataSetObjectsNumExamples);
         }
 
         if (collectTrainingStats)
@@ -688,25 +913,29 @@ public class ParameterAveragingTrainingMaster
 
     protected void doIterationPaths(SparkDl4jMultiLayer network, SparkComputationGraph graph, JavaRDD<String> split,
                     int splitNum, int numSplits, int dataSetObjectNumExamples) {
+        doIterationPaths(network, graph, split, null, splitNum, numSplits, dataSetObjectNumExamples);
+    }
+
+    /**
+     * @param prefetchPlan Cross split prefetching plan of the split, or null. If non-null, the split is already
+     *                     repartitioned (see {@link #planPrefetch(JavaSparkContext, JavaRDD[], int)})
+     */
+    protected void doIterationPaths(SparkDl4jMultiLayer network, SparkComputationGraph graph, JavaRDD<String> split,
+                    CrossSplitPrefetcher.Plan prefetchPlan, int splitNum, int numSplits,
+                    int dataSetObjectNumExamples) {
         log.info("Starting training of split {} of {}. workerMiniBatchSize={}, averagingFreq={}, Configured for {} workers",
                         splitNum, numSplits, batchSizePerWorker, averagingFrequency, numWorkers);
         if (collectTrainingStats)
             stats.logMapPartitionsStart();
 
-        JavaRDD<String> splitData = split;
-        if (collectTrainingStats)
-            stats.logRepartitionStart();
-        splitData = SparkUtils.repartition(splitData, repartition, repartitionStrategy,
-                        numObjectsEachWorker(dataSetObjectNumExamples), numWorkers);
+        JavaRDD<String> splitData = (prefetchPlan != null ? split : repartitionPaths(split, dataSetObjectNumExamples));
         int nPartitions = splitData.partitions().size();
-        if (collectTrainingStats && repartition != Repartition.Never)
-            stats.logRepartitionEnd();
 
         FlatMapFunction<Iterator<String>, ParameterAveragingTrainingResult> function;
         if (network != null)
-            function = new ExecuteWorkerPathFlatMap<>(getWorkerInstance(network));
+            function = new ExecuteWorkerPathFlatMap<>(getWorkerInstance(network), executorCacheBytes, prefetchPlan);
         else
-            function = new ExecuteWorkerPathFlatMap<>(getWorkerInstance(graph));
+            function = new ExecuteWorkerPathFlatMap<>(getWorkerInstance(graph), executorCacheBytes, prefetchPlan);
 
         JavaRDD<ParameterAveragingTrainingResult> result = splitData.mapPartitions(function);
         processResults(network, graph, result, splitNum, numSplits);
@@ -717,23 +946,26 @@ public class ParameterAveragingTrainingMaster
 
     protected void doIterationPathsMDS(SparkComputationGraph graph, JavaRDD<String> split, int splitNum, int numSplits,
                     int dataSetObjectNumExamples) {
+        doIterationPathsMDS(graph, split, null, splitNum, numSplits, dataSetObjectNumExamples);
+    }
+
+    /**
+     * @param prefetchPlan Cross split prefetching plan of the split, or null. If non-null, the split is already
+     *                     repartitioned (see {@link #planPrefetch(JavaSparkContext, JavaRDD[], int)})
+     */
+    protected void doIterationPathsMDS(SparkComputationGraph graph, JavaRDD<String> split,
+                    CrossSplitPrefetcher.Plan prefetchPlan, int splitNum, int numSplits,
+                    int dataSetObjectNumExamples) {
         log.info("Starting training of split {} of {}. workerMiniBatchSize={}, averagingFreq={}, Configured for {} workers",
                         splitNum, numSplits, batchSizePerWorker, averagingFrequency, numWorkers);
         if (collectTrainingStats)
             stats.logMapPartitionsStart();
 
-        JavaRDD<String> splitData = split;
-        if (collectTrainingStats)
-            stats.logRepartitionStart();
-        splitData = SparkUtils.repartition(splitData, repartition, repartitionStrategy,
-                        numObjectsEachWorker(dataSetObjectNumExamples), numWorkers);
+        JavaRDD<String> splitData = (prefetchPlan != null ? split : repartitionPaths(split, dataSetObjectNumExamples));
         int nPartitions = splitData.partitions().size();
-        if (collectTrainingStats && repartition != Repartition.Never)
-            stats.logRepartitionEnd();
-
 
         FlatMapFunction<Iterator<String>, ParameterAveragingTrainingResult> function =
-                        new ExecuteWorkerPathMDSFlatMap<>(getWorkerInstance(graph));
+                        new ExecuteWorkerPathMDSFlatMap<>(getWorkerInstance(graph), executorCacheBytes, prefetchPlan);
 
         JavaRDD<ParameterAveragingTrainingResult> result = splitData.mapPartitions(function);
         processResults(null, graph, result, splitNum, numSplits);
@@ -742,6 +974,61 @@ public class ParameterAveragingTrainingMaster
             stats.logMapPartitionsEnd(nPartitions);
     }
 
+    protected JavaRDD<String> repartitionPaths(JavaRDD<String> split, int dataSetObjectNumExamples) {
+        //With the executor data cache, splits are already partitioned: see getPathSplits
+        if (executorCacheBytes > 0)
+            return split;
+
+        if (collectTrainingStats)
+            stats.logRepartitionStart();
+        JavaRDD<String> splitData = SparkUtils.repartition(split, repartition, repartitionStrategy,
+                        numObjectsEachWorker(dataSetObjectNumExamples), numWorkers);
+        if (collectTrainingStats && repartition != Repartition.Never)
+            stats.logRepartitionEnd();
+        return splitData;
+    }
+
+    /**
+     * Cross split prefetch: repartition and persist all splits now, and get the first paths of each of their
+     * partitions - and the executor holding it - with a single Spark job, so that the workers of each split can
+     * prefetch the first paths of the next split's partitions located on their executor
+     *
+     * @param splits Splits to train on. Replaced by the repartitioned splits
+     * @return Prefetching plan of each split, or null if cross split prefetch is disabled
+     */
+    protected CrossSplitPrefetcher.Plan[] planPrefetch(JavaSparkContext sc, JavaRDD<String>[] splits,
+                    int dataSetObjectNumExamples) {
+        if (!prefetchAcrossSplits)
+            return null;
+
+        //Persisted: computed once for the plan, then used for training. Spark's context cleaner unpersists them
+        for (int i = 0; i < splits.length; i++) {
+            JavaRDD<String> split = repartitionPaths(splits[i], dataSetObjectNumExamples);
+            if (split.getStorageLevel().equals(StorageLevel.NONE()))
+                split = split.persist(StorageLevel.MEMORY_ONLY());
+            splits[i] = split;
+        }
+
+        //Enough objects for the worker's own prefetch queue
+        int numPaths = (int) Math.ceil(Math.max(prefetchNumBatches, 1) * batchSizePerWorker
+                        / (double) dataSetObjectNumExamples);
+        List<List<CrossSplitPrefetcher.FirstPaths>> firstPaths =
+                        CrossSplitPrefetcher.firstPaths(sc, Arrays.asList(splits).subList(1, splits.length),
+                                        Math.max(numPaths, 1));
+
+        CrossSplitPrefetcher.Plan[] plans = new CrossSplitPrefetcher.Plan[splits.length];
+        for (int i = 0; i < splits.length; i++) {
+            String splitId = trainingMasterUID + "_" + splitCount++;
+            if (i + 1 < splits.length) {
+                plans[i] = new CrossSplitPrefetcher.Plan(splitId, trainingMasterUID + "_" + splitCount,
+                                sc.broadcast(firstPaths.get(i)));
+            } else {
+                plans[i] = new CrossSplitPrefetcher.Plan(splitId, null, null);
+            }
+        }
+        return plans;
+    }
+
     protected void doIteration(SparkComputationGraph graph, JavaRDD<MultiDataSet> split, int splitNum, int numSplits) {
         log.info("Starting training of split {} of {}. workerMiniBatchSize={}, averagingFreq={}, Configured for {} workers",
                         splitNum, numSplits, batchSizePerWorker, averagingFrequency, numWorkers);
@@ -792,20 +1079,124 @@ public class ParameterAveragingTrainingMaster
 
     protected void processResults(SparkDl4jMultiLayer network, SparkComputationGraph graph,
                     JavaRDD<ParameterAveragingTrainingResult> results, int splitNum, int totalSplits) {
+        if (maxStaleness > 0) {
+            submitResults(network, graph, results, splitNum, totalSplits);
+            return;
+        }
+
         //Need to do parameter averaging, and where necessary also do averaging of the updaters
         //Let's do all of this in ONE step, such that we don't have extra synchronization costs
 
         if (collectTrainingStats)
             stats.logAggregateStartTime();
-        ParameterAveragingAggregationTuple tuple =
-                        results.treeAggregate(null, new ParameterAveragingElementAddFunction(),
-                                        new ParameterAveragingElementCombineFunction(), this.aggregationDepth);
-        INDArray params = tuple.getParametersSum();
-        int aggCount = tuple.getAggregationsCount();
-        SparkTrainingStats aggregatedStats = tuple.getSparkTrainingStats();
+        ParameterAveragingAggregationTuple tuple = aggregate(results);
         if (collectTrainingStats)
             stats.logAggregationEndTime();
 
+        applyResults(network, graph, tuple, null, null, parametersVersion, splitNum, totalSplits);
+    }
+
+    protected ParameterAveragingAggregationTuple aggregate(JavaRDD<ParameterAveragingTrainingResult> results) {
+        if (deltaAggregation)
+            return aggregateDeltas(results);
+        return results.treeAggregate(null, new ParameterAveragingElementAddFunction(),
+                        new ParameterAveragingElementCombineFunction(), this.aggregationDepth);
+    }
+
+    /**
+     * Stale synchronous mode: the results of the split are aggregated in the background, so the next split starts
+     * training without waiting for the slowest workers of this one. Splits are applied in order, and at most
+     * maxStaleness splits are still pending when a split starts: the parameters a worker starts from miss at most
+     * maxStaleness updates
+     */
+    protected void submitResults(SparkDl4jMultiLayer network, SparkComputationGraph graph,
+                    final JavaRDD<ParameterAveragingTrainingResult> results, int splitNum, int totalSplits) {
+        if (pendingSplits == null)
+            pendingSplits = new ArrayDeque<>();
+        if (aggregationExecutor == null) {
+            aggregationExecutor = Executors.newFixedThreadPool(maxStaleness + 1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = Executors.defaultThreadFactory().newThread(r);
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+
+        Future<ParameterAveragingAggregationTuple> future =
+                        aggregationExecutor.submit(new Callable<ParameterAveragingAggregationTuple>() {
+                            @Override
+                            public ParameterAveragingAggregationTuple call() {
+                                return aggregate(results);
+                            }
+                        });
+        pendingSplits.addLast(new PendingSplit(future, lastBroadcastParams, lastBroadcastUpdaterState,
+                        parametersVersion, splitNum));
+        lastBroadcastParams = null;
+        lastBroadcastUpdaterState = null;
+
+        //Apply all splits that are done, and wait for the oldest ones if the staleness bound would be exceeded.
+        //All pending splits are applied after the last split, so the network is up to date when fit returns
+        boolean lastSplit = splitNum == totalSplits;
+        while (!pendingSplits.isEmpty()) {
+            PendingSplit oldest = pendingSplits.peekFirst();
+            if (!lastSplit && pendingSplits.size() <= maxStaleness && !oldest.getResult().isDone())
+                break;
+
+            pendingSplits.removeFirst();
+            ParameterAveragingAggregationTuple tuple = waitFor(oldest);
+            applyResults(network, graph, tuple, oldest.getBaseParams(), oldest.getBaseUpdaterState(),
+                            oldest.getBaseVersion(), oldest.getSplitNum(), totalSplits);
+        }
+
+        if (lastSplit)
+            shutdownAggregation(false);
+    }
+
+    /**
+     * Stale synchronous mode: stop the background aggregation threads, and forget about pending splits
+     *
+     * @param cancel If true: interrupt the aggregations still running
+     */
+    protected void shutdownAggregation(boolean cancel) {
+        if (aggregationExecutor != null) {
+            if (cancel)
+                aggregationExecutor.shutdownNow();
+            else
+                aggregationExecutor.shutdown();
+            aggregationExecutor = null;
+        }
+        if (pendingSplits != null)
+            pendingSplits.clear();
+        parameterUpdateTimes = null;
+    }
+
+    protected ParameterAveragingAggregationTuple waitFor(PendingSplit split) {
+        //Aggregation time in this mode is the time the driver was blocked, waiting for the split results
+        if (collectTrainingStats)
+            stats.logAggregateStartTime();
+        try {
+            return split.getResult().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            shutdownAggregation(true);
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            shutdownAggregation(true);
+            throw new RuntimeException("Error aggregating results of split " + split.getSplitNum(), e.getCause());
+        } finally {
+            if (collectTrainingStats)
+                stats.logAggregationEndTime();
+        }
+    }
+
+    protected void applyResults(SparkDl4jMultiLayer network, SparkComputationGraph graph,
+                    ParameterAveragingAggregationTuple tuple, INDArray baseParams, INDArray baseUpdaterState,
+                    long baseVersion, int splitNum, int totalSplits) {
+        INDArray params = tuple.getParametersSum();
+        int aggCount = tuple.getAggregationsCount();
+        SparkTrainingStats aggregatedStats = tuple.getSparkTrainingStats();
 
         if (collectTrainingStats)
             stats.logProcessParamsUpdaterStart();
@@ -817,16 +1208,31 @@ public class ParameterAveragingTrainingMaster
 
             if (network != null) {
                 MultiLayerNetwork net = network.getNetwork();
-                net.setParameters(params);
-                if (updaterState != null)
-                    net.getUpdater().setStateViewArray(null, updaterState, false);
+                if (deltaAggregation) {
+                    //In delta mode, params and updater state are the averaged deltas
+                    applyDelta(params, updaterState, net.params(), net.getUpdater().getStateViewArray());
+                } else if (baseParams != null) {
+                    applyStaleResults(params, updaterState, baseParams, baseUpdaterState, net.params(),
+                                    net.getUpdater().getStateViewArray());
+                } else {
+                    net.setParameters(params);
+                    if (updaterState != null)
+                        net.getUpdater().setStateViewArray(null, updaterState, false);
+                }
 
                 network.setScore(tuple.getScoreSum() / tuple.getAggregationsCount());
             } else {
                 ComputationGraph g = graph.getNetwork();
-                g.setParams(params);
-                if (updaterState != null)
-                    g.getUpdater().setStateViewArray(updaterState);
+                if (deltaAggregation) {
+                    applyDelta(params, updaterState, g.params(), g.getUpdater().getStateViewArray());
+                } else if (baseParams != null) {
+                    applyStaleResults(params, updaterState, baseParams, baseUpdaterState, g.params(),
+                                    g.getUpdater().getStateViewArray());
+                } else {
+                    g.setParams(params);
+                    if (updaterState != null)
+                        g.getUpdater().setStateViewArray(updaterState);
+                }
 
                 graph.setScore(tuple.getScoreSum() / tuple.getAggregationsCount());
             }
@@ -834,10 +1240,23 @@ public class ParameterAveragingTrainingMaster
             log.info("Skipping imbalanced split with no data for all executors");
         }
 
+        int staleness = (int) (parametersVersion - baseVersion);
+        //Workers are only known when training stats are collected
+        Collection<EventStats> fitEnds = lastFitEvents(aggregatedStats);
+        Map<String, Integer> workerStaleness = new LinkedHashMap<>();
+        for (EventStats fitEnd : fitEnds)
+            workerStaleness.put(workerId(fitEnd), workerStaleness(fitEnd, baseVersion));
 
+        if (params != null) {
+            parametersVersion++;
+            recordParameterUpdate();
+        }
 
         if (collectTrainingStats) {
             stats.logProcessParamsUpdaterEnd();
+            //Before adding the worker stats: the first ones added are merged with the next ones
+            for (EventStats fitEnd : fitEnds)
+                stats.logWorkerWait(fitEnd, workerStaleness.get(workerId(fitEnd)));
             stats.addWorkerStats(aggregatedStats);
         }
 
@@ -860,7 +1279,13 @@ public class ParameterAveragingTrainingMaster
 
         Nd4j.getExecutioner().commit();
 
-        log.info("Completed training of split {} of {}", splitNum, totalSplits);
+        if (staleness > 0 && !workerStaleness.isEmpty())
+            log.info("Completed training of split {} of {} (staleness: {}, per worker: {})", splitNum, totalSplits,
+                            staleness, workerStaleness);
+        else if (staleness > 0)
+            log.info("Completed training of split {} of {} (staleness: {})", splitNum, totalSplits, staleness);
+        else
+            log.info("Completed training of split {} of {}", splitNum, totalSplits);
 
         if (params != null) {
             //Params may be null for edge case (empty RDD)
@@ -876,6 +1301,89 @@ public class ParameterAveragingTrainingMaster
         }
     }
 
+    /**
+     * Stale synchronous mode: other splits may have been applied since the parameters of the workers were broadcast,
+     * so what the workers changed is added to the current parameters, instead of replacing them
+     */
+    protected void applyStaleResults(INDArray params, INDArray updaterState, INDArray baseParams,
+                    INDArray baseUpdaterState, INDArray netParams, INDArray netUpdaterState) {
+        netParams.addi(params.subi(baseParams));
+        if (updaterState != null && baseUpdaterState != null && netUpdaterState != null)
+            netUpdaterState.addi(updaterState.subi(baseUpdaterState));
+    }
+
+    /**
+     * Stale synchronous mode: record the time at which the current parameter version was applied. Versions older
+     * than the base version of all pending splits are no longer needed
+     */
+    protected void recordParameterUpdate() {
+        if (maxStaleness == 0)
+            return;
+        if (parameterUpdateTimes == null)
+            parameterUpdateTimes = new TreeMap<>();
+        parameterUpdateTimes.put(parametersVersion, System.currentTimeMillis());
+
+        long oldestBase = pendingSplits == null || pendingSplits.isEmpty() ? parametersVersion
+                        : pendingSplits.peekFirst().getBaseVersion();
+        parameterUpdateTimes.headMap(oldestBase, true).clear();
+    }
+
+    /**
+     * Staleness of a worker: number of parameter updates, newer than the parameters the worker trained from, that
+     * were applied on the driver before the worker finished training. Workers of the same split start from the same
+     * parameters, but finish at different times. At most the staleness of the split, and hence at most maxStaleness
+     */
+    protected int workerStaleness(EventStats workerFitEnd, long baseVersion) {
+        if (parameterUpdateTimes == null)
+            return 0;
+        long endTime = workerFitEnd.getStartTime() + workerFitEnd.getDurationMs();
+        int staleness = 0;
+        for (Long updateTime : parameterUpdateTimes.tailMap(baseVersion, false).values()) {
+            if (updateTime <= endTime)
+                staleness++;
+        }
+        return staleness;
+    }
+
+    protected static String workerId(EventStats e) {
+        return e.getMachineID() + "_" + e.getJvmID() + "_" + e.getThreadID();
+    }
+
+    /**
+     * @return Last fit event of each worker thread found in the given (single split) worker stats
+     */
+    protected static Collection<EventStats> lastFitEvents(SparkTrainingStats workerStats) {
+        String key = ParameterAveragingTrainingWorkerStats.PARAMETER_AVERAGING_WORKER_FIT_TIMES_MS;
+        if (workerStats == null || !workerStats.getKeySet().contains(key))
+            return Collections.emptyList();
+        List<EventStats> fitTimes = workerStats.getValue(key);
+        if (fitTimes == null)
+            return Collections.emptyList();
+
+        Map<String, EventStats> last = new LinkedHashMap<>();
+        for (EventStats e : fitTimes) {
+            String worker = workerId(e);
+            EventStats previous = last.get(worker);
+            if (previous == null || previous.getStartTime() + previous.getDurationMs() < e.getStartTime()
+                            + e.getDurationMs())
+                last.put(worker, e);
+        }
+        return last.values();
+    }
+
+    /**
+     * Stale synchronous mode: a split being aggregated in the background, with the parameters its workers started from
+     */
+    @AllArgsConstructor
+    @Getter
+    protected static class PendingSplit {
+        private final Future<ParameterAveragingAggregationTuple> result;
+        private final INDArray baseParams;
+        private final INDArray baseUpdaterState;
+        private final long baseVersion;
+        private final int splitNum;
+    }
+
 
 
     protected StatsStorageRouterProvider getRouterProvider() {
@@ -898,9 +1406,15 @@ public class ParameterAveragingTrainingMaster
         protected StorageLevel storageLevel = StorageLevel.MEMORY_ONLY_SER();
         protected StorageLevel storageLevelStreams = StorageLevel.MEMORY_ONLY();
         protected RDDTrainingApproach rddTrainingApproach = RDDTrainingApproach.Export;
+        protected boolean exportCompression = false;
         protected String exportDirectory = null;
         protected Long rngSeed;
         protected Collection<TrainingHook> trainingHooks;
+        protected boolean deltaAggregation = false;
+        protected int deltaBlockSize = QuantizedDelta.DEFAULT_BLOCK_SIZE;
+        protected int maxStaleness = 0;
+        protected long executorCacheBytes = 0;
+        protected boolean prefetchAcrossSplits = false;
 
 
         /**
@@ -1102,6 +1616,19 @@ public class ParameterAveragingTrainingMaster
             return this;
         }
 
+        /**
+         * When {@link #rddTrainingApproach(RDDTrainingApproach)} is set to {@link RDDTrainingApproach#ExportPacked}:
+         * whether the exported arrays should be LZ4 compressed (default: false). Compression reduces the size of the
+         * exported data, but compressed arrays have to be decompressed (copied) when loaded, instead of being memory
+         * mapped.
+         *
+         * @param exportCompression If true: compress exported arrays
+         */
+        public Builder exportCompression(boolean exportCompression) {
+            this.exportCompression = exportCompression;
+            return this;
+        }
+
         /**
          * When {@link #rddTrainingApproach(RDDTrainingApproach)} is set to {@link RDDTrainingApproach#Export} (as it is by default)
          * the data is exported to a temporary directory first.
@@ -1128,7 +1655,91 @@ public class ParameterAveragingTrainingMaster
             return this;
         }
 
+        /**
+         * Enable delta mode, to reduce driver network I/O with large models (default: disabled).<br>
+         * In delta mode, workers return their parameters (and updater state) delta relative to the broadcast
+         * network. Deltas are summed on each executor first, and each executor sum is quantized to 8 bits per value
+         * before being summed across executors.
+         * Instead of broadcasting the whole network each averaging round, the driver broadcasts only the averaged
+         * delta (also quantized): executors keep the last parameters they've seen, and apply the deltas after it.
+         * The full network is only broadcast again when the deltas since the last full broadcast get larger than the
+         * network, or when the network parameters are modified between rounds.<br>
+         * <b>Note</b>: quantization adds an error of up to 1/254 of the max absolute delta of each block to averaged
+         * values.
+         *
+         * @param deltaAggregation If true: use delta mode
+         */
+        public Builder deltaAggregation(boolean deltaAggregation) {
+            return deltaAggregation(deltaAggregation, QuantizedDelta.DEFAULT_BLOCK_SIZE);
+        }
+
+        /**
+         * Same as {@link #deltaAggregation(boolean)}, with the given quantization block size
+         *
+         * @param deltaAggregation If true: use delta mode
+         * @param blockSize        Number of values sharing the same quantization scale (default: 4096). Smaller
+         *                         blocks mean lower quantization error, and slightly larger deltas
+         */
+        public Builder deltaAggregation(boolean deltaAggregation, int blockSize) {
+            checkArgument(blockSize > 0, "Invalid input: delta block size must be >= 1");
+            this.deltaAggregation = deltaAggregation;
+            this.deltaBlockSize = blockSize;
+            return this;
+        }
+
+        /**
+         * Enable stale synchronous training (default: 0, i.e. disabled: each split is a barrier for all workers).<br>
+         * With a max staleness of N, training of the next split starts as soon as the current one is submitted: the
+         * results of up to N splits are aggregated in the background, and applied on the driver, in order, as they
+         * complete. A slow worker (GC pause, busy node, etc) only stalls training once N splits are waiting for it.
+         * The parameters a worker starts from miss at most N updates; what the worker changed is added to the
+         * current driver parameters.<br>
+         * Per worker staleness and wait time are reported in the training stats. Not compatible with delta mode.
+         *
+         * @param maxStaleness Max number of splits being aggregated when a split starts training
+         */
+        public Builder maxStaleness(int maxStaleness) {
+            checkArgument(maxStaleness >= 0, "Invalid input: max staleness must be >= 0");
+            this.maxStaleness = maxStaleness;
+            return this;
+        }
+
+        /**
+         * Enable the executor data cache, when training from exported data or paths (default: 0, i.e. disabled).<br>
+         * Each executor keeps a local disk copy of the files it trained on (see {@link
+         * org.deeplearning4j.spark.data.ExecutorDataCache}), up to the given total size: least recently used files are
+         * evicted first. To make cache hits likely when training for multiple epochs on the same data, the training
+         * paths are split and partitioned only once (see {@link StablePathPartitioner}): each epoch trains on the same
+         * splits, in a random order, and Spark schedules the same paths on the same executors. Repartitioning
+         * settings are not used for the path splits.
+         *
+         * @param maxBytes Max total size of the cached files per executor, in bytes (0 to disable)
+         */
+        public Builder executorCache(long maxBytes) {
+            checkArgument(maxBytes >= 0, "Invalid input: executor cache size must be >= 0");
+            this.executorCacheBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * Enable prefetching across splits, when training from exported data or paths (default: false).<br>
+         * Without it, each split (averaging period) starts with an empty prefetch pipeline: workers are idle while
+         * their first minibatches are loaded. With it, the next split is repartitioned before the current one is
+         * trained, and each worker starts loading the first minibatches of the same partition of the next split once
+         * it has requested its own last minibatch (see {@link CrossSplitPrefetcher}). Prefetching is best effort: the
+         * loaded minibatches are only used if the partition is executed on the same executor.<br>
+         * Workers wait times are reported in the training stats ("IteratorWait")
+         *
+         * @param prefetchAcrossSplits If true: prefetch the first minibatches of the next split
+         */
+        public Builder prefetchAcrossSplits(boolean prefetchAcrossSplits) {
+            this.prefetchAcrossSplits = prefetchAcrossSplits;
+            return this;
+        }
+
         public ParameterAveragingTrainingMaster build() {
+            checkArgument(maxStaleness == 0 || !deltaAggregation,
+                            "Invalid configuration: stale synchronous training can't be used with delta mode");
             return new ParameterAveragingTrainingMaster(this);
         }
     }
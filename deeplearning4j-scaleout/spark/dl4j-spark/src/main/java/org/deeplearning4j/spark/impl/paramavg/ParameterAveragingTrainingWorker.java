@@ -19,6 +19,8 @@ import org.deeplearning4j.spark.api.WorkerConfiguration;
 import org.deeplearning4j.spark.api.stats.SparkTrainingStats;
 import org.deeplearning4j.spark.api.worker.NetBroadcastTuple;
 import org.deeplearning4j.spark.impl.listeners.VanillaStatsStorageRouter;
+import org.deeplearning4j.spark.impl.paramavg.delta.DeltaBroadcastChain;
+import org.deeplearning4j.spark.impl.paramavg.delta.DeltaParameterCache;
 import org.deeplearning4j.spark.impl.paramavg.stats.ParameterAveragingTrainingWorkerStats;
 import org.deeplearning4j.util.UIDProvider;
 import org.nd4j.linalg.api.ndarray.INDArray;
@@ -48,11 +50,31 @@ public class ParameterAveragingTrainingWorker extends BaseTrainingWorker<Paramet
     private Collection<IterationListener> iterationListeners;
     private StatsStorageRouterProvider listenerRouterProvider;
 
+    //Delta mode only: parameters are obtained through the executor cache, and results are deltas relative to them
+    private final DeltaBroadcastChain deltaBroadcast;
+    private final String deltaCacheKey;
+    private INDArray baseParameters;
+    private INDArray baseUpdaterState;
+
     public ParameterAveragingTrainingWorker(Broadcast<NetBroadcastTuple> broadcast, boolean saveUpdater,
                     WorkerConfiguration configuration, Collection<TrainingHook> trainingHooks,
                     Collection<IterationListener> listeners, StatsStorageRouterProvider routerProvider) {
+        this(broadcast, null, null, saveUpdater, configuration, trainingHooks, listeners, routerProvider);
+    }
+
+    /**
+     * @param broadcast      Full network broadcast
+     * @param deltaBroadcast Delta broadcasts since the full network broadcast, or null to disable delta mode
+     * @param deltaCacheKey  Key of the executor side parameters cache (unique ID of the training master)
+     */
+    public ParameterAveragingTrainingWorker(Broadcast<NetBroadcastTuple> broadcast,
+                    DeltaBroadcastChain deltaBroadcast, String deltaCacheKey, boolean saveUpdater,
+                    WorkerConfiguration configuration, Collection<TrainingHook> trainingHooks,
+                    Collection<IterationListener> listeners, StatsStorageRouterProvider routerProvider) {
 
         this.broadcast = broadcast;
+        this.deltaBroadcast = deltaBroadcast;
+        this.deltaCacheKey = deltaCacheKey;
         this.saveUpdater = saveUpdater;
         this.configuration = configuration;
         this.trainingHooks = trainingHooks;
@@ -92,7 +114,7 @@ public class ParameterAveragingTrainingWorker extends BaseTrainingWorker<Paramet
 
         if (configuration.isCollectTrainingStats())
             stats.logBroadcastGetValueStart();
-        NetBroadcastTuple tuple = broadcast.getValue();
+        NetBroadcastTuple tuple = getBroadcastTuple();
         if (configuration.isCollectTrainingStats())
             stats.logBroadcastGetValueEnd();
 
@@ -122,7 +144,7 @@ public class ParameterAveragingTrainingWorker extends BaseTrainingWorker<Paramet
 
         if (configuration.isCollectTrainingStats())
             stats.logBroadcastGetValueStart();
-        NetBroadcastTuple tuple = broadcast.getValue();
+        NetBroadcastTuple tuple = getBroadcastTuple();
         if (configuration.isCollectTrainingStats())
             stats.logBroadcastGetValueEnd();
 
@@ -145,6 +167,30 @@ public class ParameterAveragingTrainingWorker extends BaseTrainingWorker<Paramet
         return net;
     }
 
+    private NetBroadcastTuple getBroadcastTuple() {
+        if (deltaBroadcast == null)
+            return broadcast.getValue();
+
+        NetBroadcastTuple tuple = DeltaParameterCache.get(deltaCacheKey, broadcast, deltaBroadcast);
+        baseParameters = tuple.getParameters();
+        baseUpdaterState = tuple.getUpdaterState();
+        return tuple;
+    }
+
+    private ParameterAveragingTrainingResult toResult(INDArray params, INDArray updaterState, double score,
+                    Collection<StorageMetaData> storageMetaData, Collection<Persistable> listenerStaticInfo,
+                    Collection<Persistable> listenerUpdates) {
+        if (deltaBroadcast == null)
+            return new ParameterAveragingTrainingResult(params, updaterState, score, storageMetaData,
+                            listenerStaticInfo, listenerUpdates);
+
+        //Deltas are summed in full precision on the executor, and only the sum is quantized
+        INDArray updaterStateDelta = updaterState == null || baseUpdaterState == null ? null
+                        : updaterState.sub(baseUpdaterState);
+        return new ParameterAveragingTrainingResult(params.sub(baseParameters), updaterStateDelta, score,
+                        storageMetaData, listenerStaticInfo, listenerUpdates);
+    }
+
     private void configureListeners(Model m, int counter) {
         if (iterationListeners != null) {
             List<IterationListener> list = new ArrayList<>(iterationListeners.size());
@@ -286,8 +332,8 @@ public class ParameterAveragingTrainingWorker extends BaseTrainingWorker<Paramet
                 listenerUpdates = ssr.getUpdates();
             }
         }
-        return new ParameterAveragingTrainingResult(network.params(), updaterState, network.score(), storageMetaData,
-                        listenerStaticInfo, listenerUpdates);
+        return toResult(network.params(), updaterState, network.score(), storageMetaData, listenerStaticInfo,
+                        listenerUpdates);
     }
 
     @Override
@@ -314,8 +360,8 @@ public class ParameterAveragingTrainingWorker extends BaseTrainingWorker<Paramet
             }
         }
 
-        return new ParameterAveragingTrainingResult(network.params(), updaterState, network.score(), storageMetaData,
-                        listenerStaticInfo, listenerUpdates);
+        return toResult(network.params(), updaterState, network.score(), storageMetaData, listenerStaticInfo,
+                        listenerUpdates);
     }
 
     @Override
@@ -6,6 +6,7 @@ import lombok.Data;
 import org.deeplearning4j.api.storage.Persistable;
 import org.deeplearning4j.api.storage.StorageMetaData;
 import org.deeplearning4j.spark.api.stats.SparkTrainingStats;
+import org.deeplearning4j.spark.impl.paramavg.delta.QuantizedDelta;
 import org.nd4j.linalg.api.ndarray.INDArray;
 
 import java.io.Serializable;
@@ -28,4 +29,10 @@ public class ParameterAveragingAggregationTuple implements Serializable {
     private final Collection<StorageMetaData> listenerMetaData;
     private final Collection<Persistable> listenerStaticInfo;
     private final Collection<Persistable> listenerUpdates;
+    /**
+     * Delta mode only: quantized sum of the parameters deltas of one executor, used instead of parametersSum when
+     * sending executor sums over the network. Sums of executor sums are not quantized
+     */
+    private final QuantizedDelta parametersDeltaSum;
+    private final QuantizedDelta updaterStateDeltaSum;
 }
@@ -81,6 +81,7 @@ public class ParameterAveragingElementAddFunction implements
 
 
         return new ParameterAveragingAggregationTuple(params, updaterStateSum, scoreSum,
-                        tuple.getAggregationsCount() + 1, stats, listenerMetaData, listenerStaticInfo, listenerUpdates);
+                        tuple.getAggregationsCount() + 1, stats, listenerMetaData, listenerStaticInfo, listenerUpdates,
+                        null, null);
     }
 }
@@ -4,6 +4,7 @@ import org.apache.spark.api.java.function.Function2;
 import org.deeplearning4j.api.storage.Persistable;
 import org.deeplearning4j.api.storage.StorageMetaData;
 import org.deeplearning4j.spark.api.stats.SparkTrainingStats;
+import org.deeplearning4j.spark.impl.paramavg.delta.DeltaAggregationFlatMap;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 
@@ -25,11 +26,16 @@ public class ParameterAveragingElementCombineFunction implements
             return v1;
 
         //Handle edge case of less data than executors: in this case, one (or both) of v1 and v2 might not have any contents...
-        if (v1.getParametersSum() == null)
+        if (v1.getParametersSum() == null && v1.getParametersDeltaSum() == null)
             return v2;
-        else if (v2.getParametersSum() == null)
+        else if (v2.getParametersSum() == null && v2.getParametersDeltaSum() == null)
             return v1;
 
+        //Delta mode: the executor partial sums are quantized. They are summed in full precision from here on:
+        // quantizing again at each aggregation level would add the quantization error once per level
+        v1 = DeltaAggregationFlatMap.decompress(v1);
+        v2 = DeltaAggregationFlatMap.decompress(v2);
+
         INDArray newParams = v1.getParametersSum().addi(v2.getParametersSum());
         INDArray updaterStateSum;
         if (v1.getUpdaterStateSum() == null) {
@@ -82,6 +88,6 @@ public class ParameterAveragingElementCombineFunction implements
         }
 
         return new ParameterAveragingAggregationTuple(newParams, updaterStateSum, scoreSum, aggregationCount, stats,
-                        listenerMetaData, listenerStaticInfo, listenerUpdates);
+                        listenerMetaData, listenerStaticInfo, listenerUpdates, null, null);
     }
 }
@@ -0,0 +1,92 @@
+package org.deeplearning4j.spark.impl.paramavg.delta;
+
+import org.datavec.spark.functions.FlatMapFunctionAdapter;
+import org.datavec.spark.transform.BaseFlatMapFunctionAdaptee;
+import org.deeplearning4j.spark.impl.paramavg.ParameterAveragingTrainingResult;
+import org.deeplearning4j.spark.impl.paramavg.aggregator.ParameterAveragingAggregationTuple;
+import org.deeplearning4j.spark.impl.paramavg.aggregator.ParameterAveragingElementAddFunction;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * First level of the aggregation in delta mode: sums all the worker deltas of a partition (i.e. all results
+ * computed on one executor, once cached results are coalesced) in full precision, and returns a single tuple holding
+ * the quantized sums, so only one compressed delta per executor goes through the cluster-wide aggregation. This is
+ * the only quantization of the workers deltas: the next aggregation levels sum in full precision
+ */
+public class DeltaAggregationFlatMap
+                extends BaseFlatMapFunctionAdaptee<Iterator<ParameterAveragingTrainingResult>, ParameterAveragingAggregationTuple> {
+
+    public DeltaAggregationFlatMap(int blockSize) {
+        super(new DeltaAggregationFlatMapAdapter(blockSize));
+    }
+
+    /**
+     * Replace the dense sums of the given tuple with quantized ones
+     */
+    public static ParameterAveragingAggregationTuple compress(ParameterAveragingAggregationTuple tuple, int blockSize) {
+        if (tuple.getParametersSum() == null)
+            return tuple;
+        return toBuilder(tuple).parametersSum(null).updaterStateSum(null)
+                        .parametersDeltaSum(QuantizedDelta.quantize(tuple.getParametersSum(), blockSize))
+                        .updaterStateDeltaSum(tuple.getUpdaterStateSum() == null ? null
+                                        : QuantizedDelta.quantize(tuple.getUpdaterStateSum(), blockSize))
+                        .build();
+    }
+
+    /**
+     * Replace the quantized sums of the given tuple with dense ones
+     */
+    public static ParameterAveragingAggregationTuple decompress(ParameterAveragingAggregationTuple tuple) {
+        if (tuple.getParametersDeltaSum() == null)
+            return tuple;
+        return toBuilder(tuple).parametersDeltaSum(null).updaterStateDeltaSum(null)
+                        .parametersSum(tuple.getParametersDeltaSum().toArray())
+                        .updaterStateSum(tuple.getUpdaterStateDeltaSum() == null ? null
+                                        : tuple.getUpdaterStateDeltaSum().toArray())
+                        .build();
+    }
+
+    private static ParameterAveragingAggregationTuple.ParameterAveragingAggregationTupleBuilder toBuilder(
+                    ParameterAveragingAggregationTuple tuple) {
+        return ParameterAveragingAggregationTuple.builder().parametersSum(tuple.getParametersSum())
+                        .updaterStateSum(tuple.getUpdaterStateSum()).scoreSum(tuple.getScoreSum())
+                        .aggregationsCount(tuple.getAggregationsCount())
+                        .sparkTrainingStats(tuple.getSparkTrainingStats())
+                        .listenerMetaData(tuple.getListenerMetaData())
+                        .listenerStaticInfo(tuple.getListenerStaticInfo())
+                        .listenerUpdates(tuple.getListenerUpdates())
+                        .parametersDeltaSum(tuple.getParametersDeltaSum())
+                        .updaterStateDeltaSum(tuple.getUpdaterStateDeltaSum());
+    }
+}
+
+
+class DeltaAggregationFlatMapAdapter
+                implements FlatMapFunctionAdapter<Iterator<ParameterAveragingTrainingResult>, ParameterAveragingAggregationTuple> {
+
+    private final int blockSize;
+
+    public DeltaAggregationFlatMapAdapter(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public Iterable<ParameterAveragingAggregationTuple> call(Iterator<ParameterAveragingTrainingResult> results)
+                    throws Exception {
+        ParameterAveragingElementAddFunction addFunction = new ParameterAveragingElementAddFunction();
+        ParameterAveragingAggregationTuple tuple = null;
+        while (results.hasNext()) {
+            ParameterAveragingTrainingResult result = results.next();
+            //Skip results of partitions without data
+            if (result.getParameters() == null)
+                continue;
+            tuple = addFunction.call(tuple, result);
+        }
+
+        if (tuple == null)
+            return Collections.singletonList(ParameterAveragingAggregationTuple.builder().build());
+        return Collections.singletonList(DeltaAggregationFlatMap.compress(tuple, blockSize));
+    }
+}
@@ -0,0 +1,36 @@
+package org.deeplearning4j.spark.impl.paramavg.delta;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.apache.spark.broadcast.Broadcast;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Sent to the workers by ParameterAveragingTrainingMaster in delta mode: the deltas broadcast since the last full
+ * network broadcast, one broadcast per round. Delta i leads to version {@code baseVersion + i + 1}, so executors
+ * holding a version of the parameters only fetch the deltas after it, and the full network broadcast is only
+ * fetched by executors without any version since the last full broadcast. See {@link DeltaParameterCache}
+ */
+@Data
+@AllArgsConstructor
+public class DeltaBroadcastChain implements Serializable {
+    /**
+     * Version of the parameters of the full network broadcast
+     */
+    private final long baseVersion;
+    /**
+     * Delta broadcasts for versions baseVersion + 1 to baseVersion + deltas.size(), in order
+     */
+    private final List<Broadcast<DeltaBroadcastTuple>> deltas;
+    private final int iterationCount;
+    private final int epochCount;
+
+    /**
+     * @return Version of the parameters for the current round
+     */
+    public long getVersion() {
+        return baseVersion + deltas.size();
+    }
+}
@@ -0,0 +1,35 @@
+package org.deeplearning4j.spark.impl.paramavg.delta;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * Broadcast used by ParameterAveragingTrainingMaster in delta mode, instead of re-broadcasting the whole network:
+ * executors holding the previous version of the parameters build the next version by applying the delta.
+ * See {@link DeltaBroadcastChain} and {@link DeltaParameterCache}
+ */
+@Data
+@AllArgsConstructor
+public class DeltaBroadcastTuple implements Serializable {
+    /**
+     * Version of the parameters after applying this delta
+     */
+    private final long version;
+    /**
+     * Averaged parameters delta to apply to version - 1
+     */
+    private final QuantizedDelta parameters;
+    /**
+     * Averaged updater state delta to apply to version - 1. May be null if the updater state didn't change
+     */
+    private final QuantizedDelta updaterState;
+
+    /**
+     * @return Size of the quantized deltas, in bytes
+     */
+    public long sizeInBytes() {
+        return parameters.sizeInBytes() + (updaterState == null ? 0 : updaterState.sizeInBytes());
+    }
+}
@@ -0,0 +1,119 @@
+package org.deeplearning4j.spark.impl.paramavg.delta;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.broadcast.Broadcast;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.spark.api.worker.NetBroadcastTuple;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor side cache of the network parameters, used by ParameterAveragingTrainingMaster in delta mode.<br>
+ * Each executor keeps the last version of the parameters it has seen. When a later version is requested, the (small)
+ * {@link DeltaBroadcastTuple}s after the cached version are enough to build it, and the full parameters broadcast is
+ * never fetched. The full broadcast is only fetched by executors without any version since the last full broadcast,
+ * i.e. executors joining the training late, or after the driver sent the full network again.
+ * <br>
+ * Cached arrays are never modified in place, so workers can use them as base to compute their own delta.
+ */
+@Slf4j
+public class DeltaParameterCache {
+    // one entry per training master: more than a couple of concurrent training sessions per JVM isn't expected
+    private static final int MAX_ENTRIES = 4;
+
+    private static final Map<String, Entry> CACHE = new LinkedHashMap<String, Entry>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private DeltaParameterCache() {}
+
+    /**
+     * Get the network configuration and parameters for the current version of the given delta chain
+     *
+     * @param key           Unique ID of the training master
+     * @param fullBroadcast Broadcast of the full network (version chain.getBaseVersion()), only used if no version
+     *                      of the chain is cached
+     * @param chain         Deltas since the full broadcast
+     * @return Network configuration and parameters. Parameters and updater state must not be modified
+     */
+    public static NetBroadcastTuple get(@NonNull String key, @NonNull Broadcast<NetBroadcastTuple> fullBroadcast,
+                    @NonNull DeltaBroadcastChain chain) {
+        synchronized (CACHE) {
+            Entry entry = CACHE.get(key);
+            long version = chain.getVersion();
+            if (entry == null || entry.version != version) {
+                if (entry == null || entry.version < chain.getBaseVersion() || entry.version > version) {
+                    log.debug("No parameters version since {} is cached, using full broadcast",
+                                    chain.getBaseVersion());
+                    entry = new Entry(chain.getBaseVersion(), fullBroadcast.getValue());
+                }
+                // only the deltas after the cached version are fetched
+                while (entry.version < version) {
+                    int i = (int) (entry.version - chain.getBaseVersion());
+                    DeltaBroadcastTuple delta = chain.getDeltas().get(i).getValue();
+                    if (delta.getVersion() != entry.version + 1)
+                        throw new IllegalStateException("Invalid delta chain: expected version " + (entry.version + 1)
+                                        + ", got " + delta.getVersion());
+                    entry = entry.apply(delta);
+                }
+                CACHE.put(key, entry);
+            }
+
+            // iteration and epoch counts are used for learning rate schedules
+            if (entry.configuration != null) {
+                entry.configuration.setIterationCount(chain.getIterationCount());
+                entry.configuration.setEpochCount(chain.getEpochCount());
+            } else {
+                entry.graphConfiguration.setIterationCount(chain.getIterationCount());
+                entry.graphConfiguration.setEpochCount(chain.getEpochCount());
+            }
+
+            return new NetBroadcastTuple(entry.configuration, entry.graphConfiguration, entry.parameters,
+                            entry.updaterState, entry.counter);
+        }
+    }
+
+    private static class Entry {
+        private final long version;
+        private final MultiLayerConfiguration configuration;
+        private final ComputationGraphConfiguration graphConfiguration;
+        private final INDArray parameters;
+        private final INDArray updaterState;
+        private final AtomicInteger counter;
+
+        private Entry(long version, NetBroadcastTuple tuple) {
+            // in local mode the broadcast value may be the network of the driver itself, so we keep our own copy
+            this(version, tuple.getConfiguration(), tuple.getGraphConfiguration(), tuple.getParameters().dup(),
+                            tuple.getUpdaterState() == null ? null : tuple.getUpdaterState().dup(),
+                            tuple.getCounter());
+        }
+
+        private Entry(long version, MultiLayerConfiguration configuration,
+                        ComputationGraphConfiguration graphConfiguration, INDArray parameters, INDArray updaterState,
+                        AtomicInteger counter) {
+            this.version = version;
+            this.configuration = configuration;
+            this.graphConfiguration = graphConfiguration;
+            this.parameters = parameters;
+            this.updaterState = updaterState;
+            this.counter = counter;
+        }
+
+        private Entry apply(DeltaBroadcastTuple delta) {
+            INDArray newParameters = parameters.add(delta.getParameters().toArray());
+            INDArray newUpdaterState = updaterState;
+            if (updaterState != null && delta.getUpdaterState() != null)
+                newUpdaterState = updaterState.add(delta.getUpdaterState().toArray());
+            return new Entry(delta.getVersion(), configuration, graphConfiguration, newParameters, newUpdaterState,
+                            counter);
+        }
+    }
+}
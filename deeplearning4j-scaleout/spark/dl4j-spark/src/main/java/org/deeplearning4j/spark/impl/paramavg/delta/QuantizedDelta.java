@@ -0,0 +1,87 @@
+package org.deeplearning4j.spark.impl.paramavg.delta;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.Serializable;
+
+/**
+ * Parameters (or updater state) delta, quantized to 8 bits per value.<br>
+ * Values are split into blocks of {@link #getBlockSize()} values; each block is stored as one float scale (max abs
+ * value of the block / 127) plus one signed byte per value, so a quantized delta is about 4 times smaller than the
+ * same delta as floats. The quantization error of each value is at most half of the scale of its block.
+ */
+@Getter
+public class QuantizedDelta implements Serializable {
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+    private static final int MAX_LEVEL = 127;
+
+    private final int length;
+    private final int blockSize;
+    private final float[] scales;
+    private final byte[] values;
+
+    private QuantizedDelta(int length, int blockSize, float[] scales, byte[] values) {
+        this.length = length;
+        this.blockSize = blockSize;
+        this.scales = scales;
+        this.values = values;
+    }
+
+    /**
+     * Quantize the given delta
+     *
+     * @param delta     Delta to quantize (row vector)
+     * @param blockSize Number of values sharing the same scale
+     * @return Quantized delta
+     */
+    public static QuantizedDelta quantize(@NonNull INDArray delta, int blockSize) {
+        if (blockSize < 1)
+            throw new IllegalArgumentException("Block size must be positive, got " + blockSize);
+
+        int length = delta.length();
+        float[] data = delta.dup().data().asFloat();
+        int numBlocks = (length + blockSize - 1) / blockSize;
+        float[] scales = new float[numBlocks];
+        byte[] values = new byte[length];
+
+        for (int b = 0; b < numBlocks; b++) {
+            int from = b * blockSize;
+            int to = Math.min(length, from + blockSize);
+
+            float max = 0.0f;
+            for (int i = from; i < to; i++)
+                max = Math.max(max, Math.abs(data[i]));
+            if (max == 0.0f)
+                continue;
+
+            float scale = max / MAX_LEVEL;
+            scales[b] = scale;
+            for (int i = from; i < to; i++) {
+                int level = Math.round(data[i] / scale);
+                values[i] = (byte) Math.max(-MAX_LEVEL, Math.min(MAX_LEVEL, level));
+            }
+        }
+
+        return new QuantizedDelta(length, blockSize, scales, values);
+    }
+
+    /**
+     * @return Dequantized delta, as a row vector
+     */
+    public INDArray toArray() {
+        float[] data = new float[length];
+        for (int i = 0; i < length; i++)
+            data[i] = values[i] * scales[i / blockSize];
+        return Nd4j.create(data, new int[] {1, length});
+    }
+
+    /**
+     * @return Size of the quantized values and scales, in bytes
+     */
+    public long sizeInBytes() {
+        return values.length + 4L * scales.length;
+    }
+}
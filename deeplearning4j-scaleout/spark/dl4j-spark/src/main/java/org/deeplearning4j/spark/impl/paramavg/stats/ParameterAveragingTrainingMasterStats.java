@@ -30,6 +30,7 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
     public static final String FILENAME_AGGREGATE_TIME = "parameterAveragingMasterAggregateTimesMs.txt";
     public static final String FILENAME_PROCESS_PARAMS_TIME = "parameterAveragingMasterProcessParamsUpdaterTimesMs.txt";
     public static final String FILENAME_REPARTITION_STATS = "parameterAveragingMasterRepartitionTimesMs.txt";
+    public static final String FILENAME_WORKER_WAIT_TIME = "parameterAveragingMasterWorkerWaitTimesMs.txt";
 
     public static final String PARAMETER_AVERAGING_MASTER_EXPORT_RDD_TIMES_MS = "parameterAveragingMasterExportTimesMs";
     public static final String PARAMETER_AVERAGING_MASTER_COUNT_RDD_TIMES_MS =
@@ -46,6 +47,8 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
                     "ParameterAveragingMasterProcessParamsUpdaterTimesMs";
     public static final String PARAMETER_AVERAGING_MASTER_REPARTITION_TIMES_MS =
                     "ParameterAveragingMasterRepartitionTimesMs";
+    public static final String PARAMETER_AVERAGING_MASTER_WORKER_WAIT_TIMES_MS =
+                    "ParameterAveragingMasterWorkerWaitTimesMs";
 
     private static Set<String> columnNames = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
                     PARAMETER_AVERAGING_MASTER_EXPORT_RDD_TIMES_MS, PARAMETER_AVERAGING_MASTER_COUNT_RDD_TIMES_MS,
@@ -53,7 +56,8 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
                     PARAMETER_AVERAGING_MASTER_SPLIT_TIMES_MS, PARAMETER_AVERAGING_MASTER_MAP_PARTITIONS_TIMES_MS,
                     PARAMETER_AVERAGING_MASTER_AGGREGATE_TIMES_MS,
                     PARAMETER_AVERAGING_MASTER_PROCESS_PARAMS_UPDATER_TIMES_MS,
-                    PARAMETER_AVERAGING_MASTER_REPARTITION_TIMES_MS)));
+                    PARAMETER_AVERAGING_MASTER_REPARTITION_TIMES_MS,
+                    PARAMETER_AVERAGING_MASTER_WORKER_WAIT_TIMES_MS)));
 
     private SparkTrainingStats workerStats;
     private List<EventStats> parameterAveragingMasterExportTimesMs;
@@ -65,6 +69,12 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
     private List<EventStats> paramaterAveragingMasterAggregateTimesMs;
     private List<EventStats> parameterAveragingMasterProcessParamsUpdaterTimesMs;
     private List<EventStats> parameterAveragingMasterRepartitionTimesMs;
+    /**
+     * One {@link StalenessEventStats} per worker and split: time between the end of the worker training and its
+     * averaged parameters being applied on the driver, and staleness of the worker (see
+     * {@link org.deeplearning4j.spark.impl.paramavg.ParameterAveragingTrainingMaster#workerStaleness})
+     */
+    private List<EventStats> parameterAveragingMasterWorkerWaitTimesMs;
 
 
     public ParameterAveragingTrainingMasterStats(SparkTrainingStats workerStats,
@@ -76,7 +86,8 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
                     List<EventStats> parameterAveragingMasterMapPartitionsTimesMs,
                     List<EventStats> parameterAveragingMasterAggregateTimesMs,
                     List<EventStats> parameterAveragingMasterProcessParamsUpdaterTimesMs,
-                    List<EventStats> parameterAveragingMasterRepartitionTimesMs) {
+                    List<EventStats> parameterAveragingMasterRepartitionTimesMs,
+                    List<EventStats> parameterAveragingMasterWorkerWaitTimesMs) {
         this.workerStats = workerStats;
         this.parameterAveragingMasterExportTimesMs = parameterAveragingMasterExportTimesMs;
         this.parameterAveragingMasterCountRddSizeTimesMs = parameterAveragingMasterCountRddSizeTimesMs;
@@ -87,6 +98,7 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
         this.paramaterAveragingMasterAggregateTimesMs = parameterAveragingMasterAggregateTimesMs;
         this.parameterAveragingMasterProcessParamsUpdaterTimesMs = parameterAveragingMasterProcessParamsUpdaterTimesMs;
         this.parameterAveragingMasterRepartitionTimesMs = parameterAveragingMasterRepartitionTimesMs;
+        this.parameterAveragingMasterWorkerWaitTimesMs = parameterAveragingMasterWorkerWaitTimesMs;
     }
 
 
@@ -119,6 +131,8 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
                 return parameterAveragingMasterProcessParamsUpdaterTimesMs;
             case PARAMETER_AVERAGING_MASTER_REPARTITION_TIMES_MS:
                 return parameterAveragingMasterRepartitionTimesMs;
+            case PARAMETER_AVERAGING_MASTER_WORKER_WAIT_TIMES_MS:
+                return parameterAveragingMasterWorkerWaitTimesMs;
             default:
                 if (workerStats != null)
                     return workerStats.getValue(key);
@@ -147,6 +161,8 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
                 return "ProcessParams";
             case PARAMETER_AVERAGING_MASTER_REPARTITION_TIMES_MS:
                 return "Repartition";
+            case PARAMETER_AVERAGING_MASTER_WORKER_WAIT_TIMES_MS:
+                return "WorkerWait";
             default:
                 if (workerStats != null)
                     return workerStats.getShortNameForKey(key);
@@ -167,6 +183,7 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
             case PARAMETER_AVERAGING_MASTER_AGGREGATE_TIMES_MS:
             case PARAMETER_AVERAGING_MASTER_PROCESS_PARAMS_UPDATER_TIMES_MS:
             case PARAMETER_AVERAGING_MASTER_REPARTITION_TIMES_MS:
+            case PARAMETER_AVERAGING_MASTER_WORKER_WAIT_TIMES_MS:
                 return true;
             default:
                 if (workerStats != null)
@@ -203,6 +220,13 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
             if (o.parameterAveragingMasterRepartitionTimesMs != null)
                 parameterAveragingMasterRepartitionTimesMs.addAll(o.parameterAveragingMasterRepartitionTimesMs);
         }
+        if (parameterAveragingMasterWorkerWaitTimesMs == null) {
+            if (o.parameterAveragingMasterWorkerWaitTimesMs != null)
+                parameterAveragingMasterWorkerWaitTimesMs = o.parameterAveragingMasterWorkerWaitTimesMs;
+        } else {
+            if (o.parameterAveragingMasterWorkerWaitTimesMs != null)
+                parameterAveragingMasterWorkerWaitTimesMs.addAll(o.parameterAveragingMasterWorkerWaitTimesMs);
+        }
     }
 
     @Override
@@ -270,6 +294,12 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
             sb.append(StatsUtils.getDurationAsString(parameterAveragingMasterProcessParamsUpdaterTimesMs, ","))
                             .append("\n");
 
+        sb.append(String.format(f, PARAMETER_AVERAGING_MASTER_WORKER_WAIT_TIMES_MS));
+        if (parameterAveragingMasterWorkerWaitTimesMs == null)
+            sb.append("-\n");
+        else
+            sb.append(StatsUtils.getDurationAsString(parameterAveragingMasterWorkerWaitTimesMs, ",")).append("\n");
+
         if (workerStats != null)
             sb.append(workerStats.statsAsString());
 
@@ -322,6 +352,12 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
             StatsUtils.exportStats(parameterAveragingMasterRepartitionTimesMs, repartitionPath, d, sc);
         }
 
+        //Worker wait times and staleness
+        if (parameterAveragingMasterWorkerWaitTimesMs != null) {
+            String workerWaitPath = FilenameUtils.concat(outputPath, FILENAME_WORKER_WAIT_TIME);
+            StatsUtils.exportStats(parameterAveragingMasterWorkerWaitTimesMs, workerWaitPath, d, sc);
+        }
+
         if (workerStats != null)
             workerStats.exportStatFiles(outputPath, sc);
     }
@@ -349,6 +385,7 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
         private List<EventStats> mapPartitions = new ArrayList<>();
         private List<EventStats> aggregateTimes = new ArrayList<>();
         private List<EventStats> processParamsUpdaterTimes = new ArrayList<>();
+        private List<EventStats> workerWaitTimes = new ArrayList<>();
 
         private final TimeSource timeSource = TimeSourceProvider.getInstance();
 
@@ -438,6 +475,19 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
                             now - lastProcessParamsUpdaterStartTime));
         }
 
+        /**
+         * Log the wait time of one worker: from the end of its training to the averaged parameters being applied
+         *
+         * @param workerFitEnd Last fit event of the worker (identifies the worker)
+         * @param staleness    Number of parameter updates applied since the worker parameters were broadcast
+         */
+        public void logWorkerWait(EventStats workerFitEnd, int staleness) {
+            long now = timeSource.currentTimeMillis();
+            long endTime = workerFitEnd.getStartTime() + workerFitEnd.getDurationMs();
+            workerWaitTimes.add(new StalenessEventStats(workerFitEnd.getMachineID(), workerFitEnd.getJvmID(),
+                            workerFitEnd.getThreadID(), endTime, Math.max(0, now - endTime), staleness));
+        }
+
         public void addWorkerStats(SparkTrainingStats workerStats) {
             if (this.workerStats == null)
                 this.workerStats = workerStats;
@@ -448,7 +498,7 @@ public class ParameterAveragingTrainingMasterStats implements SparkTrainingStats
         public ParameterAveragingTrainingMasterStats build() {
             return new ParameterAveragingTrainingMasterStats(workerStats, exportTimes, countTimes, broadcastTimes,
                             fitTimes, splitTimes, mapPartitions, aggregateTimes, processParamsUpdaterTimes,
-                            repartitionTimes);
+                            repartitionTimes, workerWaitTimes);
         }
 
     }
@@ -0,0 +1,273 @@
+package org.deeplearning4j.spark.iterator;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.SparkEnv;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.broadcast.Broadcast;
+import org.deeplearning4j.spark.data.ExecutorDataCache;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor-wide prefetching of the first minibatches of the next training split (averaging period).<br>
+ * Without it, each split starts with an empty prefetch pipeline: the network is idle while the first minibatches are
+ * loaded and deserialized. With it, a worker that has handed its last path to its iterator starts loading, in the
+ * background, the first paths of the partitions of the next split that are expected to run on the same executor;
+ * the workers of these partitions use the loaded objects, looked up by path, instead of loading them again.<br>
+ * The paths RDDs of the splits are persisted, and their partitions computed (see {@link #firstPaths(JavaSparkContext,
+ * List, int)}) before training: the executor holding the cached block of a partition is its preferred location, so
+ * Spark normally schedules the partition's training task there. This is still best effort: prefetched objects are
+ * only used if the partition is executed on that executor. Prefetched data is only kept for the last
+ * {@link #MAX_SPLITS} splits.
+ */
+@Slf4j
+public class CrossSplitPrefetcher {
+
+    public static final int MAX_SPLITS = 2;
+
+    private static CrossSplitPrefetcher instance;
+
+    //Split id -> (path -> loaded DataSet/MultiDataSet), oldest split first
+    private final LinkedHashMap<String, ConcurrentMap<String, Future<Object>>> splits = new LinkedHashMap<>();
+    private final ExecutorService loader;
+    private final AtomicLong numUsed = new AtomicLong();
+
+    CrossSplitPrefetcher() {
+        loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "CrossSplitPrefetcher");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    public static synchronized CrossSplitPrefetcher getInstance() {
+        if (instance == null)
+            instance = new CrossSplitPrefetcher();
+        return instance;
+    }
+
+    /**
+     * Load the given paths in the background, in order
+     *
+     * @param splitId      Id of the split the paths belong to
+     * @param paths        Paths to load
+     * @param multiDataSet If true: paths of MultiDataSets. Otherwise: paths of DataSets
+     * @param cache        Executor data cache to read the files through. May be null
+     */
+    public synchronized void prefetch(String splitId, List<String> paths, final boolean multiDataSet,
+                    final ExecutorDataCache cache) {
+        ConcurrentMap<String, Future<Object>> split = splits.get(splitId);
+        if (split == null) {
+            split = new ConcurrentHashMap<>();
+            splits.put(splitId, split);
+            Iterator<ConcurrentMap<String, Future<Object>>> iter = splits.values().iterator();
+            while (splits.size() > MAX_SPLITS) {
+                //Not started yet: don't load. Loaded: garbage collected
+                for (Future<Object> f : iter.next().values())
+                    f.cancel(false);
+                iter.remove();
+            }
+        }
+
+        for (final String path : paths) {
+            if (split.containsKey(path))
+                continue;
+            FutureTask<Object> task = new FutureTask<>(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    Iterator<String> iter = Collections.singletonList(path).iterator();
+                    if (multiDataSet)
+                        return new PathSparkMultiDataSetIterator(iter, cache).next();
+                    return new PathSparkDataSetIterator(iter, cache).next();
+                }
+            });
+            split.put(path, task);
+            loader.execute(task);
+        }
+    }
+
+    /**
+     * @param splitId Id of the split
+     * @return Objects prefetched for the split (path -> loaded object), or null if none
+     */
+    public synchronized Map<String, Future<Object>> getPrefetched(String splitId) {
+        return splits.get(splitId);
+    }
+
+    /**
+     * @return Number of prefetched objects that were used by a worker, instead of being loaded again, in this JVM
+     */
+    public long getNumUsed() {
+        return numUsed.get();
+    }
+
+    /**
+     * Remove the prefetched object for the given path, waiting for it if it is being loaded
+     *
+     * @param prefetched Prefetched objects of the split. May be null
+     * @param path       Path to get
+     * @return The loaded object, or null if the path was not prefetched (or could not be loaded)
+     */
+    public static Object take(Map<String, Future<Object>> prefetched, String path) {
+        if (prefetched == null)
+            return null;
+        Future<Object> f = prefetched.remove(path);
+        if (f == null)
+            return null;
+        try {
+            Object loaded = f.get();
+            if (loaded != null)
+                getInstance().numUsed.incrementAndGet();
+            return loaded;
+        } catch (CancellationException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            log.warn("Error prefetching {}, loading it again", path, e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Wrap the paths iterator of a worker: once the last path has been returned, prefetching of the partitions of the
+     * next split (if any) located on this executor is started
+     *
+     * @param paths        Paths of the worker
+     * @param plan         Prefetching plan of the split
+     * @param multiDataSet If true: paths of MultiDataSets. Otherwise: paths of DataSets
+     * @param cache        Executor data cache to read the files through. May be null
+     */
+    public static Iterator<String> prefetchNextOnLast(final Iterator<String> paths, final Plan plan,
+                    final boolean multiDataSet, final ExecutorDataCache cache) {
+        if (plan.getNextSplitId() == null)
+            return paths;
+        final String executorId = SparkEnv.get().executorId();
+        return new Iterator<String>() {
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                return paths.hasNext();
+            }
+
+            @Override
+            public String next() {
+                String next = paths.next();
+                if (!done && !paths.hasNext()) {
+                    done = true;
+                    List<String> toPrefetch = pathsOnExecutor(plan.getNextSplitPaths().value(), executorId);
+                    if (!toPrefetch.isEmpty())
+                        getInstance().prefetch(plan.getNextSplitId(), toPrefetch, multiDataSet, cache);
+                }
+                return next;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * @param firstPaths First paths of each partition of a split
+     * @param executorId Id of the executor
+     * @return First paths of the partitions located on the given executor
+     */
+    public static List<String> pathsOnExecutor(List<FirstPaths> firstPaths, String executorId) {
+        List<String> out = new ArrayList<>();
+        for (FirstPaths p : firstPaths) {
+            if (executorId.equals(p.getExecutorId()))
+                out.addAll(p.getPaths());
+        }
+        return out;
+    }
+
+    /**
+     * Get the first paths of each partition of the given splits, and the executor each partition was computed on,
+     * with a single Spark job. The splits should be persisted: the executor then holds the cached partition, and is
+     * the preferred location of the tasks using it
+     *
+     * @param sc       Spark context
+     * @param splits   Paths RDDs of the splits
+     * @param numPaths Max number of paths to get for each partition
+     * @return For each split, the first paths of each of its partitions
+     */
+    public static List<List<FirstPaths>> firstPaths(JavaSparkContext sc, List<JavaRDD<String>> splits, int numPaths) {
+        List<List<FirstPaths>> out = new ArrayList<>();
+        if (splits.isEmpty())
+            return out;
+        //Partitions of a union RDD are the partitions of each RDD, in order
+        int[] firstPartition = new int[splits.size() + 1];
+        for (int i = 0; i < splits.size(); i++) {
+            firstPartition[i + 1] = firstPartition[i] + splits.get(i).partitions().size();
+            out.add(new ArrayList<FirstPaths>());
+        }
+
+        JavaRDD<String> union = sc.union(splits.get(0), splits.subList(1, splits.size()));
+        List<FirstPaths> all = union.mapPartitionsWithIndex(new FirstPathsFunction(numPaths), true).collect();
+        for (FirstPaths p : all) {
+            int split = 0;
+            while (p.getPartition() >= firstPartition[split + 1])
+                split++;
+            out.get(split).add(new FirstPaths(p.getPartition() - firstPartition[split], p.getExecutorId(),
+                            p.getPaths()));
+        }
+        return out;
+    }
+
+    private static class FirstPathsFunction implements Function2<Integer, Iterator<String>, Iterator<FirstPaths>> {
+        private final int numPaths;
+
+        private FirstPathsFunction(int numPaths) {
+            this.numPaths = numPaths;
+        }
+
+        @Override
+        public Iterator<FirstPaths> call(Integer partitionIdx, Iterator<String> paths) {
+            //One element per partition, even if empty
+            List<String> first = new ArrayList<>(numPaths);
+            while (paths.hasNext() && first.size() < numPaths)
+                first.add(paths.next());
+            return Collections.singletonList(new FirstPaths(partitionIdx, SparkEnv.get().executorId(), first))
+                            .iterator();
+        }
+    }
+
+    /**
+     * First paths of a partition of a split, and the executor the partition was computed on
+     */
+    @AllArgsConstructor
+    @Data
+    public static class FirstPaths implements Serializable {
+        private final int partition;
+        private final String executorId;
+        private final List<String> paths;
+    }
+
+    /**
+     * Prefetching plan of a split, computed on the driver
+     */
+    @AllArgsConstructor
+    @Data
+    public static class Plan implements Serializable {
+        //Id of this split: prefetched objects to use
+        private final String splitId;
+        //Id of the next split, or null if this is the last split
+        private final String nextSplitId;
+        //First paths of each partition of the next split
+        private final Broadcast<List<FirstPaths>> nextSplitPaths;
+    }
+}
@@ -4,6 +4,8 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.deeplearning4j.spark.data.ExecutorDataCache;
+import org.deeplearning4j.spark.data.PackedDataSetFile;
 import org.nd4j.linalg.dataset.DataSet;
 
 import java.io.IOException;
@@ -11,23 +13,52 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * A DataSetIterator that loads serialized DataSet objects (saved with {@link DataSet#save(OutputStream)}) from
- * a String that represents the path (for example, on HDFS)
+ * a String that represents the path (for example, on HDFS).<br>
+ * Also loads minibatches of {@link PackedDataSetFile}s, given "file.pack#index" paths. Up to
+ * {@link #MAX_OPEN_PACKED_FILES} packed files are kept open, so that shuffled minibatches of a few files don't reopen
+ * a file (and read its index again) for each minibatch.<br>
+ * If an {@link ExecutorDataCache} is set, files are read from their local copies in the cache. Objects already loaded
+ * by the {@link CrossSplitPrefetcher} are used instead of loading them again
  *
  * @author Alex Black
  */
 public class PathSparkDataSetIterator extends BaseDataSetIterator<String> {
 
     public static final int BUFFER_SIZE = 4194304; //4 MB
+    public static final int MAX_OPEN_PACKED_FILES = 8;
     private FileSystem fileSystem;
+    //Open packed files by path, least recently used first. All are closed once the last path has been loaded
+    private final Map<String, OpenPackedFile> packedFiles = new LinkedHashMap<>(16, 0.75f, true);
+    private ExecutorDataCache cache;
+    private Map<String, Future<Object>> prefetched;
 
     public PathSparkDataSetIterator(Iterator<String> iter) {
         this.dataSetStreams = null;
         this.iter = iter;
     }
 
+    public PathSparkDataSetIterator(Iterator<String> iter, ExecutorDataCache cache) {
+        this(iter);
+        this.cache = cache;
+    }
+
+    /**
+     * @param iter       Paths to load
+     * @param cache      Executor data cache to read the files through. May be null
+     * @param prefetched Objects prefetched by the {@link CrossSplitPrefetcher}. May be null
+     */
+    public PathSparkDataSetIterator(Iterator<String> iter, ExecutorDataCache cache,
+                    Map<String, Future<Object>> prefetched) {
+        this(iter, cache);
+        this.prefetched = prefetched;
+    }
+
     public PathSparkDataSetIterator(Collection<String> dataSetStreams) {
         this.dataSetStreams = dataSetStreams;
         iter = dataSetStreams.iterator();
@@ -58,23 +89,123 @@ public class PathSparkDataSetIterator extends BaseDataSetIterator<String> {
     }
 
     protected synchronized DataSet load(String path) {
+        DataSet prefetchedDs = (DataSet) CrossSplitPrefetcher.take(prefetched, path);
+        if (prefetchedDs != null) {
+            cursor++;
+            return prefetchedDs;
+        }
+
         if (fileSystem == null) {
             try {
-                fileSystem = FileSystem.get(new URI(path), new Configuration());
+                //All files are read from the local copies, when caching
+                fileSystem = (cache != null ? FileSystem.getLocal(new Configuration())
+                                : FileSystem.get(new URI(path), new Configuration()));
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
         }
 
+        if (PackedDataSetFile.isPackedPath(path))
+            return loadPacked(path);
+
         DataSet ds = new DataSet();
-        try (FSDataInputStream inputStream = fileSystem.open(new Path(path), BUFFER_SIZE)) {
+        ExecutorDataCache.CachedFile cached = (cache != null ? cached(path) : null);
+        try (FSDataInputStream inputStream = fileSystem.open(new Path(cached != null ? cached.getLocalPath() : path),
+                        BUFFER_SIZE)) {
             ds.load(inputStream);
         } catch (IOException e) {
             throw new RuntimeException("Error loading DataSet at path " + path + " - DataSet may be corrupt or invalid." +
                     " Spark DataSets can be validated using org.deeplearning4j.spark.util.data.SparkDataValidation", e);
+        } finally {
+            if (cached != null)
+                cached.close();
         }
 
         cursor++;
         return ds;
     }
+
+    protected DataSet loadPacked(String path) {
+        String file = PackedDataSetFile.fileOf(path);
+        DataSet ds;
+        try {
+            OpenPackedFile packed = packedFiles.get(file);
+            if (packed == null) {
+                if (packedFiles.size() >= MAX_OPEN_PACKED_FILES) {
+                    Iterator<OpenPackedFile> eldest = packedFiles.values().iterator();
+                    OpenPackedFile closed = eldest.next();
+                    eldest.remove();
+                    closed.close();
+                }
+                packed = openPacked(file);
+                packedFiles.put(file, packed);
+            }
+            ds = packed.file.get(PackedDataSetFile.batchIndexOf(path));
+            if (!iter.hasNext())
+                closePackedFiles();
+        } catch (IOException e) {
+            throw new RuntimeException("Error loading DataSet at path " + path + " - packed DataSet file may be"
+                            + " corrupt or invalid", e);
+        }
+
+        cursor++;
+        return ds;
+    }
+
+    private OpenPackedFile openPacked(String file) throws IOException {
+        if (cache == null)
+            return new OpenPackedFile(PackedDataSetFile.open(fileSystem, file), null);
+
+        ExecutorDataCache.CachedFile cached = cached(file);
+        try {
+            return new OpenPackedFile(PackedDataSetFile.open(fileSystem, cached.getLocalPath()), cached);
+        } catch (IOException | RuntimeException e) {
+            cached.close();
+            throw e;
+        }
+    }
+
+    private ExecutorDataCache.CachedFile cached(String path) {
+        try {
+            return cache.acquire(path);
+        } catch (IOException e) {
+            throw new RuntimeException("Error caching DataSet file " + path, e);
+        }
+    }
+
+    private void closePackedFiles() throws IOException {
+        //Minibatches already loaded stay valid
+        IOException first = null;
+        for (OpenPackedFile packed : packedFiles.values()) {
+            try {
+                packed.close();
+            } catch (IOException e) {
+                if (first == null)
+                    first = e;
+            }
+        }
+        packedFiles.clear();
+        if (first != null)
+            throw first;
+    }
+
+    private static class OpenPackedFile {
+        private final PackedDataSetFile file;
+        //Pins the cached copy of the packed file while it is open. Null if not cached
+        private final ExecutorDataCache.CachedFile cached;
+
+        private OpenPackedFile(PackedDataSetFile file, ExecutorDataCache.CachedFile cached) {
+            this.file = file;
+            this.cached = cached;
+        }
+
+        private void close() throws IOException {
+            try {
+                file.close();
+            } finally {
+                if (cached != null)
+                    cached.close();
+            }
+        }
+    }
 }
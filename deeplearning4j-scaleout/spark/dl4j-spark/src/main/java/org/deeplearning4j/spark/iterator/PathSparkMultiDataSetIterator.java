@@ -4,6 +4,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.deeplearning4j.spark.data.ExecutorDataCache;
 import org.nd4j.linalg.dataset.api.MultiDataSet;
 import org.nd4j.linalg.dataset.api.MultiDataSetPreProcessor;
 import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
@@ -13,10 +14,14 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * A DataSetIterator that loads serialized DataSet objects (saved with {@link MultiDataSet#save(OutputStream)}) from
- * a String that represents the path (for example, on HDFS)
+ * a String that represents the path (for example, on HDFS).<br>
+ * If an {@link ExecutorDataCache} is set, files are read from their local copies in the cache. Objects already loaded
+ * by the {@link CrossSplitPrefetcher} are used instead of loading them again
  *
  * @author Alex Black
  */
@@ -28,12 +33,30 @@ public class PathSparkMultiDataSetIterator implements MultiDataSetIterator {
     private MultiDataSetPreProcessor preprocessor;
     private Iterator<String> iter;
     private FileSystem fileSystem;
+    private ExecutorDataCache cache;
+    private Map<String, Future<Object>> prefetched;
 
     public PathSparkMultiDataSetIterator(Iterator<String> iter) {
         this.dataSetStreams = null;
         this.iter = iter;
     }
 
+    public PathSparkMultiDataSetIterator(Iterator<String> iter, ExecutorDataCache cache) {
+        this(iter);
+        this.cache = cache;
+    }
+
+    /**
+     * @param iter       Paths to load
+     * @param cache      Executor data cache to read the files through. May be null
+     * @param prefetched Objects prefetched by the {@link CrossSplitPrefetcher}. May be null
+     */
+    public PathSparkMultiDataSetIterator(Iterator<String> iter, ExecutorDataCache cache,
+                    Map<String, Future<Object>> prefetched) {
+        this(iter, cache);
+        this.prefetched = prefetched;
+    }
+
     public PathSparkMultiDataSetIterator(Collection<String> dataSetStreams) {
         this.dataSetStreams = dataSetStreams;
         iter = dataSetStreams.iterator();
@@ -92,20 +115,40 @@ public class PathSparkMultiDataSetIterator implements MultiDataSetIterator {
 
 
     private synchronized MultiDataSet load(String path) {
+        MultiDataSet prefetchedDs = (MultiDataSet) CrossSplitPrefetcher.take(prefetched, path);
+        if (prefetchedDs != null)
+            return prefetchedDs;
+
         if (fileSystem == null) {
             try {
-                fileSystem = FileSystem.get(new URI(path), new Configuration());
+                //All files are read from the local copies, when caching
+                fileSystem = (cache != null ? FileSystem.getLocal(new Configuration())
+                                : FileSystem.get(new URI(path), new Configuration()));
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
         }
 
+        ExecutorDataCache.CachedFile cached = null;
+        if (cache != null) {
+            try {
+                //Pinned until the file is read, so it can't be evicted in the meantime
+                cached = cache.acquire(path);
+            } catch (IOException e) {
+                throw new RuntimeException("Error caching MultiDataSet file " + path, e);
+            }
+        }
+
         MultiDataSet ds = new org.nd4j.linalg.dataset.MultiDataSet();
-        try (FSDataInputStream inputStream = fileSystem.open(new Path(path), BUFFER_SIZE)) {
+        try (FSDataInputStream inputStream = fileSystem.open(new Path(cached != null ? cached.getLocalPath() : path),
+                        BUFFER_SIZE)) {
             ds.load(inputStream);
         } catch (IOException e) {
             throw new RuntimeException("Error loading MultiDataSet at path " + path + " - DataSet may be corrupt or invalid." +
                     " Spark MultiDataSets can be validated using org.deeplearning4j.spark.util.data.SparkDataValidation", e);
+        } finally {
+            if (cached != null)
+                cached.close();
         }
 
         return ds;
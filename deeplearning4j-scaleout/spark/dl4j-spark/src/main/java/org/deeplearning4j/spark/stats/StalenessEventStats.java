@@ -0,0 +1,34 @@
+package org.deeplearning4j.spark.stats;
+
+import lombok.Getter;
+
+/**
+ * Event stats implementation with parameters staleness: number of parameter updates, newer than the parameters the
+ * event started from, that were already applied when the event ended
+ */
+public class StalenessEventStats extends BaseEventStats {
+
+    @Getter
+    private final int staleness;
+
+    public StalenessEventStats(long startTime, long durationMs, int staleness) {
+        super(startTime, durationMs);
+        this.staleness = staleness;
+    }
+
+    public StalenessEventStats(String machineId, String jvmId, long threadId, long startTime, long durationMs,
+                    int staleness) {
+        super(machineId, jvmId, threadId, startTime, durationMs);
+        this.staleness = staleness;
+    }
+
+    @Override
+    public String asString(String delimiter) {
+        return super.asString(delimiter) + delimiter + staleness;
+    }
+
+    @Override
+    public String getStringHeader(String delimiter) {
+        return super.getStringHeader(delimiter) + delimiter + "staleness";
+    }
+}
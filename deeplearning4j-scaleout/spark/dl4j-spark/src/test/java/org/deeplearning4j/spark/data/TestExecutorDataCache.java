@@ -0,0 +1,104 @@
+package org.deeplearning4j.spark.data;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class TestExecutorDataCache {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String localPath(ExecutorDataCache cache, String path) throws Exception {
+        try (ExecutorDataCache.CachedFile cached = cache.acquire(path)) {
+            return cached.getLocalPath();
+        }
+    }
+
+    @Test
+    public void testLruEviction() throws Exception {
+        File source = folder.newFolder();
+        String[] paths = new String[4];
+        for (int i = 0; i < paths.length; i++) {
+            File f = new File(source, "dataset_" + i + ".bin");
+            FileUtils.writeByteArrayToFile(f, new byte[100]);
+            paths[i] = f.toURI().toString();
+        }
+
+        ExecutorDataCache cache = new ExecutorDataCache(folder.newFolder(), 250);
+        String local0 = localPath(cache, paths[0]);
+        assertNotEquals(new File(paths[0].substring("file:".length())).getAbsolutePath(), local0);
+        assertEquals(100, new File(local0).length());
+        localPath(cache, paths[1]);
+        assertEquals(local0, localPath(cache, paths[0]));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(200, cache.getSizeBytes());
+
+        //Least recently used: path 1
+        localPath(cache, paths[2]);
+        assertEquals(2, cache.size());
+        assertEquals(200, cache.getSizeBytes());
+        assertTrue(cache.contains(paths[0]));
+        assertFalse(cache.contains(paths[1]));
+        assertTrue(cache.contains(paths[2]));
+
+        //Larger than the cache on its own: still cached, everything else evicted
+        File large = new File(source, "large.bin");
+        FileUtils.writeStringToFile(large, new String(new char[300]).replace('\0', 'x'), StandardCharsets.UTF_8);
+        String localLarge = localPath(cache, large.toURI().toString());
+        assertEquals(1, cache.size());
+        assertEquals(300, cache.getSizeBytes());
+        assertFalse(new File(local0).exists());
+        assertTrue(new File(localLarge).exists());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getSizeBytes());
+        assertFalse(new File(localLarge).exists());
+    }
+
+    @Test
+    public void testPinnedFilesNotEvicted() throws Exception {
+        File source = folder.newFolder();
+        String[] paths = new String[3];
+        for (int i = 0; i < paths.length; i++) {
+            File f = new File(source, "dataset_" + i + ".bin");
+            FileUtils.writeByteArrayToFile(f, new byte[100]);
+            paths[i] = f.toURI().toString();
+        }
+
+        ExecutorDataCache cache = new ExecutorDataCache(folder.newFolder(), 150);
+        ExecutorDataCache.CachedFile pinned = cache.acquire(paths[0]);
+        File local0 = new File(pinned.getLocalPath());
+
+        //Least recently used file, but still in use: not evicted, cache temporarily larger than its maximum size
+        String local1 = localPath(cache, paths[1]);
+        assertTrue(cache.contains(paths[0]));
+        assertTrue(local0.exists());
+        assertEquals(200, cache.getSizeBytes());
+
+        //Released: evicted as soon as the cache is over its maximum size
+        pinned.close();
+        pinned.close();
+        assertFalse(cache.contains(paths[0]));
+        assertFalse(local0.exists());
+        assertTrue(new File(local1).exists());
+        assertEquals(100, cache.getSizeBytes());
+
+        //Cleared while pinned: deleted when released
+        ExecutorDataCache.CachedFile pinned2 = cache.acquire(paths[2]);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertFalse(new File(local1).exists());
+        assertTrue(new File(pinned2.getLocalPath()).exists());
+        pinned2.close();
+        assertFalse(new File(pinned2.getLocalPath()).exists());
+    }
+}
@@ -18,21 +18,29 @@ package org.deeplearning4j.spark.datavec;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.spark.api.java.JavaRDD;
 import org.deeplearning4j.spark.BaseSparkTest;
 import org.deeplearning4j.spark.data.BatchAndExportDataSetsFunction;
 import org.deeplearning4j.spark.data.BatchAndExportMultiDataSetsFunction;
+import org.deeplearning4j.spark.data.BatchAndExportPackedDataSetsFunction;
+import org.deeplearning4j.spark.data.PackedDataSetFile;
+import org.deeplearning4j.spark.iterator.PathSparkDataSetIterator;
 import org.junit.Test;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.dataset.api.MultiDataSet;
 import org.nd4j.linalg.factory.Nd4j;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
@@ -99,6 +107,106 @@ public class TestExport extends BaseSparkTest {
         FileUtils.deleteDirectory(f);
     }
 
+    @Test
+    public void testBatchAndExportPackedDataSetsFunction() throws Exception {
+        for (boolean compress : new boolean[] {false, true}) {
+            String baseDir = System.getProperty("java.io.tmpdir");
+            baseDir = FilenameUtils.concat(baseDir, "dl4j_spark_testBatchAndExportPacked/");
+            baseDir = baseDir.replaceAll("\\\\", "/");
+            File f = new File(baseDir);
+            if (f.exists())
+                FileUtils.deleteDirectory(f);
+            f.mkdir();
+            f.deleteOnExit();
+            int minibatchSize = 5;
+            int nIn = 4;
+            int nOut = 3;
+
+            Nd4j.getRandom().setSeed(12345);
+            List<DataSet> dataSets = new ArrayList<>();
+            //Larger than minibatch size -> tests splitting
+            dataSets.add(new DataSet(Nd4j.rand(10, nIn), Nd4j.rand(10, nOut)));
+            for (int i = 0; i < 98; i++) {
+                if (i % 2 == 0) {
+                    dataSets.add(new DataSet(Nd4j.rand(5, nIn), Nd4j.rand(5, nOut)));
+                } else {
+                    dataSets.add(new DataSet(Nd4j.rand(1, nIn), Nd4j.rand(1, nOut)));
+                    dataSets.add(new DataSet(Nd4j.rand(1, nIn), Nd4j.rand(1, nOut)));
+                    dataSets.add(new DataSet(Nd4j.rand(3, nIn), Nd4j.rand(3, nOut)));
+                }
+            }
+            double featuresSum = 0.0;
+            for (DataSet ds : dataSets)
+                featuresSum += ds.getFeatures().sumNumber().doubleValue();
+
+            JavaRDD<DataSet> rdd = sc.parallelize(dataSets).repartition(1);
+            JavaRDD<String> pathsRdd = rdd.mapPartitionsWithIndex(new BatchAndExportPackedDataSetsFunction(
+                            minibatchSize, "file:///" + baseDir, 16, compress), true);
+
+            List<String> paths = pathsRdd.collect();
+            assertEquals(100, paths.size());
+
+            //100 minibatches, 16 per file
+            int fileCount = 0;
+            for (File file : f.listFiles()) {
+                if (file.getPath().endsWith(PackedDataSetFile.EXTENSION))
+                    fileCount++;
+            }
+            assertEquals(7, fileCount);
+
+            //Shuffled minibatches of all files: more files than are kept open at once
+            List<String> shuffled = new ArrayList<>(paths);
+            Collections.shuffle(shuffled, new Random(12345));
+            PathSparkDataSetIterator iter = new PathSparkDataSetIterator(shuffled);
+            List<DataSet> loaded = new ArrayList<>();
+            while (iter.hasNext()) {
+                DataSet ds = iter.next();
+                assertEquals(minibatchSize, ds.numExamples());
+                assertArrayEquals(new int[] {minibatchSize, nOut}, ds.getLabels().shape());
+                loaded.add(ds);
+            }
+            assertEquals(100, loaded.size());
+
+            //All files are closed: minibatches are still readable
+            System.gc();
+            double loadedSum = 0.0;
+            for (DataSet ds : loaded)
+                loadedSum += ds.getFeatures().sumNumber().doubleValue();
+            assertEquals(featuresSum, loadedSum, 1e-3);
+
+            FileUtils.deleteDirectory(f);
+        }
+    }
+
+    @Test
+    public void testPackedDataSetFileMasks() throws Exception {
+        File f = File.createTempFile("dl4j_spark_testPackedMasks", PackedDataSetFile.EXTENSION);
+        f.deleteOnExit();
+
+        Nd4j.getRandom().setSeed(12345);
+        List<DataSet> dataSets = new ArrayList<>();
+        //Time series with masks, a view (not contiguous) and a compressible array of zeros
+        dataSets.add(new DataSet(Nd4j.rand(new int[] {3, 2, 5}), Nd4j.rand(new int[] {3, 4, 5}),
+                        Nd4j.ones(3, 5), Nd4j.zeros(3, 5)));
+        dataSets.add(new DataSet(Nd4j.rand(6, 4).getColumns(0, 2), Nd4j.zeros(6, 100)));
+
+        for (boolean compress : new boolean[] {false, true}) {
+            try (OutputStream out = new FileOutputStream(f)) {
+                PackedDataSetFile.write(dataSets, out, compress);
+            }
+
+            List<DataSet> loaded = new ArrayList<>();
+            try (PackedDataSetFile packed = PackedDataSetFile.open(FileSystem.getLocal(new Configuration()),
+                            f.getPath())) {
+                assertEquals(2, packed.numBatches());
+                for (int i = 0; i < dataSets.size(); i++)
+                    loaded.add(packed.get(i));
+            }
+            //Compared after the file is closed
+            assertEquals(dataSets, loaded);
+        }
+    }
+
     @Test
     public void testBatchAndExportMultiDataSetsFunction() throws Exception {
         String baseDir = System.getProperty("java.io.tmpdir");
@@ -0,0 +1,40 @@
+package org.deeplearning4j.spark.impl.common.repartition;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StablePathPartitionerTest {
+
+    @Test
+    public void testStableAndBalanced() {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 103; i++) {
+            paths.add("hdfs:///tmp/dl4j/export/dataset_" + i + ".bin");
+        }
+        StablePathPartitioner p1 = new StablePathPartitioner(paths, 10);
+
+        List<String> shuffled = new ArrayList<>(paths);
+        Collections.shuffle(shuffled, new Random(12345));
+        StablePathPartitioner p2 = new StablePathPartitioner(shuffled, 10);
+
+        int[] countPerPartition = new int[10];
+        for (String path : paths) {
+            int p = p1.getPartition(path);
+            assertEquals(p, p2.getPartition(path));
+            countPerPartition[p]++;
+        }
+        for (int count : countPerPartition) {
+            assertTrue(count == 10 || count == 11);
+        }
+
+        int unknown = p1.getPartition("hdfs:///tmp/dl4j/export/unknown.bin");
+        assertTrue(unknown >= 0 && unknown < 10);
+    }
+}
@@ -15,6 +15,9 @@ import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.nn.weights.WeightInit;
 import org.deeplearning4j.spark.BaseSparkTest;
 import org.deeplearning4j.spark.impl.graph.SparkComputationGraph;
+import org.deeplearning4j.spark.impl.inference.ExecutorInference;
+import org.deeplearning4j.spark.impl.inference.InferenceModel;
+import org.deeplearning4j.spark.impl.inference.KeyedOutputBatch;
 import org.deeplearning4j.spark.impl.multilayer.scoring.VaeReconstructionErrorWithKeyFunction;
 import org.deeplearning4j.spark.impl.multilayer.scoring.VaeReconstructionProbWithKeyFunction;
 import org.junit.Test;
@@ -33,8 +36,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 /**
  * Created by Alex on 17/12/2016.
@@ -90,6 +92,103 @@ public class TestMiscFunctions extends BaseSparkTest {
         }
     }
 
+    @Test
+    public void testOutputBatchedWithKey() {
+
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().weightInit(WeightInit.XAVIER).list()
+                        .layer(0, new DenseLayer.Builder().nIn(4).nOut(3).build())
+                        .layer(1, new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(3).nOut(3)
+                                        .activation(Activation.SOFTMAX).build())
+                        .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        DataSet ds = new IrisDataSetIterator(150, 150).next();
+
+        List<Tuple2<Integer, INDArray>> mapFeatures = new ArrayList<>();
+        Random r = new Random(12345);
+        int count = 0;
+        while (count < 150) {
+            int exampleCount = Math.min(r.nextInt(5) + 1, 150 - count);
+            INDArray subset = ds.getFeatures().get(NDArrayIndex.interval(count, count + exampleCount),
+                            NDArrayIndex.all());
+            mapFeatures.add(new Tuple2<>(mapFeatures.size(), subset));
+            count += exampleCount;
+        }
+
+        JavaPairRDD<Integer, INDArray> rdd = sc.parallelizePairs(mapFeatures);
+        SparkDl4jMultiLayer multiLayer = new SparkDl4jMultiLayer(sc, net, null);
+
+        //Second time: same parameters (executor-cached network). Third time: parameters changed, new network
+        for (int i = 0; i < 3; i++) {
+            if (i == 2)
+                net.setParams(Nd4j.rand(1, net.numParams()));
+
+            List<KeyedOutputBatch<Integer>> batches = multiLayer.outputBatchedWithKey(rdd, 16, 2).collect();
+            int numKeys = 0;
+            for (KeyedOutputBatch<Integer> b : batches) {
+                assertTrue(b.numExamples() <= 16);
+                assertEquals(b.numExamples(), b.getOutputs()[0].size(0));
+                for (int j = 0; j < b.size(); j++) {
+                    INDArray exp = net.output(mapFeatures.get(b.getKeys().get(j))._2(), false);
+                    assertEquals(exp, b.getOutput(j, 0));
+                }
+                numKeys += b.size();
+            }
+            assertEquals(mapFeatures.size(), numKeys);
+        }
+    }
+
+
+    @Test
+    public void testExecutorInferenceEviction() throws Exception {
+
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().weightInit(WeightInit.XAVIER).list()
+                        .layer(0, new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(4).nOut(3)
+                                        .activation(Activation.SOFTMAX).build())
+                        .build();
+
+        //One more model than the cache holds
+        List<InferenceModel> models = new ArrayList<>();
+        for (int i = 0; i <= ExecutorInference.MAX_CACHED_MODELS; i++) {
+            MultiLayerNetwork net = new MultiLayerNetwork(conf.clone());
+            net.init();
+            models.add(InferenceModel.of(sc, net));
+        }
+        INDArray features = Nd4j.rand(3, 4);
+
+        //All in use: none is evicted, even the least recently used one
+        List<ExecutorInference> instances = new ArrayList<>();
+        for (InferenceModel m : models)
+            instances.add(ExecutorInference.getInstance(m, 16, 1));
+        ExecutorInference first = instances.get(0);
+        assertEquals(3, first.output(features)[0].size(0));
+        assertSame(first, ExecutorInference.getInstance(models.get(0), 16, 1));
+        first.release();
+
+        //No longer used: evicted, and shut down
+        first.release();
+        try {
+            first.output(features);
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            //Expected
+        }
+        try {
+            first.release();
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            //Expected
+        }
+        ExecutorInference recreated = ExecutorInference.getInstance(models.get(0), 16, 1);
+        assertNotSame(first, recreated);
+        assertEquals(3, recreated.output(features)[0].size(0));
+
+        recreated.release();
+        for (int i = 1; i < instances.size(); i++)
+            instances.get(i).release();
+    }
 
     @Test
     public void testFeedForwardWithKeyGraph() {
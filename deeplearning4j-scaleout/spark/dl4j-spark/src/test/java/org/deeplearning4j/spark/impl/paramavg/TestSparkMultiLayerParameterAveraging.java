@@ -35,6 +35,7 @@ import org.deeplearning4j.eval.Evaluation;
 import org.deeplearning4j.eval.ROC;
 import org.deeplearning4j.eval.ROCMultiClass;
 import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.Model;
 import org.deeplearning4j.nn.api.OptimizationAlgorithm;
 import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
@@ -49,11 +50,15 @@ import org.deeplearning4j.nn.weights.WeightInit;
 import org.deeplearning4j.optimize.listeners.ScoreIterationListener;
 import org.deeplearning4j.spark.BaseSparkTest;
 import org.deeplearning4j.spark.api.Repartition;
+import org.deeplearning4j.spark.api.TrainingHook;
+import org.deeplearning4j.spark.api.stats.CommonSparkTrainingStats;
 import org.deeplearning4j.spark.api.stats.SparkTrainingStats;
 import org.deeplearning4j.spark.impl.graph.SparkComputationGraph;
 import org.deeplearning4j.spark.impl.multilayer.SparkDl4jMultiLayer;
+import org.deeplearning4j.spark.iterator.CrossSplitPrefetcher;
 import org.deeplearning4j.spark.stats.EventStats;
 import org.deeplearning4j.spark.stats.ExampleCountEventStats;
+import org.deeplearning4j.spark.stats.StalenessEventStats;
 import org.junit.Test;
 import org.nd4j.linalg.activations.Activation;
 import org.nd4j.linalg.api.ndarray.INDArray;
@@ -701,6 +706,241 @@ public class TestSparkMultiLayerParameterAveraging extends BaseSparkTest {
     }
 
 
+    @Test
+    public void testDeltaAggregation() throws Exception {
+
+        MultiLayerConfiguration conf = getIrisConf();
+
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerNetwork n1 = new MultiLayerNetwork(conf);
+        n1.init();
+        INDArray initialParams = n1.params().dup();
+
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerNetwork n2 = new MultiLayerNetwork(conf);
+        n2.init();
+
+        SparkDl4jMultiLayer sparkNet1 = new SparkDl4jMultiLayer(sc, n1,
+                        new ParameterAveragingTrainingMaster.Builder(numExecutors(), 1).batchSizePerWorker(5)
+                                        .averagingFrequency(2).saveUpdater(true).repartionData(Repartition.Always)
+                                        .rngSeed(12345).build());
+
+        Thread.sleep(100); //Training master IDs are only unique if they are created at least 1 ms apart...
+
+        SparkDl4jMultiLayer sparkNet2 = new SparkDl4jMultiLayer(sc, n2,
+                        new ParameterAveragingTrainingMaster.Builder(numExecutors(), 1).batchSizePerWorker(5)
+                                        .averagingFrequency(2).saveUpdater(true).repartionData(Repartition.Always)
+                                        .rngSeed(12345).deltaAggregation(true, 8).build());
+
+        JavaRDD<DataSet> rdd = sc.parallelize(getIrisData());
+
+        //Multiple averaging rounds: executors build the parameters from the broadcast deltas after the first one
+        for (int i = 0; i < 2; i++) {
+            sparkNet1.fit(rdd);
+            sparkNet2.fit(rdd);
+        }
+
+        INDArray p1 = sparkNet1.getNetwork().params();
+        INDArray p2 = sparkNet2.getNetwork().params();
+
+        sparkNet1.getTrainingMaster().deleteTempFiles(sc);
+        sparkNet2.getTrainingMaster().deleteTempFiles(sc);
+
+        assertEquals(sparkNet1.getNetwork().getLayerWiseConfigurations().getIterationCount(),
+                        sparkNet2.getNetwork().getLayerWiseConfigurations().getIterationCount());
+        assertNotEquals(initialParams, p2);
+
+        //No full broadcast since the driver parameters are only changed by the deltas: the delta of the last round is
+        // broadcast with the next one, the others since the last full broadcast are in the chain
+        ParameterAveragingTrainingMaster tm2 = (ParameterAveragingTrainingMaster) sparkNet2.getTrainingMaster();
+        assertEquals(tm2.getDeltaVersion(), tm2.getDeltaBaseVersion() + tm2.getDeltaChain().size() + 1);
+
+        //Same training, up to the quantization error
+        double change = p1.sub(initialParams).norm2Number().doubleValue();
+        double diff = p1.sub(p2).norm2Number().doubleValue();
+        assertTrue("Relative difference: " + diff / change, diff / change < 0.1);
+    }
+
+
+    @Test
+    public void testStaleSynchronousTraining() throws Exception {
+        int maxStaleness = 1;
+        MultiLayerConfiguration conf = getIrisConf();
+        List<DataSet> data = getIrisData();
+        DataSet all = DataSet.merge(data);
+
+        //Same initial parameters for the synchronous and the stale synchronous runs
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerNetwork syncNet = new MultiLayerNetwork(conf.clone());
+        syncNet.init();
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerNetwork net = new MultiLayerNetwork(conf.clone());
+        net.init();
+        INDArray initialParams = net.params().dup();
+        double initialScore = net.score(all);
+
+        ParameterAveragingTrainingMaster syncTm = new ParameterAveragingTrainingMaster.Builder(numExecutors(), 1)
+                        .batchSizePerWorker(5).averagingFrequency(2).saveUpdater(true)
+                        .repartionData(Repartition.Always).rngSeed(12345).build();
+        ParameterAveragingTrainingMaster tm = new ParameterAveragingTrainingMaster.Builder(numExecutors(), 1)
+                        .batchSizePerWorker(5).averagingFrequency(2).saveUpdater(true)
+                        .repartionData(Repartition.Always).rngSeed(12345).maxStaleness(maxStaleness).build();
+        assertEquals(tm, ParameterAveragingTrainingMaster.fromJson(tm.toJson()));
+
+        //Slow workers: the next split is still training when the previous one is applied on the driver
+        syncTm.addHook(new SlowTrainingHook(100));
+        tm.addHook(new SlowTrainingHook(100));
+
+        SparkDl4jMultiLayer syncSparkNet = new SparkDl4jMultiLayer(sc, syncNet, syncTm);
+        syncSparkNet.fit(sc.parallelize(data));
+        syncSparkNet.getTrainingMaster().deleteTempFiles(sc);
+
+        Thread.sleep(100); //Training master IDs are only unique if they are created at least 1 ms apart...
+
+        SparkDl4jMultiLayer sparkNet = new SparkDl4jMultiLayer(sc, net, tm);
+        sparkNet.setCollectTrainingStats(true);
+        sparkNet.fit(sc.parallelize(data));
+        sparkNet.getTrainingMaster().deleteTempFiles(sc);
+
+        //All splits are applied when fit returns, and the aggregation threads are stopped
+        int iterationCount = net.getLayerWiseConfigurations().getIterationCount();
+        assertTrue(iterationCount > 0 && iterationCount % 2 == 0);
+        assertEquals(syncNet.getLayerWiseConfigurations().getIterationCount(), iterationCount);
+        assertTrue(tm.getPendingSplits().isEmpty());
+        assertNull(tm.getAggregationExecutor());
+        assertNotEquals(initialParams, net.params());
+
+        //Staleness is bounded per worker, and the slow workers did train on stale parameters
+        SparkTrainingStats stats = sparkNet.getSparkTrainingStats();
+        List<EventStats> waitTimes = stats.getValue("ParameterAveragingMasterWorkerWaitTimesMs");
+        assertFalse(waitTimes.isEmpty());
+        int maxObserved = 0;
+        for (EventStats e : waitTimes) {
+            int staleness = ((StalenessEventStats) e).getStaleness();
+            assertTrue(staleness >= 0 && staleness <= maxStaleness);
+            assertTrue(e.getDurationMs() >= 0);
+            maxObserved = Math.max(maxObserved, staleness);
+        }
+        assertTrue(maxObserved > 0);
+
+        //Both runs learn, and stale parameters do not change where training goes
+        double syncScore = syncNet.score(all);
+        double score = net.score(all);
+        assertTrue(syncScore < initialScore);
+        assertTrue(score < initialScore);
+
+        INDArray syncChange = syncNet.params().sub(initialParams);
+        INDArray change = net.params().sub(initialParams);
+        double cosine = syncChange.mul(change).sumNumber().doubleValue()
+                        / (syncChange.norm2Number().doubleValue() * change.norm2Number().doubleValue());
+        assertTrue("Cosine similarity of the parameter changes: " + cosine, cosine > 0.5);
+    }
+
+    private static class SlowTrainingHook implements TrainingHook {
+        private final long sleepMs;
+
+        private SlowTrainingHook(long sleepMs) {
+            this.sleepMs = sleepMs;
+        }
+
+        @Override
+        public void preUpdate(org.nd4j.linalg.dataset.api.DataSet minibatch, Model model) {}
+
+        @Override
+        public void postUpdate(org.nd4j.linalg.dataset.api.DataSet minibatch, Model model) {
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void preUpdate(org.nd4j.linalg.dataset.api.MultiDataSet minibatch, Model model) {}
+
+        @Override
+        public void postUpdate(org.nd4j.linalg.dataset.api.MultiDataSet minibatch, Model model) {}
+    }
+
+    @Test
+    public void testCrossSplitPrefetch() throws Exception {
+        MultiLayerConfiguration conf = getIrisConf();
+
+        //Same initial parameters with and without cross split prefetch
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerNetwork expNet = new MultiLayerNetwork(conf.clone());
+        expNet.init();
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerNetwork net = new MultiLayerNetwork(conf.clone());
+        net.init();
+        INDArray initialParams = net.params().dup();
+
+        //No repartitioning: the balanced partitioner places the remainder randomly, and the runs must see the same data
+        ParameterAveragingTrainingMaster expTm = new ParameterAveragingTrainingMaster.Builder(numExecutors(), 1)
+                        .batchSizePerWorker(5).averagingFrequency(2).workerPrefetchNumBatches(2)
+                        .repartionData(Repartition.Never).rngSeed(12345).build();
+        ParameterAveragingTrainingMaster tm = new ParameterAveragingTrainingMaster.Builder(numExecutors(), 1)
+                        .batchSizePerWorker(5).averagingFrequency(2).workerPrefetchNumBatches(2)
+                        .repartionData(Repartition.Never).rngSeed(12345).prefetchAcrossSplits(true).build();
+        assertEquals(tm, ParameterAveragingTrainingMaster.fromJson(tm.toJson()));
+
+        SparkDl4jMultiLayer expSparkNet = new SparkDl4jMultiLayer(sc, expNet, expTm);
+
+        Thread.sleep(100); //Training master IDs are only unique if they are created at least 1 ms apart...
+
+        SparkDl4jMultiLayer sparkNet = new SparkDl4jMultiLayer(sc, net, tm);
+        sparkNet.setCollectTrainingStats(true);
+
+        JavaRDD<DataSet> rdd = sc.parallelize(getIrisData());
+        for (int i = 0; i < 2; i++) {
+            long usedBefore = CrossSplitPrefetcher.getInstance().getNumUsed();
+            expSparkNet.fit(rdd);
+            //Nothing is prefetched without cross split prefetch
+            assertEquals(usedBefore, CrossSplitPrefetcher.getInstance().getNumUsed());
+
+            sparkNet.fit(rdd);
+            //The workers of the next splits used the objects prefetched by the workers of the previous splits
+            assertTrue(CrossSplitPrefetcher.getInstance().getNumUsed() > usedBefore);
+        }
+        expSparkNet.getTrainingMaster().deleteTempFiles(sc);
+        sparkNet.getTrainingMaster().deleteTempFiles(sc);
+
+        assertTrue(tm.getSplitCount() > 2);
+
+        //Prefetching only changes when the data is loaded, not the training
+        assertNotEquals(initialParams, net.params());
+        assertEquals(expNet.getLayerWiseConfigurations().getIterationCount(),
+                        net.getLayerWiseConfigurations().getIterationCount());
+        assertEquals(expNet.params(), net.params());
+        assertEquals(expSparkNet.getScore(), sparkNet.getScore(), 1e-6);
+
+        SparkTrainingStats stats = sparkNet.getSparkTrainingStats();
+        assertTrue(stats.getKeySet().contains(CommonSparkTrainingStats.WORKER_FLAT_MAP_ITERATOR_WAIT_TIMES_MS));
+        for (EventStats e : stats.getValue(CommonSparkTrainingStats.WORKER_FLAT_MAP_ITERATOR_WAIT_TIMES_MS)) {
+            assertTrue(e.getDurationMs() > 0);
+        }
+    }
+
+    private static MultiLayerConfiguration getIrisConf() {
+        return new NeuralNetConfiguration.Builder().seed(12345).updater(new RmsProp())
+                        .optimizationAlgo(OptimizationAlgorithm.STOCHASTIC_GRADIENT_DESCENT)
+                        .weightInit(WeightInit.XAVIER).list()
+                        .layer(0, new org.deeplearning4j.nn.conf.layers.DenseLayer.Builder().nIn(4).nOut(4)
+                                        .activation(Activation.TANH).build())
+                        .layer(1, new org.deeplearning4j.nn.conf.layers.OutputLayer.Builder(
+                                        LossFunctions.LossFunction.MCXENT).nIn(4).nOut(3).activation(Activation.SOFTMAX)
+                                                        .build())
+                        .pretrain(false).backprop(true).build();
+    }
+
+    private static List<DataSet> getIrisData() {
+        List<DataSet> data = new ArrayList<>();
+        DataSetIterator iter = new IrisDataSetIterator(1, 150);
+        while (iter.hasNext())
+            data.add(iter.next());
+        return data;
+    }
+
     @Test
     public void testIterationCounts() throws Exception {
         int dataSetObjSize = 5;
@@ -0,0 +1,59 @@
+package org.deeplearning4j.spark.impl.paramavg.delta;
+
+import org.apache.spark.broadcast.Broadcast;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.spark.BaseSparkTest;
+import org.deeplearning4j.spark.api.worker.NetBroadcastTuple;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DeltaParameterCacheTest extends BaseSparkTest {
+
+    @Test
+    public void testDeltaChain() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().list()
+                        .layer(0, new OutputLayer.Builder().nIn(4).nOut(3).build()).build();
+        String key = "testDeltaChain_" + System.nanoTime();
+
+        Nd4j.getRandom().setSeed(12345);
+        INDArray base = Nd4j.rand(1, 15);
+        Broadcast<NetBroadcastTuple> full = sc.broadcast(new NetBroadcastTuple(conf, base, null));
+
+        List<Broadcast<DeltaBroadcastTuple>> deltas = new ArrayList<>();
+        INDArray expected = base.dup();
+        for (int i = 1; i <= 3; i++) {
+            QuantizedDelta d = QuantizedDelta.quantize(Nd4j.rand(1, 15).subi(0.5), 8);
+            deltas.add(sc.broadcast(new DeltaBroadcastTuple(10 + i, d, null)));
+            expected.addi(d.toArray());
+        }
+
+        //Nothing cached: full broadcast (version 10) plus all deltas
+        NetBroadcastTuple t = DeltaParameterCache.get(key, full, new DeltaBroadcastChain(10, deltas, 5, 1));
+        assertEquals(expected, t.getParameters());
+        assertEquals(5, t.getConfiguration().getIterationCount());
+
+        //Version 13 cached: the next delta is applied to it, and the full broadcast isn't used
+        QuantizedDelta d = QuantizedDelta.quantize(Nd4j.rand(1, 15).subi(0.5), 8);
+        deltas.add(sc.broadcast(new DeltaBroadcastTuple(14, d, null)));
+        expected.addi(d.toArray());
+        Broadcast<NetBroadcastTuple> wrongFull = sc.broadcast(new NetBroadcastTuple(conf, Nd4j.zeros(1, 15), null));
+        t = DeltaParameterCache.get(key, wrongFull, new DeltaBroadcastChain(10, deltas, 6, 1));
+        assertEquals(expected, t.getParameters());
+        assertEquals(6, t.getConfiguration().getIterationCount());
+
+        //New full broadcast, after the cached version: the full broadcast is used
+        INDArray newBase = Nd4j.rand(1, 15);
+        Broadcast<NetBroadcastTuple> newFull = sc.broadcast(new NetBroadcastTuple(conf, newBase, null));
+        t = DeltaParameterCache.get(key, newFull,
+                        new DeltaBroadcastChain(15, new ArrayList<Broadcast<DeltaBroadcastTuple>>(), 7, 1));
+        assertEquals(newBase, t.getParameters());
+    }
+}
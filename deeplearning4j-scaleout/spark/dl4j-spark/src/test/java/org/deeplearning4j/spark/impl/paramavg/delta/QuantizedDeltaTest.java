@@ -0,0 +1,63 @@
+package org.deeplearning4j.spark.impl.paramavg.delta;
+
+import org.deeplearning4j.spark.impl.paramavg.aggregator.ParameterAveragingAggregationTuple;
+import org.deeplearning4j.spark.impl.paramavg.aggregator.ParameterAveragingElementCombineFunction;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import static org.junit.Assert.*;
+
+public class QuantizedDeltaTest {
+
+    @Test
+    public void testQuantizationError() {
+        Nd4j.getRandom().setSeed(12345);
+        //Last block smaller than the others, and one block of zeros
+        INDArray delta = Nd4j.rand(1, 1050).subi(0.5).muli(1e-2);
+        delta.get(NDArrayIndex.point(0), NDArrayIndex.interval(100, 200)).assign(0);
+
+        QuantizedDelta quantized = QuantizedDelta.quantize(delta, 100);
+        assertEquals(1050, quantized.getLength());
+        assertEquals(11, quantized.getScales().length);
+        assertEquals(0.0f, quantized.getScales()[1], 0.0f);
+        assertEquals(1050 + 4 * 11, quantized.sizeInBytes());
+
+        INDArray restored = quantized.toArray();
+        assertArrayEquals(new int[] {1, 1050}, restored.shape());
+        //Max error: half of the block scale, i.e. max abs value / 254
+        double maxError = Transforms.abs(restored.sub(delta)).maxNumber().doubleValue();
+        assertTrue("Max error: " + maxError, maxError <= 5e-3 / 254 * 1.0001);
+        assertEquals(0.0, restored.get(NDArrayIndex.point(0), NDArrayIndex.interval(100, 200)).norm1Number()
+                        .doubleValue(), 0.0);
+    }
+
+    @Test
+    public void testCombineQuantizedTuples() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray d1 = Nd4j.rand(1, 50).subi(0.5);
+        INDArray d2 = Nd4j.rand(1, 50).subi(0.5);
+
+        ParameterAveragingAggregationTuple t1 = DeltaAggregationFlatMap.compress(ParameterAveragingAggregationTuple
+                        .builder().parametersSum(d1.dup()).scoreSum(1.0).aggregationsCount(1).build(), 16);
+        ParameterAveragingAggregationTuple t2 = DeltaAggregationFlatMap.compress(ParameterAveragingAggregationTuple
+                        .builder().parametersSum(d2.dup()).scoreSum(2.0).aggregationsCount(2).build(), 16);
+        ParameterAveragingAggregationTuple empty = ParameterAveragingAggregationTuple.builder().build();
+        assertNull(t1.getParametersSum());
+
+        ParameterAveragingElementCombineFunction combine = new ParameterAveragingElementCombineFunction();
+        ParameterAveragingAggregationTuple combined = combine.call(combine.call(t1, empty), t2);
+
+        //Quantized executor sums are summed in full precision: only their own quantization error remains
+        assertNull(combined.getParametersDeltaSum());
+        assertEquals(3, combined.getAggregationsCount());
+        assertEquals(3.0, combined.getScoreSum(), 0.0);
+
+        INDArray expected = t1.getParametersDeltaSum().toArray().add(t2.getParametersDeltaSum().toArray());
+        assertEquals(expected, combined.getParametersSum());
+        double maxError = Transforms.abs(combined.getParametersSum().sub(d1.add(d2))).maxNumber().doubleValue();
+        assertTrue("Max error: " + maxError, maxError < 0.01);
+    }
+}
@@ -0,0 +1,96 @@
+package org.deeplearning4j.spark.iterator;
+
+import org.apache.spark.SparkEnv;
+import org.apache.spark.api.java.JavaRDD;
+import org.deeplearning4j.spark.BaseSparkTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class TestCrossSplitPrefetcher extends BaseSparkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFirstPaths() {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            paths.add("path_" + i);
+        JavaRDD<String> split0 = sc.parallelize(paths.subList(0, 12), 3);
+        JavaRDD<String> split1 = sc.parallelize(paths.subList(12, 20), 2);
+
+        List<List<CrossSplitPrefetcher.FirstPaths>> first =
+                        CrossSplitPrefetcher.firstPaths(sc, Arrays.asList(split0, split1), 2);
+        assertEquals(2, first.size());
+        assertEquals(3, first.get(0).size());
+        assertEquals(2, first.get(1).size());
+
+        String executorId = SparkEnv.get().executorId();
+        for (int s = 0; s < 2; s++) {
+            JavaRDD<String> split = (s == 0 ? split0 : split1);
+            List<List<String>> partitions = split.glom().collect();
+            for (int p = 0; p < partitions.size(); p++) {
+                CrossSplitPrefetcher.FirstPaths fp = first.get(s).get(p);
+                assertEquals(p, fp.getPartition());
+                assertEquals(executorId, fp.getExecutorId());
+                assertEquals(partitions.get(p).subList(0, 2), fp.getPaths());
+            }
+        }
+        assertEquals(Arrays.asList("path_12", "path_13", "path_16", "path_17"),
+                        CrossSplitPrefetcher.pathsOnExecutor(first.get(1), executorId));
+        assertTrue(CrossSplitPrefetcher.pathsOnExecutor(first.get(1), "other").isEmpty());
+    }
+
+    @Test
+    public void testHitRateMultipleExecutors() throws Exception {
+        //Next split: 6 partitions, cached on 3 executors. Each executor prefetches the partitions it holds, and the
+        //training tasks of the next split are executed where their partition is cached
+        String[] executors = {"1", "2", "3"};
+        File dir = folder.newFolder();
+        List<CrossSplitPrefetcher.FirstPaths> next = new ArrayList<>();
+        for (int p = 0; p < 6; p++) {
+            List<String> paths = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                File f = new File(dir, "dataset_" + p + "_" + i + ".bin");
+                new DataSet(Nd4j.rand(3, 4), Nd4j.rand(3, 2)).save(f);
+                paths.add(f.toURI().toString());
+            }
+            next.add(new CrossSplitPrefetcher.FirstPaths(p, executors[p % executors.length], paths));
+        }
+
+        Map<String, CrossSplitPrefetcher> prefetchers = new HashMap<>();
+        for (String e : executors) {
+            CrossSplitPrefetcher prefetcher = new CrossSplitPrefetcher();
+            prefetcher.prefetch("next", CrossSplitPrefetcher.pathsOnExecutor(next, e), false, null);
+            prefetchers.put(e, prefetcher);
+        }
+
+        int hits = 0;
+        int total = 0;
+        for (CrossSplitPrefetcher.FirstPaths fp : next) {
+            String other = executors[(fp.getPartition() + 1) % executors.length];
+            Map<String, Future<Object>> local = prefetchers.get(fp.getExecutorId()).getPrefetched("next");
+            for (String path : fp.getPaths()) {
+                //Only loaded on the executor holding the partition
+                assertFalse(prefetchers.get(other).getPrefetched("next").containsKey(path));
+                Object loaded = CrossSplitPrefetcher.take(local, path);
+                if (loaded != null) {
+                    assertTrue(loaded instanceof DataSet);
+                    hits++;
+                }
+                total++;
+            }
+        }
+        assertEquals(12, total);
+        assertEquals(total, hits);
+    }
+}